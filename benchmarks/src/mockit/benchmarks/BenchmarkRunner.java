@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.benchmarks;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import javax.annotation.*;
+
+import org.openjdk.jmh.*;
+import org.openjdk.jmh.results.format.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.*;
+
+import mockit.internal.startup.*;
+
+/**
+ * Runs the JMockit benchmarks, as in "<tt>java -jar target/benchmarks.jar [JMH options]</tt>".
+ * <p/>
+ * Each benchmark fork runs with JMockit loaded as a Java agent, from the jar containing it.
+ * Unless specified otherwise through the "<tt>-rf</tt>" and "<tt>-rff</tt>" options, results are written in JSON format to
+ * "<tt>jmh-result.json</tt>", so that they can be compared across releases.
+ */
+public final class BenchmarkRunner
+{
+   private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+   private BenchmarkRunner() {}
+
+   public static void main(@Nonnull String[] args) throws CommandLineOptionException, RunnerException, IOException {
+      CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+
+      if (isNotARunRequest(commandLineOptions)) {
+         Main.main(args);
+         return;
+      }
+
+      ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+      options.jvmArgsAppend(getForkedJVMArguments(commandLineOptions));
+
+      if (!commandLineOptions.getResultFormat().hasValue()) {
+         options.resultFormat(ResultFormatType.JSON);
+      }
+
+      if (!commandLineOptions.getResult().hasValue()) {
+         options.result(DEFAULT_RESULT_FILE);
+      }
+
+      new Runner(options.build()).run();
+   }
+
+   private static boolean isNotARunRequest(@Nonnull CommandLineOptions options) {
+      return
+         options.shouldHelp() || options.shouldList() || options.shouldListWithParams() || options.shouldListProfilers() ||
+         options.shouldListResultFormats();
+   }
+
+   @Nonnull
+   private static String[] getForkedJVMArguments(@Nonnull CommandLineOptions commandLineOptions) {
+      List<String> jvmArgs = new ArrayList<String>();
+
+      if (commandLineOptions.getJvmArgsAppend().hasValue()) {
+         jvmArgs.addAll(commandLineOptions.getJvmArgsAppend().get());
+      }
+
+      jvmArgs.add("-javaagent:" + getAgentJarPath());
+      return jvmArgs.toArray(new String[jvmArgs.size()]);
+   }
+
+   @Nonnull
+   private static String getAgentJarPath() {
+      URL location = Startup.class.getProtectionDomain().getCodeSource().getLocation();
+
+      try {
+         return new File(location.toURI()).getPath();
+      }
+      catch (URISyntaxException e) {
+         throw new IllegalStateException(e);
+      }
+   }
+}
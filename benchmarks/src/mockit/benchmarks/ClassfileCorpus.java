@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.benchmarks;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.jar.*;
+import javax.annotation.*;
+
+import mockit.*;
+import mockit.asm.*;
+
+/**
+ * A fixed set of real-world classfiles for the instrumentation benchmarks, taken from the JMockit jar itself.
+ * <p/>
+ * Classes are picked at regular intervals from the sorted list of all JMockit classes, so that the corpus mixes small and large
+ * classes, interfaces, enums, and nested/anonymous classes, while staying the same between runs of the same JMockit version.
+ * Classes extending a class which is not available, such as those integrating with test frameworks, are left out, since they can't be
+ * instrumented without it.
+ */
+public final class ClassfileCorpus
+{
+   /**
+    * The number of classfiles in the corpus, for use in <tt>@OperationsPerInvocation</tt> by benchmarks which process the whole
+    * corpus in each invocation.
+    */
+   public static final int SIZE = 200;
+
+   private ClassfileCorpus() {}
+
+   @Nonnull
+   public static List<byte[]> load() throws IOException {
+      File jmockitJar = getJMockitJar();
+      List<byte[]> eligibleClassfiles = readClassfilesWithAvailableSuperclass(jmockitJar);
+      int step = eligibleClassfiles.size() / SIZE;
+
+      if (step == 0) {
+         throw new IllegalStateException("Too few classes in " + jmockitJar + " for a corpus of " + SIZE);
+      }
+
+      List<byte[]> classfiles = new ArrayList<byte[]>(SIZE);
+
+      for (int i = 0; i < SIZE; i++) {
+         classfiles.add(eligibleClassfiles.get(i * step));
+      }
+
+      return classfiles;
+   }
+
+   @Nonnull
+   private static File getJMockitJar() {
+      URL location = Expectations.class.getProtectionDomain().getCodeSource().getLocation();
+
+      try {
+         return new File(location.toURI());
+      }
+      catch (URISyntaxException e) {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   @Nonnull
+   private static List<byte[]> readClassfilesWithAvailableSuperclass(@Nonnull File jmockitJar) throws IOException {
+      JarFile jar = new JarFile(jmockitJar);
+
+      try {
+         ClassLoader classLoader = ClassfileCorpus.class.getClassLoader();
+         List<byte[]> classfiles = new ArrayList<byte[]>();
+
+         for (JarEntry classEntry : getJMockitClasses(jar)) {
+            byte[] classfile = readClassfile(jar, classEntry);
+            String superName = new ClassReader(classfile).getSuperName();
+
+            if (superName == null || classLoader.getResource(superName + ".class") != null) {
+               classfiles.add(classfile);
+            }
+         }
+
+         return classfiles;
+      }
+      finally {
+         jar.close();
+      }
+   }
+
+   @Nonnull
+   private static List<JarEntry> getJMockitClasses(@Nonnull JarFile jar) {
+      List<JarEntry> classEntries = new ArrayList<JarEntry>();
+
+      for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+         JarEntry entry = entries.nextElement();
+         String entryPath = entry.getName();
+
+         if (
+            entryPath.startsWith("mockit/") && entryPath.endsWith(".class") &&
+            !entryPath.startsWith("mockit/benchmarks/") && !entryPath.contains("Benchmark")
+         ) {
+            classEntries.add(entry);
+         }
+      }
+
+      Collections.sort(classEntries, new Comparator<JarEntry>() {
+         @Override
+         public int compare(JarEntry entry1, JarEntry entry2) { return entry1.getName().compareTo(entry2.getName()); }
+      });
+
+      return classEntries;
+   }
+
+   @Nonnull
+   private static byte[] readClassfile(@Nonnull JarFile jar, @Nonnull JarEntry entry) throws IOException {
+      InputStream input = jar.getInputStream(entry);
+
+      try {
+         ByteArrayOutputStream output = new ByteArrayOutputStream(entry.getSize() > 0L ? (int) entry.getSize() : 4096);
+         byte[] buffer = new byte[4096];
+         int n;
+
+         while ((n = input.read(buffer)) >= 0) {
+            output.write(buffer, 0, n);
+         }
+
+         return output.toByteArray();
+      }
+      finally {
+         input.close();
+      }
+   }
+}
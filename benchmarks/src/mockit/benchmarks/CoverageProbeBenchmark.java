@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.benchmarks;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import mockit.asm.*;
+import mockit.coverage.TestRun;
+import mockit.coverage.data.*;
+import mockit.coverage.lines.*;
+
+/**
+ * Measures the cost of the probes which instrumented code calls for each executed line and branch, both from a single thread and from
+ * as many threads as there are processors, where all threads update the execution counts of the same source file.
+ */
+@BenchmarkMode(Mode.Throughput) @OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1) @Measurement(iterations = 5, time = 1) @Fork(1)
+@State(Scope.Benchmark)
+public class CoverageProbeBenchmark
+{
+   private static final int LINE_COUNT = 100;
+
+   @State(Scope.Thread)
+   public static class LineCursor {
+      private int line;
+
+      int nextLine() {
+         line = line % LINE_COUNT + 1;
+         return line;
+      }
+   }
+
+   private int fileIndex;
+
+   @Setup
+   public void registerSourceFile() {
+      FileCoverageData fileData = CoverageData.instance().getOrAddFile("mockit/benchmarks/ProbedClass.java", null);
+      PerFileLineCoverage lineCoverage = fileData.getLineCoverageData();
+
+      for (int line = 1; line <= LINE_COUNT; line++) {
+         Label jumpSource = new Label();
+         jumpSource.line = line;
+         Label jumpTarget = new Label();
+         jumpTarget.line = line;
+
+         lineCoverage.addLine(line);
+         lineCoverage.addBranchingPoint(line, jumpSource, jumpTarget);
+      }
+
+      lineCoverage.resolveBranchLines();
+      fileIndex = fileData.index;
+   }
+
+   @Benchmark @Threads(1)
+   public void lineExecuted(LineCursor cursor) { TestRun.lineExecuted(fileIndex, cursor.nextLine()); }
+
+   @Benchmark @Threads(Threads.MAX)
+   public void lineExecutedConcurrently(LineCursor cursor) { TestRun.lineExecuted(fileIndex, cursor.nextLine()); }
+
+   @Benchmark @Threads(1)
+   public void branchExecuted(LineCursor cursor) { TestRun.branchExecuted(fileIndex, cursor.nextLine(), 0); }
+
+   @Benchmark @Threads(Threads.MAX)
+   public void branchExecutedConcurrently(LineCursor cursor) { TestRun.branchExecuted(fileIndex, cursor.nextLine(), 0); }
+}
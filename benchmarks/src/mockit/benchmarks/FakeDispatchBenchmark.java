@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.benchmarks;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import mockit.*;
+
+/**
+ * Measures the cost of dispatching calls from a faked method to its fake method, for each of the ways in which the call can be made:
+ * directly into a public fake method, through the class loading bridge for a non-public fake method, and with an
+ * {@link Invocation} parameter which proceeds into the real implementation.
+ * Calls to a method which was not faked provide the baseline.
+ */
+@BenchmarkMode(Mode.Throughput) @OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1) @Measurement(iterations = 5, time = 1) @Fork(1)
+@State(Scope.Benchmark)
+public class FakeDispatchBenchmark
+{
+   public static class Collaborator {
+      public int notFaked(int value) { return value; }
+      public int fakedDirectly(int value) { return value; }
+      public int fakedThroughBridge(int value) { return value; }
+      public int fakedWithInvocation(int value) { return value; }
+   }
+
+   public static final class CollaboratorFake extends MockUp<Collaborator> {
+      @Mock public int fakedDirectly(int value) { return value + 1; }
+      @Mock int fakedThroughBridge(int value) { return value + 1; }
+
+      @Mock
+      public int fakedWithInvocation(Invocation invocation, int value) {
+         int result = invocation.<Integer>proceed();
+         return result + 1;
+      }
+   }
+
+   private Collaborator collaborator;
+   private int value;
+
+   @Setup
+   public void applyFake() {
+      new CollaboratorFake();
+      collaborator = new Collaborator();
+   }
+
+   @Benchmark
+   public int callNotFaked() { return collaborator.notFaked(value++); }
+
+   @Benchmark
+   public int callFakedDirectly() { return collaborator.fakedDirectly(value++); }
+
+   @Benchmark
+   public int callFakedThroughBridge() { return collaborator.fakedThroughBridge(value++); }
+
+   @Benchmark
+   public int callFakedWithInvocation() { return collaborator.fakedWithInvocation(value++); }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.benchmarks;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import mockit.*;
+
+/**
+ * Measures the throughput of calls to a partially mocked instance, during replay, against a varying number of recorded
+ * expectations.
+ * The first recorded expectation is the first one to be matched, while the last one is only matched after all others are tried.
+ */
+@BenchmarkMode(Mode.Throughput) @OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1) @Measurement(iterations = 5, time = 1) @Fork(1)
+@State(Scope.Benchmark)
+public class ReplayBenchmark
+{
+   public static class Collaborator {
+      public int getValue(int key) { return -1; }
+   }
+
+   @Param({"1", "10", "100"}) public int expectationCount;
+   private Collaborator collaborator;
+   private int lastKey;
+
+   @Setup
+   public void recordExpectations() {
+      collaborator = new Collaborator();
+      final int n = expectationCount;
+
+      new Expectations(collaborator) {{
+         for (int key = 0; key < n; key++) {
+            collaborator.getValue(key); result = key;
+         }
+      }};
+
+      lastKey = n - 1;
+   }
+
+   @Benchmark
+   public int replayFirstExpectation() { return collaborator.getValue(0); }
+
+   @Benchmark
+   public int replayLastExpectation() { return collaborator.getValue(lastKey); }
+
+   @Benchmark
+   public int replayUnrecordedCall() { return collaborator.getValue(-1); }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.modification;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import mockit.benchmarks.*;
+import mockit.coverage.data.*;
+
+/**
+ * Measures the writing, reading, and merging of "<tt>coverage.ser</tt>" files, for the coverage data of the classes in the
+ * {@linkplain ClassfileCorpus corpus}.
+ * It's in this package so that the coverage data can be gathered the same way as for classes which are never loaded.
+ */
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1) @Measurement(iterations = 5, time = 1) @Fork(1)
+@State(Scope.Benchmark)
+public class CoverageDataBenchmark
+{
+   private CoverageData coverageData;
+   private File dataFile;
+
+   @Setup
+   public void gatherCoverageData() throws IOException {
+      for (byte[] classfile : ClassfileCorpus.load()) {
+         ClassModification.modifyClassNotLoadedForCoverage(classfile);
+      }
+
+      coverageData = CoverageData.instance();
+      dataFile = File.createTempFile("coverage", ".ser");
+      dataFile.deleteOnExit();
+      coverageData.writeDataToFile(dataFile);
+   }
+
+   @State(Scope.Thread)
+   public static class DataToMerge {
+      CoverageData currentData;
+      CoverageData previousData;
+
+      @Setup(Level.Invocation)
+      public void readDataFiles(CoverageDataBenchmark benchmark) throws IOException {
+         currentData = CoverageData.readDataFromFile(benchmark.dataFile);
+         previousData = CoverageData.readDataFromFile(benchmark.dataFile);
+      }
+   }
+
+   @Benchmark
+   public void writeDataFile() throws IOException { coverageData.writeDataToFile(dataFile); }
+
+   @Benchmark
+   public CoverageData readDataFile() throws IOException { return CoverageData.readDataFromFile(dataFile); }
+
+   @Benchmark
+   public CoverageData mergeWithPreviousData(DataToMerge data) {
+      data.currentData.merge(data.previousData);
+      return data.currentData;
+   }
+}
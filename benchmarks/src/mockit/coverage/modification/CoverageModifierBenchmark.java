@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.modification;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+import mockit.benchmarks.*;
+import mockit.coverage.data.*;
+
+/**
+ * Measures the time to instrument a class for coverage, averaged over the classes in the {@linkplain ClassfileCorpus corpus}.
+ * The coverage data gathered for the corpus is discarded after each invocation, so that every invocation instruments the classes
+ * from scratch.
+ */
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1) @Measurement(iterations = 5, time = 1) @Fork(1)
+@State(Scope.Benchmark)
+public class CoverageModifierBenchmark
+{
+   private List<byte[]> corpus;
+
+   @Setup
+   public void loadCorpus() throws IOException { corpus = ClassfileCorpus.load(); }
+
+   @Benchmark @OperationsPerInvocation(ClassfileCorpus.SIZE)
+   public void instrumentClassForCoverage(Blackhole blackhole) {
+      for (byte[] classfile : corpus) {
+         CoverageModifier modifier = ClassModification.modifyClassNotLoadedForCoverage(classfile);
+
+         if (modifier != null) {
+            blackhole.consume(modifier.toByteArray());
+         }
+      }
+
+      CoverageData.instance().clear();
+   }
+}
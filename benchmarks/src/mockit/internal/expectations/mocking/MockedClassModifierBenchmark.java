@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.expectations.mocking;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+import mockit.asm.*;
+import mockit.benchmarks.*;
+import mockit.internal.util.*;
+
+/**
+ * Measures the time to modify a class for mocking, averaged over the classes in the {@linkplain ClassfileCorpus corpus}, for classes
+ * from a non-bootstrap class loader and for classes which would be loaded by the bootstrap loader (which get their mocking code called
+ * through the class loading bridge).
+ */
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1) @Measurement(iterations = 5, time = 1) @Fork(1)
+@State(Scope.Benchmark)
+public class MockedClassModifierBenchmark
+{
+   private List<byte[]> corpus;
+   private ClassLoader classLoader;
+
+   @Setup
+   public void loadCorpus() throws IOException {
+      corpus = ClassfileCorpus.load();
+      classLoader = MockedClassModifierBenchmark.class.getClassLoader();
+   }
+
+   @Benchmark @OperationsPerInvocation(ClassfileCorpus.SIZE)
+   public void modifyClassForMocking(Blackhole blackhole) {
+      for (byte[] classfile : corpus) {
+         blackhole.consume(modifyClass(classLoader, classfile));
+      }
+   }
+
+   @Benchmark @OperationsPerInvocation(ClassfileCorpus.SIZE)
+   public void modifyBootstrapClassForMocking(Blackhole blackhole) {
+      for (byte[] classfile : corpus) {
+         blackhole.consume(modifyClass(null, classfile));
+      }
+   }
+
+   private static byte[] modifyClass(ClassLoader loader, byte[] classfile) {
+      ClassReader cr = new ClassReader(classfile);
+      MockedClassModifier modifier = new MockedClassModifier(loader, cr, null);
+
+      try {
+         cr.accept(modifier, 0);
+         return modifier.toByteArray();
+      }
+      catch (VisitInterruptedException ignore) {
+         return null;
+      }
+   }
+}
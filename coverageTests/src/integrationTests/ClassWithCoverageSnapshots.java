@@ -0,0 +1,15 @@
+package integrationTests;
+
+public final class ClassWithCoverageSnapshots
+{
+   private static int lastValue;
+
+   public static int absoluteValue(int value) {
+      if (value < 0) {
+         value = -value;
+      }
+
+      lastValue = value;
+      return lastValue;
+   }
+}
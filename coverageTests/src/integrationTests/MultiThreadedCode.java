@@ -17,4 +17,9 @@ public final class MultiThreadedCode
       worker.start();
       return worker;
    }
+
+   public static String describe(int value)
+   {
+      return value > 0 ? "positive" : "non-positive";
+   }
 }
\ No newline at end of file
@@ -101,4 +101,51 @@ public final class SwitchStatements
             return b ? 2 : 3;
       }
    }
+
+   int switchStatementWithManyCases(int i)
+   {
+      switch (i) {
+         case 1: return 10;
+         case 2: return 20;
+         case 3: return 30;
+         case 4: return 40;
+         case 5: return 50;
+         case 6: return 60;
+         case 7: return 70;
+         case 8: return 80;
+         case 9: return 90;
+         case 10: return 100;
+         case 11: return 110;
+         case 12: return 120;
+         case 13: return 130;
+         case 14: return 140;
+         case 15: return 150;
+         case 16: return 160;
+         case 17: return 170;
+         case 18: return 180;
+         case 19: return 190;
+         case 20: return 200;
+         case 21: return 210;
+         case 22: return 220;
+         case 23: return 230;
+         case 24: return 240;
+         case 25: return 250;
+         case 26: return 260;
+         case 27: return 270;
+         case 28: return 280;
+         case 29: return 290;
+         case 30: return 300;
+         case 31: return 310;
+         case 32: return 320;
+         case 33: return 330;
+         case 34: return 340;
+         case 35: return 350;
+         case 36: return 360;
+         case 37: return 370;
+         case 38: return 380;
+         case 39: return 390;
+         case 40: return 400;
+         default: return 0;
+      }
+   }
 }
\ No newline at end of file
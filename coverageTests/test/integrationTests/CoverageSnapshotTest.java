@@ -0,0 +1,78 @@
+package integrationTests;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import mockit.coverage.data.*;
+import mockit.coverage.dataItems.*;
+import mockit.coverage.paths.*;
+
+public final class CoverageSnapshotTest extends CoverageTest
+{
+   ClassWithCoverageSnapshots tested;
+
+   static FileCoverageData takeSnapshot(boolean resetCounts) {
+      CoverageData snapshot = CoverageData.instance().takeSnapshot(resetCounts);
+      return snapshot.getFileData("integrationTests/ClassWithCoverageSnapshots.java");
+   }
+
+   static int lineCount(FileCoverageData data) { return Math.max(0, data.lineCoverageInfo.getExecutionCount(12)); }
+   static int jumpCount(FileCoverageData data) { return data.lineCoverageInfo.getLineData(8).getBranchData(0).getExecutionCount(); }
+   static int pathCount(FileCoverageData data) { return methodData(data).getExecutionCount(); }
+   static MethodCoverageData methodData(FileCoverageData data) { return data.pathCoverageInfo.firstLineToMethodData.get(8); }
+   static int readCount(FileCoverageData data) { return fieldData(data).getReadCount(); }
+   static StaticFieldData fieldData(FileCoverageData data) {
+      return data.dataCoverageInfo.staticFieldsData.get("ClassWithCoverageSnapshots.lastValue");
+   }
+
+   @Test
+   public void takeSnapshotWhichIsNotAffectedByLaterExecutions() {
+      ClassWithCoverageSnapshots.absoluteValue(-1);
+      int lineExecutions = lineCount(fileData);
+      int jumpExecutions = jumpCount(fileData);
+      int pathExecutions = pathCount(fileData);
+      int fieldReads = readCount(fileData);
+
+      FileCoverageData snapshot = takeSnapshot(false);
+      ClassWithCoverageSnapshots.absoluteValue(2);
+
+      assertNotSame(fileData, snapshot);
+      assertEquals(lineExecutions, lineCount(snapshot));
+      assertEquals(jumpExecutions, jumpCount(snapshot));
+      assertEquals(pathExecutions, pathCount(snapshot));
+      assertEquals(methodData(fileData).getTotalPaths(), methodData(snapshot).getTotalPaths());
+      assertEquals(fieldReads, readCount(snapshot));
+      assertTrue(fieldData(snapshot).isCovered());
+
+      assertEquals(lineExecutions + 1, lineCount(fileData));
+      assertEquals(pathExecutions + 1, pathCount(fileData));
+      assertEquals(fieldReads + 1, readCount(fileData));
+   }
+
+   @Test
+   public void takeSnapshotResettingCountsSoThatLaterExecutionsAreCountedFromZero() {
+      ClassWithCoverageSnapshots.absoluteValue(-3);
+      int lineExecutions = lineCount(fileData);
+      int jumpExecutions = jumpCount(fileData);
+      int pathExecutions = pathCount(fileData);
+      int fieldReads = readCount(fileData);
+
+      FileCoverageData snapshot = takeSnapshot(true);
+
+      assertEquals(lineExecutions, lineCount(snapshot));
+      assertEquals(jumpExecutions, jumpCount(snapshot));
+      assertEquals(pathExecutions, pathCount(snapshot));
+      assertEquals(fieldReads, readCount(snapshot));
+      assertEquals(0, lineCount(fileData));
+      assertEquals(0, pathCount(fileData));
+      assertEquals(0, readCount(fileData));
+
+      ClassWithCoverageSnapshots.absoluteValue(4);
+
+      assertEquals(1, lineCount(fileData));
+      assertEquals(1, pathCount(fileData));
+      assertEquals(1, readCount(fileData));
+      assertEquals(lineExecutions, lineCount(snapshot));
+      assertEquals(pathExecutions, pathCount(snapshot));
+   }
+}
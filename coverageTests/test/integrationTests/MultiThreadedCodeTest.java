@@ -1,5 +1,7 @@
 package integrationTests;
 
+import java.util.*;
+
 import org.junit.*;
 
 public final class MultiThreadedCodeTest extends CoverageTest
@@ -23,4 +25,35 @@ public final class MultiThreadedCodeTest extends CoverageTest
       assertMethodLines(7, 18);
       assertPath(2, 1);
    }
-}
\ No newline at end of file
+
+   @Test
+   public void sameMethodExecutedConcurrentlyFromMultipleThreads() throws Exception {
+      List<Thread> workers = new ArrayList<>();
+
+      for (int i = 0; i < 4; i++) {
+         int value = i % 2 == 0 ? 1 : -1;
+         Thread worker = new Thread(() -> {
+            for (int j = 0; j < 1000; j++) {
+               MultiThreadedCode.describe(value);
+            }
+         });
+         workers.add(worker);
+      }
+
+      for (Thread worker : workers) {
+         worker.start();
+      }
+
+      for (Thread worker : workers) {
+         worker.join();
+      }
+
+      assertLines(23, 23, 1);
+      assertLine(23, 3, 3, 4000, 2000, 2000);
+
+      findMethodData(23);
+      assertPaths(2, 2, 4000);
+      assertPath(6, 2000);
+      assertPath(5, 2000);
+   }
+}
@@ -142,4 +142,31 @@ public final class SwitchStatementsTest extends CoverageTest
       assertPath(9, 1);
       assertPath(8, 0);
    }
-}
\ No newline at end of file
+
+   @Test
+   public void switchStatementWithManyCases() {
+      tested.switchStatementWithManyCases(1);
+      tested.switchStatementWithManyCases(40);
+      tested.switchStatementWithManyCases(40);
+      tested.switchStatementWithManyCases(41);
+
+      assertLines(107, 148, 4);
+      assertLine(107, 1, 1, 4);
+      assertLine(108, 1, 1, 1);
+      assertLine(109, 1, 0, 0);
+      assertLine(147, 1, 1, 2);
+      assertLine(148, 1, 1, 1);
+
+      // The nodes for the last cases have indexes beyond the first 64, so they are tracked past the first word of a bit set.
+      findMethodData(107);
+      assertPaths(41, 3, 4);
+      assertPath(5, 1);
+
+      for (int i = 2; i < 40; i++) {
+         assertPath(5, 0);
+      }
+
+      assertPath(5, 2);
+      assertPath(5, 1);
+   }
+}
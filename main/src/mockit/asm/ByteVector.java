@@ -32,6 +32,22 @@ final class ByteVector
       data = new byte[initialSize];
    }
 
+   /**
+    * Constructs a new empty ByteVector which writes into the given array for as long as it has room.
+    */
+   ByteVector(@Nonnull byte[] data) {
+      this.data = data;
+   }
+
+   /**
+    * Enlarges this byte vector, if needed, so that it can receive at least the given number of bytes in total without further enlargement.
+    */
+   void ensureCapacity(@Nonnegative int size) {
+      if (size > data.length) {
+         enlarge(size - length);
+      }
+   }
+
    /**
     * Puts a byte into this byte vector. The byte vector is automatically enlarged if necessary.
     *
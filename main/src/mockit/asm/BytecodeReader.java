@@ -25,9 +25,12 @@ class BytecodeReader
    @Nonnull private final String[] strings;
 
    /**
-    * The buffer used to read strings.
+    * The buffer used to read strings, shared by all readers on the same thread since it's only needed while decoding a single string.
+    * Readers are kept in a cache, so a buffer of their own would be retained for as long as they are.
     */
-   @Nonnull private final char[] buf;
+   private static final ThreadLocal<char[]> STRING_BUFFER = new ThreadLocal<char[]>() {
+      @Override protected char[] initialValue() { return new char[256]; }
+   };
 
    /**
     * The next index at {@link #code} to be read.
@@ -42,14 +45,10 @@ class BytecodeReader
       items = new int[itemCount];
       strings = new String[itemCount];
 
-      int maxStringSize = readConstantPoolItems();
-      buf = new char[maxStringSize];
+      readConstantPoolItems();
    }
 
-   @Nonnegative
-   private int readConstantPoolItems() {
-      int maxStringSize = 0;
-
+   private void readConstantPoolItems() {
       for (int itemIndex = 1; itemIndex < items.length; itemIndex++) {
          int itemType = readSignedByte();
          items[itemIndex] = codeIndex;
@@ -58,14 +57,9 @@ class BytecodeReader
          if (itemType == LONG || itemType == DOUBLE) {
             itemIndex++;
          }
-         else if (itemType == UTF8 && itemSize > maxStringSize) {
-            maxStringSize = itemSize;
-         }
 
          codeIndex += itemSize - 1;
       }
-
-      return maxStringSize;
    }
 
    @Nonnegative
@@ -83,7 +77,6 @@ class BytecodeReader
       code = another.code;
       items = another.items;
       strings = another.strings;
-      buf = another.buf;
       codeIndex = another.codeIndex;
    }
 
@@ -241,6 +234,7 @@ class BytecodeReader
       int utfLen = readUnsignedShort(startIndex);
       startIndex += 2;
       int endIndex = startIndex + utfLen;
+      char[] buf = getStringBuffer(utfLen);
       int strLen = 0;
       int st = 0;
       char cc = 0;
@@ -276,6 +270,21 @@ class BytecodeReader
       return new String(buf, 0, strLen);
    }
 
+   /**
+    * Gets the thread's buffer for reading strings, enlarging it if needed; a string never has more characters than its UTF8 bytes.
+    */
+   @Nonnull
+   private static char[] getStringBuffer(@Nonnegative int minLength) {
+      char[] buf = STRING_BUFFER.get();
+
+      if (buf.length < minLength) {
+         buf = new char[Math.max(minLength, 2 * buf.length)];
+         STRING_BUFFER.set(buf);
+      }
+
+      return buf;
+   }
+
    /**
     * Reads an UTF8 string constant pool item in {@link #code}, incrementing {@link #codeIndex} by 2.
     *
@@ -1,5 +1,6 @@
 package mockit.asm;
 
+import java.util.*;
 import javax.annotation.*;
 
 import static mockit.asm.Opcodes.*;
@@ -52,6 +53,12 @@ final class CFGAnalysis
     */
    @Nonnegative private int maxStackSize;
 
+   /**
+    * The instructions visited so far, if their execution on the frames of their basic blocks is deferred until it's known whether
+    * the stack map frames of the original method can be reused; in the meantime, only stack sizes are computed for each basic block.
+    */
+   @Nullable private DeferredFrameExecution deferredFrameExecution;
+
    CFGAnalysis(@Nonnull ClassWriter cw, @Nonnull ByteVector code, boolean computeFrames) {
       this.cw = cw;
       cp = cw.cp;
@@ -67,12 +74,50 @@ final class CFGAnalysis
    Frame getFirstFrame() { return labels.frame; }
    @Nullable Label getLabelForCurrentBasicBlock() { return currentBlock; }
 
+   /**
+    * Defers the execution of instructions on the frames of basic blocks, when the original frames of the method being written are
+    * expected to be reused. Must be called before any instruction is visited.
+    */
+   void deferFrameExecution(@Nonnegative int originalCodeLength) {
+      if (computeFrames) {
+         deferredFrameExecution = new DeferredFrameExecution(originalCodeLength / 2 + 16);
+      }
+   }
+
+   boolean isFrameExecutionDeferred() { return deferredFrameExecution != null; }
+
+   /**
+    * The size of the stack after the last visited instruction, relatively to the beginning of the current basic block, when frame execution
+    * is deferred.
+    */
+   int getRelativeStackSize() { return stackSize; }
+
+   /**
+    * Executes the instructions deferred so far on the frames of their basic blocks, so that the frames can be computed.
+    */
+   void executeDeferredFrames() {
+      DeferredFrameExecution deferred = deferredFrameExecution;
+
+      if (deferred != null) {
+         for (Label block = labels; block != null; block = block.successor) {
+            block.outputStackMax = 0;
+         }
+
+         deferred.executeAll();
+         deferredFrameExecution = null;
+      }
+   }
+
    void updateCurrentBlockForZeroOperandInstruction(int opcode) {
       if (currentBlock != null) {
-         if (computeFrames) {
+         if (computeFrames && deferredFrameExecution == null) {
             currentBlock.frame.execute(opcode);
          }
          else {
+            if (deferredFrameExecution != null) {
+               deferredFrameExecution.addInstruction(currentBlock.frame, opcode);
+            }
+
             int sizeVariation = Frame.SIZE[opcode];
             updateStackSize(sizeVariation);
          }
@@ -93,6 +138,15 @@ final class CFGAnalysis
       }
 
       stackSize = newSize;
+      updateStackSizesOfBlockWithDeferredFrame();
+   }
+
+   private void updateStackSizesOfBlockWithDeferredFrame() {
+      if (deferredFrameExecution != null) {
+         //noinspection ConstantConditions
+         currentBlock.outputStackMax = maxStackSize;
+         currentBlock.outputStackSize = stackSize;
+      }
    }
 
    /**
@@ -133,21 +187,31 @@ final class CFGAnalysis
 
    void updateCurrentBlockForSingleIntOperandInstruction(int opcode, int operand) {
       if (currentBlock != null) {
-         if (computeFrames) {
+         if (computeFrames && deferredFrameExecution == null) {
             currentBlock.frame.executeINT(opcode, operand);
          }
-         else if (opcode != NEWARRAY) { // updates stack size only for NEWARRAY (variation = 0 for BIPUSH or SIPUSH)
-            updateStackSize(1);
+         else {
+            if (deferredFrameExecution != null) {
+               deferredFrameExecution.addIntInstruction(currentBlock.frame, opcode, operand);
+            }
+
+            if (opcode != NEWARRAY) { // updates stack size only for BIPUSH or SIPUSH (variation = 0 for NEWARRAY)
+               updateStackSize(1);
+            }
          }
       }
    }
 
    void updateCurrentBlockForLocalVariableInstruction(int opcode, @Nonnegative int var) {
       if (currentBlock != null) {
-         if (computeFrames) {
+         if (computeFrames && deferredFrameExecution == null) {
             currentBlock.frame.executeVAR(opcode, var);
          }
          else { // xLOAD or xSTORE
+            if (deferredFrameExecution != null) {
+               deferredFrameExecution.addVarInstruction(currentBlock.frame, opcode, var);
+            }
+
             int sizeVariation = Frame.SIZE[opcode];
             updateStackSize(sizeVariation);
          }
@@ -156,11 +220,17 @@ final class CFGAnalysis
 
    void updateCurrentBlockForTypeInstruction(int opcode, @Nonnull StringItem typeItem) {
       if (currentBlock != null) {
-         if (computeFrames) {
+         if (computeFrames && deferredFrameExecution == null) {
             currentBlock.frame.executeTYPE(opcode, code.length, typeItem);
          }
-         else if (opcode == NEW) { // updates stack size for NEW only; no change for ANEWARRAY, CHECKCAST, INSTANCEOF
-            updateStackSize(1);
+         else {
+            if (deferredFrameExecution != null) {
+               deferredFrameExecution.addTypeInstruction(currentBlock.frame, opcode, code.length, typeItem);
+            }
+
+            if (opcode == NEW) { // updates stack size for NEW only; no change for ANEWARRAY, CHECKCAST, INSTANCEOF
+               updateStackSize(1);
+            }
          }
       }
    }
@@ -169,10 +239,14 @@ final class CFGAnalysis
       int opcode, @Nonnull TypeOrMemberItem fieldItem, @Nonnull String fieldTypeDesc
    ) {
       if (currentBlock != null) {
-         if (computeFrames) {
+         if (computeFrames && deferredFrameExecution == null) {
             currentBlock.frame.execute(opcode, fieldItem);
          }
          else {
+            if (deferredFrameExecution != null) {
+               deferredFrameExecution.addFieldOrInvokeInstruction(currentBlock.frame, opcode, fieldItem);
+            }
+
             char typeCode = fieldTypeDesc.charAt(0);
             int sizeVariation = computeSizeVariationForFieldAccess(opcode, typeCode);
             updateStackSize(sizeVariation);
@@ -193,10 +267,14 @@ final class CFGAnalysis
 
    void updateCurrentBlockForInvokeInstruction(@Nonnull TypeOrMemberItem invokeItem, int opcode, @Nonnull String desc) {
       if (currentBlock != null) {
-         if (computeFrames) {
+         if (computeFrames && deferredFrameExecution == null) {
             currentBlock.frame.execute(opcode, invokeItem);
          }
          else {
+            if (deferredFrameExecution != null) {
+               deferredFrameExecution.addFieldOrInvokeInstruction(currentBlock.frame, opcode, invokeItem);
+            }
+
             int argSize = invokeItem.getArgSizeComputingIfNeeded(desc);
             int sizeVariation = -(argSize >> 2) + (argSize & 0x03);
 
@@ -215,7 +293,14 @@ final class CFGAnalysis
 
       if (currentBlock != null) {
          if (computeFrames) {
-            currentBlock.frame.executeJUMP(opcode);
+            if (deferredFrameExecution == null) {
+               currentBlock.frame.executeJUMP(opcode);
+            }
+            else {
+               deferredFrameExecution.addJumpInstruction(currentBlock.frame, opcode);
+               stackSize += Frame.SIZE[opcode];
+               updateStackSizesOfBlockWithDeferredFrame();
+            }
 
             // 'label' is the target of a jump instruction.
             label.getFirst().markAsTarget();
@@ -275,6 +360,8 @@ final class CFGAnalysis
 
          // Begins a new current block.
          currentBlock = label;
+         stackSize = 0;
+         maxStackSize = 0;
 
          if (label.frame == null) {
             label.frame = new Frame(cp, label);
@@ -319,10 +406,14 @@ final class CFGAnalysis
 
    void updateCurrentBlockForLDCInstruction(@Nonnull Item constItem) {
       if (currentBlock != null) {
-         if (computeFrames) {
+         if (computeFrames && deferredFrameExecution == null) {
             currentBlock.frame.executeLDC(constItem);
          }
          else {
+            if (deferredFrameExecution != null) {
+               deferredFrameExecution.addLDCInstruction(currentBlock.frame, constItem);
+            }
+
             int sizeVariation = constItem instanceof LongValueItem ? 2 : 1;
             updateStackSize(sizeVariation);
          }
@@ -331,14 +422,26 @@ final class CFGAnalysis
 
    void updateCurrentBlockForIINCInstruction(int var) {
       if (currentBlock != null && computeFrames) {
-         currentBlock.frame.executeIINC(var);
+         if (deferredFrameExecution == null) {
+            currentBlock.frame.executeIINC(var);
+         }
+         else {
+            deferredFrameExecution.addIINCInstruction(currentBlock.frame, var);
+         }
       }
    }
 
    void updateCurrentBlockForSwitchInstruction(@Nonnull Label dflt, @Nonnull Label[] caseLabels) {
       if (currentBlock != null) {
          if (computeFrames) {
-            currentBlock.frame.executeSWITCH();
+            if (deferredFrameExecution == null) {
+               currentBlock.frame.executeSWITCH();
+            }
+            else {
+               deferredFrameExecution.addSwitchInstruction(currentBlock.frame);
+               stackSize--;
+               updateStackSizesOfBlockWithDeferredFrame();
+            }
 
             // Adds current block successors.
             addSuccessor(Edge.NORMAL, dflt);
@@ -371,12 +474,17 @@ final class CFGAnalysis
 
    void updateCurrentBlockForMULTIANEWARRAYInstruction(@Nonnull StringItem arrayTypeItem, @Nonnegative int dims) {
       if (currentBlock != null) {
-         if (computeFrames) {
+         if (computeFrames && deferredFrameExecution == null) {
             currentBlock.frame.executeMULTIANEWARRAY(dims, arrayTypeItem);
          }
          else {
+            if (deferredFrameExecution != null) {
+               deferredFrameExecution.addMULTIANEWARRAYInstruction(currentBlock.frame, dims, arrayTypeItem);
+            }
+
             // Updates current stack size (max stack size unchanged because stack size variation always negative or 0).
             stackSize += 1 - dims;
+            updateStackSizesOfBlockWithDeferredFrame();
          }
       }
    }
@@ -438,6 +546,72 @@ final class CFGAnalysis
       return changed;
    }
 
+   /**
+    * Computes the maximum stack size from the relative output stack sizes of the basic blocks, without computing their input frames, for
+    * a method whose original stack map frames are to be reused.
+    * The original frames can only be reused if every reachable jump target starts at the position of an original frame, if the stack
+    * size at each such position is still the one in the original frame, and if there is no unreachable code.
+    *
+    * @param framePositions the current bytecode positions of the original frames, in increasing order
+    * @param frameStackSizes the stack sizes in the original frames, in the same order
+    * @return the maximum stack size, or <tt>-1</tt> if the original frames cannot be reused
+    */
+   int computeMaxStackSizeForOriginalFrames(@Nonnull int[] framePositions, @Nonnull int[] frameStackSizes) {
+      boolean framesReusable = true;
+      int max = 0;
+      Label stack = labels;
+      labels.markAsReachable();
+
+      while (stack != null) {
+         Label block = stack;
+         stack = stack.next;
+         block.next = null;
+
+         int start = block.inputStackHeight;
+         int frameIndex = Arrays.binarySearch(framePositions, block.position);
+
+         if (frameIndex >= 0 ? frameStackSizes[frameIndex] != start : block.isTarget()) {
+            framesReusable = false;
+         }
+
+         int blockMax = start + block.outputStackMax;
+
+         if (blockMax > max) {
+            max = blockMax;
+         }
+
+         int end = start + block.outputStackSize;
+
+         for (Edge edge = block.successors; edge != null; edge = edge.next) {
+            Label successor = edge.successor.getFirst();
+
+            if (!successor.isReachable()) {
+               successor.inputStackHeight = edge.info == Edge.NORMAL ? end : 1;
+               successor.markAsReachable();
+               successor.next = stack;
+               stack = successor;
+            }
+         }
+      }
+
+      return framesReusable && !hasUnreachableCode() ? max : -1;
+   }
+
+   private boolean hasUnreachableCode() {
+      for (Label block = labels; block != null; block = block.successor) {
+         if (!block.isReachable()) {
+            Label nextBlock = block.successor;
+            int end = nextBlock == null ? code.length : nextBlock.position;
+
+            if (end > block.position) {
+               return true;
+            }
+         }
+      }
+
+      return false;
+   }
+
    /**
     * Control flow analysis algorithm: while the block stack is not empty, pop a block from this stack, update the max stack size, compute
     * the true (non relative) begin stack size of the successors of this block, and push these successors onto the stack (unless they have
@@ -72,6 +72,61 @@ public final class ClassMetadataReader extends ObjectWithAttributes
       return byte0 | byte1 | byte2 | byte3;
    }
 
+   /**
+    * Checks whether the constant pool of the given classfile has a <tt>CONSTANT_Utf8</tt> item equal to one of the given ASCII strings.
+    * This is a cheap check which allocates no objects, useful for rejecting classes which don't refer to some type or member before
+    * parsing them.
+    */
+   public static boolean containsUtf8Constant(@Nonnull byte[] code, @Nonnull String... asciiValues) {
+      int cpItemCount = ((code[8] & 0xFF) << 8) | (code[9] & 0xFF);
+      int codeIndex = 10;
+
+      for (int cpItemIndex = 1; cpItemIndex < cpItemCount; cpItemIndex++) {
+         int tagValue = code[codeIndex++];
+         ConstantPoolTag tag = CONSTANT_POOL_TAGS[tagValue];
+         int cpItemSize = tag.itemSize;
+
+         if (tag == ConstantPoolTag.Long || tag == ConstantPoolTag.Double) {
+            cpItemIndex++;
+         }
+         else if (tag == ConstantPoolTag.Utf8) {
+            int stringLength = ((code[codeIndex] & 0xFF) << 8) | (code[codeIndex + 1] & 0xFF);
+
+            if (isEqualToAny(code, codeIndex + 2, stringLength, asciiValues)) {
+               return true;
+            }
+
+            cpItemSize += stringLength;
+         }
+
+         codeIndex += cpItemSize;
+      }
+
+      return false;
+   }
+
+   private static boolean isEqualToAny(
+      @Nonnull byte[] code, @Nonnegative int stringIndex, @Nonnegative int stringLength, @Nonnull String[] asciiValues
+   ) {
+      for (String value : asciiValues) {
+         if (value.length() == stringLength && isEqual(code, stringIndex, value)) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   private static boolean isEqual(@Nonnull byte[] code, @Nonnegative int stringIndex, @Nonnull String asciiValue) {
+      for (int i = 0, n = asciiValue.length(); i < n; i++) {
+         if (code[stringIndex + i] != asciiValue.charAt(i)) {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
    public ClassMetadataReader(@Nonnull byte[] code) { this(code, null); }
 
    public ClassMetadataReader(@Nonnull byte[] code, @Nullable EnumSet<Attribute> attributesToRead) {
@@ -278,12 +333,13 @@ public final class ClassMetadataReader extends ObjectWithAttributes
       for (int i = 0; i < attributeCount; i++) {
          int cpNameIndex = readUnsignedShort(codeIndex);
          codeIndex += 2;
-         String attributeName = getString(cpNameIndex);
 
          int attributeLength = readInt(codeIndex);
          codeIndex += 4;
 
          if (attributeOwner != null) {
+            String attributeName = getString(cpNameIndex);
+
             if (method != null) {
                method.readAttributes(attributeName, codeIndex);
             }
@@ -541,12 +597,24 @@ public final class ClassMetadataReader extends ObjectWithAttributes
    }
 
    @Nonnull
-   public List<MethodInfo> getMethods() {
+   public List<MethodInfo> getMethods() { return readMethods(null); }
+
+   /**
+    * Gets the methods having the given name, such as "<tt>&lt;init></tt>" for the constructors, without decoding the name, descriptor,
+    * or attributes of any other method.
+    *
+    * @param methodName the name of the desired methods, which must consist of ASCII characters only
+    */
+   @Nonnull
+   public List<MethodInfo> getMethods(@Nonnull String methodName) { return readMethods(methodName); }
+
+   @Nonnull
+   private List<MethodInfo> readMethods(@Nullable String methodNameToRead) {
       int codeIndex = getFieldsEndIndex();
       int methodCount = readUnsignedShort(codeIndex);
       codeIndex += 2;
 
-      List<MethodInfo> methods = new ArrayList<MethodInfo>(methodCount);
+      List<MethodInfo> methods = new ArrayList<MethodInfo>(methodNameToRead == null ? methodCount : 1);
 
       for (int i = 0; i < methodCount; i++) {
          int accessFlags = readUnsignedShort(codeIndex);
@@ -554,15 +622,20 @@ public final class ClassMetadataReader extends ObjectWithAttributes
 
          int cpNameIndex = readUnsignedShort(codeIndex);
          codeIndex += 2;
-         String methodName = getString(cpNameIndex);
 
          int cpDescIndex = readUnsignedShort(codeIndex);
          codeIndex += 2;
-         String methodDesc = getString(cpDescIndex);
 
          int attributeCount = readUnsignedShort(codeIndex);
          codeIndex += 2;
 
+         if (methodNameToRead != null && !isStringEqualTo(cpNameIndex, methodNameToRead)) {
+            codeIndex = readAttributes(attributeCount, null, codeIndex);
+            continue;
+         }
+
+         String methodName = getString(cpNameIndex);
+         String methodDesc = getString(cpDescIndex);
          MethodInfo methodInfo = new MethodInfo(accessFlags, methodName, methodDesc, attributeCount);
          codeIndex = readAttributes(attributeCount, methodInfo, codeIndex);
          methods.add(methodInfo);
@@ -572,6 +645,12 @@ public final class ClassMetadataReader extends ObjectWithAttributes
       return methods;
    }
 
+   private boolean isStringEqualTo(@Nonnegative int cpStringIndex, @Nonnull String asciiValue) {
+      int codeIndex = cpItemCodeIndexes[cpStringIndex];
+      int stringLength = readUnsignedShort(codeIndex);
+      return stringLength == asciiValue.length() && isEqual(code, codeIndex + 2, asciiValue);
+   }
+
    @Nonnegative
    private int getMethodsEndIndex() {
       int codeIndex = methodsEndIndex;
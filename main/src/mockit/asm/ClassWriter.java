@@ -19,6 +19,11 @@ public final class ClassWriter extends ClassVisitor
     */
    @Nonnull final byte[] code;
 
+   /**
+    * The class reader whose constant pool was copied into this class writer, if any.
+    */
+   @Nullable final ClassReader cr;
+
    /**
     * <tt>true</tt> if the stack map frames must be recomputed from scratch.
     * <p/>
@@ -82,10 +87,13 @@ public final class ClassWriter extends ClassVisitor
     */
    public ClassWriter(@Nonnull ClassReader classReader) {
       code = classReader.code;
+      cr = classReader;
       version = classReader.getVersion();
       computeFrames = version >= ClassVersion.V1_7;
 
-      cp = new ConstantPoolGeneration();
+      // The original constant pool gets copied as is, so the new one is presized to hold it plus some room for new items.
+      int originalPoolSize = classReader.header - 10;
+      cp = new ConstantPoolGeneration(originalPoolSize + originalPoolSize / 4 + 64);
       sourceInfo = new SourceInfoWriter(cp);
 
       bootstrapMethods = classReader.positionAtBootstrapMethodsAttribute() ? new BootstrapMethods(cp, classReader) : null;
@@ -104,6 +112,7 @@ public final class ClassWriter extends ClassVisitor
     */
    public ClassWriter(@Nonnull byte[] code) {
       this.code = code;
+      cr = null;
       this.version = ClassMetadataReader.readVersion(code);
       computeFrames = version >= ClassVersion.V1_7;
 
@@ -115,6 +124,29 @@ public final class ClassWriter extends ClassVisitor
       methods = new ArrayList<MethodWriter>();
    }
 
+   /**
+    * Sets the class loader of the class being written, so that the super classes of the types it refers to, needed when computing stack
+    * map frames, are the ones seen from that loader. Must be called before the class header is visited; if not called, super classes
+    * are searched in the bootstrap loader and in the class loaders JMockit normally uses.
+    */
+   public void setClassLoader(@Nullable ClassLoader classLoader) { cp.classLoader = classLoader; }
+
+   /**
+    * Makes this writer add to the given list the two types and the resulting common super class for each merge of reference types done
+    * when computing stack map frames, so that the caller can later check, through {@link #getCommonSuperClass}, whether the class
+    * written would still be the same.
+    */
+   public void recordCommonSuperClassLookups(@Nonnull List<String> lookups) { cp.commonSuperClassLookups = lookups; }
+
+   /**
+    * Returns the common super class of two types as seen from the given class loader, the same way it's obtained when computing stack
+    * map frames.
+    */
+   @Nonnull
+   public static String getCommonSuperClass(@Nullable ClassLoader loader, @Nonnull String type1, @Nonnull String type2) {
+      return ConstantPoolGeneration.getCommonSuperClass(loader, type1, type2);
+   }
+
    @Override
    public void visit(
       int version, int access, @Nonnull String name, @Nullable String signature, @Nullable String superName, @Nullable String[] interfaces
@@ -137,7 +169,7 @@ public final class ClassWriter extends ClassVisitor
       }
 
       if (superName != null) {
-         ClassLoad.addSuperClass(name, superName);
+         ClassLoad.addSuperClass(cp.classLoader, name, superName);
       }
    }
 
@@ -200,6 +232,28 @@ public final class ClassWriter extends ClassVisitor
       return out.data;
    }
 
+   /**
+    * Writes the bytecode of the class that was built with this class writer into the given buffer, from its first position, provided it
+    * is large enough.
+    * This allows callers which only copy the bytecode somewhere else, such as into a file, to use the same buffer for many classes.
+    *
+    * @return the size of the bytecode; if greater than the length of the buffer, nothing was written into it
+    */
+   @Nonnegative
+   public int toByteArray(@Nonnull byte[] buffer) {
+      cp.checkConstantPoolMaxSize();
+
+      int size = getBytecodeSize();
+
+      if (size <= buffer.length) {
+         ByteVector out = new ByteVector(buffer);
+         putClassAttributes(out);
+         putAnnotations(out);
+      }
+
+      return size;
+   }
+
    @Nonnegative
    private int getBytecodeSize() {
       int size = 24 + getMarkerAttributesSize() + getInterfacesSize() + getFieldsSize() + getMethodsSize() + sourceInfo.getSize();
@@ -17,7 +17,10 @@ final class ConstantPoolCopying
    ConstantPoolCopying(@Nonnull ClassReader source, @Nonnull ClassWriter destination) {
       this.source = source;
       this.destination = destination;
-      newItems = new Item[source.items.length];
+
+      // Leaves room in the hash table for the items to be added by the modification of the class, which would otherwise cause the table
+      // to be resized on the first addition.
+      newItems = new Item[2 * source.items.length];
    }
 
    void copyPool(@Nullable BootstrapMethods bootstrapMethods) {
@@ -37,7 +40,7 @@ final class ConstantPoolCopying
       }
 
       int off = items[1] - 1;
-      destination.cp.copy(source.code, off, source.header, newItems);
+      destination.cp.copy(source.code, off, source.header, newItems, itemCount);
    }
 
    @Nonnull @SuppressWarnings("OverlyComplexMethod")
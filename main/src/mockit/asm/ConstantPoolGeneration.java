@@ -1,5 +1,7 @@
 package mockit.asm;
 
+import java.util.*;
+import java.util.Map.*;
 import javax.annotation.*;
 
 import mockit.internal.util.*;
@@ -12,11 +14,46 @@ import static mockit.internal.util.ClassLoad.OBJECT;
  */
 final class ConstantPoolGeneration
 {
+   @Nonnull private static final CommonSuperClassCache COMMON_SUPER_CLASSES = new CommonSuperClassCache();
+   @Nonnull private static final Map<ClassLoader, CommonSuperClassCache> COMMON_SUPER_CLASSES_BY_LOADER =
+      new WeakHashMap<ClassLoader, CommonSuperClassCache>();
+
+   /**
+    * A bounded cache of the common super classes of pairs of types, least recently used first, with each pair of type names as a single
+    * key. There is one cache per class loader, since same-named types from different loaders can have different super classes.
+    */
+   private static final class CommonSuperClassCache extends LinkedHashMap<String, String> {
+      private static final long serialVersionUID = 1L;
+      private static final int MAX_CACHED_PAIRS = 1000;
+
+      CommonSuperClassCache() { super(64, 0.75F, true); }
+
+      @Override
+      protected boolean removeEldestEntry(@Nonnull Entry<String, String> eldest) { return size() > MAX_CACHED_PAIRS; }
+
+      @Nullable synchronized String getCommonSuperClass(@Nonnull String typePair) { return get(typePair); }
+
+      synchronized void putCommonSuperClass(@Nonnull String typePair, @Nonnull String commonSuperClass) {
+         put(typePair, commonSuperClass);
+      }
+   }
+
    /**
     * The constant pool of the class file being generated/modified.
     */
    @Nonnull private final ByteVector pool;
 
+   /**
+    * The class loader of the class file being generated/modified, from which the super classes of other types are obtained; <tt>null</tt>
+    * for the bootstrap loader, or when not known.
+    */
+   @Nullable ClassLoader classLoader;
+
+   /**
+    * If not <tt>null</tt>, receives the two types and the resulting common super class of each call to {@link #getCommonSuperClass}.
+    */
+   @Nullable List<String> commonSuperClassLookups;
+
    /**
     * The constant pool's hash table data.
     */
@@ -62,9 +99,14 @@ final class ConstantPoolGeneration
    @Nonnull private final UninitializedTypeTableItem reusableUninitializedItem;
    @Nonnull private final MergedTypeTableItem reusableMergedItem;
 
+   ConstantPoolGeneration() { this(64); }
+
+   /**
+    * @param initialPoolSize the initial capacity in bytes of the {@link #pool}, for when its eventual size can be estimated in advance
+    */
    @SuppressWarnings("OverlyCoupledMethod")
-   ConstantPoolGeneration() {
-      pool = new ByteVector();
+   ConstantPoolGeneration(@Nonnegative int initialPoolSize) {
+      pool = new ByteVector(initialPoolSize);
       items = new Item[256];
       threshold = (int) (0.75d * items.length);
       index = 1;
@@ -500,18 +542,63 @@ final class ConstantPoolGeneration
    }
 
    /**
-    * Returns the common super type of the two given types. The default implementation of this method <i>loads</i> the
-    * two given classes and uses the java.lang.Class methods to find the common super class. It can be overridden to
-    * compute this common super type in other ways, in particular without actually loading any class, or to take into
-    * account the class that is currently being generated by this ClassWriter, which can of course not be loaded since
-    * it is under construction.
+    * Returns the common super type of the two given types. Super classes are obtained from classfiles through
+    * {@link ClassLoad#getSuperClass}, without loading the classes, as seen from the {@link #classLoader}; the super class of the class
+    * currently being generated is registered when its header is visited. The results for recently used pairs of types are cached, and
+    * shared between all class writers for the same loader.
     *
     * @param type1 the internal name of a class.
     * @param type2 the internal name of another class.
     * @return the internal name of the common super class of the two given classes.
     */
    @Nonnull
-   private static String getCommonSuperClass(@Nonnull String type1, @Nonnull String type2) {
+   String getCommonSuperClass(@Nonnull String type1, @Nonnull String type2) {
+      String commonSuperClass = getCommonSuperClass(classLoader, type1, type2);
+      List<String> lookups = commonSuperClassLookups;
+
+      if (lookups != null) {
+         lookups.add(type1);
+         lookups.add(type2);
+         lookups.add(commonSuperClass);
+      }
+
+      return commonSuperClass;
+   }
+
+   @Nonnull
+   static String getCommonSuperClass(@Nullable ClassLoader loader, @Nonnull String type1, @Nonnull String type2) {
+      String typePair = type1.compareTo(type2) < 0 ? type1 + ' ' + type2 : type2 + ' ' + type1;
+      CommonSuperClassCache commonSuperClasses = getCommonSuperClasses(loader);
+      String commonSuperClass = commonSuperClasses.getCommonSuperClass(typePair);
+
+      if (commonSuperClass == null) {
+         commonSuperClass = findCommonSuperClass(loader, type1, type2);
+         commonSuperClasses.putCommonSuperClass(typePair, commonSuperClass);
+      }
+
+      return commonSuperClass;
+   }
+
+   @Nonnull
+   private static CommonSuperClassCache getCommonSuperClasses(@Nullable ClassLoader loader) {
+      if (loader == null) {
+         return COMMON_SUPER_CLASSES;
+      }
+
+      synchronized (COMMON_SUPER_CLASSES_BY_LOADER) {
+         CommonSuperClassCache commonSuperClasses = COMMON_SUPER_CLASSES_BY_LOADER.get(loader);
+
+         if (commonSuperClasses == null) {
+            commonSuperClasses = new CommonSuperClassCache();
+            COMMON_SUPER_CLASSES_BY_LOADER.put(loader, commonSuperClasses);
+         }
+
+         return commonSuperClasses;
+      }
+   }
+
+   @Nonnull
+   private static String findCommonSuperClass(@Nullable ClassLoader loader, @Nonnull String type1, @Nonnull String type2) {
       // Reimplemented to avoid "duplicate class definition" errors.
       String class1 = type1;
       String class2 = type2;
@@ -521,14 +608,14 @@ final class ConstantPoolGeneration
             return OBJECT;
          }
 
-         String superClass = ClassLoad.whichIsSuperClass(class1, class2);
+         String superClass = ClassLoad.whichIsSuperClass(loader, class1, class2);
 
          if (superClass != null) {
             return superClass;
          }
 
-         class1 = ClassLoad.getSuperClass(class1);
-         class2 = ClassLoad.getSuperClass(class2);
+         class1 = ClassLoad.getSuperClass(loader, class1);
+         class2 = ClassLoad.getSuperClass(loader, class2);
 
          if (class1.equals(class2)) {
             return class1;
@@ -628,13 +715,20 @@ final class ConstantPoolGeneration
       out.putShort(index).putByteVector(pool);
    }
 
-   void copy(@Nonnull byte[] code, @Nonnegative int off, @Nonnegative int header, @Nonnull Item[] items) {
+   /**
+    * Copies the constant pool of an existing class.
+    *
+    * @param items the hash table holding the copied items, which can be larger than their count so that new items can be added without
+    *              immediately resizing the table
+    * @param itemCount the number of items in the copied pool, plus one
+    */
+   void copy(
+      @Nonnull byte[] code, @Nonnegative int off, @Nonnegative int header, @Nonnull Item[] items, @Nonnegative int itemCount
+   ) {
       pool.putByteArray(code, off, header - off);
       this.items = items;
-
-      int ll = items.length;
-      threshold = (int) (0.75d * ll);
-      index = ll;
+      threshold = (int) (0.75d * items.length);
+      index = itemCount;
    }
 
    @Nonnull
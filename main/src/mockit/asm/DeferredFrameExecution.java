@@ -0,0 +1,116 @@
+package mockit.asm;
+
+import javax.annotation.*;
+
+/**
+ * The instructions of a method in the order they were visited, recorded instead of being executed on the frames of their basic blocks
+ * while the original stack map frames of the method are expected to be reused.
+ * If the frames have to be computed after all, the recorded instructions are then executed on the same frames, in the same order.
+ */
+final class DeferredFrameExecution
+{
+   private static final int NO_OPERAND = 0;
+   private static final int INT_OPERAND = 1;
+   private static final int VARIABLE = 2;
+   private static final int TYPE = 3;
+   private static final int FIELD_OR_INVOKE = 4;
+   private static final int JUMP = 5;
+   private static final int LDC = 6;
+   private static final int IINC = 7;
+   private static final int SWITCH = 8;
+   private static final int MULTIANEWARRAY = 9;
+
+   @Nonnull private Frame[] frames;
+   @Nonnull private int[] kindsAndOpcodes;
+   @Nonnull private int[] operands;
+   @Nonnull private Item[] items;
+   @Nonnegative private int count;
+
+   DeferredFrameExecution(@Nonnegative int initialCapacity) {
+      frames = new Frame[initialCapacity];
+      kindsAndOpcodes = new int[initialCapacity];
+      operands = new int[initialCapacity];
+      items = new Item[initialCapacity];
+   }
+
+   void addInstruction(@Nonnull Frame frame, int opcode) { add(frame, NO_OPERAND, opcode, 0, null); }
+   void addIntInstruction(@Nonnull Frame frame, int opcode, int operand) { add(frame, INT_OPERAND, opcode, operand, null); }
+   void addVarInstruction(@Nonnull Frame frame, int opcode, @Nonnegative int var) { add(frame, VARIABLE, opcode, var, null); }
+
+   void addTypeInstruction(@Nonnull Frame frame, int opcode, @Nonnegative int codeLength, @Nonnull StringItem typeItem) {
+      add(frame, TYPE, opcode, codeLength, typeItem);
+   }
+
+   void addFieldOrInvokeInstruction(@Nonnull Frame frame, int opcode, @Nonnull TypeOrMemberItem item) {
+      add(frame, FIELD_OR_INVOKE, opcode, 0, item);
+   }
+
+   void addJumpInstruction(@Nonnull Frame frame, int opcode) { add(frame, JUMP, opcode, 0, null); }
+   void addLDCInstruction(@Nonnull Frame frame, @Nonnull Item constItem) { add(frame, LDC, 0, 0, constItem); }
+   void addIINCInstruction(@Nonnull Frame frame, @Nonnegative int var) { add(frame, IINC, 0, var, null); }
+   void addSwitchInstruction(@Nonnull Frame frame) { add(frame, SWITCH, 0, 0, null); }
+
+   void addMULTIANEWARRAYInstruction(@Nonnull Frame frame, @Nonnegative int dims, @Nonnull StringItem arrayTypeItem) {
+      add(frame, MULTIANEWARRAY, 0, dims, arrayTypeItem);
+   }
+
+   private void add(@Nonnull Frame frame, int kind, int opcode, int operand, @Nullable Item item) {
+      int i = count;
+
+      if (i == frames.length) {
+         enlarge();
+      }
+
+      frames[i] = frame;
+      kindsAndOpcodes[i] = kind << 8 | opcode;
+      operands[i] = operand;
+      items[i] = item;
+      count = i + 1;
+   }
+
+   private void enlarge() {
+      int newCapacity = 2 * frames.length;
+      Frame[] newFrames = new Frame[newCapacity];
+      int[] newKindsAndOpcodes = new int[newCapacity];
+      int[] newOperands = new int[newCapacity];
+      Item[] newItems = new Item[newCapacity];
+
+      System.arraycopy(frames, 0, newFrames, 0, count);
+      System.arraycopy(kindsAndOpcodes, 0, newKindsAndOpcodes, 0, count);
+      System.arraycopy(operands, 0, newOperands, 0, count);
+      System.arraycopy(items, 0, newItems, 0, count);
+
+      frames = newFrames;
+      kindsAndOpcodes = newKindsAndOpcodes;
+      operands = newOperands;
+      items = newItems;
+   }
+
+   /**
+    * Executes the recorded instructions on the frames of their basic blocks.
+    */
+   @SuppressWarnings("ConstantConditions")
+   void executeAll() {
+      for (int i = 0, n = count; i < n; i++) {
+         Frame frame = frames[i];
+         int opcode = kindsAndOpcodes[i] & 0xFF;
+         int operand = operands[i];
+         Item item = items[i];
+
+         switch (kindsAndOpcodes[i] >> 8) {
+            case NO_OPERAND: frame.execute(opcode); break;
+            case INT_OPERAND: frame.executeINT(opcode, operand); break;
+            case VARIABLE: frame.executeVAR(opcode, operand); break;
+            case TYPE: frame.executeTYPE(opcode, operand, (StringItem) item); break;
+            case FIELD_OR_INVOKE: frame.execute(opcode, (TypeOrMemberItem) item); break;
+            case JUMP: frame.executeJUMP(opcode); break;
+            case LDC: frame.executeLDC(item); break;
+            case IINC: frame.executeIINC(operand); break;
+            case SWITCH: frame.executeSWITCH(); break;
+            default: frame.executeMULTIANEWARRAY(operand, (StringItem) item);
+         }
+      }
+
+      count = 0;
+   }
+}
@@ -49,6 +49,12 @@ final class ExceptionHandler
    @Nonnull
    String getCatchTypeDesc() { return desc == null ? "java/lang/Throwable" : desc; }
 
+   boolean isFor(@Nonnull Label start, @Nonnull Label end, @Nonnull Label handler, @Nullable String desc) {
+      return
+         this.start == start && this.end == end && this.handler == handler &&
+         (desc == null ? this.desc == null : desc.equals(this.desc));
+   }
+
    /**
     * Removes the range between start and end from the given exception handlers.
     *
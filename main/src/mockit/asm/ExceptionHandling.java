@@ -99,6 +99,30 @@ final class ExceptionHandling
 
    boolean hasHandlers() { return handlerCount > 0; }
 
+   /**
+    * Tells whether the exception handlers are exactly the given ones, in the same order.
+    *
+    * @param startEndAndHandlerLabels the start, end, and handler labels of each handler, in sequence
+    * @param catchTypes the internal name of the type of exceptions caught by each handler, or <tt>null</tt> for any exceptions
+    */
+   boolean hasHandlers(@Nonnull Label[] startEndAndHandlerLabels, @Nonnull String[] catchTypes) {
+      ExceptionHandler exceptionHandler = firstExceptionHandler;
+
+      for (int i = 0; i < catchTypes.length; i++) {
+         if (
+            exceptionHandler == null ||
+            !exceptionHandler.isFor(
+               startEndAndHandlerLabels[3 * i], startEndAndHandlerLabels[3 * i + 1], startEndAndHandlerLabels[3 * i + 2], catchTypes[i])
+         ) {
+            return false;
+         }
+
+         exceptionHandler = exceptionHandler.next;
+      }
+
+      return exceptionHandler == null;
+   }
+
    @Nonnegative
    int getSize() { return 8 * handlerCount; }
 
@@ -123,6 +123,8 @@ final class FrameAndStackComputation
       }
    }
 
+   @Nonnegative int getMaxLocals() { return maxLocals; }
+
    void putMaxStackAndLocals(@Nonnull ByteVector out) {
       out.putShort(maxStack).putShort(maxLocals);
    }
@@ -140,6 +142,14 @@ final class FrameAndStackComputation
 
    boolean hasStackMap() { return stackMap != null; }
 
+   /**
+    * Sets the already encoded frames to be written in the StackMapTable attribute, instead of frames computed from scratch.
+    */
+   void setStackMap(@Nonnull ByteVector stackMap, @Nonnegative int frameCount) {
+      this.stackMap = stackMap;
+      this.frameCount = frameCount;
+   }
+
    /**
     * Starts the visit of a stack map frame.
     * Sets {@link #frameIndex} to the index of the next element to be written in this frame.
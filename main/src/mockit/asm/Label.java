@@ -120,6 +120,18 @@ public final class Label
     */
    @Nonnegative int outputStackMax;
 
+   /**
+    * Absolute height of the input stack of this basic block, when the stack map frames read from the original method are reused instead
+    * of being computed.
+    */
+   @Nonnegative int inputStackHeight;
+
+   /**
+    * Size of the output stack at the end of this basic block, relatively to the size of its input stack, when the stack map frames read
+    * from the original method are reused instead of being computed.
+    */
+   int outputStackSize;
+
    /**
     * Information about the input and output stack map frames of this basic block.
     * This field is only used when {@link ClassWriter#computeFrames} option is used.
@@ -79,6 +79,22 @@ final class MethodReader extends AnnotatedReader
     */
    private Label[] labels;
 
+   /**
+    * The start, end, and handler labels of each exception handler in the method currently being parsed.
+    */
+   private Label[] handlerLabels;
+
+   /**
+    * The internal name of the type of exceptions caught by each exception handler in the method currently being parsed, or <tt>null</tt>
+    * for a handler of any exception.
+    */
+   private String[] handlerTypes;
+
+   /**
+    * The method writer which is to reuse the stack map frames of the method currently being parsed, if any.
+    */
+   @Nullable private MethodWriter mwReusingFrames;
+
    /**
     * The visitor to visit the method being read.
     */
@@ -217,11 +233,16 @@ final class MethodReader extends AnnotatedReader
 
    private void readCode(boolean readDebugInfo) {
       int maxStack = readUnsignedShort();
-      codeIndex += 2; // maxLocals
+      int maxLocals = readUnsignedShort();
 
       int codeLength = readInt();
       labels = new Label[codeLength + 2];
 
+      if (mv instanceof WrappingMethodVisitor) {
+         ((WrappingMethodVisitor) mv).mw.presizeCode(codeLength);
+      }
+      mwReusingFrames = null;
+
       // Reads the bytecode to find the labels.
       int codeStartIndex = codeIndex;
       int codeEndIndex = codeStartIndex + codeLength;
@@ -232,28 +253,33 @@ final class MethodReader extends AnnotatedReader
       // Reads the code attributes.
       int varTableCodeIndex = 0;
       int[] typeTable = null;
+      int stackMapCodeIndex = 0;
 
       for (int attributeCount = readUnsignedShort(); attributeCount > 0; attributeCount--) {
          String attrName = readNonnullUTF8();
          int codeOffset = readInt();
 
-         if (readDebugInfo) {
-            if ("LocalVariableTable".equals(attrName)) {
-               varTableCodeIndex = codeIndex;
-               readLocalVariableTable();
-            }
-            else if ("LocalVariableTypeTable".equals(attrName)) {
-               typeTable = readLocalVariableTypeTable();
-            }
-            else if ("LineNumberTable".equals(attrName)) {
-               readLineNumberTable();
-            }
-            else {
-               codeIndex += codeOffset;
+         if (readDebugInfo && "LocalVariableTable".equals(attrName)) {
+            varTableCodeIndex = codeIndex;
+            readLocalVariableTable();
+         }
+         else if (readDebugInfo && "LocalVariableTypeTable".equals(attrName)) {
+            typeTable = readLocalVariableTypeTable();
+         }
+         else if (readDebugInfo && "LineNumberTable".equals(attrName)) {
+            readLineNumberTable();
+         }
+         else {
+            if ("StackMapTable".equals(attrName)) {
+               stackMapCodeIndex = codeIndex;
             }
+
+            codeIndex += codeOffset;
          }
       }
 
+      readStackMapTableForReuse(stackMapCodeIndex, maxLocals, codeLength);
+
       readBytecodeInstructionsInCodeBlock(readDebugInfo, codeStartIndex, codeEndIndex);
       visitEndLabel(codeLength);
       readLocalVariableTables(varTableCodeIndex, typeTable);
@@ -366,12 +392,21 @@ final class MethodReader extends AnnotatedReader
     * Reads the try catch entries to find the labels, and also visits them.
     */
    private void readTryCatchBlocks() {
-      for (int blockCount = readUnsignedShort(); blockCount > 0; blockCount--) {
+      int blockCount = readUnsignedShort();
+      handlerLabels = new Label[3 * blockCount];
+      handlerTypes = new String[blockCount];
+
+      for (int i = 0; i < blockCount; i++) {
          Label start   = getOrCreateLabel(readUnsignedShort());
          Label end     = getOrCreateLabel(readUnsignedShort());
          Label handler = getOrCreateLabel(readUnsignedShort());
          String type   = readUTF8(readItem());
 
+         handlerLabels[3 * i] = start;
+         handlerLabels[3 * i + 1] = end;
+         handlerLabels[3 * i + 2] = handler;
+         handlerTypes[i] = type;
+
          mv.visitTryCatchBlock(start, end, handler, type);
       }
    }
@@ -428,6 +463,121 @@ final class MethodReader extends AnnotatedReader
       }
    }
 
+   /**
+    * Reads the StackMapTable attribute of the method, so that its frames can be reused by the {@link MethodWriter} which will write the
+    * modified method, if it turns out the modification only inserted straight-line code; a method without the attribute has no frames to
+    * be reused, but still doesn't need any new ones in that case.
+    * This is only done when writing into the same class, as the frames refer to the original constant pool, and only when each frame is at
+    * the offset of a jump target or exception handler, with no uninitialized types (which would refer to the offset of a NEW instruction).
+    */
+   private void readStackMapTableForReuse(@Nonnegative int stackMapCodeIndex, @Nonnegative int maxLocals, @Nonnegative int codeLength) {
+      if (!(mv instanceof WrappingMethodVisitor)) {
+         return;
+      }
+
+      MethodWriter mw = ((WrappingMethodVisitor) mv).mw;
+
+      if (
+         mw.cw.cr != cr || !desc.equals(mw.descriptor) || (mw.access & Access.STATIC) != (access & Access.STATIC) ||
+         (mw.access & Access.CONSTRUCTOR) != 0 != "<init>".equals(name)
+      ) {
+         return;
+      }
+
+      codeIndex = stackMapCodeIndex;
+      int frameCount = stackMapCodeIndex == 0 ? 0 : readUnsignedShort();
+      int[] frameStartIndices = new int[frameCount + 1];
+      Label[] frameLabels = new Label[frameCount];
+      int[] frameStackSizes = new int[frameCount];
+      int offset = -1;
+
+      for (int i = 0; i < frameCount; i++) {
+         frameStartIndices[i] = codeIndex;
+         int frameType = readUnsignedByte();
+         int delta;
+         int stackSize = 0;
+
+         if (frameType < 64) {
+            delta = frameType;
+         }
+         else if (frameType < 128) {
+            delta = frameType - 64;
+            stackSize = readVerificationTypeSize();
+         }
+         else if (frameType < 247) {
+            return;
+         }
+         else {
+            delta = readUnsignedShort();
+
+            if (frameType == 247) {
+               stackSize = readVerificationTypeSize();
+            }
+            else if (frameType > 251) {
+               int localCount = frameType < 255 ? frameType - 251 : readUnsignedShort();
+               int localsSize = readVerificationTypesSize(localCount);
+
+               if (frameType == 255) {
+                  stackSize = localsSize < 0 ? -1 : readVerificationTypesSize(readUnsignedShort());
+               }
+               else if (localsSize < 0) {
+                  return;
+               }
+            }
+         }
+
+         offset += delta + 1;
+         Label label = offset < codeLength ? labels[offset] : null;
+
+         if (stackSize < 0 || label == null || label.isDebug()) {
+            return;
+         }
+
+         frameLabels[i] = label;
+         frameStackSizes[i] = stackSize;
+      }
+
+      frameStartIndices[frameCount] = codeIndex;
+      OriginalStackMap originalStackMap =
+         new OriginalStackMap(code, frameStartIndices, frameLabels, frameStackSizes, maxLocals, handlerLabels, handlerTypes);
+
+      if (mw.setOriginalStackMap(originalStackMap, codeLength)) {
+         mwReusingFrames = mw;
+      }
+   }
+
+   /**
+    * Reads the given number of verification types in a stack map frame.
+    *
+    * @return the number of local variable or operand stack slots taken by the types, or <tt>-1</tt> if there is an uninitialized type
+    */
+   private int readVerificationTypesSize(@Nonnegative int typeCount) {
+      int size = 0;
+
+      for (int i = 0; i < typeCount; i++) {
+         int typeSize = readVerificationTypeSize();
+
+         if (typeSize < 0) {
+            return -1;
+         }
+
+         size += typeSize;
+      }
+
+      return size;
+   }
+
+   private int readVerificationTypeSize() {
+      int tag = readUnsignedByte();
+
+      switch (tag) {
+         case 3: case 4: return 2; // double, long
+         case 7: codeIndex += 2; return 1; // object
+         case 8: return -1; // uninitialized
+         default: return 1;
+      }
+   }
+
    @SuppressWarnings({"OverlyComplexMethod", "OverlyLongMethod"})
    private void readBytecodeInstructionsInCodeBlock(boolean readDebugInfo, @Nonnegative int codeStartIndex, @Nonnegative int codeEndIndex) {
       codeIndex = codeStartIndex;
@@ -436,6 +586,10 @@ final class MethodReader extends AnnotatedReader
          int offset = codeIndex - codeStartIndex;
          visitLabelAndLineNumber(readDebugInfo, offset);
 
+         if (mwReusingFrames != null) {
+            mwReusingFrames.visitingOriginalInstruction(codeIndex);
+         }
+
          int opcode = readUnsignedByte();
 
          switch (INSTRUCTION_TYPE[opcode]) {
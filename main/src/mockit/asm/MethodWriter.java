@@ -65,6 +65,11 @@ public final class MethodWriter extends MethodVisitor
 
    private final boolean computeFrames;
 
+   /**
+    * The stack map frames of the original method, if they can possibly be reused instead of computing new ones.
+    */
+   @Nullable private OriginalStackMap originalStackMap;
+
    /**
     * Initializes the MethodWriter.
     *
@@ -99,6 +104,14 @@ public final class MethodWriter extends MethodVisitor
       createMarkerAttributes(cw.version);
    }
 
+   /**
+    * Enlarges the bytecode buffer ahead of time for a method being modified, so that it doesn't need to grow repeatedly while the original
+    * instructions, plus some inserted ones, are written.
+    */
+   void presizeCode(@Nonnegative int originalCodeLength) {
+      code.ensureCapacity(originalCodeLength + originalCodeLength / 4 + 16);
+   }
+
    @Nonnull @Override
    public AnnotationVisitor visitAnnotation(@Nonnull String desc) {
       return addAnnotation(desc);
@@ -122,9 +135,11 @@ public final class MethodWriter extends MethodVisitor
    @Override
    public void visitInsn(int opcode) {
       // Adds the instruction to the bytecode of the method.
+      int insnStart = code.length;
       code.putByte(opcode);
 
       cfgAnalysis.updateCurrentBlockForZeroOperandInstruction(opcode);
+      checkInstructionForFrameReuse(opcode, insnStart);
    }
 
    @Override
@@ -132,12 +147,16 @@ public final class MethodWriter extends MethodVisitor
       cfgAnalysis.updateCurrentBlockForSingleIntOperandInstruction(opcode, operand);
 
       // Adds the instruction to the bytecode of the method.
+      int insnStart = code.length;
+
       if (opcode == SIPUSH) {
          code.put12(opcode, operand);
       }
       else { // BIPUSH or NEWARRAY
          code.put11(opcode, operand);
       }
+
+      checkInstructionForFrameReuse(opcode, insnStart);
    }
 
    @Override
@@ -147,6 +166,8 @@ public final class MethodWriter extends MethodVisitor
       updateMaxLocals(opcode, varIndex);
 
       // Adds the instruction to the bytecode of the method.
+      int insnStart = code.length;
+
       if (varIndex < 4) {
          int opt;
 
@@ -169,6 +190,8 @@ public final class MethodWriter extends MethodVisitor
       if (opcode >= ISTORE && computeFrames && exceptionHandling.hasHandlers()) {
          visitLabel(new Label());
       }
+
+      checkInstructionForFrameReuse(opcode, insnStart);
    }
 
    private void updateMaxLocals(int opcode, @Nonnegative int var) {
@@ -182,7 +205,9 @@ public final class MethodWriter extends MethodVisitor
       cfgAnalysis.updateCurrentBlockForTypeInstruction(opcode, typeItem);
 
       // Adds the instruction to the bytecode of the method.
+      int insnStart = code.length;
       code.put12(opcode, typeItem.index);
+      checkInstructionForFrameReuse(opcode, insnStart);
    }
 
    @Override
@@ -191,7 +216,9 @@ public final class MethodWriter extends MethodVisitor
       cfgAnalysis.updateCurrentBlockForFieldInstruction(opcode, fieldItem, desc);
 
       // Adds the instruction to the bytecode of the method.
+      int insnStart = code.length;
       code.put12(opcode, fieldItem.index);
+      checkInstructionForFrameReuse(opcode, insnStart);
    }
 
    @Override
@@ -200,12 +227,15 @@ public final class MethodWriter extends MethodVisitor
       cfgAnalysis.updateCurrentBlockForInvokeInstruction(invokeItem, opcode, desc);
 
       // Adds the instruction to the bytecode of the method.
+      int insnStart = code.length;
       code.put12(opcode, invokeItem.index);
 
       if (opcode == INVOKEINTERFACE) {
          int argSize = invokeItem.getArgSizeComputingIfNeeded(desc);
          code.put11(argSize >> 2, 0);
       }
+
+      checkInstructionForFrameReuse(opcode, insnStart);
    }
 
    @Override
@@ -215,8 +245,10 @@ public final class MethodWriter extends MethodVisitor
       cfgAnalysis.updateCurrentBlockForInvokeInstruction(invokeItem, INVOKEDYNAMIC, desc);
 
       // Adds the instruction to the bytecode of the method.
+      int insnStart = code.length;
       code.put12(INVOKEDYNAMIC, invokeItem.index);
       code.putShort(0);
+      checkInstructionForFrameReuse(INVOKEDYNAMIC, insnStart);
    }
 
    @Override
@@ -224,6 +256,8 @@ public final class MethodWriter extends MethodVisitor
       Label nextInsn = cfgAnalysis.updateCurrentBlockForJumpInstruction(opcode, label);
 
       // Adds the instruction to the bytecode of the method.
+      int insnStart = code.length;
+
       if (label.isResolved() && label.position - code.length < Short.MIN_VALUE) {
          // Case of a backward jump with an offset < -32768. In this case we automatically replace GOTO with GOTO_W and IFxxx <l> with
          // IFNOTxxx <l'> GOTO_W <l>, where IFNOTxxx is the "opposite" opcode of IFxxx (i.e., IFNE for IFEQ) and where <l'> designates the
@@ -240,6 +274,9 @@ public final class MethodWriter extends MethodVisitor
             code.putByte(opcode <= 166 ? ((opcode + 1) ^ 1) - 1 : opcode ^ 1);
             code.putShort(8); // jump offset
             code.putByte(GOTO_W);
+
+            // The instruction after GOTO_W needs a frame which was not in the original method.
+            abandonFrameReuse();
          }
 
          label.put(code, code.length - 1, true);
@@ -252,11 +289,18 @@ public final class MethodWriter extends MethodVisitor
       }
 
       cfgAnalysis.updateCurrentBlockForJumpTarget(opcode, nextInsn);
+      checkInstructionForFrameReuse(opcode, insnStart);
    }
 
    @Override
    public void visitLabel(@Nonnull Label label) {
       cfgAnalysis.updateCurrentBlockForLabelBeforeNextInstruction(label);
+
+      OriginalStackMap original = originalStackMap;
+
+      if (original != null && !label.isDebug() && !original.labelVisited(cfgAnalysis.getRelativeStackSize())) {
+         abandonFrameReuse();
+      }
    }
 
    @Override
@@ -265,6 +309,7 @@ public final class MethodWriter extends MethodVisitor
       cfgAnalysis.updateCurrentBlockForLDCInstruction(constItem);
 
       // Adds the instruction to the bytecode of the method.
+      int insnStart = code.length;
       int index = constItem.index;
 
       if (constItem instanceof LongValueItem) {
@@ -276,6 +321,8 @@ public final class MethodWriter extends MethodVisitor
       else {
          code.put11(LDC, index);
       }
+
+      checkInstructionForFrameReuse(LDC, insnStart);
    }
 
    @Override
@@ -287,12 +334,16 @@ public final class MethodWriter extends MethodVisitor
       frameAndStack.updateMaxLocals(n);
 
       // Adds the instruction to the bytecode of the method.
+      int insnStart = code.length;
+
       if (varIndex > 255 || increment > 127 || increment < -128) {
          code.putByte(WIDE).put12(IINC, varIndex).putShort(increment);
       }
       else {
          code.putByte(IINC).put11(varIndex, increment);
       }
+
+      checkInstructionForFrameReuse(IINC, insnStart);
    }
 
    @Override
@@ -309,6 +360,7 @@ public final class MethodWriter extends MethodVisitor
       }
 
       cfgAnalysis.updateCurrentBlockForSwitchInstruction(dflt, labels);
+      checkInstructionForFrameReuse(TABLESWITCH, source);
    }
 
    @Override
@@ -326,6 +378,7 @@ public final class MethodWriter extends MethodVisitor
       }
 
       cfgAnalysis.updateCurrentBlockForSwitchInstruction(dflt, labels);
+      checkInstructionForFrameReuse(LOOKUPSWITCH, source);
    }
 
    @Override
@@ -334,7 +387,9 @@ public final class MethodWriter extends MethodVisitor
       cfgAnalysis.updateCurrentBlockForMULTIANEWARRAYInstruction(arrayTypeItem, dims);
 
       // Adds the instruction to the bytecode of the method.
+      int insnStart = code.length;
       code.put12(MULTIANEWARRAY, arrayTypeItem.index).putByte(dims);
+      checkInstructionForFrameReuse(MULTIANEWARRAY, insnStart);
    }
 
    @Override
@@ -363,13 +418,19 @@ public final class MethodWriter extends MethodVisitor
       if (computeFrames) {
          exceptionHandling.completeControlFlowGraphWithExceptionHandlerBlocksFromComputedFrames();
 
-         Frame firstFrame = cfgAnalysis.getFirstFrame();
-         frameAndStack.createAndVisitFirstFrame(firstFrame);
+         computedMaxStack = originalStackMap == null ? -1 : reuseOriginalFramesIfControlFlowUnchanged(originalStackMap);
+
+         if (computedMaxStack < 0) {
+            abandonFrameReuse();
+
+            Frame firstFrame = cfgAnalysis.getFirstFrame();
+            frameAndStack.createAndVisitFirstFrame(firstFrame);
 
-         computedMaxStack = cfgAnalysis.computeMaxStackSizeFromComputedFrames();
-         computedMaxStack = visitAllFramesToBeStoredInStackMap(computedMaxStack);
+            computedMaxStack = cfgAnalysis.computeMaxStackSizeFromComputedFrames();
+            computedMaxStack = visitAllFramesToBeStoredInStackMap(computedMaxStack);
 
-         exceptionHandling.countNumberOfHandlers();
+            exceptionHandling.countNumberOfHandlers();
+         }
       }
       else {
          // TODO: figure out if/when the next call is needed, since no tests fail if commented out
@@ -382,6 +443,84 @@ public final class MethodWriter extends MethodVisitor
       frameAndStack.setMaxStack(computedMaxStack);
    }
 
+   /**
+    * Sets the stack map frames read from the original method, so that they get reused if it turns out the method was only modified through
+    * the insertion of straight-line code. In the meantime, instructions are not executed on the frames of basic blocks, unless and until
+    * the original frames are found to be no longer valid.
+    *
+    * @return <tt>false</tt> if instructions were already written, in which case the original frames are not considered for reuse
+    */
+   boolean setOriginalStackMap(@Nonnull OriginalStackMap originalStackMap, @Nonnegative int originalCodeLength) {
+      if (code.length > 0 || !computeFrames) {
+         return false;
+      }
+
+      this.originalStackMap = originalStackMap;
+      cfgAnalysis.deferFrameExecution(originalCodeLength);
+      return true;
+   }
+
+   /**
+    * Informs that the instruction at the given index of the original classfile is about to be visited, so that it can be told apart from
+    * instructions inserted by a modifier.
+    */
+   void visitingOriginalInstruction(@Nonnegative int instructionIndex) {
+      OriginalStackMap original = originalStackMap;
+
+      if (original != null && !original.expectOriginalInstruction(instructionIndex)) {
+         abandonFrameReuse();
+      }
+   }
+
+   private void checkInstructionForFrameReuse(int opcode, @Nonnegative int insnStart) {
+      OriginalStackMap original = originalStackMap;
+
+      if (original != null && !original.instructionWritten(code, insnStart, opcode, cfgAnalysis.getRelativeStackSize())) {
+         abandonFrameReuse();
+      }
+   }
+
+   /**
+    * Gives up on reusing the original frames, executing any deferred instructions on the frames of their basic blocks so that all
+    * frames get computed.
+    */
+   private void abandonFrameReuse() {
+      originalStackMap = null;
+      cfgAnalysis.executeDeferredFrames();
+   }
+
+   /**
+    * Writes the original stack map frames, shifted to the new bytecode positions, if the control flow of the method is the same as in the
+    * original method: all original instructions written unchanged and in the same order, with any inserted code being straight-line code
+    * which neither stores local variables nor leaves values on, or takes values from, the operand stack; the same exception handlers; no
+    * new local variables; all original frames still in place; and each jump target at one of them with the same stack size.
+    *
+    * @return the computed max stack size, or <tt>-1</tt> if frames need to be computed from scratch
+    */
+   private int reuseOriginalFramesIfControlFlowUnchanged(@Nonnull OriginalStackMap originalStackMap) {
+      if (
+         !originalStackMap.isCodeOnlyInsertedInto() || frameAndStack.getMaxLocals() > originalStackMap.maxLocals ||
+         !exceptionHandling.hasHandlers(originalStackMap.handlerLabels, originalStackMap.handlerTypes)
+      ) {
+         return -1;
+      }
+
+      int[] framePositions = originalStackMap.getFramePositions();
+
+      if (framePositions == null) {
+         return -1;
+      }
+
+      int computedMaxStack = cfgAnalysis.computeMaxStackSizeForOriginalFrames(framePositions, originalStackMap.getFrameStackSizes());
+
+      if (computedMaxStack >= 0 && framePositions.length > 0) {
+         ByteVector stackMap = originalStackMap.writeShiftedFrames(framePositions);
+         frameAndStack.setStackMap(stackMap, originalStackMap.getFrameCount());
+      }
+
+      return computedMaxStack;
+   }
+
    @Nonnegative
    private int visitAllFramesToBeStoredInStackMap(@Nonnegative int max) {
       Label label = cfgAnalysis.getLabelForFirstBasicBlock();
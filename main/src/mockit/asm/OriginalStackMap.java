@@ -0,0 +1,280 @@
+package mockit.asm;
+
+import javax.annotation.*;
+
+import mockit.asm.FrameAndStackComputation.*;
+import static mockit.asm.Opcodes.*;
+
+/**
+ * The StackMapTable attribute of a method as read from the original classfile, kept so that its frames can be written back to the modified
+ * method, shifted to the new bytecode positions, instead of being computed from scratch.
+ * This is only possible when the modification merely inserted straight-line code, leaving the control flow of the method unchanged, which
+ * is verified as the modified method gets written: each original instruction must be written unchanged and in the same order, while
+ * inserted instructions can't jump, return, throw, or store local variables, and each sequence of them must leave the operand stack as it
+ * found it, without taking any values pushed by original instructions.
+ */
+final class OriginalStackMap
+{
+   /**
+    * The original classfile, from which the frames are copied.
+    */
+   @Nonnull private final byte[] code;
+
+   /**
+    * The index in {@link #code} of each frame in the original StackMapTable, followed by the index just after the last frame.
+    */
+   @Nonnull private final int[] frameStartIndices;
+
+   /**
+    * The labels at the bytecode offsets of the original frames, which will have their new positions once the method is written.
+    */
+   @Nonnull private final Label[] frameLabels;
+
+   /**
+    * The operand stack size in each original frame, with <tt>long</tt> and <tt>double</tt> values counting as two.
+    */
+   @Nonnull private final int[] frameStackSizes;
+
+   /**
+    * The maximum number of local variables of the original method.
+    */
+   @Nonnegative final int maxLocals;
+
+   /**
+    * The start, end, and handler labels of each exception handler in the original method.
+    */
+   @Nonnull final Label[] handlerLabels;
+
+   /**
+    * The type of exceptions caught by each exception handler in the original method, or <tt>null</tt> for a handler of any exception.
+    */
+   @Nonnull final String[] handlerTypes;
+
+   /**
+    * The index in {@link #code} of the original instruction about to be written, or <tt>-1</tt> if already written.
+    */
+   private int expectedInstructionIndex;
+
+   /**
+    * Whether the instructions written since the last original instruction or basic block start were all inserted ones.
+    */
+   private boolean writingInsertedCode;
+
+   /**
+    * The stack size, relative to the current basic block, before the first inserted instruction since the last original one.
+    */
+   private int insertedCodeStackSize;
+
+   /**
+    * The stack size, relative to the current basic block, after the last written instruction.
+    */
+   private int stackSize;
+
+   OriginalStackMap(
+      @Nonnull byte[] code, @Nonnull int[] frameStartIndices, @Nonnull Label[] frameLabels, @Nonnull int[] frameStackSizes,
+      @Nonnegative int maxLocals, @Nonnull Label[] handlerLabels, @Nonnull String[] handlerTypes
+   ) {
+      this.code = code;
+      this.frameStartIndices = frameStartIndices;
+      this.frameLabels = frameLabels;
+      this.frameStackSizes = frameStackSizes;
+      this.maxLocals = maxLocals;
+      this.handlerLabels = handlerLabels;
+      this.handlerTypes = handlerTypes;
+      expectedInstructionIndex = -1;
+   }
+
+   /**
+    * Registers the original instruction about to be visited.
+    *
+    * @return <tt>false</tt> if the previous original instruction was never written, so the original frames can't be reused
+    */
+   boolean expectOriginalInstruction(@Nonnegative int instructionIndex) {
+      if (expectedInstructionIndex >= 0) {
+         return false;
+      }
+
+      expectedInstructionIndex = instructionIndex;
+      return true;
+   }
+
+   /**
+    * Checks an instruction just written to the modified method, which is either the expected original instruction or an inserted one.
+    *
+    * @param newCode the bytecode of the modified method
+    * @param insnStart the position of the instruction in <tt>newCode</tt>
+    * @param opcode the opcode of the instruction as visited
+    * @param newStackSize the stack size after the instruction, relative to the current basic block
+    * @return <tt>false</tt> if the original frames can't be reused
+    */
+   boolean instructionWritten(@Nonnull ByteVector newCode, @Nonnegative int insnStart, int opcode, int newStackSize) {
+      if (isExpectedOriginalInstruction(newCode, insnStart)) {
+         if (writingInsertedCode && stackSize != insertedCodeStackSize) {
+            return false;
+         }
+
+         writingInsertedCode = false;
+         expectedInstructionIndex = -1;
+      }
+      else {
+         if (!canBeInserted(opcode)) {
+            return false;
+         }
+
+         if (!writingInsertedCode) {
+            writingInsertedCode = true;
+            insertedCodeStackSize = stackSize;
+         }
+
+         if (newStackSize < insertedCodeStackSize) {
+            return false;
+         }
+      }
+
+      stackSize = newStackSize;
+      return true;
+   }
+
+   private boolean isExpectedOriginalInstruction(@Nonnull ByteVector newCode, @Nonnegative int insnStart) {
+      int originalIndex = expectedInstructionIndex;
+
+      if (originalIndex < 0) {
+         return false;
+      }
+
+      byte[] newBytes = newCode.data;
+      int newOpcode = newBytes[insnStart] & 0xFF;
+
+      if (newOpcode != (code[originalIndex] & 0xFF)) {
+         return false;
+      }
+
+      if (isJumpOrSwitch(newOpcode)) {
+         return true; // offsets are expected to change
+      }
+
+      int length = newCode.length - insnStart;
+
+      if (originalIndex + length > code.length) {
+         return false;
+      }
+
+      for (int i = 1; i < length; i++) {
+         if (newBytes[insnStart + i] != code[originalIndex + i]) {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   private static boolean isJumpOrSwitch(int opcode) {
+      return opcode >= IFEQ && opcode <= LOOKUPSWITCH || opcode >= IFNULL && opcode <= GOTO_W + 1; // up to JSR_W
+   }
+
+   private static boolean canBeInserted(int opcode) {
+      return
+         !isJumpOrSwitch(opcode) && (opcode < IRETURN || opcode > RETURN) && opcode != ATHROW &&
+         (opcode < ISTORE || opcode > ASTORE) && opcode != IINC;
+   }
+
+   /**
+    * Checks the start of a new basic block, or a label in the current one.
+    *
+    * @param newStackSize the stack size after the label, relative to the current basic block
+    * @return <tt>false</tt> if inserted instructions before the label left the operand stack changed
+    */
+   boolean labelVisited(int newStackSize) {
+      if (writingInsertedCode) {
+         if (stackSize != insertedCodeStackSize) {
+            return false;
+         }
+
+         writingInsertedCode = false;
+      }
+
+      stackSize = newStackSize;
+      return true;
+   }
+
+   /**
+    * Whether all original instructions were written, with nothing but straight-line code inserted between them.
+    */
+   boolean isCodeOnlyInsertedInto() {
+      return expectedInstructionIndex < 0 && (!writingInsertedCode || stackSize == insertedCodeStackSize);
+   }
+
+   @Nonnegative int getFrameCount() { return frameLabels.length; }
+   @Nonnull int[] getFrameStackSizes() { return frameStackSizes; }
+
+   /**
+    * Gets the current bytecode positions of the original frames, provided all of their labels were visited in the same order as before.
+    *
+    * @return the frame positions, in increasing order, or <tt>null</tt> if some frame label is no longer in place
+    */
+   @Nullable
+   int[] getFramePositions() {
+      int n = frameLabels.length;
+      int[] positions = new int[n];
+      int previousPosition = -1;
+
+      for (int i = 0; i < n; i++) {
+         Label label = frameLabels[i];
+
+         if (!label.isResolved() || label.position <= previousPosition) {
+            return null;
+         }
+
+         positions[i] = previousPosition = label.position;
+      }
+
+      return positions;
+   }
+
+   /**
+    * Writes the original frames with offset deltas for their new positions, switching to the extended frame type where the new delta no
+    * longer fits into the compact one.
+    */
+   @Nonnull
+   ByteVector writeShiftedFrames(@Nonnull int[] framePositions) {
+      int[] startIndices = frameStartIndices;
+      ByteVector stackMap = new ByteVector(startIndices[startIndices.length - 1] - startIndices[0] + 16);
+      int previousPosition = -1;
+
+      for (int i = 0, n = framePositions.length; i < n; i++) {
+         int position = framePositions[i];
+         int delta = position - previousPosition - 1;
+         previousPosition = position;
+
+         int frameIndex = startIndices[i];
+         int frameType = code[frameIndex] & 0xFF;
+         int bodyIndex = frameIndex + 1;
+
+         if (frameType < LocalsAndStackItemsDiff.SAME_LOCALS_1_STACK_ITEM_FRAME) {
+            putFrameHeader(stackMap, delta, LocalsAndStackItemsDiff.SAME_FRAME, LocalsAndStackItemsDiff.SAME_FRAME_EXTENDED);
+         }
+         else if (frameType < 128) {
+            putFrameHeader(
+               stackMap, delta,
+               LocalsAndStackItemsDiff.SAME_LOCALS_1_STACK_ITEM_FRAME, LocalsAndStackItemsDiff.SAME_LOCALS_1_STACK_ITEM_FRAME_EXTENDED);
+         }
+         else {
+            stackMap.putByte(frameType).putShort(delta);
+            bodyIndex += 2;
+         }
+
+         stackMap.putByteArray(code, bodyIndex, startIndices[i + 1] - bodyIndex);
+      }
+
+      return stackMap;
+   }
+
+   private static void putFrameHeader(@Nonnull ByteVector stackMap, @Nonnegative int delta, int compactType, int extendedType) {
+      if (delta < 64) {
+         stackMap.putByte(compactType + delta);
+      }
+      else {
+         stackMap.putByte(extendedType).putShort(delta);
+      }
+   }
+}
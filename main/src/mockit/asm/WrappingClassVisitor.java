@@ -68,4 +68,13 @@ public class WrappingClassVisitor extends ClassVisitor
 
    @Override
    public final byte[] toByteArray() { return cw.toByteArray(); }
+
+   /**
+    * Writes the bytecode of the modified class into the given buffer, provided it is large enough.
+    *
+    * @return the size of the bytecode; if greater than the length of the buffer, nothing was written into it
+    * @see ClassWriter#toByteArray(byte[])
+    */
+   @Nonnegative
+   public final int toByteArray(@Nonnull byte[] buffer) { return cw.toByteArray(buffer); }
 }
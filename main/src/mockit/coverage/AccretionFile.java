@@ -5,32 +5,117 @@
 package mockit.coverage;
 
 import java.io.*;
+import java.lang.management.*;
 import javax.annotation.*;
 
 import mockit.coverage.data.*;
 
+/**
+ * Writes coverage data to the "<tt>coverage.ser</tt>" file, or, for the "<tt>serial-append</tt>" output format, to a shard file of the
+ * current JVM in the same directory, which gets merged with the other data files only when a report is generated, and compacted into the
+ * "<tt>coverage.ser</tt>" file once no longer being written.
+ */
 final class AccretionFile
 {
-   @Nonnull private final File outputFile;
+   @Nullable private static File currentShardFile;
+
+   @Nonnull private final File outputDir;
    @Nonnull private final CoverageData newData;
 
    AccretionFile(@Nonnull String outputDir, @Nonnull CoverageData newData) {
       String parentDir = Configuration.getOrChooseOutputDirectory(outputDir);
-      outputFile = new File(parentDir, "coverage.ser");
+      this.outputDir = new File(parentDir);
 
       newData.fillLastModifiedTimesForAllClassFiles();
       this.newData = newData;
    }
 
-   void mergeDataFromExistingFileIfAny() throws IOException {
-      if (outputFile.exists()) {
-         CoverageData previousData = CoverageData.readDataFromFile(outputFile);
-         newData.merge(previousData);
-      }
-   }
-
    void generate() throws IOException {
+      File outputFile = new File(outputDir, "coverage.ser");
       newData.writeDataToFile(outputFile);
       System.out.println("JMockit: Coverage data written to " + outputFile.getCanonicalPath());
    }
+
+   /**
+    * Writes the data to the shard file of the current JVM, without reading any existing data file.
+    * A later call rewrites the same shard, since the data of a JVM only grows over time, unless the data is final, that is, the last one
+    * to be written by the JVM or one after which the execution counts were reset, in which case the next call starts a new shard.
+    * <p/>
+    * While it can still be rewritten, the shard is named "<tt>coverage-&lt;pid>-&lt;n>.live.ser</tt>"; once final, it's renamed to
+    * "<tt>coverage-&lt;pid>-&lt;n>.ser</tt>", and can then be {@linkplain DataFileMerging#compactDataFilesInDirectory compacted}.
+    *
+    * @param finalData whether no more data will be written to the shard, as for the data written at the end of the test run or for a
+    *                  snapshot dumped with a reset of the execution counts
+    */
+   void generateShard(boolean finalData) throws IOException {
+      File shardFile = getCurrentShardFile(outputDir, finalData);
+      File liveShardFile = getLiveShardFile(shardFile);
+      writeDataFileReplacing(newData, liveShardFile);
+
+      if (finalData) {
+         renameReplacing(liveShardFile, shardFile);
+      }
+      else {
+         shardFile = liveShardFile;
+      }
+
+      System.out.println("JMockit: Coverage data written to " + shardFile.getCanonicalPath());
+   }
+
+   @Nonnull
+   private static synchronized File getCurrentShardFile(@Nonnull File outputDir, boolean finalData) {
+      File shardFile = currentShardFile;
+
+      if (shardFile == null || !outputDir.equals(shardFile.getParentFile())) {
+         shardFile = findFreeShardFile(outputDir);
+      }
+
+      currentShardFile = finalData ? null : shardFile;
+      return shardFile;
+   }
+
+   @Nonnull
+   private static File getLiveShardFile(@Nonnull File shardFile) {
+      String shardFileName = shardFile.getName();
+      String liveShardFileName = shardFileName.substring(0, shardFileName.length() - ".ser".length()) + ".live.ser";
+      return new File(shardFile.getParentFile(), liveShardFileName);
+   }
+
+   @Nonnull
+   private static File findFreeShardFile(@Nonnull File outputDir) {
+      String nameOfRunningVM = ManagementFactory.getRuntimeMXBean().getName();
+      int p = nameOfRunningVM.indexOf('@');
+      String pid = p < 0 ? nameOfRunningVM : nameOfRunningVM.substring(0, p);
+
+      for (int n = 0; ; n++) {
+         File shardFile = new File(outputDir, "coverage-" + pid + '-' + n + ".ser");
+
+         File liveShardFile = getLiveShardFile(shardFile);
+
+         if (!shardFile.exists() && !liveShardFile.exists() && !new File(outputDir, liveShardFile.getName() + ".tmp").exists()) {
+            return shardFile;
+         }
+      }
+   }
+
+   /**
+    * Writes the data to the given file, first under a temporary name and then renaming it, so that readers never see it partially
+    * written.
+    */
+   static void writeDataFileReplacing(@Nonnull CoverageData data, @Nonnull File dataFile) throws IOException {
+      File tempFile = new File(dataFile.getParentFile(), dataFile.getName() + ".tmp");
+      data.writeDataToFile(tempFile);
+      renameReplacing(tempFile, dataFile);
+   }
+
+   private static void renameReplacing(@Nonnull File file, @Nonnull File newFile) throws IOException {
+      if (!file.renameTo(newFile)) {
+         //noinspection ResultOfMethodCallIgnored
+         newFile.delete();
+
+         if (!file.renameTo(newFile)) {
+            throw new IOException("Unable to rename " + file + " to " + newFile);
+         }
+      }
+   }
 }
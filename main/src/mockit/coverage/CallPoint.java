@@ -68,6 +68,13 @@ public final class CallPoint implements Serializable
 
    public void incrementRepetitionCount() { repetitionCount++; }
 
+   @Nonnull
+   public CallPoint copy() {
+      CallPoint copy = new CallPoint(ste);
+      copy.repetitionCount = repetitionCount;
+      return copy;
+   }
+
    public boolean isSameTestMethod(@Nonnull CallPoint other) {
       StackTraceElement thisSTE = ste;
       StackTraceElement otherSTE = other.ste;
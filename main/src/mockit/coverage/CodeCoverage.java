@@ -4,13 +4,16 @@
  */
 package mockit.coverage;
 
+import java.io.*;
 import java.lang.instrument.*;
 import java.security.*;
+import java.util.*;
 import javax.annotation.*;
 
 import mockit.coverage.data.*;
 import mockit.coverage.modification.*;
 import mockit.internal.startup.*;
+import mockit.internal.state.*;
 
 public final class CodeCoverage implements ClassFileTransformer
 {
@@ -22,22 +25,78 @@ public final class CodeCoverage implements ClassFileTransformer
    private boolean inactive;
 
    public static void main(@Nonnull String[] args) {
-      if (args.length == 1) {
+      if (args.length >= 1 && args.length <= 3) {
          String pid = args[0];
 
          try {
             //noinspection ResultOfMethodCallIgnored
             Integer.parseInt(pid);
-            new AgentLoader(pid).loadAgent("coverage");
-            return;
+            String agentArgs = getAgentArguments(args);
+
+            if (agentArgs != null) {
+               new AgentLoader(pid).loadAgent(agentArgs);
+               return;
+            }
          }
          catch (NumberFormatException ignore) {}
       }
 
       OutputFileGenerator generator = createOutputFileGenerator(null);
+
+      if (args.length >= 2 && "unloaded".equals(args[0])) {
+         String[] classDirs = Arrays.copyOfRange(args, 1, args.length);
+         generator.generateForClassesNotLoaded(classDirs);
+         return;
+      }
+
+      if (args.length >= 3 && "instrument".equals(args[0])) {
+         String[] classDirsAndJars = Arrays.copyOfRange(args, 2, args.length);
+         instrumentClassesAheadOfTime(args[1], classDirsAndJars);
+         return;
+      }
+
       generator.generateAggregateReportFromInputFiles(args);
    }
 
+   /**
+    * Instruments the selected classes from the given class directories and jar files, as in
+    * "<tt>java -cp jmockit.jar mockit.coverage.CodeCoverage instrument outputDir classDirOrJar...</tt>".
+    * Test JVMs having <tt>outputDir</tt> ahead of the original classes in the classpath will then load the instrumented classes directly,
+    * while still running with the coverage tool for the output to be generated.
+    */
+   private static void instrumentClassesAheadOfTime(@Nonnull String outputDir, @Nonnull String[] classDirsAndJars) {
+      try {
+         OfflineInstrumentation.instrumentClasses(outputDir, classDirsAndJars);
+      }
+      catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   /**
+    * Gets the agent arguments for attaching to a running JVM, from "<tt>pid</tt>" to activate code coverage, or from
+    * "<tt>pid dump</tt>" or "<tt>pid dump reset</tt>" to write a snapshot of the coverage data gathered so far by an already active
+    * code coverage agent.
+    */
+   @Nullable
+   private static String getAgentArguments(@Nonnull String[] args) {
+      if (args.length == 1) {
+         return "coverage";
+      }
+
+      if ("dump".equals(args[1])) {
+         if (args.length == 2) {
+            return "coverage-dump";
+         }
+
+         if ("reset".equals(args[2])) {
+            return "coverage-dump-reset";
+         }
+      }
+
+      return null;
+   }
+
    @Nonnull
    private static OutputFileGenerator createOutputFileGenerator(@Nullable ClassModification classModification) {
       OutputFileGenerator generator = new OutputFileGenerator(classModification);
@@ -79,6 +138,15 @@ public final class CodeCoverage implements ClassFileTransformer
          !("none".equals(coverageOutput) || "none".equals(coverageClasses) || "none".equals(coverageMetrics));
    }
 
+   /**
+    * Checks whether code coverage is currently gathering data in this JVM, whether activated through system properties or through the
+    * "<tt>coverage</tt>" agent argument.
+    */
+   public static boolean isRunning() {
+      CodeCoverage coverage = instance;
+      return coverage != null && !coverage.inactive;
+   }
+
    @Nonnull
    public static CodeCoverage create(boolean generateOutputOnShutdown) {
       instance = new CodeCoverage();
@@ -91,6 +159,26 @@ public final class CodeCoverage implements ClassFileTransformer
       instance.outputPendingForShutdown = false;
    }
 
+   /**
+    * Writes a snapshot of the coverage data gathered so far, in the "serial" and/or "xml" formats, without stopping the JVM or
+    * deactivating code coverage.
+    * Threads executing instrumented code are only blocked while the coverage data is copied.
+    *
+    * @param resetCounts whether execution counts should be discarded once the snapshot is taken, so that the next snapshot only
+    *                    reflects later executions
+    *
+    * @throws IllegalStateException if code coverage is not active in this JVM
+    */
+   public static void dumpSnapshot(boolean resetCounts) {
+      CodeCoverage coverage = instance;
+
+      if (coverage == null || coverage.inactive) {
+         throw new IllegalStateException("Code coverage is not active");
+      }
+
+      coverage.outputGenerator.generateSnapshot(resetCounts);
+   }
+
    @Nullable @Override
    public byte[] transform(
       @Nullable ClassLoader loader, @Nonnull String internalClassName, @Nullable Class<?> classBeingRedefined,
@@ -100,9 +188,11 @@ public final class CodeCoverage implements ClassFileTransformer
          return null;
       }
 
+      long startTime = Statistics.ENABLED ? System.nanoTime() : 0L;
       String className = internalClassName.replace('/', '.');
 
       byte[] modifiedClassfile = classModification.modifyClass(className, protectionDomain, originalClassfile);
+      Statistics.transformerCalled(Statistics.Counter.CoverageTransformerCalls, startTime);
       return modifiedClassfile;
    }
 
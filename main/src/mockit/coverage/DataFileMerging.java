@@ -6,12 +6,31 @@ package mockit.coverage;
 
 import java.io.*;
 import java.util.*;
+import java.util.regex.*;
 import javax.annotation.*;
 
 import mockit.coverage.data.*;
 
-final class DataFileMerging
+/**
+ * Merges the coverage data from multiple data files.
+ * For each input directory, the data files are its "<tt>coverage.ser</tt>" file and the shard files written to it by test JVMs with
+ * the "<tt>serial-append</tt>" output format, merged from the most recent to the oldest, so that data for source files whose classes
+ * were modified in the meantime comes from the most recent file.
+ * Shard files which will no longer be written can be compacted into the "<tt>coverage.ser</tt>" file of their directory.
+ */
+public final class DataFileMerging
 {
+   private static final Pattern SHARD_FILE_NAME = Pattern.compile("coverage-[^.]+-\\d+(\\.live)?\\.ser");
+   private static final Pattern FINAL_SHARD_FILE_NAME = Pattern.compile("coverage-[^.]+-\\d+\\.ser");
+   private static final FilenameFilter DATA_FILES = new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) { return "coverage.ser".equals(name) || SHARD_FILE_NAME.matcher(name).matches(); }
+   };
+   private static final FilenameFilter FINAL_SHARD_FILES = new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) { return FINAL_SHARD_FILE_NAME.matcher(name).matches(); }
+   };
+
    @Nonnull private final List<File> inputFiles;
 
    DataFileMerging(@Nonnull String[] inputPaths) {
@@ -27,15 +46,107 @@ final class DataFileMerging
          File inputFile = new File(path);
 
          if (inputFile.isDirectory()) {
-            inputFile = new File(inputFile, "coverage.ser");
+            addDataFilesInDirectory(inputFile);
+         }
+         else {
+            inputFiles.add(inputFile);
          }
+      }
+   }
+
+   private void addDataFilesInDirectory(@Nonnull File dir) {
+      File[] dataFiles = dir.listFiles(DATA_FILES);
+
+      if (dataFiles == null || dataFiles.length == 0) {
+         inputFiles.add(new File(dir, "coverage.ser"));
+         return;
+      }
+
+      addDataFilesFromMostRecent(dataFiles);
+   }
+
+   private void addDataFilesFromMostRecent(@Nonnull File[] dataFiles) {
+      Arrays.sort(dataFiles, new Comparator<File>() {
+         @Override
+         public int compare(File file1, File file2) {
+            long lastModified1 = file1.lastModified();
+            long lastModified2 = file2.lastModified();
+            return lastModified1 > lastModified2 ? -1 : lastModified1 < lastModified2 ? 1 : 0;
+         }
+      });
+
+      inputFiles.addAll(Arrays.asList(dataFiles));
+   }
+
+   /**
+    * Reads and merges all data files in the given directory, or returns <tt>null</tt> if there are none.
+    */
+   @Nullable
+   public static CoverageData mergeDataFilesInDirectory(@Nonnull File dir) throws IOException {
+      DataFileMerging merging = new DataFileMerging(new String[0]);
+      merging.addDataFilesInDirectory(dir);
+      return merging.mergeIfAny();
+   }
+
+   /**
+    * Merges the final shard files in the given directory, those which will no longer be written by their test JVMs, into its
+    * "<tt>coverage.ser</tt>" file, and then deletes them.
+    * Nothing is done if another JVM is compacting the same directory at the time, as signaled by a "<tt>coverage.ser.lock</tt>" file.
+    */
+   public static void compactDataFilesInDirectory(@Nonnull File dir) throws IOException {
+      File[] finalShardFiles = dir.listFiles(FINAL_SHARD_FILES);
+
+      if (finalShardFiles == null || finalShardFiles.length == 0) {
+         return;
+      }
+
+      File lockFile = new File(dir, "coverage.ser.lock");
+
+      if (!lockFile.createNewFile()) {
+         return;
+      }
 
-         inputFiles.add(inputFile);
+      try {
+         compactDataFiles(dir, finalShardFiles);
+      }
+      finally {
+         //noinspection ResultOfMethodCallIgnored
+         lockFile.delete();
+      }
+   }
+
+   private static void compactDataFiles(@Nonnull File dir, @Nonnull File[] finalShardFiles) throws IOException {
+      File compactedFile = new File(dir, "coverage.ser");
+      File[] dataFiles = Arrays.copyOf(finalShardFiles, finalShardFiles.length + 1);
+      dataFiles[finalShardFiles.length] = compactedFile;
+
+      DataFileMerging merging = new DataFileMerging(new String[0]);
+      merging.addDataFilesFromMostRecent(dataFiles);
+      CoverageData compactedData = merging.mergeIfAny();
+
+      if (compactedData != null) {
+         AccretionFile.writeDataFileReplacing(compactedData, compactedFile);
+
+         for (File shardFile : finalShardFiles) {
+            //noinspection ResultOfMethodCallIgnored
+            shardFile.delete();
+         }
       }
    }
 
    @Nonnull
    CoverageData merge() throws IOException {
+      CoverageData mergedData = mergeIfAny();
+
+      if (mergedData == null) {
+         throw new IllegalArgumentException("No input \"coverage.ser\" files found");
+      }
+
+      return mergedData;
+   }
+
+   @Nullable
+   private CoverageData mergeIfAny() throws IOException {
       CoverageData mergedData = null;
 
       for (File inputFile : inputFiles) {
@@ -51,10 +162,6 @@ final class DataFileMerging
          }
       }
 
-      if (mergedData == null) {
-         throw new IllegalArgumentException("No input \"coverage.ser\" files found");
-      }
-
       return mergedData;
    }
 }
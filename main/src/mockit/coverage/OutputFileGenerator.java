@@ -10,6 +10,7 @@ import javax.annotation.*;
 import mockit.coverage.data.*;
 import mockit.coverage.modification.*;
 import mockit.coverage.reporting.*;
+import mockit.coverage.testImpact.*;
 
 @SuppressWarnings("DynamicRegexReplaceableByCompiledPattern")
 final class OutputFileGenerator
@@ -99,9 +100,75 @@ final class OutputFileGenerator
       boolean outputDirCreated = createOutputDirIfSpecifiedButNotExists();
 
       try {
-         generateAccretionDataFileIfRequested(coverageData);
-         generateXmlDataFileIfRequested(coverageData);
-         generateHTMLReportIfRequested(coverageData, outputDirCreated);
+         generateTestImpactDataFileIfRequested(coverageData);
+         generateAccretionDataFileIfRequested(coverageData, true);
+         compactAccretionDataFilesIfApplicable();
+
+         CoverageData dataToReport = getDataToReport(coverageData);
+         generateXmlDataFileIfRequested(dataToReport);
+         generateHTMLReportIfRequested(dataToReport, outputDirCreated);
+      }
+      catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   /**
+    * Writes a snapshot of the coverage data gathered so far to the "serial" and/or "xml" output files, while code coverage remains
+    * active.
+    * If neither format was selected for the test run, the snapshot is written in serial format.
+    */
+   void generateSnapshot(boolean resetCounts) {
+      CoverageData snapshot = TestRun.takeSnapshotOfCoverageData(resetCounts);
+      createOutputDirIfSpecifiedButNotExists();
+
+      try {
+         boolean serialOutput = hasOutputFormat("serial") || hasOutputFormat("serial-append");
+         boolean xmlOutput = hasOutputFormat("xml");
+
+         if (serialOutput) {
+            generateAccretionDataFileIfRequested(snapshot, resetCounts);
+         }
+         else if (!xmlOutput) {
+            new AccretionFile(outputDir, snapshot).generate();
+         }
+
+         if (xmlOutput) {
+            new XmlFile(outputDir, getDataToReport(snapshot)).generate();
+         }
+      }
+      catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   /**
+    * Writes a "<tt>coverage.ser</tt>" file with the coverage data of all selected classes in the given class directories, with all
+    * execution counts at zero.
+    * This allows a test run to be performed with "<tt>-Dcoverage-classes=loaded</tt>", and its output merged with this data later to
+    * produce an aggregate report which also includes the classes not exercised by tests.
+    * The class directories must also be in the classpath, since source files whose classfiles can't be located there are left out.
+    */
+   void generateForClassesNotLoaded(@Nonnull String[] classDirs) {
+      ClassesNotLoaded.gatherCoverageData(classDirs);
+      CoverageData coverageData = CoverageData.instance();
+
+      if (coverageData.isEmpty()) {
+         System.out.println("JMockit: No classes selected for coverage were found in the given class directories");
+         return;
+      }
+
+      createOutputDirIfSpecifiedButNotExists();
+
+      try {
+         AccretionFile accretionFile = new AccretionFile(outputDir, coverageData);
+
+         if (hasOutputFormat("serial-append")) {
+            accretionFile.generateShard(true);
+         }
+         else {
+            accretionFile.generate();
+         }
       }
       catch (IOException e) {
          throw new RuntimeException(e);
@@ -130,14 +197,55 @@ final class OutputFileGenerator
       return dirCreated;
    }
 
-   private void generateAccretionDataFileIfRequested(@Nonnull CoverageData newData) throws IOException {
+   private void generateAccretionDataFileIfRequested(@Nonnull CoverageData newData, boolean finalData) throws IOException {
       if (hasOutputFormat("serial")) {
          new AccretionFile(outputDir, newData).generate();
       }
       else if (hasOutputFormat("serial-append")) {
-         AccretionFile accretionFile = new AccretionFile(outputDir, newData);
-         accretionFile.mergeDataFromExistingFileIfAny();
-         accretionFile.generate();
+         new AccretionFile(outputDir, newData).generateShard(finalData);
+      }
+   }
+
+   private void compactAccretionDataFilesIfApplicable() throws IOException {
+      if (hasOutputFormat("serial-append")) {
+         File dataDir = new File(Configuration.getOrChooseOutputDirectory(outputDir));
+         DataFileMerging.compactDataFilesInDirectory(dataDir);
+      }
+   }
+
+   /**
+    * Gets the data for the XML and HTML outputs, which with the "serial-append" format is the data merged from all data files in the
+    * output directory, as written by this and other test JVMs.
+    */
+   @Nonnull
+   private CoverageData getDataToReport(@Nonnull CoverageData newData) throws IOException {
+      if (hasOutputFormat("serial-append") && (hasOutputFormat("xml") || hasOutputFormat("html") || hasOutputFormat("html-nocp"))) {
+         File dataDir = new File(Configuration.getOrChooseOutputDirectory(outputDir));
+         CoverageData mergedData = DataFileMerging.mergeDataFilesInDirectory(dataDir);
+
+         if (mergedData != null) {
+            return mergedData;
+         }
+      }
+
+      return newData;
+   }
+
+   private void generateTestImpactDataFileIfRequested(@Nonnull CoverageData newData) throws IOException {
+      TestImpactRecorder testImpactRecorder = TestImpactRecorder.INSTANCE;
+
+      if (testImpactRecorder != null) {
+         TestImpactMatrix matrix = testImpactRecorder.buildMatrix(newData);
+         String parentDir = Configuration.getOrChooseOutputDirectory(outputDir);
+         File outputFile = new File(parentDir, TestImpactMatrix.FILE_NAME);
+
+         if (hasOutputFormat("serial-append") && outputFile.exists()) {
+            TestImpactMatrix previousMatrix = TestImpactMatrix.readFromFile(outputFile);
+            matrix.merge(previousMatrix);
+         }
+
+         matrix.writeToFile(outputFile);
+         System.out.println("JMockit: Test impact data written to " + outputFile.getCanonicalPath());
       }
    }
 
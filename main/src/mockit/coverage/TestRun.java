@@ -8,7 +8,9 @@ import javax.annotation.*;
 
 import mockit.coverage.data.*;
 import mockit.coverage.lines.*;
+import mockit.coverage.testImpact.*;
 import mockit.coverage.testRedundancy.*;
+import mockit.internal.state.*;
 
 @SuppressWarnings("unused")
 public final class TestRun
@@ -18,9 +20,18 @@ public final class TestRun
 
    private TestRun() {}
 
+   /**
+    * Gets the lock held by the probes in instrumented code while they register an execution.
+    * Code which replaces the arrays holding execution counts, as when they need to grow, must also hold it, so that no execution gets
+    * counted into an array about to be discarded.
+    */
+   @Nonnull public static Object getProbesLock() { return LOCK; }
+
    public static void lineExecuted(int fileIndex, int line) {
       if (terminated) return;
 
+      Statistics.increment(Statistics.Counter.CoverageLineProbeHits);
+
       synchronized (LOCK) {
          CoverageData coverageData = CoverageData.instance();
          PerFileLineCoverage fileData = coverageData.getFileData(fileIndex).lineCoverageInfo;
@@ -32,6 +43,12 @@ public final class TestRun
 
          int previousExecutionCount = fileData.registerExecution(line, callPoint);
          recordNewLineOrSegmentAsCoveredIfApplicable(previousExecutionCount);
+
+         TestImpactRecorder testImpactRecorder = TestImpactRecorder.INSTANCE;
+
+         if (testImpactRecorder != null) {
+            testImpactRecorder.recordLineCoveredByTestIfApplicable(fileIndex, line);
+         }
       }
    }
 
@@ -46,6 +63,8 @@ public final class TestRun
    public static void branchExecuted(int fileIndex, int line, int branchIndex) {
       if (terminated) return;
 
+      Statistics.increment(Statistics.Counter.CoverageBranchProbeHits);
+
       synchronized (LOCK) {
          CoverageData coverageData = CoverageData.instance();
          PerFileLineCoverage fileData = coverageData.getFileData(fileIndex).lineCoverageInfo;
@@ -59,6 +78,12 @@ public final class TestRun
 
             int previousExecutionCount = fileData.registerExecution(line, branchIndex, callPoint);
             recordNewLineOrSegmentAsCoveredIfApplicable(previousExecutionCount);
+
+            TestImpactRecorder testImpactRecorder = TestImpactRecorder.INSTANCE;
+
+            if (testImpactRecorder != null) {
+               testImpactRecorder.recordBranchCoveredByTestIfApplicable(fileIndex, line, branchIndex);
+            }
          }
       }
    }
@@ -66,6 +91,8 @@ public final class TestRun
    public static void nodeReached(@Nonnull String file, int firstLineInMethodBody, int node) {
       if (terminated) return;
 
+      Statistics.increment(Statistics.Counter.CoveragePathNodeHits);
+
       synchronized (LOCK) {
          CoverageData coverageData = CoverageData.instance();
          FileCoverageData fileData = coverageData.getFileData(file);
@@ -115,6 +142,15 @@ public final class TestRun
       }
    }
 
+   /**
+    * Takes a snapshot of the coverage data gathered so far, holding the lock used by all probes only briefly for each source file, while
+    * its execution counts, call points, and field accesses get copied (and possibly reset).
+    */
+   @Nonnull
+   static CoverageData takeSnapshotOfCoverageData(boolean resetCounts) {
+      return CoverageData.instance().takeSnapshot(resetCounts);
+   }
+
    static void terminate() { terminated = true; }
    public static boolean isTerminated() { return terminated; }
 }
@@ -5,6 +5,7 @@
 package mockit.coverage.data;
 
 import java.io.*;
+import java.net.*;
 import java.util.*;
 import java.util.Map.*;
 import java.util.jar.*;
@@ -19,9 +20,119 @@ import mockit.internal.util.*;
 public final class CoverageData implements Serializable
 {
    private static final long serialVersionUID = -4860004226098360259L;
-   @Nonnull private static final CoverageData instance = new CoverageData();
 
-   @Nonnull public static CoverageData instance() { return instance; }
+   /**
+    * The name of the file holding the coverage data for classes instrumented ahead of time, written next to the instrumented classes.
+    */
+   public static final String PRE_INSTRUMENTED_DATA_FILE = "coverage-instrumented.ser";
+
+   @Nullable private static volatile CoverageData instance;
+   @Nonnull private static Set<String> preInstrumentedClasses = Collections.emptySet();
+
+   @Nonnull
+   public static CoverageData instance() {
+      CoverageData data = instance;
+      return data == null ? createInstance() : data;
+   }
+
+   /**
+    * Creates the single instance the first time it's needed, starting from the coverage data for classes instrumented ahead of time, if
+    * found in the classpath, so that the file indexes embedded in their bytecode refer to the corresponding source files; otherwise,
+    * or if that data can't be read, starts with no data.
+    */
+   @Nonnull
+   private static synchronized CoverageData createInstance() {
+      CoverageData data = instance;
+
+      if (data == null) {
+         Set<String> classNames = new HashSet<String>();
+         data = readPreInstrumentedDataIfAvailable(classNames);
+
+         if (data == null) {
+            data = new CoverageData();
+         }
+         else {
+            preInstrumentedClasses = classNames;
+         }
+
+         instance = data;
+      }
+
+      return data;
+   }
+
+   @Nullable
+   private static CoverageData readPreInstrumentedDataIfAvailable(@Nonnull Set<String> classNames) {
+      ClassLoader loader = CoverageData.class.getClassLoader();
+      InputStream dataFile =
+         loader == null ? ClassLoader.getSystemResourceAsStream(PRE_INSTRUMENTED_DATA_FILE) :
+            loader.getResourceAsStream(PRE_INSTRUMENTED_DATA_FILE);
+
+      return dataFile == null ? null : readPreInstrumentedData(dataFile, classNames);
+   }
+
+   /**
+    * Reads coverage data for pre-instrumented classes, as written by {@link #writePreInstrumentedDataToFile}, adding the names of the
+    * instrumented classes to the given set.
+    *
+    * @return the data read, or <tt>null</tt> if it couldn't be read, after reporting the reason
+    */
+   @Nullable
+   static CoverageData readPreInstrumentedData(@Nonnull InputStream dataFile, @Nonnull Set<String> classNames) {
+      try {
+         ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(dataFile));
+
+         try {
+            CoverageData data = (CoverageData) input.readObject();
+            @SuppressWarnings("unchecked") List<String> instrumentedClasses = (List<String>) input.readObject();
+            classNames.addAll(instrumentedClasses);
+            return data;
+         }
+         finally {
+            input.close();
+         }
+      }
+      catch (IOException e) {
+         reportUnreadablePreInstrumentedData(e);
+      }
+      catch (ClassNotFoundException e) {
+         reportUnreadablePreInstrumentedData(e);
+      }
+      catch (RuntimeException e) {
+         reportUnreadablePreInstrumentedData(e);
+      }
+
+      return null;
+   }
+
+   private static void reportUnreadablePreInstrumentedData(@Nonnull Exception e) {
+      System.out.println(
+         "JMockit: Unable to read coverage data for pre-instrumented classes from " + PRE_INSTRUMENTED_DATA_FILE + " (" + e + ')');
+   }
+
+   /**
+    * Checks whether the given class was instrumented ahead of time, in which case it must not be modified again.
+    */
+   public static boolean isPreInstrumented(@Nonnull String className) {
+      instance();
+      return preInstrumentedClasses.contains(className);
+   }
+
+   /**
+    * Writes this coverage data, together with the names of the classes instrumented for it, to the file to be read by test JVMs which
+    * load the instrumented classes.
+    */
+   public void writePreInstrumentedDataToFile(@Nonnull File dataFile, @Nonnull List<String> classNames) throws IOException {
+      ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(dataFile)));
+
+      try {
+         output.writeObject(this);
+         output.writeObject(new ArrayList<String>(classNames));
+      }
+      finally {
+         output.close();
+      }
+   }
 
    private boolean withCallPoints;
 
@@ -54,7 +165,7 @@ public final class CoverageData implements Serializable
    }
 
    @Nonnull
-   public FileCoverageData getOrAddFile(@Nonnull String file, @Nullable String kindOfTopLevelType) {
+   public synchronized FileCoverageData getOrAddFile(@Nonnull String file, @Nullable String kindOfTopLevelType) {
       FileCoverageData fileData = fileToFileData.get(file);
 
       // For a class with nested/inner classes, a previous class in the same source file may already have been added.
@@ -75,7 +186,14 @@ public final class CoverageData implements Serializable
    @Nonnull public FileCoverageData getFileData(int fileIndex) { return indexedFileData.get(fileIndex); }
 
    public boolean isEmpty() { return fileToFileData.isEmpty(); }
-   public void clear() { fileToFileData.clear(); }
+
+   /**
+    * Discards the data of all source files, so that files added afterwards are indexed from zero again.
+    */
+   public synchronized void clear() {
+      fileToFileData.clear();
+      indexedFileData.clear();
+   }
 
    /**
     * Computes the coverage percentage for a given metric, over a subset of the available source files.
@@ -142,35 +260,79 @@ public final class CoverageData implements Serializable
       }
    }
 
+   /**
+    * Finds the source files whose class files were modified since this coverage data was gathered, or which are no longer available.
+    * Files for which no modification time was recorded are included.
+    */
+   @Nonnull
+   public List<String> getFilesWithModifiedClassFiles() {
+      List<String> modifiedFiles = new ArrayList<String>();
+
+      for (Entry<String, FileCoverageData> fileAndFileData : fileToFileData.entrySet()) {
+         String sourceFile = fileAndFileData.getKey();
+         long recordedLastModified = fileAndFileData.getValue().lastModified;
+
+         if (recordedLastModified == 0L || getLastModifiedTimeForClassFile(sourceFile) != recordedLastModified) {
+            modifiedFiles.add(sourceFile);
+         }
+      }
+
+      return modifiedFiles;
+   }
+
    private long getLastModifiedTimeForClassFile(@Nonnull String sourceFilePath) {
       String sourceFilePathNoExt = sourceFilePath.substring(0, sourceFilePath.lastIndexOf('.'));
-      String className = sourceFilePathNoExt.replace('/', '.');
-
-      Class<?> coveredClass = findCoveredClass(className);
+      URL classFile = findClassFile(sourceFilePathNoExt + ".class");
 
-      if (coveredClass == null) {
+      if (classFile == null) {
          return 0L;
       }
 
-      String locationPath = Utilities.getClassFileLocationPath(coveredClass);
+      return getLastModifiedTimeForClassFile(classFile);
+   }
+
+   /**
+    * Gets the last modification time of the given class file, or <tt>0</tt> if not available.
+    * The class file is only located, so that a class which was never loaded doesn't get loaded here.
+    */
+   private static long getLastModifiedTimeForClassFile(@Nonnull URL classFile) {
+      try {
+         if ("jar".equals(classFile.getProtocol())) {
+            URLConnection connection = classFile.openConnection();
+            return connection instanceof JarURLConnection ? ((JarURLConnection) connection).getJarEntry().getTime() : 0L;
+         }
+
+         return new File(classFile.toURI()).lastModified();
+      }
+      catch (IOException ignore) { return 0L; }
+      catch (URISyntaxException ignore) { return 0L; }
+      catch (IllegalArgumentException ignore) { return 0L; }
+   }
+
+   /**
+    * Gets the last modification time of the class file for the given class, in a directory or jar file, or <tt>0</tt> if not available.
+    */
+   public static long getLastModifiedTimeForClassFile(@Nonnull Class<?> aClass) {
+      String classFilePathNoExt = aClass.getName().replace('.', '/');
+      String locationPath = Utilities.getClassFileLocationPath(aClass);
 
       if (locationPath.endsWith(".jar")) {
-         try { return getLastModifiedTimeFromJarEntry(sourceFilePathNoExt, locationPath); }
+         try { return getLastModifiedTimeFromJarEntry(classFilePathNoExt, locationPath); }
          catch (IOException ignore) { return 0L; }
       }
 
-      String pathToClassFile = locationPath + sourceFilePathNoExt + ".class";
+      String pathToClassFile = locationPath + classFilePathNoExt + ".class";
 
       return new File(pathToClassFile).lastModified();
    }
 
    private static long getLastModifiedTimeFromJarEntry(
-      @Nonnull String sourceFilePathNoExt, @Nonnull String locationPath
+      @Nonnull String classFilePathNoExt, @Nonnull String locationPath
    ) throws IOException {
       JarFile jarFile = new JarFile(locationPath);
 
       try {
-         JarEntry classEntry = jarFile.getJarEntry(sourceFilePathNoExt + ".class");
+         JarEntry classEntry = jarFile.getJarEntry(classFilePathNoExt + ".class");
          return classEntry.getTime();
       }
       finally {
@@ -179,36 +341,32 @@ public final class CoverageData implements Serializable
    }
 
    @Nullable
-   private Class<?> findCoveredClass(@Nonnull String className) {
+   private URL findClassFile(@Nonnull String classFileName) {
       ClassLoader currentCL = getClass().getClassLoader();
-      Class<?> coveredClass = loadClass(className, currentCL);
+      URL classFile = findClassFile(classFileName, currentCL);
 
-      if (coveredClass == null) {
+      if (classFile == null) {
          ClassLoader systemCL = ClassLoader.getSystemClassLoader();
 
          if (systemCL != currentCL) {
-            coveredClass = loadClass(className, systemCL);
+            classFile = findClassFile(classFileName, systemCL);
          }
 
-         if (coveredClass == null) {
+         if (classFile == null) {
             ClassLoader contextCL = Thread.currentThread().getContextClassLoader();
 
             if (contextCL != null && contextCL != systemCL) {
-               coveredClass = loadClass(className, contextCL);
+               classFile = findClassFile(classFileName, contextCL);
             }
          }
       }
 
-      return coveredClass;
+      return classFile;
    }
 
    @Nullable
-   private static Class<?> loadClass(@Nonnull String className, @Nullable ClassLoader loader) {
-      try {
-         return Class.forName(className, false, loader);
-      }
-      catch (ClassNotFoundException ignore) { return null; }
-      catch (NoClassDefFoundError ignored) { return null; }
+   private static URL findClassFile(@Nonnull String classFileName, @Nullable ClassLoader loader) {
+      return loader == null ? ClassLoader.getSystemResource(classFileName) : loader.getResource(classFileName);
    }
 
    /**
@@ -226,6 +384,11 @@ public final class CoverageData implements Serializable
       try {
          return (CoverageData) input.readObject();
       }
+      catch (InvalidClassException e) {
+         throw new RuntimeException(
+            "Coverage data file \"" + dataFile + "\" was written by an incompatible version of JMockit; it must be deleted, or written " +
+            "again by the current version", e);
+      }
       catch (ClassNotFoundException e) {
          throw new RuntimeException(
             "Serialized class in coverage data file \"" + dataFile + "\" not found in classpath", e);
@@ -246,6 +409,46 @@ public final class CoverageData implements Serializable
       }
    }
 
+   /**
+    * Takes a snapshot of the coverage data gathered so far, one source file at a time.
+    * The lock used by the probes in instrumented code (see <tt>TestRun</tt>) is held only while the execution counts, call points, and
+    * field accesses of a file are copied, or handed over to the snapshot when resetting; everything else is copied without holding it.
+    * Files added afterwards by classes instrumented concurrently are left out.
+    *
+    * @param resetCounts whether the execution counts, call points, and field accesses should be discarded after the snapshot is taken,
+    *                    so that the next snapshot only reflects executions from then on
+    *
+    * @return a new object which is independent of any coverage data gathered later
+    */
+   @Nonnull
+   public CoverageData takeSnapshot(boolean resetCounts) {
+      Map<String, FileCoverageData> files;
+      List<FileCoverageData> filesByIndex;
+
+      synchronized (this) {
+         files = new LinkedHashMap<String, FileCoverageData>(fileToFileData);
+         filesByIndex = new ArrayList<FileCoverageData>(indexedFileData);
+      }
+
+      CoverageData snapshot = new CoverageData();
+      snapshot.withCallPoints = withCallPoints;
+      Map<FileCoverageData, FileCoverageData> fileDataCopies = new IdentityHashMap<FileCoverageData, FileCoverageData>(files.size());
+
+      for (FileCoverageData fileData : filesByIndex) {
+         FileCoverageData copy = fileData.copy(resetCounts);
+         fileDataCopies.put(fileData, copy);
+         snapshot.indexedFileData.add(copy);
+      }
+
+      for (Entry<String, FileCoverageData> fileAndFileData : files.entrySet()) {
+         FileCoverageData fileData = fileAndFileData.getValue();
+         FileCoverageData copy = fileDataCopies.get(fileData);
+         snapshot.fileToFileData.put(fileAndFileData.getKey(), copy == null ? fileData.copy(resetCounts) : copy);
+      }
+
+      return snapshot;
+   }
+
    public void merge(@Nonnull CoverageData previousData) {
       withCallPoints |= previousData.withCallPoints;
 
@@ -49,6 +49,32 @@ public final class FileCoverageData implements Serializable
       loadedAfterTestCompletion = TestRun.isTerminated();
    }
 
+   private FileCoverageData(@Nonnull FileCoverageData original) {
+      index = original.index;
+      kindOfTopLevelType = original.kindOfTopLevelType;
+      lastModified = original.lastModified;
+      loadedAfterTestCompletion = original.loadedAfterTestCompletion;
+   }
+
+   /**
+    * Copies this data for a snapshot, holding the probes' lock (see <tt>TestRun</tt>) only while copying the arrays and maps which the
+    * probes update; the paths of methods, whose execution counts are atomic, are copied after releasing it.
+    */
+   @Nonnull
+   FileCoverageData copy(boolean resetCounts) {
+      FileCoverageData copy = new FileCoverageData(this);
+      List<MethodCoverageData> methods;
+
+      synchronized (TestRun.getProbesLock()) {
+         copy.lineCoverageInfo = lineCoverageInfo == NO_LINE_INFO ? NO_LINE_INFO : lineCoverageInfo.copy(resetCounts);
+         copy.dataCoverageInfo = dataCoverageInfo == NO_DATA_INFO ? NO_DATA_INFO : dataCoverageInfo.copy(resetCounts);
+         methods = new ArrayList<MethodCoverageData>(pathCoverageInfo.firstLineToMethodData.values());
+      }
+
+      copy.pathCoverageInfo = pathCoverageInfo == NO_PATH_INFO ? NO_PATH_INFO : PerFilePathCoverage.copyOf(methods, resetCounts);
+      return copy;
+   }
+
    public boolean wasLoadedAfterTestCompletion() { return loadedAfterTestCompletion; }
 
    @Nonnull
@@ -20,6 +20,14 @@ public abstract class FieldData implements Serializable
       out.defaultWriteObject();
    }
 
+   private void readObject(@Nonnull ObjectInputStream in) throws IOException, ClassNotFoundException {
+      in.defaultReadObject();
+
+      if (readCount == 0 && writeCount == 0) {
+         covered = null; // nothing recorded yet, as in the data written by offline instrumentation
+      }
+   }
+
    public final int getReadCount() { return readCount; }
    public final int getWriteCount() { return writeCount; }
 
@@ -34,6 +42,23 @@ public abstract class FieldData implements Serializable
 
    abstract void markAsCoveredIfNoUnreadValuesAreLeft();
 
+   /**
+    * Copies the counts into the given object, together with whether the field is covered so far, which is not cached here since it can
+    * still change.
+    */
+   final void copyCountsInto(@Nonnull FieldData copy) {
+      Boolean coveredSoFar = covered;
+      copy.readCount = readCount;
+      copy.writeCount = writeCount;
+      copy.covered = isCovered();
+      covered = coveredSoFar;
+   }
+
+   void resetCounts() {
+      readCount = writeCount = 0;
+      covered = null;
+   }
+
    final void addCountsFromPreviousTestRun(@Nonnull FieldData previousInfo) {
       readCount += previousInfo.readCount;
       writeCount += previousInfo.writeCount;
@@ -4,6 +4,7 @@
  */
 package mockit.coverage.dataItems;
 
+import java.io.*;
 import java.util.*;
 import javax.annotation.*;
 
@@ -13,8 +14,12 @@ public final class InstanceFieldData extends FieldData
 {
    private static final long serialVersionUID = 6991762113575259754L;
 
-   @Nonnull
-   private final transient Map<Integer, List<Integer>> testIdsToAssignments = new HashMap<Integer, List<Integer>>();
+   @Nonnull private transient Map<Integer, List<Integer>> testIdsToAssignments = new HashMap<Integer, List<Integer>>();
+
+   private void readObject(@Nonnull ObjectInputStream in) throws IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      testIdsToAssignments = new HashMap<Integer, List<Integer>>();
+   }
 
    void registerAssignment(@Nonnull Object instance) {
       List<Integer> dataForRunningTest = getDataForRunningTest();
@@ -48,6 +53,19 @@ public final class InstanceFieldData extends FieldData
       return fieldData;
    }
 
+   @Nonnull
+   InstanceFieldData copy() {
+      InstanceFieldData copy = new InstanceFieldData();
+      copyCountsInto(copy);
+      return copy;
+   }
+
+   @Override
+   void resetCounts() {
+      super.resetCounts();
+      testIdsToAssignments.clear();
+   }
+
    @Override
    void markAsCoveredIfNoUnreadValuesAreLeft() {
       for (List<Integer> unreadInstances : testIdsToAssignments.values()) {
@@ -139,6 +139,41 @@ public final class PerFileDataCoverage implements PerFileCoverage
       return CoveragePercentage.calculate(getCoveredItems(), totalFields);
    }
 
+   /**
+    * Copies the fields and their read and write counts, which must be done while holding the probes' lock (see <tt>TestRun</tt>).
+    */
+   @Nonnull
+   public PerFileDataCoverage copy(boolean resetCounts) {
+      PerFileDataCoverage copy = new PerFileDataCoverage();
+      copy.allFields.addAll(allFields);
+
+      for (Entry<String, StaticFieldData> fieldAndData : staticFieldsData.entrySet()) {
+         copy.staticFieldsData.put(fieldAndData.getKey(), fieldAndData.getValue().copy());
+      }
+
+      for (Entry<String, InstanceFieldData> fieldAndData : instanceFieldsData.entrySet()) {
+         copy.instanceFieldsData.put(fieldAndData.getKey(), fieldAndData.getValue().copy());
+      }
+
+      if (resetCounts) {
+         resetCounts();
+      }
+
+      return copy;
+   }
+
+   private void resetCounts() {
+      for (StaticFieldData staticData : staticFieldsData.values()) {
+         staticData.resetCounts();
+      }
+
+      for (InstanceFieldData instanceData : instanceFieldsData.values()) {
+         instanceData.resetCounts();
+      }
+
+      coveredDataItems = -1;
+   }
+
    public void mergeInformation(@Nonnull PerFileDataCoverage previousInfo) {
       addInfoFromPreviousTestRun(staticFieldsData, previousInfo.staticFieldsData);
       addFieldsFromPreviousTestRunIfAbsent(staticFieldsData, previousInfo.staticFieldsData);
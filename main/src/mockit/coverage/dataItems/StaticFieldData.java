@@ -4,6 +4,7 @@
  */
 package mockit.coverage.dataItems;
 
+import java.io.*;
 import java.util.*;
 import javax.annotation.*;
 
@@ -13,7 +14,12 @@ public final class StaticFieldData extends FieldData
 {
    private static final long serialVersionUID = -6596622341651601060L;
 
-   @Nonnull private final transient Map<Integer, Boolean> testIdsToAssignments = new HashMap<Integer, Boolean>();
+   @Nonnull private transient Map<Integer, Boolean> testIdsToAssignments = new HashMap<Integer, Boolean>();
+
+   private void readObject(@Nonnull ObjectInputStream in) throws IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      testIdsToAssignments = new HashMap<Integer, Boolean>();
+   }
 
    void registerAssignment() {
       int testId = TestRun.getTestId();
@@ -27,6 +33,19 @@ public final class StaticFieldData extends FieldData
       readCount++;
    }
 
+   @Nonnull
+   StaticFieldData copy() {
+      StaticFieldData copy = new StaticFieldData();
+      copyCountsInto(copy);
+      return copy;
+   }
+
+   @Override
+   void resetCounts() {
+      super.resetCounts();
+      testIdsToAssignments.clear();
+   }
+
    @Override
    void markAsCoveredIfNoUnreadValuesAreLeft() {
       for (Boolean withUnreadValue : testIdsToAssignments.values()) {
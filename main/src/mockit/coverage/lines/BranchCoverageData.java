@@ -4,34 +4,24 @@
  */
 package mockit.coverage.lines;
 
-import java.io.*;
+import java.util.*;
 import javax.annotation.*;
 
-import mockit.asm.*;
+import mockit.coverage.*;
 
 /**
  * Coverage data gathered for a branch inside a line of source code.
  */
 public final class BranchCoverageData extends LineSegmentData
 {
-   private static final long serialVersionUID = 1003335601845442606L;
-   static final BranchCoverageData INVALID = new BranchCoverageData(new Label());
+   private final int line;
 
-   @Nonnull private transient Label label;
-
-   BranchCoverageData(@Nonnull Label label) { this.label = label; }
-
-   int getLine() { return label.info == null ? label.line : (Integer) label.info; }
-
-   private void readObject(@Nonnull ObjectInputStream in) throws IOException, ClassNotFoundException {
-      label = new Label();
-      label.line = in.readInt();
-      in.defaultReadObject();
+   BranchCoverageData(
+      int line, boolean empty, boolean unreachable, @Nonnegative int executionCount, @Nullable List<CallPoint> callPoints
+   ) {
+      super(unreachable, empty, executionCount, callPoints);
+      this.line = line;
    }
 
-   private void writeObject(@Nonnull ObjectOutputStream out) throws IOException {
-      int line = getLine();
-      out.writeInt(line);
-      out.defaultWriteObject();
-   }
+   int getLine() { return line; }
 }
@@ -8,58 +8,28 @@ import java.util.*;
 import javax.annotation.*;
 
 import mockit.coverage.*;
-import mockit.asm.*;
 
 /**
- * Coverage data gathered for a single executable line of code in a source file.
+ * Coverage data gathered for a single executable line of code in a source file, as obtained from {@link PerFileLineCoverage}.
  */
 public final class LineCoverageData extends LineSegmentData
 {
-   private static final long serialVersionUID = -6233980722802474992L;
-
-   // Static data:
-   @Nonnull private List<BranchCoverageData> branches;
-   private transient int segments;
-
-   LineCoverageData() { branches = Collections.emptyList(); }
-
-   public int addBranchingPoint(@Nonnull Label jumpSource, @Nonnull Label jumpTarget) {
-      int initialIndex = branches.size();
-
-      if (initialIndex == 0) {
-         branches = new ArrayList<BranchCoverageData>(4);
-      }
-
-      branches.add(new BranchCoverageData(jumpSource));
-      branches.add(new BranchCoverageData(jumpTarget));
-      return initialIndex;
-   }
-
-   void markLastSegmentAsEmpty() {
-      BranchCoverageData lastBranch = branches.get(branches.size() - 1);
-      lastBranch.markAsEmpty();
+   @Nonnull private final List<BranchCoverageData> branches;
+   private int segments;
+
+   LineCoverageData(
+      @Nonnegative int executionCount, @Nullable List<CallPoint> callPoints, @Nonnull List<BranchCoverageData> branches
+   ) {
+      super(false, false, executionCount, callPoints);
+      this.branches = branches;
    }
 
-   private boolean noBranchesYet() { return branches == Collections.<BranchCoverageData>emptyList(); }
-
    @Nonnull public BranchCoverageData getBranchData(int index) { return branches.get(index); }
 
-   boolean acceptsAdditionalCallPoints(int branchIndex) {
-      BranchCoverageData data = branches.get(branchIndex);
-      return data.acceptsAdditionalCallPoints();
-   }
-
-   int registerExecution(int branchIndex, @Nullable CallPoint callPoint) {
-      BranchCoverageData data = branches.get(branchIndex);
-      return data.registerExecution(callPoint);
-   }
-
-   public boolean containsBranches() { return !noBranchesYet(); }
+   public boolean containsBranches() { return !branches.isEmpty(); }
 
    @Nonnull public List<BranchCoverageData> getBranches() { return branches; }
 
-   public boolean isValidBranch(int branchIndex) { return branches.get(branchIndex) != BranchCoverageData.INVALID; }
-
    public int getNumberOfSegments() {
       int previouslyCounted = segments;
 
@@ -98,7 +68,7 @@ public final class LineCoverageData extends LineSegmentData
    }
 
    public int getNumberOfCoveredSegments() {
-      int segmentsCovered = executionCount > 0 ? 1 : 0;
+      int segmentsCovered = getExecutionCount() > 0 ? 1 : 0;
       int n = branches.size();
 
       if (n == 0) {
@@ -175,17 +145,4 @@ public final class LineCoverageData extends LineSegmentData
 
       return sourcesAndTargetsCovered;
    }
-
-   void addCountsFromPreviousTestRun(@Nonnull LineCoverageData previousData) {
-      addExecutionCountAndCallPointsFromPreviousTestRun(previousData);
-
-      if (containsBranches()) {
-         for (int i = 0, n = branches.size(); i < n; i++) {
-            BranchCoverageData segmentData = branches.get(i);
-            BranchCoverageData previousSegmentData = previousData.branches.get(i);
-
-            segmentData.addExecutionCountAndCallPointsFromPreviousTestRun(previousSegmentData);
-         }
-      }
-   }
 }
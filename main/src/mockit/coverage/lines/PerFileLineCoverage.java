@@ -8,20 +8,50 @@ import java.io.*;
 import java.util.*;
 import javax.annotation.*;
 
+import mockit.asm.*;
 import mockit.coverage.*;
 import mockit.coverage.data.*;
 
+/**
+ * Line and branch coverage data for a single source file, kept in primitive arrays rather than in objects per line and per branch.
+ * <p/>
+ * Each executable line is mapped to the slots of its branches, with the line, flags, and execution count of each branch being held at
+ * that slot in separate arrays.
+ * Call points are kept in side tables which only get created when call points are being gathered.
+ * <p/>
+ * Lines and branches are added while classes from the source file are instrumented, and classes from the same file which were already
+ * loaded may be executing their probes at the same time; therefore, all changes to the line and branch tables are made while holding
+ * the lock used by the probes (see <tt>TestRun</tt>).
+ * Reporting code accesses individual lines through {@link LineCoverageData} objects, which are created on demand.
+ */
 public final class PerFileLineCoverage implements PerFileCoverage
 {
-   private static final long serialVersionUID = 6318915843739466316L;
+   private static final long serialVersionUID = -3224127163592519932L;
+   static final int MAX_CALL_POINTS = Integer.parseInt(Configuration.getProperty("maxCallPoints", "10"));
    private static final int[] NO_EXECUTIONS_YET = new int[0];
+   private static final int[] NO_BRANCHES = new int[0];
+   private static final byte EMPTY = 1;
+   private static final byte UNREACHABLE = 2;
+
+   // Static data for lines, indexed by line number; for an executable line, holds the slots of the branches in the line (if any):
+   @Nonnull private int[][] lineToBranchSlots;
+   @Nonnegative private int executableLines;
+
+   // Static data for branches, indexed by slot:
+   @Nonnegative private int branchCount;
+   @Nonnull private int[] branchLines;
+   @Nonnull private byte[] branchFlags;
 
-   @Nonnull private final Map<Integer, LineCoverageData> lineToLineData = new HashMap<Integer, LineCoverageData>(128);
+   // Labels for the branches added since the last call to resolveBranchLines(), whose lines may not be known yet:
+   @Nullable private transient Label[] branchLabels;
+   @Nonnegative private transient int firstBranchWithLabel;
 
+   // Runtime data, indexed by line number and by branch slot, respectively:
    @SuppressWarnings("FieldAccessedSynchronizedAndUnsynchronized")
    @Nonnull private int[] executionCounts = NO_EXECUTIONS_YET;
-
-   @Nonnull private transient LineCoverageData sharedLineData;
+   @Nonnull private int[] branchExecutionCounts;
+   @Nullable private Map<Integer, List<CallPoint>> lineToCallPoints;
+   @Nullable private Map<Integer, List<CallPoint>> branchToCallPoints;
 
    // Computed on demand:
    @Nonnegative private int lastLine;
@@ -29,14 +59,79 @@ public final class PerFileLineCoverage implements PerFileCoverage
    private transient int coveredSegments;
 
    public PerFileLineCoverage() {
-      sharedLineData = new LineCoverageData();
+      lineToBranchSlots = new int[0][];
+      branchLines = NO_BRANCHES;
+      branchFlags = new byte[0];
+      branchExecutionCounts = NO_BRANCHES;
       initializeCache();
    }
 
+   private PerFileLineCoverage(@Nonnull PerFileLineCoverage original, boolean resetCounts) {
+      lineToBranchSlots = original.lineToBranchSlots.clone();
+      executableLines = original.executableLines;
+      branchCount = original.branchCount;
+      branchLines = original.branchLines.clone();
+      branchFlags = original.branchFlags.clone();
+      lastLine = original.lastLine;
+      initializeCache();
+
+      Label[] labels = original.branchLabels;
+
+      if (labels != null) {
+         for (int slot = original.firstBranchWithLabel, n = branchCount; slot < n; slot++) {
+            branchLines[slot] = original.getBranchLine(slot);
+         }
+      }
+
+      if (resetCounts) {
+         executionCounts = original.executionCounts;
+         branchExecutionCounts = original.branchExecutionCounts;
+         lineToCallPoints = original.lineToCallPoints;
+         branchToCallPoints = original.branchToCallPoints;
+         original.resetCounts();
+      }
+      else {
+         executionCounts = original.executionCounts == NO_EXECUTIONS_YET ? NO_EXECUTIONS_YET : original.executionCounts.clone();
+         branchExecutionCounts = original.branchExecutionCounts.clone();
+         lineToCallPoints = copyCallPoints(original.lineToCallPoints);
+         branchToCallPoints = copyCallPoints(original.branchToCallPoints);
+      }
+   }
+
+   @Nullable
+   private static Map<Integer, List<CallPoint>> copyCallPoints(@Nullable Map<Integer, List<CallPoint>> callPoints) {
+      if (callPoints == null) {
+         return null;
+      }
+
+      Map<Integer, List<CallPoint>> copy = new HashMap<Integer, List<CallPoint>>(callPoints.size() * 2);
+
+      for (Map.Entry<Integer, List<CallPoint>> keyAndCallPoints : callPoints.entrySet()) {
+         List<CallPoint> callPointsForKey = keyAndCallPoints.getValue();
+         List<CallPoint> callPointsCopy = new ArrayList<CallPoint>(callPointsForKey.size());
+
+         for (CallPoint callPoint : callPointsForKey) {
+            callPointsCopy.add(callPoint.copy());
+         }
+
+         copy.put(keyAndCallPoints.getKey(), callPointsCopy);
+      }
+
+      return copy;
+   }
+
+   /**
+    * Copies the line and branch information together with the execution counts and call points gathered so far, taking the lines of
+    * branches still pending resolution from their labels without modifying this object.
+    * Must be called while holding the probes' lock (see <tt>TestRun</tt>); only arrays and call point lists get copied, and when
+    * resetting the counts, the arrays and maps holding them are handed over to the copy instead.
+    */
+   @Nonnull
+   public PerFileLineCoverage copy(boolean resetCounts) { return new PerFileLineCoverage(this, resetCounts); }
+
    private void initializeCache() { totalSegments = coveredSegments = -1; }
 
    private void readObject(@Nonnull ObjectInputStream in) throws IOException, ClassNotFoundException {
-      sharedLineData = new LineCoverageData();
       initializeCache();
       in.defaultReadObject();
 
@@ -45,9 +140,32 @@ public final class PerFileLineCoverage implements PerFileCoverage
       }
    }
 
+   private void writeObject(@Nonnull ObjectOutputStream out) throws IOException {
+      Label[] labels = branchLabels;
+
+      if (labels != null) {
+         copyBranchLinesFromLabels(labels);
+      }
+
+      out.defaultWriteObject();
+   }
+
    public void addLine(@Nonnegative int line) {
-      if (!lineToLineData.containsKey(line)) {
-         lineToLineData.put(line, null);
+      synchronized (TestRun.getProbesLock()) {
+         addLineWhileLocked(line);
+      }
+   }
+
+   private void addLineWhileLocked(@Nonnegative int line) {
+      if (line >= lineToBranchSlots.length) {
+         int[][] newLineToBranchSlots = new int[line + 30][];
+         System.arraycopy(lineToBranchSlots, 0, newLineToBranchSlots, 0, lineToBranchSlots.length);
+         lineToBranchSlots = newLineToBranchSlots;
+      }
+
+      if (lineToBranchSlots[line] == null) {
+         lineToBranchSlots[line] = NO_BRANCHES;
+         executableLines++;
       }
 
       if (line > lastLine) {
@@ -56,41 +174,149 @@ public final class PerFileLineCoverage implements PerFileCoverage
          int[] initialExecutionCounts = executionCounts;
 
          if (initialExecutionCounts != NO_EXECUTIONS_YET && line >= initialExecutionCounts.length) {
-            int[] newCounts = new int[line + 30];
-            System.arraycopy(initialExecutionCounts, 0, newCounts, 0, initialExecutionCounts.length);
-            executionCounts = newCounts;
+            executionCounts = Arrays.copyOf(initialExecutionCounts, line + 30);
          }
 
          lastLine = line;
       }
    }
 
-   @Nonnull
-   public LineCoverageData getOrCreateLineData(@Nonnegative int line) {
-      LineCoverageData lineData = lineToLineData.get(line);
+   @Nullable
+   private int[] getBranchSlots(@Nonnegative int line) {
+      return line < lineToBranchSlots.length ? lineToBranchSlots[line] : null;
+   }
 
-      if (lineData == null) {
-         lineData = new LineCoverageData();
-         lineToLineData.put(line, lineData);
+   /**
+    * Adds a branching point to the given line, consisting of a jump source and a jump target, whose lines are taken from the given
+    * labels once {@link #resolveBranchLines()} gets called.
+    *
+    * @return the index of the jump source in the line, with the jump target being at the next index
+    */
+   @Nonnegative
+   public int addBranchingPoint(@Nonnegative int line, @Nonnull Label jumpSource, @Nonnull Label jumpTarget) {
+      return addBranchingPoint(line, jumpSource, 0, (byte) 0, jumpTarget, 0, (byte) 0);
+   }
+
+   @Nonnegative
+   private int addBranchingPoint(
+      @Nonnegative int line, @Nullable Label jumpSource, int sourceLine, byte sourceFlags,
+      @Nullable Label jumpTarget, int targetLine, byte targetFlags
+   ) {
+      synchronized (TestRun.getProbesLock()) {
+         int[] slotsInLine = getBranchSlots(line);
+
+         if (slotsInLine == null) {
+            addLineWhileLocked(line);
+            slotsInLine = NO_BRANCHES;
+         }
+
+         int initialIndex = slotsInLine.length;
+         int[] newSlotsInLine = new int[initialIndex + 2];
+         System.arraycopy(slotsInLine, 0, newSlotsInLine, 0, initialIndex);
+         newSlotsInLine[initialIndex] = addBranch(jumpSource, sourceLine, sourceFlags);
+         newSlotsInLine[initialIndex + 1] = addBranch(jumpTarget, targetLine, targetFlags);
+         lineToBranchSlots[line] = newSlotsInLine;
+         return initialIndex;
+      }
+   }
+
+   @Nonnegative
+   private int addBranch(@Nullable Label label, int line, byte flags) {
+      int slot = branchCount;
+
+      if (slot == branchFlags.length) {
+         growBranchTables();
       }
 
-      return lineData;
+      branchLines[slot] = line;
+      branchFlags[slot] = flags;
+
+      if (label != null) {
+         if (branchLabels == null) {
+            branchLabels = new Label[branchFlags.length];
+            firstBranchWithLabel = slot;
+         }
+
+         branchLabels[slot] = label;
+      }
+
+      branchCount++;
+      return slot;
    }
 
-   @Nonnull
-   public BranchCoverageData getBranchData(@Nonnegative int line, @Nonnegative int index) {
-      LineCoverageData lineData = lineToLineData.get(line);
-      return lineData.getBranchData(index);
+   private void growBranchTables() {
+      int newCapacity = Math.max(8, branchFlags.length * 2);
+      branchLines = Arrays.copyOf(branchLines, newCapacity);
+      branchFlags = Arrays.copyOf(branchFlags, newCapacity);
+      branchExecutionCounts = Arrays.copyOf(branchExecutionCounts, newCapacity);
+
+      if (branchLabels != null) {
+         branchLabels = Arrays.copyOf(branchLabels, newCapacity);
+      }
+   }
+
+   /**
+    * Records the lines of the branching points added since the previous call, from their labels, which are then discarded.
+    * To be called after all code in a method has been visited, when jump targets have their lines assigned.
+    */
+   public void resolveBranchLines() {
+      synchronized (TestRun.getProbesLock()) {
+         Label[] labels = branchLabels;
+
+         if (labels != null) {
+            copyBranchLinesFromLabels(labels);
+            branchLabels = null;
+         }
+      }
+   }
+
+   private void copyBranchLinesFromLabels(@Nonnull Label[] labels) {
+      for (int slot = firstBranchWithLabel, n = branchCount; slot < n; slot++) {
+         Label label = labels[slot];
+
+         if (label != null) {
+            branchLines[slot] = getLine(label);
+         }
+      }
+   }
+
+   private static int getLine(@Nonnull Label label) { return label.info == null ? label.line : (Integer) label.info; }
+
+   private int getBranchLine(@Nonnegative int slot) {
+      Label[] labels = branchLabels;
+
+      if (labels != null && slot >= firstBranchWithLabel && labels[slot] != null) {
+         return getLine(labels[slot]);
+      }
+
+      return branchLines[slot];
    }
 
    public void markLastLineSegmentAsEmpty(@Nonnegative int line) {
-      LineCoverageData lineData = lineToLineData.get(line);
-      lineData.markLastSegmentAsEmpty();
+      synchronized (TestRun.getProbesLock()) {
+         int[] slotsInLine = lineToBranchSlots[line];
+         branchFlags[slotsInLine[slotsInLine.length - 1]] |= EMPTY;
+      }
+   }
+
+   public void markBranchAsUnreachable(@Nonnegative int line, @Nonnegative int branchIndex) {
+      synchronized (TestRun.getProbesLock()) {
+         branchFlags[lineToBranchSlots[line][branchIndex]] |= UNREACHABLE;
+      }
    }
 
    public boolean acceptsAdditionalCallPoints(@Nonnegative int line) {
-      LineCoverageData lineData = getOrCreateLineData(line);
-      return lineData.acceptsAdditionalCallPoints();
+      return acceptsAdditionalCallPoints(lineToCallPoints, line);
+   }
+
+   private static boolean acceptsAdditionalCallPoints(@Nullable Map<Integer, List<CallPoint>> callPoints, @Nonnegative int key) {
+      List<CallPoint> callPointsForKey = getCallPoints(callPoints, key);
+      return callPointsForKey == null || callPointsForKey.size() < MAX_CALL_POINTS;
+   }
+
+   @Nullable
+   private static List<CallPoint> getCallPoints(@Nullable Map<Integer, List<CallPoint>> callPoints, @Nonnegative int key) {
+      return callPoints == null ? null : callPoints.get(key);
    }
 
    @Nonnegative
@@ -102,45 +328,90 @@ public final class PerFileLineCoverage implements PerFileCoverage
       int previousExecutionCount = executionCounts[line]++;
 
       if (callPoint != null) {
-         LineCoverageData lineData = lineToLineData.get(line);
-         lineData.registerExecution(callPoint);
+         lineToCallPoints = addCallPoint(lineToCallPoints, line, callPoint);
       }
 
       return previousExecutionCount;
    }
 
+   @Nonnull
+   private static Map<Integer, List<CallPoint>> addCallPoint(
+      @Nullable Map<Integer, List<CallPoint>> callPoints, @Nonnegative int key, @Nonnull CallPoint callPoint
+   ) {
+      if (callPoints == null) {
+         callPoints = new HashMap<Integer, List<CallPoint>>();
+      }
+
+      List<CallPoint> callPointsForKey = callPoints.get(key);
+
+      if (callPointsForKey == null) {
+         callPointsForKey = new ArrayList<CallPoint>(MAX_CALL_POINTS);
+         callPoints.put(key, callPointsForKey);
+      }
+
+      for (int i = callPointsForKey.size() - 1; i >= 0; i--) {
+         CallPoint previousCallPoint = callPointsForKey.get(i);
+
+         if (callPoint.isSameLineInTestCode(previousCallPoint)) {
+            previousCallPoint.incrementRepetitionCount();
+            return callPoints;
+         }
+      }
+
+      callPointsForKey.add(callPoint);
+      return callPoints;
+   }
+
    public boolean hasValidBranch(@Nonnegative int line, @Nonnegative int branchIndex) {
-      LineCoverageData lineData = lineToLineData.get(line);
-      return lineData.isValidBranch(branchIndex);
+      int[] slotsInLine = getBranchSlots(line);
+      return slotsInLine != null && branchIndex < slotsInLine.length;
    }
 
    public boolean acceptsAdditionalCallPoints(@Nonnegative int line, @Nonnegative int branchIndex) {
-      LineCoverageData lineData = lineToLineData.get(line);
-      return lineData.acceptsAdditionalCallPoints(branchIndex);
+      int slot = lineToBranchSlots[line][branchIndex];
+      return acceptsAdditionalCallPoints(branchToCallPoints, slot);
    }
 
    public int registerExecution(@Nonnegative int line, @Nonnegative int branchIndex, @Nullable CallPoint callPoint) {
-      LineCoverageData lineData = lineToLineData.get(line);
-      return lineData.registerExecution(branchIndex, callPoint);
+      int slot = lineToBranchSlots[line][branchIndex];
+      int previousExecutionCount = branchExecutionCounts[slot]++;
+
+      if (callPoint != null) {
+         branchToCallPoints = addCallPoint(branchToCallPoints, slot, callPoint);
+      }
+
+      return previousExecutionCount;
    }
 
    @Nonnegative public int getLineCount() { return lastLine; }
-   @Nonnegative public int getExecutableLineCount() { return lineToLineData.size(); }
+   @Nonnegative public int getExecutableLineCount() { return executableLines; }
 
    public boolean hasLineData(@Nonnegative int line) {
-      return executionCounts != NO_EXECUTIONS_YET && lineToLineData.containsKey(line);
+      return executionCounts != NO_EXECUTIONS_YET && getBranchSlots(line) != null;
    }
 
    @Nonnull
    public LineCoverageData getLineData(@Nonnegative int line) {
-      LineCoverageData data = lineToLineData.get(line);
+      int[] slotsInLine = getBranchSlots(line);
+      List<BranchCoverageData> branches;
 
-      if (data == null) {
-         data = sharedLineData;
+      if (slotsInLine == null || slotsInLine.length == 0) {
+         branches = Collections.emptyList();
+      }
+      else {
+         branches = new ArrayList<BranchCoverageData>(slotsInLine.length);
+
+         for (int slot : slotsInLine) {
+            byte flags = branchFlags[slot];
+            BranchCoverageData branchData = new BranchCoverageData(
+               getBranchLine(slot), (flags & EMPTY) != 0, (flags & UNREACHABLE) != 0, branchExecutionCounts[slot],
+               getCallPoints(branchToCallPoints, slot));
+            branches.add(branchData);
+         }
       }
 
-      data.setExecutionCount(executionCounts[line]);
-      return data;
+      int executionCount = line < executionCounts.length ? executionCounts[line] : 0;
+      return new LineCoverageData(executionCount, getCallPoints(lineToCallPoints, line), branches);
    }
 
    public int getExecutionCount(@Nonnegative int line) {
@@ -171,90 +442,147 @@ public final class PerFileLineCoverage implements PerFileCoverage
       totalSegments = coveredSegments = 0;
 
       for (int line = 1, n = lastLine; line <= n; line++) {
-         if (lineToLineData.containsKey(line)) {
-            LineCoverageData lineData = lineToLineData.get(line);
-            int executionCount = executionCounts == NO_EXECUTIONS_YET ? 0 : executionCounts[line];
+         int[] slotsInLine = getBranchSlots(line);
 
-            if (lineData == null) {
-               totalSegments++;
+         if (slotsInLine == null) {
+            continue;
+         }
 
-               if (executionCount > 0) {
-                  coveredSegments++;
-               }
-            }
-            else {
-               lineData.setExecutionCount(executionCount);
-               totalSegments += lineData.getNumberOfSegments();
-               coveredSegments += lineData.getNumberOfCoveredSegments();
+         if (slotsInLine.length == 0) {
+            totalSegments++;
+
+            if (line < executionCounts.length && executionCounts[line] > 0) {
+               coveredSegments++;
             }
          }
+         else {
+            LineCoverageData lineData = getLineData(line);
+            totalSegments += lineData.getNumberOfSegments();
+            coveredSegments += lineData.getNumberOfCoveredSegments();
+         }
       }
    }
 
    @Nonnegative
    public int getNumberOfSegments(@Nonnegative int line) {
-      if (!lineToLineData.containsKey(line)) {
+      int[] slotsInLine = getBranchSlots(line);
+
+      if (slotsInLine == null) {
          return 0;
       }
 
-      LineCoverageData lineData = lineToLineData.get(line);
-      return lineData == null ? 1 : lineData.getNumberOfSegments();
+      return slotsInLine.length == 0 ? 1 : getLineData(line).getNumberOfSegments();
    }
 
    @Nonnegative
    public int getNumberOfBranchingSourcesAndTargets(@Nonnegative int line) {
-      LineCoverageData lineData = lineToLineData.get(line);
+      int[] slotsInLine = getBranchSlots(line);
 
-      if (lineData == null) {
+      if (slotsInLine == null || slotsInLine.length == 0) {
          return 0;
       }
 
-      return lineData.getNumberOfBranchingSourcesAndTargets();
+      return getLineData(line).getNumberOfBranchingSourcesAndTargets();
+   }
+
+   /**
+    * Discards all execution counts and call points gathered so far, while keeping the static line and branch information.
+    */
+   private void resetCounts() {
+      int[] currentExecutionCounts = executionCounts;
+
+      if (currentExecutionCounts != NO_EXECUTIONS_YET) {
+         executionCounts = new int[currentExecutionCounts.length];
+      }
+
+      branchExecutionCounts = new int[branchExecutionCounts.length];
+      lineToCallPoints = null;
+      branchToCallPoints = null;
+      initializeCache();
    }
 
    public void mergeInformation(@Nonnull PerFileLineCoverage previousCoverage) {
-      Map<Integer, LineCoverageData> previousInfo = previousCoverage.lineToLineData;
       boolean previousRunHadLinesExecuted = previousCoverage.executionCounts.length > 0;
 
-      for (Map.Entry<Integer, LineCoverageData> lineAndInfo : lineToLineData.entrySet()) {
-         Integer line = lineAndInfo.getKey();
-         LineCoverageData previousLineInfo = previousInfo.get(line);
+      for (int line = 1, n = previousCoverage.lastLine; line <= n; line++) {
+         int[] previousSlotsInLine = previousCoverage.getBranchSlots(line);
 
-         if (previousLineInfo != null) {
-            LineCoverageData lineInfo = lineAndInfo.getValue();
-
-            if (lineInfo == null) {
-               lineInfo = new LineCoverageData();
-               lineAndInfo.setValue(lineInfo);
+         if (previousSlotsInLine != null) {
+            if (getBranchSlots(line) == null) {
+               addLineFromPreviousTestRun(previousCoverage, line, previousSlotsInLine);
             }
 
-            lineInfo.addCountsFromPreviousTestRun(previousLineInfo);
-
-            if (previousRunHadLinesExecuted) {
-               createExecutionCountsArrayIfNeeded(previousCoverage);
+            if (previousRunHadLinesExecuted && line < previousCoverage.executionCounts.length) {
+               createExecutionCountsArrayIfNeeded();
                executionCounts[line] += previousCoverage.executionCounts[line];
             }
+
+            lineToCallPoints = addCallPointsFromPreviousTestRun(
+               lineToCallPoints, line, getCallPoints(previousCoverage.lineToCallPoints, line));
+            addBranchCountsFromPreviousTestRun(previousCoverage, line, previousSlotsInLine);
          }
       }
 
-      for (Map.Entry<Integer, LineCoverageData> lineAndInfo : previousInfo.entrySet()) {
-         Integer line = lineAndInfo.getKey();
-
-         if (!lineToLineData.containsKey(line)) {
-            LineCoverageData previousLineInfo = lineAndInfo.getValue();
-            lineToLineData.put(line, previousLineInfo);
+      initializeCache();
+   }
 
-            if (previousRunHadLinesExecuted) {
-               createExecutionCountsArrayIfNeeded(previousCoverage);
-               executionCounts[line] = previousCoverage.executionCounts[line];
-            }
-         }
+   private void addLineFromPreviousTestRun(
+      @Nonnull PerFileLineCoverage previousCoverage, @Nonnegative int line, @Nonnull int[] previousSlotsInLine
+   ) {
+      addLine(line);
+
+      for (int i = 0; i < previousSlotsInLine.length; i += 2) {
+         int sourceSlot = previousSlotsInLine[i];
+         int targetSlot = previousSlotsInLine[i + 1];
+         addBranchingPoint(
+            line,
+            null, previousCoverage.getBranchLine(sourceSlot), previousCoverage.branchFlags[sourceSlot],
+            null, previousCoverage.getBranchLine(targetSlot), previousCoverage.branchFlags[targetSlot]);
       }
    }
 
-   private void createExecutionCountsArrayIfNeeded(@Nonnull PerFileLineCoverage previousCoverage) {
+   private void createExecutionCountsArrayIfNeeded() {
       if (executionCounts == NO_EXECUTIONS_YET) {
-         executionCounts = new int[previousCoverage.executionCounts.length];
+         executionCounts = new int[lastLine + 1];
+      }
+   }
+
+   private void addBranchCountsFromPreviousTestRun(
+      @Nonnull PerFileLineCoverage previousCoverage, @Nonnegative int line, @Nonnull int[] previousSlotsInLine
+   ) {
+      int[] slotsInLine = lineToBranchSlots[line];
+
+      for (int i = 0, n = Math.min(slotsInLine.length, previousSlotsInLine.length); i < n; i++) {
+         int slot = slotsInLine[i];
+         int previousSlot = previousSlotsInLine[i];
+
+         branchExecutionCounts[slot] += previousCoverage.branchExecutionCounts[previousSlot];
+         branchToCallPoints = addCallPointsFromPreviousTestRun(
+            branchToCallPoints, slot, getCallPoints(previousCoverage.branchToCallPoints, previousSlot));
+      }
+   }
+
+   @Nullable
+   private static Map<Integer, List<CallPoint>> addCallPointsFromPreviousTestRun(
+      @Nullable Map<Integer, List<CallPoint>> callPoints, @Nonnegative int key, @Nullable List<CallPoint> previousCallPoints
+   ) {
+      if (previousCallPoints == null) {
+         return callPoints;
+      }
+
+      if (callPoints == null) {
+         callPoints = new HashMap<Integer, List<CallPoint>>();
+      }
+
+      List<CallPoint> callPointsForKey = callPoints.get(key);
+
+      if (callPointsForKey == null) {
+         callPoints.put(key, previousCallPoints);
       }
+      else {
+         callPointsForKey.addAll(0, previousCallPoints);
+      }
+
+      return callPoints;
    }
 }
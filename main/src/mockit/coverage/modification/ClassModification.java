@@ -10,6 +10,7 @@ import java.util.*;
 import javax.annotation.*;
 
 import mockit.asm.*;
+import mockit.coverage.data.*;
 import mockit.internal.startup.*;
 
 public final class ClassModification
@@ -120,12 +121,12 @@ public final class ClassModification
 
       ClassReader cr = CoverageModifier.createClassReader(aClass);
 
-      return cr == null ? null : modifyClassForCoverage(cr);
+      return cr == null ? null : modifyClassForCoverage(aClass.getClassLoader(), cr);
    }
 
    @Nonnull
-   private static byte[] modifyClassForCoverage(@Nonnull ClassReader cr) {
-      CoverageModifier modifier = new CoverageModifier(cr);
+   private static byte[] modifyClassForCoverage(@Nullable ClassLoader loader, @Nonnull ClassReader cr) {
+      CoverageModifier modifier = new CoverageModifier(cr, loader);
       cr.accept(modifier, 0);
       return modifier.toByteArray();
    }
@@ -147,7 +148,35 @@ public final class ClassModification
    public boolean shouldConsiderClassesNotLoaded() { return !classSelection.loadedOnly; }
 
    boolean isToBeConsideredForCoverage(@Nonnull String className, @Nonnull ProtectionDomain protectionDomain) {
-      return !modifiedClasses.contains(className) && classSelection.isSelected(className, protectionDomain);
+      return
+         !modifiedClasses.contains(className) && !CoverageData.isPreInstrumented(className) &&
+         classSelection.isSelected(className, protectionDomain);
+   }
+
+   void registerClassNotLoaded(@Nonnull String className) { modifiedClasses.add(className); }
+
+   /**
+    * Modifies a class which is not loaded, directly from its classfile, gathering its coverage data in the process.
+    * Can be called concurrently for classes from different source files.
+    *
+    * @return the modifier holding the modified class, from which the modified classfile can be obtained if needed, or <tt>null</tt> if the
+    * class was ignored
+    */
+   @Nullable
+   static CoverageModifier modifyClassNotLoadedForCoverage(@Nonnull byte[] classfile) {
+      try {
+         ClassReader cr = new ClassReader(classfile);
+         CoverageModifier modifier = CoverageModifier.forClassNotLoaded(cr);
+         cr.accept(modifier, 0);
+         return modifier;
+      }
+      catch (VisitInterruptedException ignore) {
+         // Ignore the class if the modification was refused for some reason.
+      }
+      catch (RuntimeException e) { e.printStackTrace(); }
+      catch (AssertionError e) { e.printStackTrace(); }
+
+      return null;
    }
 
    @Nullable
@@ -156,7 +185,7 @@ public final class ClassModification
 
       if (modifyClassForCoverage) {
          try {
-            byte[] modifiedClassfile = modifyClassForCoverage(className, originalClassfile);
+            byte[] modifiedClassfile = modifyClassForCoverage(protectionDomain.getClassLoader(), className, originalClassfile);
             registerModifiedClass(className, protectionDomain);
             return modifiedClassfile;
          }
@@ -172,7 +201,9 @@ public final class ClassModification
    }
 
    @Nonnull
-   private static byte[] modifyClassForCoverage(@Nonnull String className, @Nonnull byte[] classBytecode) {
+   private static byte[] modifyClassForCoverage(
+      @Nullable ClassLoader loader, @Nonnull String className, @Nonnull byte[] classBytecode
+   ) {
       byte[] modifiedBytecode = CoverageModifier.recoverModifiedByteCodeIfAvailable(className);
 
       if (modifiedBytecode != null) {
@@ -180,6 +211,6 @@ public final class ClassModification
       }
 
       ClassReader cr = new ClassReader(classBytecode);
-      return modifyClassForCoverage(cr);
+      return modifyClassForCoverage(loader, cr);
    }
 }
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.modification;
+
+import java.util.*;
+import java.util.regex.*;
+import javax.annotation.*;
+import static java.util.regex.Pattern.*;
+
+/**
+ * An immutable, thread-safe matcher for a comma-separated list of class name specifications, as given in the "<tt>classes</tt>" and
+ * "<tt>excludes</tt>" coverage properties.
+ * Specifications which are exact class names or which only have a trailing "<tt>*</tt>" wildcard (such as "<tt>org.example.*</tt>")
+ * are matched through a prefix trie, without regular expressions.
+ * Any other specification (containing a backslash, a "<tt>?</tt>", or a "<tt>*</tt>" elsewhere) is matched as a regular expression.
+ */
+final class ClassNamePatterns
+{
+   private static final Pattern CSV = compile(",");
+   private static final Pattern DOT = compile("\\.");
+   private static final Pattern STAR = compile("\\*");
+
+   private static final class Node {
+      @Nonnull char[] keys = new char[0];
+      @Nonnull Node[] children = new Node[0];
+      boolean exactEnd;
+      boolean prefixEnd;
+
+      @Nullable
+      Node getChild(char key) {
+         int i = Arrays.binarySearch(keys, key);
+         return i < 0 ? null : children[i];
+      }
+
+      @Nonnull
+      Node getOrAddChild(char key) {
+         int i = Arrays.binarySearch(keys, key);
+
+         if (i >= 0) {
+            return children[i];
+         }
+
+         i = -i - 1;
+         int n = keys.length;
+         char[] newKeys = new char[n + 1];
+         Node[] newChildren = new Node[n + 1];
+         System.arraycopy(keys, 0, newKeys, 0, i);
+         System.arraycopy(children, 0, newChildren, 0, i);
+         System.arraycopy(keys, i, newKeys, i + 1, n - i);
+         System.arraycopy(children, i, newChildren, i + 1, n - i);
+
+         Node child = new Node();
+         newKeys[i] = key;
+         newChildren[i] = child;
+         keys = newKeys;
+         children = newChildren;
+         return child;
+      }
+   }
+
+   @Nullable private final Node trie;
+   @Nullable private final Pattern regexFallback;
+
+   private ClassNamePatterns(@Nullable Node trie, @Nullable Pattern regexFallback) {
+      this.trie = trie;
+      this.regexFallback = regexFallback;
+   }
+
+   /**
+    * Creates a matcher for the given specification, or returns <tt>null</tt> if it specifies no class.
+    */
+   @Nullable
+   static ClassNamePatterns create(@Nonnull String specification) {
+      if (specification.isEmpty()) {
+         return null;
+      }
+
+      Node trie = null;
+      StringBuilder regexBuilder = new StringBuilder();
+      String sep = "";
+
+      for (String spec : CSV.split(specification)) {
+         if (spec.isEmpty()) {
+            continue;
+         }
+
+         if (isPrefixOrExactName(spec)) {
+            if (trie == null) {
+               trie = new Node();
+            }
+
+            addToTrie(trie, spec);
+         }
+         else {
+            regexBuilder.append(sep).append(toRegex(spec));
+            sep = "|";
+         }
+      }
+
+      Pattern regexFallback = regexBuilder.length() == 0 ? null : compile(regexBuilder.toString());
+      return trie == null && regexFallback == null ? null : new ClassNamePatterns(trie, regexFallback);
+   }
+
+   private static boolean isPrefixOrExactName(@Nonnull String spec) {
+      if (spec.indexOf('\\') >= 0 || spec.indexOf('?') >= 0) {
+         return false;
+      }
+
+      int p = spec.indexOf('*');
+      return p < 0 || p == spec.length() - 1;
+   }
+
+   private static void addToTrie(@Nonnull Node trie, @Nonnull String spec) {
+      boolean prefix = spec.endsWith("*");
+      int n = prefix ? spec.length() - 1 : spec.length();
+      Node node = trie;
+
+      for (int i = 0; i < n; i++) {
+         node = node.getOrAddChild(spec.charAt(i));
+      }
+
+      if (prefix) {
+         node.prefixEnd = true;
+      }
+      else {
+         node.exactEnd = true;
+      }
+   }
+
+   @Nonnull
+   private static String toRegex(@Nonnull String spec) {
+      if (spec.indexOf('\\') >= 0) {
+         return spec;
+      }
+
+      String regex = DOT.matcher(spec).replaceAll("\\.");
+      regex = STAR.matcher(regex).replaceAll(".*");
+      return regex.replace('?', '.');
+   }
+
+   boolean matches(@Nonnull String className) {
+      return trie != null && matchesInTrie(trie, className) || regexFallback != null && regexFallback.matcher(className).matches();
+   }
+
+   private static boolean matchesInTrie(@Nonnull Node trie, @Nonnull String className) {
+      Node node = trie;
+
+      for (int i = 0, n = className.length(); i < n; i++) {
+         if (node.prefixEnd) {
+            return true;
+         }
+
+         node = node.getChild(className.charAt(i));
+
+         if (node == null) {
+            return false;
+         }
+      }
+
+      return node.exactEnd || node.prefixEnd;
+   }
+}
@@ -4,11 +4,12 @@
  */
 package mockit.coverage.modification;
 
+import java.io.*;
+import java.lang.ref.*;
 import java.net.*;
 import java.security.*;
-import java.util.regex.*;
+import java.util.concurrent.*;
 import javax.annotation.*;
-import static java.util.regex.Pattern.*;
 
 import mockit.coverage.*;
 import static mockit.internal.util.GeneratedClasses.isExternallyGeneratedSubclass;
@@ -17,80 +18,132 @@ final class ClassSelection
 {
    private static final String THIS_CLASS_NAME = ClassSelection.class.getName();
    private static final ClassLoader THIS_CLASS_LOADER = ClassSelection.class.getClassLoader();
-   private static final Pattern CSV = compile(",");
-   private static final Pattern DOT = compile("\\.");
-   private static final Pattern STAR = compile("\\*");
-   private static final Pattern TEST_CLASS_NAME = compile(".+Test(\\$.+)?");
 
-   boolean loadedOnly;
-   @Nullable private Matcher classesToInclude;
-   @Nullable private Matcher classesToExclude;
-   @Nonnull private final Matcher testCode;
-   private boolean configurationRead;
+   /**
+    * What can be decided about the selection of classes from a given protection domain, regardless of class name.
+    */
+   private static final class DomainSelection {
+      static final DomainSelection INELIGIBLE = new DomainSelection(null, false);
+      static final DomainSelection PER_CLASS_LOCATION = new DomainSelection(null, true);
+
+      @Nullable final URL location;
+      final boolean eligible;
+      final boolean fromExternalLibrary;
+
+      DomainSelection(@Nullable URL location, boolean eligible) {
+         this.location = location;
+         this.eligible = eligible;
+         fromExternalLibrary = location != null && isClassFromExternalLibrary(location);
+      }
+   }
 
-   ClassSelection() { testCode = TEST_CLASS_NAME.matcher(""); }
+   /**
+    * A weak reference to a protection domain, usable as a map key; two keys are equal when they refer to the same domain object.
+    */
+   private static final class DomainKey extends WeakReference<ProtectionDomain> {
+      private final int hashCode;
 
-   @Nullable
-   private static Matcher newMatcherForClassSelection(@Nonnull String specification) {
-      if (specification.isEmpty()) {
-         return null;
+      DomainKey(@Nonnull ProtectionDomain protectionDomain, @Nullable ReferenceQueue<ProtectionDomain> queue) {
+         super(protectionDomain, queue);
+         hashCode = System.identityHashCode(protectionDomain);
       }
 
-      String[] specs = CSV.split(specification);
-      StringBuilder finalRegexBuilder = new StringBuilder();
-      String sep = "";
+      @Override public int hashCode() { return hashCode; }
 
-      for (String spec : specs) {
-         String regex = null;
-
-         if (spec.indexOf('\\') >= 0) {
-            regex = spec;
-         }
-         else if (!spec.isEmpty()) {
-            regex = DOT.matcher(spec).replaceAll("\\.");
-            regex = STAR.matcher(regex).replaceAll(".*");
-            regex = regex.replace('?', '.');
+      @Override
+      public boolean equals(Object other) {
+         if (this == other) {
+            return true;
          }
 
-         if (regex != null) {
-            finalRegexBuilder.append(sep).append(regex);
-            sep = "|";
+         if (!(other instanceof DomainKey)) {
+            return false;
          }
+
+         ProtectionDomain protectionDomain = get();
+         return protectionDomain != null && protectionDomain == ((DomainKey) other).get();
+      }
+   }
+
+   private static final class Configured {
+      final boolean loadedOnly;
+      @Nullable final ClassNamePatterns classesToInclude;
+      @Nullable final ClassNamePatterns classesToExclude;
+
+      Configured() {
+         String classes = Configuration.getProperty("classes", "");
+         loadedOnly = "loaded".equals(classes);
+         classesToInclude = loadedOnly ? null : ClassNamePatterns.create(classes);
+
+         String excludes = Configuration.getProperty("excludes", "");
+         classesToExclude = ClassNamePatterns.create(excludes);
       }
+   }
 
-      String finalRegex = finalRegexBuilder.toString();
-      return finalRegex.isEmpty() ? null : compile(finalRegex).matcher("");
+   volatile boolean loadedOnly;
+   @Nullable private volatile Configured configuration;
+   @Nonnull private final ConcurrentMap<DomainKey, DomainSelection> domainSelections;
+   @Nonnull private final ReferenceQueue<ProtectionDomain> discardedDomains;
+
+   ClassSelection() {
+      domainSelections = new ConcurrentHashMap<DomainKey, DomainSelection>();
+      discardedDomains = new ReferenceQueue<ProtectionDomain>();
    }
 
    boolean isSelected(@Nonnull String className, @Nonnull ProtectionDomain protectionDomain) {
-      CodeSource codeSource = protectionDomain.getCodeSource();
+      if (isIneligibleForSelection(className)) {
+         return false;
+      }
 
-      if (
-         codeSource == null || isIneligibleForSelection(className) ||
-         !canAccessJMockitFromClassToBeMeasured(protectionDomain)
-      ) {
+      DomainSelection domainSelection = getDomainSelection(protectionDomain);
+
+      if (!domainSelection.eligible) {
          return false;
       }
 
-      URL location = findLocationInCodeSource(className, protectionDomain);
+      URL location = domainSelection.location;
 
       if (location == null) {
+         location = findLocationInClasspath(className);
+
+         if (location == null) {
+            return false;
+         }
+      }
+
+      Configured config = getConfiguration();
+
+      if (isClassExcludedFromCoverage(config, className)) {
          return false;
       }
 
-      if (!configurationRead) {
-         readConfiguration();
+      if (config.classesToInclude != null) {
+         return config.classesToInclude.matches(className);
       }
 
-      if (isClassExcludedFromCoverage(className)) {
+      return domainSelection.location == null ? !isClassFromExternalLibrary(location) : !domainSelection.fromExternalLibrary;
+   }
+
+   /**
+    * Checks whether a class which was never loaded, and therefore has no protection domain, is selected for coverage, given the
+    * directory in the classpath where its classfile was found.
+    */
+   boolean isSelected(@Nonnull String className, @Nonnull File classPathEntry) {
+      if (isIneligibleForSelection(className)) {
          return false;
       }
 
-      if (classesToInclude != null) {
-         return classesToInclude.reset(className).matches();
+      Configured config = getConfiguration();
+
+      if (isClassExcludedFromCoverage(config, className)) {
+         return false;
       }
 
-      return !isClassFromExternalLibrary(location);
+      if (config.classesToInclude != null) {
+         return config.classesToInclude.matches(className);
+      }
+
+      return !isClassFromExternalLibrary(classPathEntry.toURI().getPath());
    }
 
    private static boolean isIneligibleForSelection(@Nonnull String className) {
@@ -104,6 +157,59 @@ final class ClassSelection
          isExternallyGeneratedSubclass(className);
    }
 
+   /**
+    * Gets the selection for the given domain, deciding it the first time the domain is seen.
+    * Class loading threads don't block each other here; if two of them see a new domain at the same time, both decide its selection,
+    * reaching the same result.
+    * Domains are only weakly referenced, so that they can be discarded with their class loaders.
+    */
+   @Nonnull
+   private DomainSelection getDomainSelection(@Nonnull ProtectionDomain protectionDomain) {
+      DomainSelection domainSelection = domainSelections.get(new DomainKey(protectionDomain, null));
+
+      if (domainSelection == null) {
+         removeDiscardedDomains();
+         domainSelection = createDomainSelection(protectionDomain);
+         DomainSelection previousSelection = domainSelections.putIfAbsent(new DomainKey(protectionDomain, discardedDomains), domainSelection);
+
+         if (previousSelection != null) {
+            domainSelection = previousSelection;
+         }
+      }
+
+      return domainSelection;
+   }
+
+   private void removeDiscardedDomains() {
+      for (Reference<? extends ProtectionDomain> key = discardedDomains.poll(); key != null; key = discardedDomains.poll()) {
+         domainSelections.remove(key);
+      }
+   }
+
+   @Nonnegative int getDomainCount() { return domainSelections.size(); }
+
+   @Nonnull
+   private static DomainSelection createDomainSelection(@Nonnull ProtectionDomain protectionDomain) {
+      CodeSource codeSource = protectionDomain.getCodeSource();
+
+      if (codeSource == null || !canAccessJMockitFromClassToBeMeasured(protectionDomain)) {
+         return DomainSelection.INELIGIBLE;
+      }
+
+      URL location = codeSource.getLocation();
+
+      if (location == null) {
+         if (protectionDomain.getClassLoader() == THIS_CLASS_LOADER) {
+            return DomainSelection.INELIGIBLE; // it's likely a dynamically generated class
+         }
+
+         // It's from a custom class loader, so each class may exist in the classpath.
+         return DomainSelection.PER_CLASS_LOCATION;
+      }
+
+      return new DomainSelection(location, true);
+   }
+
    private static boolean canAccessJMockitFromClassToBeMeasured(@Nonnull ProtectionDomain protectionDomain) {
       ClassLoader loaderOfClassToBeMeasured = protectionDomain.getClassLoader();
 
@@ -119,45 +225,57 @@ final class ClassSelection
    }
 
    @Nullable
-   private static URL findLocationInCodeSource(@Nonnull String className, @Nonnull ProtectionDomain protectionDomain) {
-      URL location = protectionDomain.getCodeSource().getLocation();
+   private static URL findLocationInClasspath(@Nonnull String className) {
+      String classFileName = className.replace('.', '/') + ".class";
+      return THIS_CLASS_LOADER.getResource(classFileName);
+   }
 
-      if (location == null) {
-         if (protectionDomain.getClassLoader() == THIS_CLASS_LOADER) {
-            return null; // it's likely a dynamically generated class
-         }
+   @Nonnull
+   private Configured getConfiguration() {
+      Configured config = configuration;
 
-         // It's from a custom class loader, so it may exist in the classpath.
-         String classFileName = className.replace('.', '/') + ".class";
-         location = THIS_CLASS_LOADER.getResource(classFileName);
+      if (config == null) {
+         config = new Configured();
+         loadedOnly = config.loadedOnly;
+         configuration = config;
       }
 
-      return location;
+      return config;
    }
 
-   private boolean isClassExcludedFromCoverage(@Nonnull String className) {
-      return
-         classesToExclude != null && classesToExclude.reset(className).matches() ||
-         testCode.reset(className).matches();
+   private static boolean isClassExcludedFromCoverage(@Nonnull Configured config, @Nonnull String className) {
+      return config.classesToExclude != null && config.classesToExclude.matches(className) || isTestCode(className);
    }
 
-   private static boolean isClassFromExternalLibrary(@Nonnull URL location) {
-      if ("jar".equals(location.getProtocol())) {
+   /**
+    * Checks whether the class name, or the name of an outer class, ends with "Test", as in the regular expression
+    * "<tt>.+Test(\$.+)?</tt>".
+    */
+   private static boolean isTestCode(@Nonnull String className) {
+      int n = className.length();
+
+      if (n > 4 && className.endsWith("Test")) {
          return true;
       }
 
-      String path = location.getPath();
-      return path.endsWith(".jar") || path.endsWith("/.cp/") || path.endsWith("/test-classes/");
+      for (int p = className.indexOf('$', 5); p >= 0 && p < n - 1; p = className.indexOf('$', p + 1)) {
+         if (className.startsWith("Test", p - 4)) {
+            return true;
+         }
+      }
+
+      return false;
    }
 
-   private void readConfiguration() {
-      String classes = Configuration.getProperty("classes", "");
-      loadedOnly = "loaded".equals(classes);
-      classesToInclude = loadedOnly ? null : newMatcherForClassSelection(classes);
+   private static boolean isClassFromExternalLibrary(@Nonnull URL location) {
+      if ("jar".equals(location.getProtocol())) {
+         return true;
+      }
 
-      String excludes = Configuration.getProperty("excludes", "");
-      classesToExclude = newMatcherForClassSelection(excludes);
+      return isClassFromExternalLibrary(location.getPath());
+   }
 
-      configurationRead = true;
+   private static boolean isClassFromExternalLibrary(@Nonnull String path) {
+      return path.endsWith(".jar") || path.endsWith("/.cp/") || path.endsWith("/test-classes/");
    }
 }
@@ -7,64 +7,180 @@ package mockit.coverage.modification;
 import java.io.*;
 import java.security.*;
 import java.util.*;
+import java.util.concurrent.*;
 import javax.annotation.*;
 
+import mockit.internal.*;
+import mockit.internal.util.*;
+
 /**
- * Finds and loads all classes that should also be measured, but were not loaded until now.
+ * Finds all classes that should also be measured, but were not loaded until now, and gathers their coverage data directly from their
+ * classfiles, without defining the classes in the JVM.
+ * Classfiles are processed concurrently, one package per task, so that classes from the same source file are never processed at the
+ * same time.
  */
 public final class ClassesNotLoaded
 {
-   @Nonnull private final ClassModification classModification;
+   private static final class ClassNotLoaded {
+      @Nonnull final String className;
+      @Nonnull final File classFile;
+
+      ClassNotLoaded(@Nonnull String className, @Nonnull File classFile) {
+         this.className = className;
+         this.classFile = classFile;
+      }
+
+      boolean gatherCoverageData() {
+         byte[] classfile;
+
+         try { classfile = ClassFile.readClass(classFile); } catch (IOException ignore) { return false; }
+
+         return classfile != null && ClassModification.modifyClassNotLoadedForCoverage(classfile) != null;
+      }
+   }
+
+   @Nullable private final ClassModification classModification;
+   @Nullable private final ClassSelection offlineSelection;
+   @Nonnull private final Set<String> classNamesFound;
+   @Nonnull private final List<List<ClassNotLoaded>> classesByPackage;
+   @Nullable private ProtectionDomain protectionDomain;
+   @Nullable private File classPathEntry;
    private int firstPosAfterParentDir;
 
-   public ClassesNotLoaded(@Nonnull ClassModification classModification) { this.classModification = classModification; }
+   public ClassesNotLoaded(@Nonnull ClassModification classModification) { this(classModification, null); }
+
+   private ClassesNotLoaded(@Nullable ClassModification classModification, @Nullable ClassSelection offlineSelection) {
+      this.classModification = classModification;
+      this.offlineSelection = offlineSelection;
+      classNamesFound = new HashSet<String>();
+      classesByPackage = new ArrayList<List<ClassNotLoaded>>();
+   }
 
    public void gatherCoverageData() {
+      //noinspection ConstantConditions
       Set<ProtectionDomain> protectionDomainsSoFar = new HashSet<ProtectionDomain>(classModification.protectionDomainsWithUniqueLocations);
 
       for (ProtectionDomain pd : protectionDomainsSoFar) {
-         File classPathEntry = new File(pd.getCodeSource().getLocation().getPath());
+         File classDir = new File(pd.getCodeSource().getLocation().getPath());
 
-         if (!classPathEntry.getPath().endsWith(".jar")) {
-            firstPosAfterParentDir = classPathEntry.getPath().length() + 1;
-            loadAdditionalClasses(classPathEntry, pd);
+         if (!classDir.getPath().endsWith(".jar")) {
+            protectionDomain = pd;
+            findClassesNotLoaded(classDir);
          }
       }
+
+      for (String className : gatherCoverageDataConcurrently()) {
+         classModification.registerClassNotLoaded(className);
+      }
+   }
+
+   /**
+    * Gathers the coverage data for the classes selected through the "<tt>classes</tt>" and "<tt>excludes</tt>" coverage properties
+    * from the given class directories, as a standalone step outside of any test run.
+    */
+   public static void gatherCoverageData(@Nonnull String... classDirs) {
+      ClassesNotLoaded classesNotLoaded = new ClassesNotLoaded(null, new ClassSelection());
+
+      for (String classDir : classDirs) {
+         classesNotLoaded.findClassesNotLoaded(new File(classDir));
+      }
+
+      classesNotLoaded.gatherCoverageDataConcurrently();
+   }
+
+   private void findClassesNotLoaded(@Nonnull File classDir) {
+      classPathEntry = classDir;
+      firstPosAfterParentDir = classDir.getPath().length() + 1;
+      findClassesNotLoadedInPackage(classDir);
    }
 
-   private void loadAdditionalClasses(@Nonnull File classPathEntry, @Nonnull ProtectionDomain protectionDomain) {
-      File[] filesInDir = classPathEntry.listFiles();
+   private void findClassesNotLoadedInPackage(@Nonnull File packageDir) {
+      File[] filesInDir = packageDir.listFiles();
 
       if (filesInDir != null) {
+         List<ClassNotLoaded> classesInPackage = new ArrayList<ClassNotLoaded>();
+
          for (File fileInDir : filesInDir) {
             if (fileInDir.isDirectory()) {
-               loadAdditionalClasses(fileInDir, protectionDomain);
+               findClassesNotLoadedInPackage(fileInDir);
             }
             else {
-               loadAdditionalClass(fileInDir.getPath(), protectionDomain);
+               addClassIfToBeConsidered(classesInPackage, fileInDir);
             }
          }
+
+         if (!classesInPackage.isEmpty()) {
+            classesByPackage.add(classesInPackage);
+         }
       }
    }
 
-   private void loadAdditionalClass(@Nonnull String filePath, @Nonnull ProtectionDomain protectionDomain) {
+   private void addClassIfToBeConsidered(@Nonnull List<ClassNotLoaded> classesInPackage, @Nonnull File file) {
+      String filePath = file.getPath();
       int p = filePath.lastIndexOf(".class");
 
       if (p > 0) {
          String relativePath = filePath.substring(firstPosAfterParentDir, p);
          String className = relativePath.replace(File.separatorChar, '.');
 
-         if (classModification.isToBeConsideredForCoverage(className, protectionDomain)) {
-            loadClass(className, protectionDomain);
+         if (isToBeConsideredForCoverage(className) && classNamesFound.add(className)) {
+            classesInPackage.add(new ClassNotLoaded(className, file));
          }
       }
    }
 
-   private static void loadClass(@Nonnull String className, @Nonnull ProtectionDomain protectionDomain) {
-      try {
-         Class.forName(className, false, protectionDomain.getClassLoader());
+   private boolean isToBeConsideredForCoverage(@Nonnull String className) {
+      if (classModification == null) {
+         //noinspection ConstantConditions
+         return offlineSelection.isSelected(className, classPathEntry);
+      }
+
+      //noinspection ConstantConditions
+      return
+         classModification.isToBeConsideredForCoverage(className, protectionDomain) &&
+         !CoverageModifier.isInnerClassAlreadyModified(className);
+   }
+
+   @Nonnull
+   private List<String> gatherCoverageDataConcurrently() {
+      List<Callable<List<String>>> tasks = new ArrayList<Callable<List<String>>>(classesByPackage.size());
+
+      for (List<ClassNotLoaded> classesInPackage : classesByPackage) {
+         tasks.add(gatherCoverageDataForPackage(classesInPackage));
+      }
+
+      return runConcurrently(tasks);
+   }
+
+   /**
+    * Runs the given tasks in the worker threads shared with the rest of JMockit, and returns all of their results in task order.
+    */
+   @Nonnull
+   static <R> List<R> runConcurrently(@Nonnull List<Callable<List<R>>> tasks) {
+      List<R> results = new ArrayList<R>();
+
+      for (List<R> resultsFromTask : WorkerThreads.invokeAll(tasks)) {
+         results.addAll(resultsFromTask);
       }
-      catch (ClassNotFoundException ignore) {}
-      catch (NoClassDefFoundError ignored) {}
+
+      return results;
+   }
+
+   @Nonnull
+   private static Callable<List<String>> gatherCoverageDataForPackage(@Nonnull final List<ClassNotLoaded> classesInPackage) {
+      return new Callable<List<String>>() {
+         @Override
+         public List<String> call() {
+            List<String> classesGathered = new ArrayList<String>(classesInPackage.size());
+
+            for (ClassNotLoaded classNotLoaded : classesInPackage) {
+               if (classNotLoaded.gatherCoverageData()) {
+                  classesGathered.add(classNotLoaded.className);
+               }
+            }
+
+            return classesGathered;
+         }
+      };
    }
 }
@@ -29,31 +29,49 @@ final class CoverageModifier extends WrappingClassVisitor
       return modifier == null ? null : modifier.toByteArray();
    }
 
+   static boolean isInnerClassAlreadyModified(@Nonnull String innerClassName) {
+      return INNER_CLASS_MODIFIERS.containsKey(innerClassName);
+   }
+
    @Nullable
    static ClassReader createClassReader(@Nonnull Class<?> aClass) {
       return ClassFile.createClassReader(aClass.getClassLoader(), aClass.getName().replace('.', '/'));
    }
 
+   /**
+    * Creates a modifier for a class that was never loaded, either to gather its coverage data with all execution counts at zero, or to
+    * instrument it ahead of time.
+    * Nested classes are not modified eagerly, since their own classfiles are expected to be processed separately; this allows classes
+    * from different source files to be processed concurrently.
+    */
+   @Nonnull
+   static CoverageModifier forClassNotLoaded(@Nonnull ClassReader cr) { return new CoverageModifier(cr, false, true); }
+
    @Nullable private String internalClassName;
    @Nullable private String simpleClassName;
    @Nonnull private String sourceFileName;
    @Nullable private FileCoverageData fileData;
    private boolean cannotModify;
    private final boolean forInnerClass;
+   private final boolean forClassNotLoaded;
    private boolean forEnumClass;
    @Nullable private String kindOfTopLevelType;
    private int currentLine;
 
-   CoverageModifier(@Nonnull ClassReader cr) { this(cr, false); }
+   CoverageModifier(@Nonnull ClassReader cr, @Nullable ClassLoader loader) {
+      this(cr, false, false);
+      cw.setClassLoader(loader);
+   }
 
-   private CoverageModifier(@Nonnull ClassReader cr, boolean forInnerClass) {
+   private CoverageModifier(@Nonnull ClassReader cr, boolean forInnerClass, boolean forClassNotLoaded) {
       super(new ClassWriter(cr));
       sourceFileName = "";
       this.forInnerClass = forInnerClass;
+      this.forClassNotLoaded = forClassNotLoaded;
    }
 
    private CoverageModifier(@Nonnull ClassReader cr, @Nonnull CoverageModifier other, @Nullable String simpleClassName) {
-      this(cr, true);
+      this(cr, true, false);
       sourceFileName = other.sourceFileName;
       fileData = other.fileData;
       internalClassName = other.internalClassName;
@@ -90,9 +108,13 @@ final class CoverageModifier extends WrappingClassVisitor
             sourceFileName = name.substring(0, p + 1);
          }
 
+         if (forClassNotLoaded && nestedType) {
+            simpleClassName = getInnerName(simpleClassName);
+         }
+
          cannotModify = (access & ANNOTATION) != 0;
 
-         if (!forEnumClass && (access & SUPER) != 0 && nestedType) {
+         if (!forClassNotLoaded && !forEnumClass && (access & SUPER) != 0 && nestedType) {
             INNER_CLASS_MODIFIERS.put(name.replace('/', '.'), this);
          }
       }
@@ -100,6 +122,22 @@ final class CoverageModifier extends WrappingClassVisitor
       cw.visit(version, access, name, signature, superName, interfaces);
    }
 
+   /**
+    * Gets the simple name of a nested class as it would appear in the "<tt>InnerClasses</tt>" attribute of its outer class, or
+    * <tt>null</tt> for an anonymous class.
+    */
+   @Nullable
+   private static String getInnerName(@Nonnull String nestedClassName) {
+      int p = nestedClassName.lastIndexOf('$') + 1;
+      int n = nestedClassName.length();
+
+      while (p < n && Character.isDigit(nestedClassName.charAt(p))) {
+         p++;
+      }
+
+      return p < n ? nestedClassName.substring(p) : null;
+   }
+
    @Nonnull
    private static String getKindOfJavaType(int typeModifiers, @Nonnull String superName) {
       if ((typeModifiers & ANNOTATION) != 0) return "annotation";
@@ -132,7 +170,7 @@ final class CoverageModifier extends WrappingClassVisitor
    public void visitInnerClass(@Nonnull String name, @Nullable String outerName, @Nullable String innerName, int access) {
       cw.visitInnerClass(name, outerName, innerName, access);
 
-      if (forInnerClass || isSyntheticOrEnumClass(access) || !isNestedInsideClassBeingModified(name, outerName)) {
+      if (forInnerClass || forClassNotLoaded || isSyntheticOrEnumClass(access) || !isNestedInsideClassBeingModified(name, outerName)) {
          return;
       }
 
@@ -277,13 +315,11 @@ final class CoverageModifier extends WrappingClassVisitor
             jumpTargetsForCurrentLine.add(label);
          }
 
-         LineCoverageData lineData = lineCoverageInfo.getOrCreateLineData(currentLine);
-         int sourceBranchIndex = lineData.addBranchingPoint(jumpingFrom, label);
+         int sourceBranchIndex = lineCoverageInfo.addBranchingPoint(currentLine, jumpingFrom, label);
          pendingBranches.add(sourceBranchIndex);
 
          if (assertFoundInCurrentLine) {
-            BranchCoverageData branchData = lineCoverageInfo.getBranchData(currentLine, sourceBranchIndex + 1);
-            branchData.markAsUnreachable();
+            lineCoverageInfo.markBranchAsUnreachable(currentLine, sourceBranchIndex + 1);
          }
 
          mw.visitJumpInsn(opcode, label);
@@ -439,6 +475,9 @@ final class CoverageModifier extends WrappingClassVisitor
          generateCallToRegisterBranchTargetExecutionIfPending();
          mw.visitMultiANewArrayInsn(desc, dims);
       }
+
+      @Override
+      public void visitEnd() { lineCoverageInfo.resolveBranchLines(); }
    }
 
    private class MethodOrConstructorModifier extends BaseMethodModifier {
@@ -679,6 +718,8 @@ final class CoverageModifier extends WrappingClassVisitor
 
       @Override
       public final void visitEnd() {
+         super.visitEnd();
+
          if (currentLine > 0 && nodeBuilder != null && nodeBuilder.hasNodes() && fileData != null) {
             MethodCoverageData methodData = new MethodCoverageData();
             methodData.buildPaths(currentLine, nodeBuilder);
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.modification;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.jar.*;
+import javax.annotation.*;
+
+import mockit.coverage.data.*;
+import mockit.internal.*;
+
+/**
+ * Instruments classes for coverage ahead of time, from class directories and jar files, writing the instrumented classfiles to a
+ * separate output directory, together with the static coverage data for them (line segments, branches, paths, and fields) in a
+ * "<tt>coverage-instrumented.ser</tt>" file.
+ * <p/>
+ * With the output directory placed ahead of the original class directories and jars in the classpath of a test JVM, the instrumented
+ * classes are loaded as is, and left alone by the coverage tool.
+ * Classes are selected through the "<tt>classes</tt>" and "<tt>excludes</tt>" coverage properties, as in a test run; classes from the
+ * same package are instrumented by the same thread, with different packages being instrumented concurrently.
+ * <p/>
+ * Since each instrumented class refers to its source file by an index into the coverage data, all classes to be used together in a
+ * test JVM must be instrumented at once.
+ */
+public final class OfflineInstrumentation
+{
+   private static final class ClassToInstrument {
+      @Nonnull final String className;
+      @Nonnull final String classFilePath;
+      @Nullable final File classFile;
+      @Nullable final byte[] classfileFromJar;
+
+      ClassToInstrument(@Nonnull String classFilePath, @Nullable File classFile, @Nullable byte[] classfileFromJar) {
+         className = getClassName(classFilePath);
+         this.classFilePath = classFilePath;
+         this.classFile = classFile;
+         this.classfileFromJar = classfileFromJar;
+      }
+
+      @Nonnull
+      static String getClassName(@Nonnull String classFilePath) {
+         return classFilePath.substring(0, classFilePath.length() - ".class".length()).replace('/', '.');
+      }
+
+      @Nullable
+      byte[] readClassfile() throws IOException {
+         //noinspection ConstantConditions
+         return classfileFromJar != null ? classfileFromJar : ClassFile.readClass(classFile);
+      }
+   }
+
+   /**
+    * The buffer into which each modified classfile is written before going to its output file, reused for all classes instrumented by
+    * the same task.
+    */
+   private static final class OutputBuffer {
+      @Nonnull byte[] data = new byte[16 * 1024];
+
+      @Nonnegative
+      int write(@Nonnull CoverageModifier modifier) {
+         int classfileSize = modifier.toByteArray(data);
+
+         if (classfileSize > data.length) {
+            data = new byte[Math.max(classfileSize, 2 * data.length)];
+            modifier.toByteArray(data);
+         }
+
+         return classfileSize;
+      }
+   }
+
+   @Nonnull private final File outputDir;
+   @Nonnull private final ClassSelection classSelection;
+   @Nonnull private final Map<String, List<ClassToInstrument>> packageToClasses;
+
+   private OfflineInstrumentation(@Nonnull File outputDir) {
+      this.outputDir = outputDir;
+      classSelection = new ClassSelection();
+      packageToClasses = new LinkedHashMap<String, List<ClassToInstrument>>();
+   }
+
+   /**
+    * Instruments the selected classes from the given class directories and jar files, writing the results to the output directory.
+    */
+   public static void instrumentClasses(@Nonnull String outputDir, @Nonnull String... classDirsAndJars) throws IOException {
+      OfflineInstrumentation instrumentation = new OfflineInstrumentation(new File(outputDir));
+
+      for (String classDirOrJar : classDirsAndJars) {
+         File classPathEntry = new File(classDirOrJar);
+
+         if (classPathEntry.isDirectory()) {
+            instrumentation.findClassesInDirectory(classPathEntry, classPathEntry, "");
+         }
+         else {
+            instrumentation.findClassesInJarFile(classPathEntry);
+         }
+      }
+
+      instrumentation.instrumentClassesConcurrently();
+   }
+
+   private void findClassesInDirectory(@Nonnull File classPathEntry, @Nonnull File packageDir, @Nonnull String packagePath) {
+      File[] filesInDir = packageDir.listFiles();
+
+      if (filesInDir != null) {
+         for (File fileInDir : filesInDir) {
+            String filePath = packagePath + fileInDir.getName();
+
+            if (fileInDir.isDirectory()) {
+               findClassesInDirectory(classPathEntry, fileInDir, filePath + '/');
+            }
+            else if (filePath.endsWith(".class")) {
+               addClassIfSelected(classPathEntry, packagePath, new ClassToInstrument(filePath, fileInDir, null));
+            }
+         }
+      }
+   }
+
+   private void findClassesInJarFile(@Nonnull File jarFile) throws IOException {
+      JarFile jar = new JarFile(jarFile);
+
+      try {
+         for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+            JarEntry entry = entries.nextElement();
+            String entryPath = entry.getName();
+
+            if (entryPath.endsWith(".class") && !entryPath.startsWith("META-INF/")) {
+               String className = ClassToInstrument.getClassName(entryPath);
+
+               if (classSelection.isSelected(className, jarFile)) {
+                  String packagePath = entryPath.substring(0, entryPath.lastIndexOf('/') + 1);
+                  byte[] classfile = ClassFile.readClass(jar, entry);
+                  addClass(packagePath, new ClassToInstrument(entryPath, null, classfile));
+               }
+            }
+         }
+      }
+      finally {
+         jar.close();
+      }
+   }
+
+   private void addClassIfSelected(
+      @Nonnull File classPathEntry, @Nonnull String packagePath, @Nonnull ClassToInstrument classToInstrument
+   ) {
+      if (classSelection.isSelected(classToInstrument.className, classPathEntry)) {
+         addClass(packagePath, classToInstrument);
+      }
+   }
+
+   private void addClass(@Nonnull String packagePath, @Nonnull ClassToInstrument classToInstrument) {
+      List<ClassToInstrument> classesInPackage = packageToClasses.get(packagePath);
+
+      if (classesInPackage == null) {
+         classesInPackage = new ArrayList<ClassToInstrument>();
+         packageToClasses.put(packagePath, classesInPackage);
+      }
+
+      classesInPackage.add(classToInstrument);
+   }
+
+   private void instrumentClassesConcurrently() throws IOException {
+      List<Callable<List<String>>> tasks = new ArrayList<Callable<List<String>>>(packageToClasses.size());
+
+      for (List<ClassToInstrument> classesInPackage : packageToClasses.values()) {
+         tasks.add(instrumentClassesInPackage(classesInPackage));
+      }
+
+      List<String> classesInstrumented = ClassesNotLoaded.runConcurrently(tasks);
+
+      if (classesInstrumented.isEmpty()) {
+         System.out.println("JMockit: No classes selected for coverage were found");
+         return;
+      }
+
+      File dataFile = new File(outputDir, CoverageData.PRE_INSTRUMENTED_DATA_FILE);
+      CoverageData.instance().writePreInstrumentedDataToFile(dataFile, classesInstrumented);
+      System.out.println(
+         "JMockit: " + classesInstrumented.size() + " classes instrumented for coverage into " + outputDir.getCanonicalPath());
+   }
+
+   @Nonnull
+   private Callable<List<String>> instrumentClassesInPackage(@Nonnull final List<ClassToInstrument> classesInPackage) {
+      return new Callable<List<String>>() {
+         @Override
+         public List<String> call() throws IOException {
+            List<String> classesInstrumented = new ArrayList<String>(classesInPackage.size());
+            OutputBuffer outputBuffer = new OutputBuffer();
+
+            for (ClassToInstrument classToInstrument : classesInPackage) {
+               if (instrumentClass(classToInstrument, outputBuffer)) {
+                  classesInstrumented.add(classToInstrument.className);
+               }
+            }
+
+            return classesInstrumented;
+         }
+      };
+   }
+
+   private boolean instrumentClass(@Nonnull ClassToInstrument classToInstrument, @Nonnull OutputBuffer outputBuffer) throws IOException {
+      byte[] classfile = classToInstrument.readClassfile();
+
+      if (classfile == null) {
+         return false;
+      }
+
+      CoverageModifier modifier = ClassModification.modifyClassNotLoadedForCoverage(classfile);
+
+      if (modifier == null) {
+         return false;
+      }
+
+      int classfileSize = outputBuffer.write(modifier);
+
+      File outputFile = new File(outputDir, classToInstrument.classFilePath);
+      File packageDir = outputFile.getParentFile();
+
+      //noinspection ResultOfMethodCallIgnored
+      packageDir.mkdirs();
+
+      OutputStream output = new FileOutputStream(outputFile);
+
+      try {
+         output.write(outputBuffer.data, 0, classfileSize);
+      }
+      finally {
+         output.close();
+      }
+
+      return true;
+   }
+}
@@ -19,19 +19,49 @@ public final class MethodCoverageData implements Serializable
    @Nonnegative private int lastLine;
 
    // Helper fields used during node building and path execution:
-   @Nonnull private final transient ThreadLocal<List<Node>> nodesReached;
-   @Nonnull private final transient ThreadLocal<Integer> previousNodeIndex;
+   @Nonnull private transient ThreadLocal<ReachedNodes> reachedNodes;
+   @Nonnull private transient Map<BitSet, Path> pathsByNodesReached;
 
    @Nonnull public List<Path> paths;
    @Nonnull private List<Path> nonShadowedPaths;
 
+   /**
+    * The indexes of the nodes reached so far by the current execution of the method in a given thread, in the same form as the path
+    * signatures held in {@link #pathsByNodesReached}.
+    */
+   private static final class ReachedNodes {
+      @Nonnull final BitSet nodeIndexes = new BitSet();
+      @Nonnegative int previousNodeIndex;
+
+      void clear() {
+         nodeIndexes.clear();
+         previousNodeIndex = 0;
+      }
+   }
+
    public MethodCoverageData() {
       nodes = Collections.emptyList();
       paths = Collections.emptyList();
       nonShadowedPaths = Collections.emptyList();
-      nodesReached = new ThreadLocal<List<Node>>();
-      previousNodeIndex = new ThreadLocal<Integer>();
-      clearNodes();
+      pathsByNodesReached = Collections.emptyMap();
+      reachedNodes = createReachedNodes();
+   }
+
+   @Nonnull
+   private static ThreadLocal<ReachedNodes> createReachedNodes() {
+      return new ThreadLocal<ReachedNodes>() {
+         @Override protected ReachedNodes initialValue() { return new ReachedNodes(); }
+      };
+   }
+
+   /**
+    * Restores the helper fields needed for path execution, since coverage data read from a file can also be used for recording
+    * executions, as happens for classes instrumented ahead of time.
+    */
+   private void readObject(@Nonnull ObjectInputStream in) throws IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      reachedNodes = createReachedNodes();
+      buildPathSignatures();
    }
 
    public void buildPaths(@Nonnegative int lastExecutableLine, @Nonnull NodeBuilder nodeBuilder) {
@@ -41,6 +71,7 @@ public final class MethodCoverageData implements Serializable
       nodes = nodeBuilder.nodes;
       paths = PathBuilder.buildPaths(nodes);
       buildListOfNonShadowedPaths();
+      buildPathSignatures();
    }
 
    private void buildListOfNonShadowedPaths() {
@@ -53,33 +84,73 @@ public final class MethodCoverageData implements Serializable
       }
    }
 
+   /**
+    * Maps the set of node indexes for each path to the path itself.
+    * During execution, the nodes are only taken as reached in increasing index order, so a path with nodes in any other order can never
+    * be fully reached and is left out.
+    */
+   private void buildPathSignatures() {
+      Map<Node, Integer> nodeIndexes = new IdentityHashMap<Node, Integer>(nodes.size());
+
+      for (int i = 0, n = nodes.size(); i < n; i++) {
+         nodeIndexes.put(nodes.get(i), i);
+      }
+
+      pathsByNodesReached = new HashMap<BitSet, Path>(paths.size());
+
+      for (Path path : paths) {
+         BitSet pathSignature = getSignatureIfReachable(nodeIndexes, path);
+
+         if (pathSignature != null && !pathsByNodesReached.containsKey(pathSignature)) {
+            pathsByNodesReached.put(pathSignature, path);
+         }
+      }
+   }
+
+   @Nullable
+   private static BitSet getSignatureIfReachable(@Nonnull Map<Node, Integer> nodeIndexes, @Nonnull Path path) {
+      BitSet pathSignature = new BitSet();
+      int previousNodeIndex = -1;
+
+      for (Node node : path.nodes) {
+         int nodeIndex = nodeIndexes.get(node);
+
+         if (nodeIndex <= previousNodeIndex) {
+            return null;
+         }
+
+         pathSignature.set(nodeIndex);
+         previousNodeIndex = nodeIndex;
+      }
+
+      return pathSignature;
+   }
+
    @Nonnegative public int getFirstLineInBody() { return firstLine; }
    @Nonnegative public int getLastLineInBody() { return lastLine; }
 
    public int markNodeAsReached(@Nonnegative int nodeIndex) {
+      ReachedNodes currentNodesReached = reachedNodes.get();
+
       if (nodeIndex == 0) {
-         clearNodes();
+         currentNodesReached.clear();
       }
 
       if (nodeIndex < nodes.size()) {
-         Node node = nodes.get(nodeIndex);
-         List<Node> currentNodesReached = nodesReached.get();
+         BitSet nodeIndexesReached = currentNodesReached.nodeIndexes;
 
-         if (!node.wasReached() && (nodeIndex == 0 || nodeIndex > previousNodeIndex.get())) {
-            node.setReached(Boolean.TRUE);
-            currentNodesReached.add(node);
-            previousNodeIndex.set(nodeIndex);
+         if (!nodeIndexesReached.get(nodeIndex) && (nodeIndex == 0 || nodeIndex > currentNodesReached.previousNodeIndex)) {
+            nodeIndexesReached.set(nodeIndex);
+            currentNodesReached.previousNodeIndex = nodeIndex;
          }
 
-         if (node instanceof Exit) {
-            Exit exitNode = (Exit) node;
+         Node node = nodes.get(nodeIndex);
 
-            for (Path path : exitNode.paths) {
-               int previousExecutionCount = path.countExecutionIfAllNodesWereReached(currentNodesReached);
+         if (node instanceof Exit) {
+            Path path = pathsByNodesReached.get(nodeIndexesReached);
 
-               if (previousExecutionCount >= 0) {
-                  return previousExecutionCount;
-               }
+            if (path != null && path.endsAt(node)) {
+               return path.countExecution();
             }
          }
       }
@@ -87,15 +158,6 @@ public final class MethodCoverageData implements Serializable
       return -1;
    }
 
-   private void clearNodes() {
-      for (Node node : nodes) {
-         node.setReached(null);
-      }
-
-      nodesReached.set(new ArrayList<Node>());
-      previousNodeIndex.set(0);
-   }
-
    @Nonnull public List<Path> getPaths() { return nonShadowedPaths; }
 
    @Nonnegative
@@ -125,6 +187,44 @@ public final class MethodCoverageData implements Serializable
       return coveredCount;
    }
 
+   /**
+    * Copies the nodes and paths of this method, with the execution counts of the paths at the time of the call.
+    * Since nodes and paths don't change once built, and execution counts are atomic, no lock is needed; the copy is made by
+    * serialization, with the counts read beforehand, so that resetting them loses no executions.
+    */
+   @Nonnull
+   public MethodCoverageData copy(boolean resetCounts) {
+      int[] executionCounts = new int[paths.size()];
+
+      for (int i = 0; i < executionCounts.length; i++) {
+         executionCounts[i] = paths.get(i).getOwnExecutionCount(resetCounts);
+      }
+
+      MethodCoverageData copy = copyBySerialization();
+
+      for (int i = 0; i < executionCounts.length; i++) {
+         copy.paths.get(i).setOwnExecutionCount(executionCounts[i]);
+      }
+
+      return copy;
+   }
+
+   @Nonnull
+   private MethodCoverageData copyBySerialization() {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(4 * 1024);
+
+      try {
+         ObjectOutputStream output = new ObjectOutputStream(bytes);
+         output.writeObject(this);
+         output.close();
+
+         ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+         return (MethodCoverageData) input.readObject();
+      }
+      catch (IOException e) { throw new IllegalStateException(e); }
+      catch (ClassNotFoundException e) { throw new IllegalStateException(e); }
+   }
+
    public void addCountsFromPreviousTestRun(@Nonnull MethodCoverageData previousData) {
       for (int i = 0; i < paths.size(); i++) {
          Path path = paths.get(i);
@@ -13,7 +13,6 @@ public class Node implements Serializable
 {
    private static final long serialVersionUID = 7521062699264845946L;
 
-   @Nonnull private final transient ThreadLocal<Boolean> reached = new ThreadLocal<Boolean>();
    public final int line;
    protected int segment;
 
@@ -26,9 +25,6 @@ public class Node implements Serializable
 
    public final int getSegment() { return segment; }
 
-   final void setReached(@Nullable Boolean reached) { this.reached.set(reached); }
-   final boolean wasReached() { return reached.get() != null; }
-
    @Override
    public final String toString() { return getClass().getSimpleName() + ':' + line + '-' + segment; }
 
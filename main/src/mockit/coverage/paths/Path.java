@@ -31,15 +31,9 @@ public final class Path implements Serializable
 
    void addNode(@Nonnull Node node) { nodes.add(node); }
 
-   int countExecutionIfAllNodesWereReached(@Nonnull List<Node> nodesReached) {
-      boolean allNodesReached = nodes.equals(nodesReached);
+   boolean endsAt(@Nonnull Node node) { return nodes.get(nodes.size() - 1) == node; }
 
-      if (allNodesReached) {
-         return executionCount.getAndIncrement();
-      }
-
-      return -1;
-   }
+   int countExecution() { return executionCount.getAndIncrement(); }
 
    public boolean isShadowed() { return shadowed; }
    @Nonnull public List<Node> getNodes() { return nodes; }
@@ -55,6 +49,9 @@ public final class Path implements Serializable
       return count;
    }
 
+   int getOwnExecutionCount(boolean reset) { return reset ? executionCount.getAndSet(0) : executionCount.get(); }
+   void setOwnExecutionCount(int count) { executionCount.set(count); }
+
    void addCountFromPreviousTestRun(@Nonnull Path previousPath) {
       int currentExecutionCount = executionCount.get();
       int previousExecutionCount = previousPath.executionCount.get();
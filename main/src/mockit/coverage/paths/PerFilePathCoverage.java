@@ -74,6 +74,20 @@ public final class PerFilePathCoverage implements PerFileCoverage
       }
    }
 
+   /**
+    * Copies the given methods, as taken from the file's path coverage data while holding the probes' lock.
+    */
+   @Nonnull
+   public static PerFilePathCoverage copyOf(@Nonnull List<MethodCoverageData> methods, boolean resetCounts) {
+      PerFilePathCoverage copy = new PerFilePathCoverage();
+
+      for (MethodCoverageData methodData : methods) {
+         copy.addMethod(methodData.copy(resetCounts));
+      }
+
+      return copy;
+   }
+
    public void mergeInformation(@Nonnull PerFilePathCoverage previousCoverage) {
       Map<Integer, MethodCoverageData> previousInfo = previousCoverage.firstLineToMethodData;
       addExecutionCountsFromPreviousTestRun(previousInfo);
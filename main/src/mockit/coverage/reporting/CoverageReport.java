@@ -19,6 +19,7 @@ class CoverageReport
    @Nonnull private final String outputDir;
    private boolean outputDirCreated;
    @Nullable private final List<File> sourceDirs;
+   @Nullable private final SourceFileIndex sourceFiles;
    @Nonnull private final Map<String, FileCoverageData> fileToFileData;
    @Nonnull private final Map<String, List<String>> packageToFiles;
    private final boolean withCallPoints;
@@ -31,6 +32,7 @@ class CoverageReport
       this.outputDir = Configuration.getOrChooseOutputDirectory(outputDir, "coverage-report");
       this.outputDirCreated = outputDirCreated;
       sourceDirs = srcDirs == null ? null : new SourceFiles().buildListOfSourceDirectories(srcDirs);
+      sourceFiles = sourceDirs == null ? null : SourceFileIndex.forSourceDirectories(sourceDirs);
       fileToFileData = coverageData.getFileToFileDataMap();
       packageToFiles = new HashMap<String, List<String>>();
       this.withCallPoints = withCallPoints;
@@ -88,11 +90,11 @@ class CoverageReport
    }
 
    private void generateFileCoverageReport(@Nonnull String sourceFile, @Nonnull FileCoverageData fileData) throws IOException {
-      if (sourceDirs == null) {
+      if (sourceFiles == null) {
          addFileToPackageFileList(sourceFile);
       }
       else {
-         InputFile inputFile = InputFile.createIfFileExists(sourceDirs, sourceFile);
+         InputFile inputFile = InputFile.createIfFileExists(sourceFiles, sourceFile);
 
          if (inputFile != null) {
             new FileCoverageReport(outputDir, inputFile, fileData, withCallPoints).generate();
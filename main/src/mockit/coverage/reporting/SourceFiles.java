@@ -8,6 +8,8 @@ import java.io.*;
 import java.util.*;
 import javax.annotation.*;
 
+import mockit.coverage.reporting.sourceFiles.*;
+
 final class SourceFiles
 {
    @Nonnull private final List<File> srcDirs = new ArrayList<File>();
@@ -38,26 +40,31 @@ final class SourceFiles
       }
    }
 
+   /**
+    * Searches the current directory for "src" subdirectories one level at a time, listing all the directories in a level concurrently,
+    * and without searching inside the "src" directories found.
+    */
    private void buildListWithAllSrcSubDirectories() {
       String curDirName = new File(System.getProperty("user.dir")).getName();
-      addSrcSubDirs(new File("../" + curDirName));
-   }
+      List<File> dirsInLevel = Collections.singletonList(new File("../" + curDirName));
 
-   private void addSrcSubDirs(@Nonnull File dir) {
-      File[] files = dir.listFiles();
-      if (files == null) return;
+      while (!dirsInLevel.isEmpty()) {
+         List<File> dirsInNextLevel = new ArrayList<File>();
 
-      for (File subDir : files) {
-         if (subDir.isDirectory()) {
-            String subDirName = subDir.getName();
+         for (DirectoryListing listing : DirectoryListing.listAll(dirsInLevel)) {
+            for (File subDir : listing.subDirs) {
+               String subDirName = subDir.getName();
 
-            if ("src".equals(subDirName)) {
-               srcDirs.add(subDir);
-            }
-            else if (!isDirectoryToIgnore(subDirName)) {
-               addSrcSubDirs(subDir);
+               if ("src".equals(subDirName)) {
+                  srcDirs.add(subDir);
+               }
+               else if (!isDirectoryToIgnore(subDirName)) {
+                  dirsInNextLevel.add(subDir);
+               }
             }
          }
+
+         dirsInLevel = dirsInNextLevel;
       }
    }
 
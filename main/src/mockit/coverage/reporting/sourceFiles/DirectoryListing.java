@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.reporting.sourceFiles;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.annotation.*;
+
+import mockit.internal.util.*;
+
+/**
+ * The contents of a directory, split into its visible subdirectories and its other entries, sorted by name.
+ * <p/>
+ * Directory trees are searched one level at a time, with all directories of a level {@linkplain #listAll(List) listed concurrently}, so
+ * that every level of a tree is searched in parallel without worker threads having to wait on tasks of their own.
+ */
+public final class DirectoryListing
+{
+   private static final DirectoryListing EMPTY = new DirectoryListing(new ArrayList<File>(0), new ArrayList<File>(0));
+
+   @Nonnull public final List<File> subDirs;
+   @Nonnull public final List<File> files;
+
+   private DirectoryListing(@Nonnull List<File> subDirs, @Nonnull List<File> files) {
+      this.subDirs = subDirs;
+      this.files = files;
+   }
+
+   @Nonnull
+   private static DirectoryListing list(@Nonnull File dir) {
+      File[] entries = dir.listFiles();
+
+      if (entries == null) {
+         return EMPTY;
+      }
+
+      Arrays.sort(entries);
+      List<File> subDirs = new ArrayList<File>();
+      List<File> files = new ArrayList<File>();
+
+      for (File entry : entries) {
+         if (!entry.isDirectory()) {
+            files.add(entry);
+         }
+         else if (!entry.isHidden()) {
+            subDirs.add(entry);
+         }
+      }
+
+      return new DirectoryListing(subDirs, files);
+   }
+
+   /**
+    * Lists the given directories in the shared worker threads, returning their listings in the same order.
+    */
+   @Nonnull
+   public static List<DirectoryListing> listAll(@Nonnull List<File> dirs) {
+      int dirCount = dirs.size();
+      int taskCount = Math.min(dirCount, WorkerThreads.getParallelism());
+      List<Callable<List<DirectoryListing>>> tasks = new ArrayList<Callable<List<DirectoryListing>>>(taskCount);
+
+      for (int i = 0; i < taskCount; i++) {
+         final List<File> dirsForTask = dirs.subList(i * dirCount / taskCount, (i + 1) * dirCount / taskCount);
+
+         tasks.add(new Callable<List<DirectoryListing>>() {
+            @Override
+            public List<DirectoryListing> call() {
+               List<DirectoryListing> listings = new ArrayList<DirectoryListing>(dirsForTask.size());
+
+               for (File dir : dirsForTask) {
+                  listings.add(list(dir));
+               }
+
+               return listings;
+            }
+         });
+      }
+
+      List<DirectoryListing> listings = new ArrayList<DirectoryListing>(dirCount);
+
+      for (List<DirectoryListing> listingsFromTask : WorkerThreads.invokeAll(tasks)) {
+         listings.addAll(listingsFromTask);
+      }
+
+      return listings;
+   }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.reporting.sourceFiles;
+
+import java.io.*;
+import java.util.*;
+import javax.annotation.*;
+
+/**
+ * An index of all Java source files found under a list of source directories, built with a single parallel pass over the directory
+ * trees, so that each covered file can then be located with a single lookup on its path relative to a source root.
+ * <p/>
+ * Since a source root can be any subdirectory of a source directory, each file is indexed under every path it could have relative to
+ * one, such as "Example.java", "example/Example.java", and "org/example/Example.java" for a file "org/example/Example.java".
+ * When more than one file has the same relative path, the one in the earlier source directory is chosen, then the one under the
+ * shallower source root.
+ * As when the directories were searched for each file, a file is not indexed under a path whose top-level package also names one of
+ * the directories between the source directory and the root.
+ */
+public final class SourceFileIndex
+{
+   private static final class IndexedSourceFile {
+      @Nonnull final File file;
+      @Nonnegative final int sourceDirIndex;
+      @Nonnegative final int rootDepth;
+
+      IndexedSourceFile(@Nonnull File file, @Nonnegative int sourceDirIndex, @Nonnegative int rootDepth) {
+         this.file = file;
+         this.sourceDirIndex = sourceDirIndex;
+         this.rootDepth = rootDepth;
+      }
+
+      boolean takesPrecedenceOver(@Nonnull IndexedSourceFile other) {
+         if (sourceDirIndex != other.sourceDirIndex) {
+            return sourceDirIndex < other.sourceDirIndex;
+         }
+
+         if (rootDepth != other.rootDepth) {
+            return rootDepth < other.rootDepth;
+         }
+
+         return file.compareTo(other.file) < 0;
+      }
+   }
+
+   @Nonnull private final List<File> sourceDirs;
+   @Nonnull private final Map<String, IndexedSourceFile> relativePathToSourceFile;
+
+   @Nonnull
+   public static SourceFileIndex forSourceDirectories(@Nonnull List<File> sourceDirs) { return new SourceFileIndex(sourceDirs); }
+
+   private SourceFileIndex(@Nonnull List<File> sourceDirs) {
+      this.sourceDirs = sourceDirs;
+      relativePathToSourceFile = new HashMap<String, IndexedSourceFile>();
+      indexAllSourceFiles();
+   }
+
+   /**
+    * Searches the source directories one level at a time, listing all the directories in a level concurrently.
+    */
+   private void indexAllSourceFiles() {
+      List<File> dirsInLevel = new ArrayList<File>(sourceDirs);
+      List<Integer> sourceDirIndices = new ArrayList<Integer>();
+      List<String> relativeDirPaths = new ArrayList<String>();
+
+      for (int i = 0, n = dirsInLevel.size(); i < n; i++) {
+         sourceDirIndices.add(i);
+         relativeDirPaths.add("");
+      }
+
+      while (!dirsInLevel.isEmpty()) {
+         List<DirectoryListing> listings = DirectoryListing.listAll(dirsInLevel);
+         List<File> dirsInNextLevel = new ArrayList<File>();
+         List<Integer> sourceDirIndicesInNextLevel = new ArrayList<Integer>();
+         List<String> relativeDirPathsInNextLevel = new ArrayList<String>();
+
+         for (int i = 0, n = listings.size(); i < n; i++) {
+            DirectoryListing listing = listings.get(i);
+            int sourceDirIndex = sourceDirIndices.get(i);
+            String relativeDirPath = relativeDirPaths.get(i);
+
+            for (File file : listing.files) {
+               String fileName = file.getName();
+
+               if (fileName.endsWith(".java")) {
+                  addToIndex(file, sourceDirIndex, relativeDirPath + fileName);
+               }
+            }
+
+            for (File subDir : listing.subDirs) {
+               dirsInNextLevel.add(subDir);
+               sourceDirIndicesInNextLevel.add(sourceDirIndex);
+               relativeDirPathsInNextLevel.add(relativeDirPath + subDir.getName() + '/');
+            }
+         }
+
+         dirsInLevel = dirsInNextLevel;
+         sourceDirIndices = sourceDirIndicesInNextLevel;
+         relativeDirPaths = relativeDirPathsInNextLevel;
+      }
+   }
+
+   private void addToIndex(@Nonnull File file, @Nonnegative int sourceDirIndex, @Nonnull String pathInSourceDir) {
+      String[] pathElements = pathInSourceDir.split("/");
+      int rootStart = 0;
+
+      for (int rootDepth = 0; rootDepth < pathElements.length; rootDepth++) {
+         if (rootDepth == pathElements.length - 1 || !isTopLevelPackageAlsoADirAboveRoot(pathElements, rootDepth)) {
+            String relativePath = pathInSourceDir.substring(rootStart);
+            IndexedSourceFile sourceFile = new IndexedSourceFile(file, sourceDirIndex, rootDepth);
+            IndexedSourceFile sourceFileWithSamePath = relativePathToSourceFile.get(relativePath);
+
+            if (sourceFileWithSamePath == null || sourceFile.takesPrecedenceOver(sourceFileWithSamePath)) {
+               relativePathToSourceFile.put(relativePath, sourceFile);
+            }
+         }
+
+         rootStart += pathElements[rootDepth].length() + 1;
+      }
+   }
+
+   private static boolean isTopLevelPackageAlsoADirAboveRoot(@Nonnull String[] pathElements, @Nonnegative int rootDepth) {
+      String topLevelPackage = pathElements[rootDepth];
+
+      for (int i = 0; i < rootDepth; i++) {
+         if (pathElements[i].equals(topLevelPackage)) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   /**
+    * Finds the source file for the given path relative to a source root, such as "org/example/SomeClass.java".
+    * When found under a source root which isn't already in the list of source directories, that root gets added to the list.
+    */
+   @Nullable
+   File findSourceFile(@Nonnull String filePath) {
+      IndexedSourceFile sourceFile = relativePathToSourceFile.get(filePath);
+
+      if (sourceFile == null) {
+         return null;
+      }
+
+      String sourceFilePath = sourceFile.file.getPath();
+      addRootSourceDirIfNew(sourceFilePath.substring(0, sourceFilePath.length() - filePath.length()));
+      return sourceFile.file;
+   }
+
+   private void addRootSourceDirIfNew(@Nonnull String sourceRootDir) {
+      File newSourceDir = new File(sourceRootDir);
+
+      if (!sourceDirs.contains(newSourceDir)) {
+         sourceDirs.add(0, newSourceDir);
+      }
+   }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.testImpact;
+
+import java.io.*;
+import java.util.*;
+import javax.annotation.*;
+
+/**
+ * A compressed set of non-negative <tt>int</tt> values, organized as in a "roaring" bitmap: values are partitioned by their high 16
+ * bits, and each partition holds its low 16 bits either in a sorted array, while sparse, or in a fixed-size bitmap, once dense.
+ */
+public final class CompactIntSet implements Serializable
+{
+   private static final long serialVersionUID = 4618473290516744871L;
+   private static final int MAX_ARRAY_CARDINALITY = 4096;
+   private static final int BITMAP_WORDS = 65536 / 64;
+
+   @Nonnull private transient int[] keys;
+   @Nonnull private transient Object[] containers; // each one either a char[] or a long[]
+   @Nonnull private transient int[] cardinalities;
+   @Nonnegative private transient int containerCount;
+   @Nonnegative private transient int lastContainerIndex;
+
+   public CompactIntSet() {
+      keys = new int[1];
+      containers = new Object[1];
+      cardinalities = new int[1];
+   }
+
+   /**
+    * Adds the given value to the set.
+    *
+    * @return <tt>true</tt> if the value was not already present
+    */
+   public boolean add(@Nonnegative int value) {
+      int key = value >>> 16;
+      char low = (char) value;
+      int i = findOrCreateContainer(key);
+      Object container = containers[i];
+
+      if (container instanceof long[]) {
+         long[] bitmap = (long[]) container;
+         long bit = 1L << low;
+         int word = low >>> 6;
+
+         if ((bitmap[word] & bit) != 0) {
+            return false;
+         }
+
+         bitmap[word] |= bit;
+         cardinalities[i]++;
+         return true;
+      }
+
+      char[] array = (char[]) container;
+      int cardinality = cardinalities[i];
+      int p = Arrays.binarySearch(array, 0, cardinality, low);
+
+      if (p >= 0) {
+         return false;
+      }
+
+      if (cardinality == MAX_ARRAY_CARDINALITY) {
+         long[] bitmap = toBitmap(array, cardinality);
+         bitmap[low >>> 6] |= 1L << low;
+         containers[i] = bitmap;
+      }
+      else {
+         int insertionPoint = -p - 1;
+
+         if (cardinality == array.length) {
+            array = Arrays.copyOf(array, Math.min(2 * cardinality, MAX_ARRAY_CARDINALITY));
+            containers[i] = array;
+         }
+
+         System.arraycopy(array, insertionPoint, array, insertionPoint + 1, cardinality - insertionPoint);
+         array[insertionPoint] = low;
+      }
+
+      cardinalities[i] = cardinality + 1;
+      return true;
+   }
+
+   @Nonnull
+   private static long[] toBitmap(@Nonnull char[] array, @Nonnegative int cardinality) {
+      long[] bitmap = new long[BITMAP_WORDS];
+
+      for (int j = 0; j < cardinality; j++) {
+         char low = array[j];
+         bitmap[low >>> 6] |= 1L << low;
+      }
+
+      return bitmap;
+   }
+
+   @Nonnegative
+   private int findOrCreateContainer(@Nonnegative int key) {
+      // Values are usually added in clusters (for example, line numbers in the same source file), so the last container used is
+      // checked first.
+      int last = lastContainerIndex;
+
+      if (last < containerCount && keys[last] == key) {
+         return last;
+      }
+
+      int i = Arrays.binarySearch(keys, 0, containerCount, key);
+
+      if (i < 0) {
+         i = -i - 1;
+         insertContainer(i, key);
+      }
+
+      lastContainerIndex = i;
+      return i;
+   }
+
+   private void insertContainer(@Nonnegative int i, @Nonnegative int key) {
+      if (containerCount == keys.length) {
+         int newLength = 2 * containerCount;
+         keys = Arrays.copyOf(keys, newLength);
+         containers = Arrays.copyOf(containers, newLength);
+         cardinalities = Arrays.copyOf(cardinalities, newLength);
+      }
+
+      int n = containerCount - i;
+      System.arraycopy(keys, i, keys, i + 1, n);
+      System.arraycopy(containers, i, containers, i + 1, n);
+      System.arraycopy(cardinalities, i, cardinalities, i + 1, n);
+
+      keys[i] = key;
+      containers[i] = new char[4];
+      cardinalities[i] = 0;
+      containerCount++;
+   }
+
+   public boolean contains(@Nonnegative int value) {
+      int i = Arrays.binarySearch(keys, 0, containerCount, value >>> 16);
+
+      if (i < 0) {
+         return false;
+      }
+
+      char low = (char) value;
+      Object container = containers[i];
+
+      if (container instanceof long[]) {
+         return (((long[]) container)[low >>> 6] & 1L << low) != 0;
+      }
+
+      return Arrays.binarySearch((char[]) container, 0, cardinalities[i], low) >= 0;
+   }
+
+   /**
+    * Checks whether this set has at least one value in the inclusive range given.
+    */
+   public boolean containsAnyInRange(@Nonnegative int from, @Nonnegative int to) {
+      for (int i = 0; i < containerCount; i++) {
+         int base = keys[i] << 16;
+
+         if (base > to) {
+            break;
+         }
+
+         if (base + 0xFFFF >= from && containsAnyInRange(i, Math.max(from - base, 0), Math.min(to - base, 0xFFFF))) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   private boolean containsAnyInRange(@Nonnegative int i, @Nonnegative int lowFrom, @Nonnegative int lowTo) {
+      Object container = containers[i];
+
+      if (container instanceof long[]) {
+         long[] bitmap = (long[]) container;
+
+         for (int low = lowFrom; low <= lowTo; low++) {
+            if ((bitmap[low >>> 6] & 1L << low) != 0) {
+               return true;
+            }
+         }
+
+         return false;
+      }
+
+      char[] array = (char[]) container;
+      int p = Arrays.binarySearch(array, 0, cardinalities[i], (char) lowFrom);
+      int insertionPoint = p >= 0 ? p : -p - 1;
+      return insertionPoint < cardinalities[i] && array[insertionPoint] <= lowTo;
+   }
+
+   @Nonnegative
+   public int size() {
+      int size = 0;
+
+      for (int i = 0; i < containerCount; i++) {
+         size += cardinalities[i];
+      }
+
+      return size;
+   }
+
+   public boolean isEmpty() { return containerCount == 0; }
+
+   /**
+    * Adds all values from the given set into this one.
+    */
+   public void addAll(@Nonnull CompactIntSet other) {
+      for (int value : other.toArray()) {
+         add(value);
+      }
+   }
+
+   /**
+    * Returns all values in the set, in ascending order.
+    */
+   @Nonnull
+   public int[] toArray() {
+      int[] values = new int[size()];
+      int k = 0;
+
+      for (int i = 0; i < containerCount; i++) {
+         int base = keys[i] << 16;
+         Object container = containers[i];
+
+         if (container instanceof long[]) {
+            long[] bitmap = (long[]) container;
+
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+               long bits = bitmap[word];
+
+               while (bits != 0) {
+                  int bit = Long.numberOfTrailingZeros(bits);
+                  values[k++] = base | word << 6 | bit;
+                  bits &= bits - 1;
+               }
+            }
+         }
+         else {
+            char[] array = (char[]) container;
+
+            for (int j = 0, n = cardinalities[i]; j < n; j++) {
+               values[k++] = base | array[j];
+            }
+         }
+      }
+
+      return values;
+   }
+
+   private void writeObject(@Nonnull ObjectOutputStream out) throws IOException {
+      out.defaultWriteObject();
+      out.writeInt(containerCount);
+
+      for (int i = 0; i < containerCount; i++) {
+         out.writeChar(keys[i]);
+         Object container = containers[i];
+
+         if (container instanceof long[]) {
+            out.writeBoolean(true);
+
+            for (long word : (long[]) container) {
+               out.writeLong(word);
+            }
+         }
+         else {
+            int cardinality = cardinalities[i];
+            out.writeBoolean(false);
+            out.writeShort(cardinality - 1);
+
+            char[] array = (char[]) container;
+
+            for (int j = 0; j < cardinality; j++) {
+               out.writeChar(array[j]);
+            }
+         }
+      }
+   }
+
+   private void readObject(@Nonnull ObjectInputStream in) throws IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      int count = in.readInt();
+      int capacity = Math.max(count, 1);
+      keys = new int[capacity];
+      containers = new Object[capacity];
+      cardinalities = new int[capacity];
+
+      for (int i = 0; i < count; i++) {
+         keys[i] = in.readChar();
+
+         if (in.readBoolean()) {
+            long[] bitmap = new long[BITMAP_WORDS];
+            int cardinality = 0;
+
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+               bitmap[word] = in.readLong();
+               cardinality += Long.bitCount(bitmap[word]);
+            }
+
+            containers[i] = bitmap;
+            cardinalities[i] = cardinality;
+         }
+         else {
+            int cardinality = in.readUnsignedShort() + 1;
+            char[] array = new char[cardinality];
+
+            for (int j = 0; j < cardinality; j++) {
+               array[j] = in.readChar();
+            }
+
+            containers[i] = array;
+            cardinalities[i] = cardinality;
+         }
+      }
+
+      containerCount = count;
+   }
+}
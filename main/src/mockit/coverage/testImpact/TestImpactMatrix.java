@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.testImpact;
+
+import java.io.*;
+import java.util.*;
+import java.util.Map.*;
+import javax.annotation.*;
+
+/**
+ * The lines and branches of each source file covered by each test of a test run, as persisted in a "<tt>coverage-tests.ser</tt>"
+ * file next to the "<tt>coverage.ser</tt>" file.
+ * Tests are identified by the fully qualified name of the test class followed by "<tt>#</tt>" and the name of the test method.
+ */
+public final class TestImpactMatrix implements Serializable
+{
+   private static final long serialVersionUID = -2961409342573380196L;
+   public static final String FILE_NAME = "coverage-tests.ser";
+
+   /**
+    * The items of a source file covered by a single test.
+    * Branches are stored as <tt>line * 4096 + branchIndex</tt>.
+    */
+   public static final class CoveredItems implements Serializable {
+      private static final long serialVersionUID = 1519385011329478624L;
+      static final int MAX_BRANCHES_PER_LINE = 4096;
+
+      @Nonnull final CompactIntSet lines = new CompactIntSet();
+      @Nonnull final CompactIntSet branches = new CompactIntSet();
+
+      void addLine(@Nonnegative int line) { lines.add(line); }
+
+      void addBranch(@Nonnegative int line, @Nonnegative int branchIndex) {
+         if (branchIndex < MAX_BRANCHES_PER_LINE) {
+            branches.add(line * MAX_BRANCHES_PER_LINE + branchIndex);
+         }
+      }
+
+      public boolean coversLine(@Nonnegative int line) { return lines.contains(line); }
+
+      public boolean coversAnyLineInRange(@Nonnegative int firstLine, @Nonnegative int lastLine) {
+         return lines.containsAnyInRange(firstLine, lastLine);
+      }
+
+      public boolean coversBranch(@Nonnegative int line, @Nonnegative int branchIndex) {
+         return branches.contains(line * MAX_BRANCHES_PER_LINE + branchIndex);
+      }
+
+      @Nonnull public int[] getLines() { return lines.toArray(); }
+   }
+
+   @Nonnull private final Map<String, Map<String, CoveredItems>> testToFileToCoveredItems;
+
+   public TestImpactMatrix() { testToFileToCoveredItems = new LinkedHashMap<String, Map<String, CoveredItems>>(); }
+
+   void addTest(@Nonnull String test, @Nonnull Map<String, CoveredItems> fileToCoveredItems) {
+      testToFileToCoveredItems.put(test, fileToCoveredItems);
+   }
+
+   @Nonnull public Set<String> getTests() { return Collections.unmodifiableSet(testToFileToCoveredItems.keySet()); }
+   public boolean containsTest(@Nonnull String test) { return testToFileToCoveredItems.containsKey(test); }
+
+   /**
+    * Returns the source files with items covered by the given test, each one with the items covered.
+    */
+   @Nonnull
+   public Map<String, CoveredItems> getCoveredItems(@Nonnull String test) {
+      Map<String, CoveredItems> fileToCoveredItems = testToFileToCoveredItems.get(test);
+      return fileToCoveredItems == null ? Collections.<String, CoveredItems>emptyMap() : fileToCoveredItems;
+   }
+
+   /**
+    * Finds the tests covering at least one line in the given source file.
+    *
+    * @param sourceFile the source file path relative to its source root, such as "<tt>org/example/SomeClass.java</tt>"
+    */
+   @Nonnull
+   public List<String> getTestsCoveringFile(@Nonnull String sourceFile) {
+      List<String> tests = new ArrayList<String>();
+
+      for (Entry<String, Map<String, CoveredItems>> testAndFiles : testToFileToCoveredItems.entrySet()) {
+         if (testAndFiles.getValue().containsKey(sourceFile)) {
+            tests.add(testAndFiles.getKey());
+         }
+      }
+
+      return tests;
+   }
+
+   /**
+    * Finds the tests covering at least one line in the given inclusive range of lines of a source file.
+    */
+   @Nonnull
+   public List<String> getTestsCoveringLines(@Nonnull String sourceFile, @Nonnegative int firstLine, @Nonnegative int lastLine) {
+      List<String> tests = new ArrayList<String>();
+
+      for (Entry<String, Map<String, CoveredItems>> testAndFiles : testToFileToCoveredItems.entrySet()) {
+         CoveredItems coveredItems = testAndFiles.getValue().get(sourceFile);
+
+         if (coveredItems != null && coveredItems.coversAnyLineInRange(firstLine, lastLine)) {
+            tests.add(testAndFiles.getKey());
+         }
+      }
+
+      return tests;
+   }
+
+   /**
+    * Adds the tests from a previous test run which were not executed again in the current one.
+    */
+   public void merge(@Nonnull TestImpactMatrix previousMatrix) {
+      for (Entry<String, Map<String, CoveredItems>> previousTestAndFiles : previousMatrix.testToFileToCoveredItems.entrySet()) {
+         String previousTest = previousTestAndFiles.getKey();
+
+         if (!testToFileToCoveredItems.containsKey(previousTest)) {
+            testToFileToCoveredItems.put(previousTest, previousTestAndFiles.getValue());
+         }
+      }
+   }
+
+   @Nonnull
+   public static TestImpactMatrix readFromFile(@Nonnull File dataFile) throws IOException {
+      ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(new FileInputStream(dataFile)));
+
+      try {
+         return (TestImpactMatrix) input.readObject();
+      }
+      catch (ClassNotFoundException e) {
+         throw new RuntimeException("Serialized class in test impact data file \"" + dataFile + "\" not found in classpath", e);
+      }
+      finally {
+         input.close();
+      }
+   }
+
+   public void writeToFile(@Nonnull File dataFile) throws IOException {
+      ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(dataFile)));
+
+      try {
+         output.writeObject(this);
+      }
+      finally {
+         output.close();
+      }
+   }
+}
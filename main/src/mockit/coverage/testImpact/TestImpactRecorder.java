@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.testImpact;
+
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.Map.*;
+import javax.annotation.*;
+
+import mockit.coverage.*;
+import mockit.coverage.data.*;
+import mockit.coverage.testImpact.TestImpactMatrix.*;
+
+/**
+ * Records the lines and branches covered by each test, when enabled with "<tt>-Dcoverage-testImpact=true</tt>".
+ * Items are recorded by source file index, so that each recording is just a set insertion into the current test's data for the file.
+ * <p/>
+ * The current test is kept per thread, so that tests executing in parallel have their items recorded separately; threads started by a
+ * test record into that same test.
+ */
+public final class TestImpactRecorder
+{
+   @Nullable public static final TestImpactRecorder INSTANCE;
+
+   static {
+      INSTANCE = "true".equals(Configuration.getProperty("testImpact", "false")) ? new TestImpactRecorder() : null;
+   }
+
+   @Nonnull private final Map<String, List<CoveredItems>> testToCoveredItemsByFileIndex;
+   @Nonnull private final ThreadLocal<List<CoveredItems>> currentTestItems;
+
+   TestImpactRecorder() {
+      testToCoveredItemsByFileIndex = new LinkedHashMap<String, List<CoveredItems>>();
+      currentTestItems = new InheritableThreadLocal<List<CoveredItems>>();
+   }
+
+   @Nonnull
+   public static String getTestName(@Nonnull Method testMethod) {
+      return testMethod.getDeclaringClass().getName() + '#' + testMethod.getName();
+   }
+
+   /**
+    * Sets the test executing in the current thread, or clears it when given <tt>null</tt>.
+    */
+   public void setCurrentTestMethod(@Nullable Method testMethod) {
+      if (testMethod == null) {
+         currentTestItems.remove();
+      }
+      else {
+         List<CoveredItems> coveredItemsByFileIndex = new ArrayList<CoveredItems>();
+
+         synchronized (testToCoveredItemsByFileIndex) {
+            testToCoveredItemsByFileIndex.put(getTestName(testMethod), coveredItemsByFileIndex);
+         }
+
+         currentTestItems.set(coveredItemsByFileIndex);
+      }
+   }
+
+   public void recordLineCoveredByTestIfApplicable(@Nonnegative int fileIndex, @Nonnegative int line) {
+      List<CoveredItems> coveredItemsByFileIndex = currentTestItems.get();
+
+      if (coveredItemsByFileIndex != null) {
+         getCoveredItems(coveredItemsByFileIndex, fileIndex).addLine(line);
+      }
+   }
+
+   public void recordBranchCoveredByTestIfApplicable(@Nonnegative int fileIndex, @Nonnegative int line, @Nonnegative int branchIndex) {
+      List<CoveredItems> coveredItemsByFileIndex = currentTestItems.get();
+
+      if (coveredItemsByFileIndex != null) {
+         getCoveredItems(coveredItemsByFileIndex, fileIndex).addBranch(line, branchIndex);
+      }
+   }
+
+   @Nonnull
+   private static CoveredItems getCoveredItems(@Nonnull List<CoveredItems> coveredItemsByFileIndex, @Nonnegative int fileIndex) {
+      while (coveredItemsByFileIndex.size() <= fileIndex) {
+         coveredItemsByFileIndex.add(null);
+      }
+
+      CoveredItems coveredItems = coveredItemsByFileIndex.get(fileIndex);
+
+      if (coveredItems == null) {
+         coveredItems = new CoveredItems();
+         coveredItemsByFileIndex.set(fileIndex, coveredItems);
+      }
+
+      return coveredItems;
+   }
+
+   /**
+    * Builds the matrix of items covered by each test recorded so far, identifying source files by their paths.
+    */
+   @Nonnull
+   public TestImpactMatrix buildMatrix(@Nonnull CoverageData coverageData) {
+      Map<Integer, String> fileIndexToFile = new HashMap<Integer, String>();
+
+      for (Entry<String, FileCoverageData> fileAndFileData : coverageData.getRawFileToFileData().entrySet()) {
+         fileIndexToFile.put(fileAndFileData.getValue().index, fileAndFileData.getKey());
+      }
+
+      TestImpactMatrix matrix = new TestImpactMatrix();
+      List<Entry<String, List<CoveredItems>>> testsAndCoveredItems;
+
+      synchronized (testToCoveredItemsByFileIndex) {
+         testsAndCoveredItems = new ArrayList<Entry<String, List<CoveredItems>>>(testToCoveredItemsByFileIndex.entrySet());
+      }
+
+      for (Entry<String, List<CoveredItems>> testAndCoveredItems : testsAndCoveredItems) {
+         List<CoveredItems> coveredItemsByFileIndex = testAndCoveredItems.getValue();
+         Map<String, CoveredItems> fileToCoveredItems = new LinkedHashMap<String, CoveredItems>();
+
+         for (int fileIndex = 0, n = coveredItemsByFileIndex.size(); fileIndex < n; fileIndex++) {
+            CoveredItems coveredItems = coveredItemsByFileIndex.get(fileIndex);
+            String file = fileIndexToFile.get(fileIndex);
+
+            if (coveredItems != null && file != null) {
+               fileToCoveredItems.put(file, coveredItems);
+            }
+         }
+
+         matrix.addTest(testAndCoveredItems.getKey(), fileToCoveredItems);
+      }
+
+      return matrix;
+   }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.testImpact;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.Map.*;
+import javax.annotation.*;
+
+import mockit.coverage.*;
+import mockit.coverage.data.*;
+import mockit.coverage.testImpact.TestImpactMatrix.*;
+
+/**
+ * Decides which tests can be affected by a set of changes, based on the items covered by each test in a previous test run (as persisted
+ * in a "<tt>coverage-tests.ser</tt>" file).
+ * <p/>
+ * Enabled with "<tt>-Dcoverage-changes=...</tt>", where the value is either "<tt>auto</tt>" or a comma-separated list of changes.
+ * With "<tt>auto</tt>", the changed source files are those whose class files were modified since the coverage data files from the
+ * previous run were written.
+ * Otherwise, each change is either a class name such as "<tt>org.example.SomeClass</tt>", or a source file path such as
+ * "<tt>org/example/SomeClass.java</tt>", optionally followed by a colon and a semicolon-separated list of changed lines or line ranges,
+ * as in "<tt>org/example/SomeClass.java:12-20;35</tt>".
+ * <p/>
+ * Tests not found in the persisted data always run, as do all tests in a test class which was itself changed or whose class file was
+ * modified after the data was persisted.
+ */
+public final class TestImpactSelection
+{
+   @Nullable public static final TestImpactSelection INSTANCE = createIfRequested();
+
+   @Nonnull private final TestImpactMatrix matrix;
+   private final long matrixLastModified;
+   @Nonnull private final Map<String, List<int[]>> changedFileToLineRanges;
+   @Nonnull private final Set<String> changedClasses;
+   @Nonnull private final Map<Class<?>, Boolean> testClassesAffected;
+
+   @Nullable
+   private static TestImpactSelection createIfRequested() {
+      String changes = Configuration.getProperty("changes");
+
+      if (changes == null || changes.trim().isEmpty()) {
+         return null;
+      }
+
+      String outputDir = Configuration.getOrChooseOutputDirectory(Configuration.getProperty("outputDir", ""));
+      File matrixFile = new File(outputDir, TestImpactMatrix.FILE_NAME);
+
+      if (!matrixFile.exists()) {
+         System.out.println("JMockit: No test impact data found in " + matrixFile + "; all tests will run");
+         return null;
+      }
+
+      try {
+         TestImpactMatrix matrix = TestImpactMatrix.readFromFile(matrixFile);
+         TestImpactSelection selection = new TestImpactSelection(matrix, matrixFile.lastModified());
+
+         if ("auto".equals(changes.trim())) {
+            CoverageData previousData = DataFileMerging.mergeDataFilesInDirectory(new File(outputDir));
+
+            if (previousData == null) {
+               System.out.println("JMockit: No coverage data found in " + outputDir + " for detecting changes; all tests will run");
+               return null;
+            }
+
+            selection.addChangedFiles(previousData.getFilesWithModifiedClassFiles());
+         }
+         else {
+            selection.addChanges(changes.trim().split("\\s*,\\s*"));
+         }
+
+         System.out.println(
+            "JMockit: Running only tests affected by changes to " + selection.changedFileToLineRanges.size() + " source files");
+         return selection;
+      }
+      catch (IOException e) {
+         System.out.println("JMockit: Unable to read test impact data (" + e + "); all tests will run");
+         return null;
+      }
+   }
+
+   /**
+    * Checks whether the given test, or any test in the given test class when no test method is given, should run, which is always the
+    * case if no test selection is in effect.
+    */
+   public static boolean shouldRunTest(@Nonnull Class<?> testClass, @Nullable Method testMethod) {
+      TestImpactSelection selection = INSTANCE;
+      return selection == null || (testMethod == null ? selection.shouldRun(testClass) : selection.shouldRun(testClass, testMethod));
+   }
+
+   TestImpactSelection(@Nonnull TestImpactMatrix matrix, long matrixLastModified) {
+      this.matrix = matrix;
+      this.matrixLastModified = matrixLastModified;
+      changedFileToLineRanges = new HashMap<String, List<int[]>>();
+      changedClasses = new HashSet<String>();
+      testClassesAffected = new HashMap<Class<?>, Boolean>();
+   }
+
+   private void addChangedFiles(@Nonnull List<String> changedFiles) {
+      for (String changedFile : changedFiles) {
+         changedFileToLineRanges.put(changedFile, null);
+      }
+   }
+
+   void addChanges(@Nonnull String[] changes) {
+      for (String change : changes) {
+         int p = change.indexOf(".java");
+
+         if (p < 0) {
+            addChangedClass(change);
+         }
+         else {
+            String changedFile = change.substring(0, p + 5).replace('\\', '/');
+            String lines = change.substring(p + 5);
+            addChangedLines(changedFile, lines.startsWith(":") ? lines.substring(1) : "");
+         }
+      }
+   }
+
+   private void addChangedClass(@Nonnull String className) {
+      changedClasses.add(className);
+
+      int p = className.indexOf('$');
+      String topLevelClassName = p < 0 ? className : className.substring(0, p);
+      String changedFile = topLevelClassName.replace('.', '/') + ".java";
+      changedFileToLineRanges.put(changedFile, null);
+   }
+
+   private void addChangedLines(@Nonnull String changedFile, @Nonnull String lineRanges) {
+      if (changedFileToLineRanges.containsKey(changedFile) && changedFileToLineRanges.get(changedFile) == null) {
+         return; // the whole file was already considered as changed
+      }
+
+      if (lineRanges.isEmpty()) {
+         changedFileToLineRanges.put(changedFile, null);
+         return;
+      }
+
+      List<int[]> ranges = changedFileToLineRanges.get(changedFile);
+
+      if (ranges == null) {
+         ranges = new ArrayList<int[]>();
+         changedFileToLineRanges.put(changedFile, ranges);
+      }
+
+      for (String range : lineRanges.split("\\s*;\\s*")) {
+         int[] lineRange = parseLineRange(range);
+
+         if (lineRange == null) {
+            System.out.println("JMockit: Ignoring invalid line range \"" + range + "\" in changes to " + changedFile);
+         }
+         else {
+            ranges.add(lineRange);
+         }
+      }
+
+      if (ranges.isEmpty()) {
+         changedFileToLineRanges.put(changedFile, null);
+      }
+   }
+
+   @Nullable
+   private static int[] parseLineRange(@Nonnull String range) {
+      int p = range.indexOf('-');
+      int firstLine;
+      int lastLine;
+
+      try {
+         firstLine = Integer.parseInt(p < 0 ? range : range.substring(0, p));
+         lastLine = p < 0 ? firstLine : Integer.parseInt(range.substring(p + 1));
+      }
+      catch (NumberFormatException ignore) {
+         return null;
+      }
+
+      return firstLine <= 0 || lastLine < firstLine ? null : new int[] {firstLine, lastLine};
+   }
+
+   /**
+    * Checks whether the given test method can be affected by the changes, or is unknown to the persisted test impact data.
+    */
+   public synchronized boolean shouldRun(@Nonnull Class<?> testClass, @Nonnull Method testMethod) {
+      String testName = TestImpactRecorder.getTestName(testMethod);
+      return !matrix.containsTest(testName) || wasTestClassChanged(testClass) || isAffectedByChanges(testName);
+   }
+
+   /**
+    * Checks whether any test in the given test class can be affected by the changes, or is unknown to the persisted test impact data.
+    */
+   public synchronized boolean shouldRun(@Nonnull Class<?> testClass) {
+      Boolean affected = testClassesAffected.get(testClass);
+
+      if (affected == null) {
+         affected = wasTestClassChanged(testClass) || hasAffectedOrUnknownTests(testClass);
+         testClassesAffected.put(testClass, affected);
+      }
+
+      return affected;
+   }
+
+   private boolean wasTestClassChanged(@Nonnull Class<?> testClass) {
+      for (Class<?> aClass = testClass; aClass != null && aClass != Object.class; aClass = aClass.getSuperclass()) {
+         if (changedClasses.contains(aClass.getName()) || isClassFileNewerThanMatrix(aClass)) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   private boolean isClassFileNewerThanMatrix(@Nonnull Class<?> testClass) {
+      if (testClass.getProtectionDomain().getCodeSource() == null) {
+         return false;
+      }
+
+      long lastModified = CoverageData.getLastModifiedTimeForClassFile(testClass);
+      return lastModified > matrixLastModified;
+   }
+
+   private boolean hasAffectedOrUnknownTests(@Nonnull Class<?> testClass) {
+      String testNamePrefix = testClass.getName() + '#';
+      boolean knownTests = false;
+
+      for (String testName : matrix.getTests()) {
+         if (testName.startsWith(testNamePrefix)) {
+            if (isAffectedByChanges(testName)) {
+               return true;
+            }
+
+            knownTests = true;
+         }
+      }
+
+      return !knownTests;
+   }
+
+   private boolean isAffectedByChanges(@Nonnull String testName) {
+      Map<String, CoveredItems> fileToCoveredItems = matrix.getCoveredItems(testName);
+
+      for (Entry<String, List<int[]>> changedFileAndLineRanges : changedFileToLineRanges.entrySet()) {
+         CoveredItems coveredItems = fileToCoveredItems.get(changedFileAndLineRanges.getKey());
+
+         if (coveredItems != null && coversAnyLine(coveredItems, changedFileAndLineRanges.getValue())) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   private static boolean coversAnyLine(@Nonnull CoveredItems coveredItems, @Nullable List<int[]> lineRanges) {
+      if (lineRanges == null) {
+         return true;
+      }
+
+      for (int[] lineRange : lineRanges) {
+         if (coveredItems.coversAnyLineInRange(lineRange[0], lineRange[1])) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+}
@@ -10,30 +10,42 @@ import java.util.Map.*;
 import javax.annotation.*;
 
 import mockit.coverage.*;
+import mockit.coverage.testImpact.*;
 
 public final class TestCoverage
 {
    @Nullable public static final TestCoverage INSTANCE;
 
    static {
-      INSTANCE = "true".equals(Configuration.getProperty("redundancy", "true")) ? new TestCoverage() : null;
+      boolean withRedundancy = "true".equals(Configuration.getProperty("redundancy", "true"));
+      TestImpactRecorder testImpactRecorder = TestImpactRecorder.INSTANCE;
+      INSTANCE = withRedundancy || testImpactRecorder != null ? new TestCoverage(withRedundancy, testImpactRecorder) : null;
    }
 
+   private final boolean withRedundancy;
+   @Nullable private final TestImpactRecorder testImpactRecorder;
    @Nonnull private final Map<Method, Integer> testsToItemsCovered = new LinkedHashMap<Method, Integer>();
    @Nullable private Method currentTestMethod;
 
-   private TestCoverage() {}
+   private TestCoverage(boolean withRedundancy, @Nullable TestImpactRecorder testImpactRecorder) {
+      this.withRedundancy = withRedundancy;
+      this.testImpactRecorder = testImpactRecorder;
+   }
 
    public void setCurrentTestMethod(@Nullable Method testMethod) {
-      if (testMethod != null) {
+      if (testMethod != null && withRedundancy) {
          testsToItemsCovered.put(testMethod, 0);
       }
 
+      if (testImpactRecorder != null) {
+         testImpactRecorder.setCurrentTestMethod(testMethod);
+      }
+
       currentTestMethod = testMethod;
    }
 
    public void recordNewItemCoveredByTestIfApplicable(@Nonnegative int previousExecutionCount) {
-      if (previousExecutionCount == 0 && currentTestMethod != null) {
+      if (previousExecutionCount == 0 && currentTestMethod != null && withRedundancy) {
          Integer itemsCoveredByTest = testsToItemsCovered.get(currentTestMethod);
          testsToItemsCovered.put(currentTestMethod, itemsCoveredByTest == null ? 1 : itemsCoveredByTest + 1);
       }
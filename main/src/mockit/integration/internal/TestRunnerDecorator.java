@@ -7,27 +7,54 @@ package mockit.integration.internal;
 import java.lang.reflect.*;
 import javax.annotation.*;
 
+import mockit.coverage.CodeCoverage;
+import mockit.coverage.testImpact.*;
+import mockit.coverage.testRedundancy.*;
 import mockit.internal.expectations.*;
 import mockit.internal.expectations.invocation.*;
 import mockit.internal.injection.*;
 import mockit.internal.expectations.mocking.*;
+import mockit.internal.reflection.*;
 import mockit.internal.state.*;
 import mockit.internal.util.*;
 
 /**
  * Base class for "test runner decorators", which provide integration between JMockit and specific test runners from JUnit and TestNG.
+ * <p/>
+ * The save points for the current test class and test are kept in the {@linkplain TestContext test context} of the executing thread,
+ * so that tests running in parallel from different threads don't interfere with each other.
+ * When class-level state is shared by threads executing tests of the same class, the redefinitions of mock fields are made once, from
+ * the shared class context, and rolled back when the test runner reports the test class as finished.
  */
 public class TestRunnerDecorator
 {
-   @Nullable private static SavePoint savePointForTestClass;
-   @Nullable private static SavePoint savePointForTest;
+   // Checked directly, so that no coverage class gets loaded unless test selection was requested.
+   private static final boolean TEST_SELECTION_REQUESTED =
+      System.getProperty("jmockit-coverage-changes") != null || System.getProperty("coverage-changes") != null;
+
+   protected TestRunnerDecorator() {}
+
+   /**
+    * Checks whether the given test, or all tests in the given test class when no test method is given, should be skipped for not being
+    * affected by the changes given in the "<tt>coverage-changes</tt>" property.
+    */
+   protected static boolean isNotAffectedByChanges(@Nonnull Class<?> testClass, @Nullable Method testMethod) {
+      return TEST_SELECTION_REQUESTED && !TestImpactSelection.shouldRunTest(testClass, testMethod);
+   }
 
    /**
-    * A "volatile boolean" is as good as a java.util.concurrent.atomic.AtomicBoolean here, since we only need the basic get/set operations.
+    * Informs the coverage tool, when active, of the test starting to execute in the current thread, or that it finished when given
+    * <tt>null</tt>.
     */
-   protected volatile boolean shouldPrepareForNextTest;
+   protected static void exportCurrentTestMethodIfApplicable(@Nullable Method testMethod) {
+      if (CodeCoverage.isRunning()) {
+         TestCoverage testCoverage = TestCoverage.INSTANCE;
 
-   protected TestRunnerDecorator() { shouldPrepareForNextTest = true; }
+         if (testCoverage != null) {
+            testCoverage.setCurrentTestMethod(testMethod);
+         }
+      }
+   }
 
    protected static void updateTestClassState(@Nullable Object target, @Nonnull Class<?> testClass) {
       testClass = getActualTestClass(testClass);
@@ -67,23 +94,70 @@ public class TestRunnerDecorator
 
       if (testClass != currentTestClass) {
          if (currentTestClass == null) {
-            savePointForTestClass = new SavePoint();
+            createSavePointForTestClass(testClass);
          }
          else if (!currentTestClass.isAssignableFrom(testClass)) {
             cleanUpMocksFromPreviousTestClass();
-            savePointForTestClass = new SavePoint();
+            createSavePointForTestClass(testClass);
          }
 
          TestRun.setCurrentTestClass(testClass);
       }
    }
 
+   private static void createSavePointForTestClass(@Nonnull Class<?> testClass) {
+      if (!TestRun.joinSharedClassContext(testClass)) {
+         TestRun.setSavePointForTestClass(new SavePoint());
+      }
+   }
+
    public static void cleanUpMocksFromPreviousTestClass() { cleanUpMocks(true); }
    protected static void cleanUpMocksFromPreviousTest() { cleanUpMocks(false); }
 
+   /**
+    * Cleans up the mocks and fakes of all test contexts, including those of threads which executed tests in parallel.
+    */
    public static void cleanUpAllMocks() {
-      cleanUpMocks(true);
+      for (TestContext context : TestRun.getParallelContexts()) {
+         cleanUpMocksInContext(context);
+      }
+
+      TestRun.discardContextsOfTerminatedThreads();
+
+      for (TestContext classContext : TestRun.releaseAllSharedClassContexts()) {
+         cleanUpSharedClassContext(classContext);
+      }
+
+      cleanUpMocksInContext(null);
       TestRun.getFakeClasses().discardStartupFakes();
+      WorkerThreads.shutdown();
+   }
+
+   /**
+    * Cleans up the mocks and fakes of a test context whose thread is done executing tests, including those for its current test class.
+    */
+   protected static void cleanUpMocksFromTestClassInContext(@Nonnull TestContext context) {
+      TestContext previousContext = TestRun.switchContext(context);
+
+      try {
+         cleanUpMocks(true);
+         TestRun.clearCurrentTestInstance();
+         TestRun.setCurrentTestClass(null);
+      }
+      finally {
+         TestRun.switchContext(previousContext);
+      }
+   }
+
+   private static void cleanUpMocksInContext(@Nullable TestContext context) {
+      TestContext previousContext = TestRun.switchContext(context);
+
+      try {
+         cleanUpMocks(true);
+      }
+      finally {
+         TestRun.switchContext(previousContext);
+      }
    }
 
    private static void cleanUpMocks(boolean forTestClassAsWell) {
@@ -91,17 +165,61 @@ public class TestRunnerDecorator
 
       if (forTestClassAsWell) {
          rollbackForTestClass();
+         clearCachesForTestClass();
       }
 
       clearFieldTypeRedefinitions();
    }
 
+   /**
+    * Discards reflection data cached while executing the tests of a test class, so that it doesn't retain classes of that test class
+    * nor of the tested classes it uses.
+    */
+   private static void clearCachesForTestClass() {
+      GenericTypeReflection.clearSharedInstances();
+   }
+
    private static void rollbackForTestClass() {
-      SavePoint savePoint = savePointForTestClass;
+      if (TestRun.getSharedClassContext() != null) {
+         leaveSharedClassContext();
+         return;
+      }
+
+      SavePoint savePoint = TestRun.getSavePointForTestClass();
 
       if (savePoint != null) {
          savePoint.rollback();
-         savePointForTestClass = null;
+         TestRun.setSavePointForTestClass(null);
+      }
+   }
+
+   private static void leaveSharedClassContext() {
+      TestRun.getExecutingTest().getCascadingTypes().clear();
+      TestRun.setFieldTypeRedefinitions(null);
+      TestRun.leaveSharedClassContext();
+   }
+
+   /**
+    * Rolls back the class-level state shared by the threads which executed tests of the given class, once the test runner reports that
+    * all of them, and the class-level setup and tear down methods, are done.
+    */
+   protected static void releaseSharedClassContext(@Nonnull Class<?> testClass) {
+      TestContext classContext = TestRun.releaseSharedClassContext(getActualTestClass(testClass));
+
+      if (classContext != null) {
+         cleanUpSharedClassContext(classContext);
+      }
+   }
+
+   private static void cleanUpSharedClassContext(@Nonnull TestContext classContext) {
+      TestContext previousContext = TestRun.switchContext(classContext);
+
+      try {
+         rollbackForTestClass();
+         clearFieldTypeRedefinitions();
+      }
+      finally {
+         TestRun.switchContext(previousContext);
       }
    }
 
@@ -109,25 +227,34 @@ public class TestRunnerDecorator
       TypeRedefinitions fieldTypeRedefinitions = TestRun.getFieldTypeRedefinitions();
 
       if (fieldTypeRedefinitions != null) {
-         fieldTypeRedefinitions.cleanUp();
+         Statistics.mockedTypesRedefined(
+            fieldTypeRedefinitions.getClassGenerationTime(), fieldTypeRedefinitions.getClassRedefinitionTime());
+
+         if (TestRun.getSharedClassContext() == null) {
+            fieldTypeRedefinitions.cleanUp();
+         }
+         else {
+            TestRun.getExecutingTest().getCascadingTypes().clear();
+         }
+
          TestRun.setFieldTypeRedefinitions(null);
       }
    }
 
    protected static void prepareForNextTest() {
-      if (savePointForTest == null) {
-         savePointForTest = new SavePoint();
+      if (TestRun.getSavePointForTest() == null) {
+         TestRun.setSavePointForTest(new SavePoint());
       }
 
       TestRun.prepareForNextTest();
    }
 
    protected static void discardTestLevelMockedTypes() {
-      SavePoint savePoint = savePointForTest;
+      SavePoint savePoint = TestRun.getSavePointForTest();
 
       if (savePoint != null) {
          savePoint.rollback();
-         savePointForTest = null;
+         TestRun.setSavePointForTest(null);
       }
    }
 
@@ -138,7 +265,7 @@ public class TestRunnerDecorator
       if (fieldTypeRedefinitions == null) {
          ParameterNameExtractor.extractNames(testClass);
 
-         fieldTypeRedefinitions = new FieldTypeRedefinitions(testClass);
+         fieldTypeRedefinitions = createFieldTypeRedefinitions(testClass);
          TestRun.setFieldTypeRedefinitions(fieldTypeRedefinitions);
 
          TestedClassInstantiations testedClassInstantiations = new TestedClassInstantiations();
@@ -156,6 +283,37 @@ public class TestRunnerDecorator
       }
    }
 
+   @Nonnull
+   private static FieldTypeRedefinitions createFieldTypeRedefinitions(@Nonnull Class<?> testClass) {
+      TestContext classContext = TestRun.getSharedClassContext();
+
+      if (classContext == null) {
+         return new FieldTypeRedefinitions(testClass);
+      }
+
+      FieldTypeRedefinitions fieldTypeRedefinitions;
+
+      //noinspection SynchronizationOnLocalVariableOrMethodParameter
+      synchronized (classContext) {
+         TestContext previousContext = TestRun.switchContext(classContext);
+
+         try {
+            fieldTypeRedefinitions = TestRun.getFieldTypeRedefinitions();
+
+            if (fieldTypeRedefinitions == null) {
+               fieldTypeRedefinitions = new FieldTypeRedefinitions(testClass);
+               TestRun.setFieldTypeRedefinitions(fieldTypeRedefinitions);
+            }
+         }
+         finally {
+            TestRun.switchContext(previousContext);
+         }
+      }
+
+      fieldTypeRedefinitions.registerCascadingTypes();
+      return fieldTypeRedefinitions;
+   }
+
    protected static void createInstancesForTestedFieldsFromBaseClasses(@Nonnull Object testClassInstance) {
       TestedClassInstantiations testedClasses = TestRun.getTestedClassInstantiations();
 
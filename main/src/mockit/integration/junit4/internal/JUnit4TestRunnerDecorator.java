@@ -37,7 +37,7 @@ final class JUnit4TestRunnerDecorator extends TestRunnerDecorator
 
       // A @Before/@After method:
       if (it.getAnnotation(Test.class) == null) {
-         if (shouldPrepareForNextTest && it.getAnnotation(Before.class) != null) {
+         if (TestRun.shouldPrepareForNextTest() && it.getAnnotation(Before.class) != null) {
             prepareToExecuteSetupMethod(target);
          }
 
@@ -55,16 +55,18 @@ final class JUnit4TestRunnerDecorator extends TestRunnerDecorator
          }
          finally {
             if (it.getAnnotation(After.class) != null) {
-               shouldPrepareForNextTest = true;
+               TestRun.setShouldPrepareForNextTest(true);
             }
          }
       }
 
-      if (shouldPrepareForNextTest) {
+      skipTestIfNotAffectedByChanges(target.getClass(), it.getMethod());
+
+      if (TestRun.shouldPrepareForNextTest()) {
          prepareForNextTest();
       }
 
-      shouldPrepareForNextTest = true;
+      TestRun.setShouldPrepareForNextTest(true);
 
       try {
          executeTestMethod(invocation, target, params);
@@ -79,9 +81,21 @@ final class JUnit4TestRunnerDecorator extends TestRunnerDecorator
       }
    }
 
+   private static void skipTestIfNotAffectedByChanges(@Nonnull Class<?> testClass, @Nullable Method testMethod) {
+      if (isNotAffectedByChanges(testClass, testMethod)) {
+         throw new org.junit.internal.AssumptionViolatedException("Not affected by changes");
+      }
+   }
+
    @Nullable
    private static Object executeClassMethod(@Nonnull FakeInvocation inv, @Nonnull Object[] params) throws Throwable {
       FrameworkMethod method = inv.getInvokedInstance();
+
+      if (method.getAnnotation(BeforeClass.class) != null) {
+         TestRun.registerTestThread();
+         skipTestIfNotAffectedByChanges(method.getMethod().getDeclaringClass(), null);
+      }
+
       handleMockingOutsideTests(method);
 
       TestRun.clearCurrentTestInstance();
@@ -90,10 +104,10 @@ final class JUnit4TestRunnerDecorator extends TestRunnerDecorator
       return method.invokeExplosively(null, params);
    }
 
-   private void prepareToExecuteSetupMethod(@Nonnull Object target) {
+   private static void prepareToExecuteSetupMethod(@Nonnull Object target) {
       discardTestLevelMockedTypes();
       prepareForNextTest();
-      shouldPrepareForNextTest = false;
+      TestRun.setShouldPrepareForNextTest(false);
       createInstancesForTestedFields(target, true);
    }
 
@@ -41,6 +41,8 @@ public final class RunNotifierDecorator extends MockUp<RunNotifier>
 
    @Mock
    public static void fireTestStarted(Invocation invocation, Description description) {
+      TestRun.registerTestThread();
+
       Class<?> currentTestClass = TestRun.getCurrentTestClass();
 
       if (currentTestClass != null) {
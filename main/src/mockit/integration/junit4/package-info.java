@@ -31,5 +31,13 @@
  *       test class have executed.
  *    </li>
  * </ol>
+ * Test classes can also be executed in parallel, as with JUnit's <tt>ParallelComputer</tt> or the "<tt>parallel=classes</tt>" option
+ * of Maven Surefire.
+ * Each thread executing tests keeps its own state for the current test class and test, so that mocked types and fakes get discarded
+ * independently; threads created by a test share its state, but not those which already existed (such as the threads in a pool
+ * created outside the test).
+ * Since a mocked or faked class is modified for the whole JVM, tests which mock or fake the same class can't run at the same time,
+ * and neither can a test which uses the real implementation of a class mocked by another running test; such conflicts cause an
+ * <tt>IllegalStateException</tt> to be thrown from the test which is mocking or using the class.
  */
 package mockit.integration.junit4;
@@ -21,7 +21,7 @@ final class JMockitExtension extends TestRunnerDecorator implements
    BeforeAllCallback, AfterAllCallback,
    TestInstancePostProcessor, BeforeEachCallback, AfterEachCallback,
    BeforeTestExecutionCallback, AfterTestExecutionCallback,
-   ParameterResolver, TestExecutionExceptionHandler
+   ParameterResolver, TestExecutionExceptionHandler, ExecutionCondition
 {
    @Nullable private SavePoint savePointForTestClass;
    @Nullable private SavePoint savePointForTest;
@@ -29,6 +29,17 @@ final class JMockitExtension extends TestRunnerDecorator implements
    @Nullable private Throwable thrownByTest;
    private Object[] mockParameters;
 
+   @Nonnull @Override
+   public ConditionEvaluationResult evaluateExecutionCondition(@Nonnull ExtensionContext context) {
+      Class<?> testClass = context.getTestClass().orElse(null);
+
+      if (testClass != null && isNotAffectedByChanges(testClass, context.getTestMethod().orElse(null))) {
+         return ConditionEvaluationResult.disabled("Not affected by changes");
+      }
+
+      return ConditionEvaluationResult.enabled(null);
+   }
+
    @Override
    public void beforeAll(@Nonnull ExtensionContext context) {
       if (isRegularTestClass(context)) {
@@ -101,6 +112,7 @@ final class JMockitExtension extends TestRunnerDecorator implements
       }
 
       TestRun.setRunningIndividualTest(testInstance);
+      exportCurrentTestMethodIfApplicable(testMethod);
    }
 
    @Override
@@ -130,6 +142,8 @@ final class JMockitExtension extends TestRunnerDecorator implements
 
    @Override
    public void afterTestExecution(@Nonnull ExtensionContext context) {
+      exportCurrentTestMethodIfApplicable(null);
+
       if (savePointForTestMethod != null) {
          TestRun.enterNoMockingZone();
 
@@ -5,6 +5,8 @@
 package mockit.integration.testng;
 
 import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
 import javax.annotation.*;
 
 import org.testng.*;
@@ -14,7 +16,6 @@ import org.testng.internal.Invoker;
 import org.testng.internal.Parameters;
 
 import mockit.*;
-import mockit.coverage.testRedundancy.*;
 import mockit.integration.internal.*;
 import mockit.internal.faking.*;
 import mockit.internal.startup.*;
@@ -23,13 +24,45 @@ import static mockit.internal.util.StackTrace.*;
 import static mockit.internal.util.Utilities.*;
 
 /**
- * Provides callbacks to be called by the TestNG 6.2+ test runner for each test execution.
+ * Provides callbacks to be called by the TestNG 6.10+ test runner for each test execution.
  * JMockit will then assert any expectations recorded in {@link Expectations} subclasses during the test.
  * <p/>
+ * The class-level state shared by the threads executing tests of a test class is discarded when TestNG reports the end of the class
+ * through {@link IClassListener#onAfterClass}, which requires TestNG 6.10 or newer, once the class-level tear down methods which TestNG
+ * executes right after that notification have been invoked.
+ * <p/>
  * This class is not supposed to be accessed from user code; it will be automatically loaded at startup.
  */
-public final class TestNGRunnerDecorator extends TestRunnerDecorator implements IInvokedMethodListener, IExecutionListener
+public final class TestNGRunnerDecorator extends TestRunnerDecorator
+   implements IInvokedMethodListener, ITestListener, IClassListener, IExecutionListener
 {
+   /**
+    * Name of the attribute holding the contexts of the threads which executed methods of a given <tt>&lt;test></tt>.
+    */
+   private static final String TEST_CONTEXTS = "jmockit.testContexts";
+
+   /**
+    * A test class whose end was reported to the current thread, with the number of its class-level tear down methods still to be invoked.
+    */
+   private static final class EndingTestClass {
+      @Nonnull final Class<?> testClass;
+      @Nonnegative int tearDownMethodsPending;
+
+      EndingTestClass(@Nonnull Class<?> testClass, @Nonnegative int tearDownMethodsPending) {
+         this.testClass = testClass;
+         this.tearDownMethodsPending = tearDownMethodsPending;
+      }
+   }
+
+   @Nonnull private static final ThreadLocal<EndingTestClass> TEST_CLASS_ENDING = new ThreadLocal<EndingTestClass>();
+
+   /**
+    * The ended test classes whose state is still to be released, since their tear down methods may not all get invoked (when skipped
+    * after a failure, for example), in which case the release happens when the thread moves on or when the <tt>&lt;test></tt> finishes.
+    */
+   @Nonnull private static final Set<Class<?>> TEST_CLASSES_ENDING =
+      Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+
    public static final class FakeParameters extends MockUp<Parameters> {
       @Mock
       public static void checkParameterTypes(
@@ -116,9 +149,11 @@ public final class TestNGRunnerDecorator extends TestRunnerDecorator implements
    }
 
    @Nonnull private final ThreadLocal<SavePoint> savePoint;
+   @Nonnull private final ThreadLocal<TestContext> contextOutsideClassSetup;
 
    public TestNGRunnerDecorator() {
       savePoint = new ThreadLocal<SavePoint>();
+      contextOutsideClassSetup = new ThreadLocal<TestContext>();
    }
 
    @Override
@@ -127,6 +162,9 @@ public final class TestNGRunnerDecorator extends TestRunnerDecorator implements
       Class<?> testClass = testResult.getTestClass().getRealClass();
 
       TestRun.clearNoMockingZone();
+      releaseStateOfEndingTestClassUnlessTearingItDown(testNGMethod, testClass);
+      TestRun.registerTestThreadSharingTestClassState();
+      registerContextForTest(testResult.getTestContext());
 
       if (!invokedMethod.isTestMethod()) {
          beforeConfigurationMethod(testNGMethod, testClass);
@@ -134,6 +172,7 @@ public final class TestNGRunnerDecorator extends TestRunnerDecorator implements
       }
 
       Method method = testNGMethod.getConstructorOrMethod().getMethod();
+      skipTestIfNotAffectedByChanges(testClass, method);
       exportCurrentTestMethodIfApplicable(method);
 
       Object testInstance = testResult.getInstance();
@@ -153,9 +192,9 @@ public final class TestNGRunnerDecorator extends TestRunnerDecorator implements
          SavePoint testMethodSavePoint = new SavePoint();
          savePoint.set(testMethodSavePoint);
 
-         if (shouldPrepareForNextTest) {
+         if (TestRun.shouldPrepareForNextTest()) {
             TestRun.prepareForNextTest();
-            shouldPrepareForNextTest = false;
+            TestRun.setShouldPrepareForNextTest(false);
             clearTestedObjectsCreatedDuringSetup();
          }
 
@@ -177,11 +216,28 @@ public final class TestNGRunnerDecorator extends TestRunnerDecorator implements
       }
    }
 
-   private static void exportCurrentTestMethodIfApplicable(@Nullable Method testMethod) {
-      TestCoverage testCoverage = TestCoverage.INSTANCE;
+   private static void registerContextForTest(@Nullable ITestContext testNGContext) {
+      if (testNGContext == null) {
+         return;
+      }
 
-      if (testCoverage != null) {
-         testCoverage.setCurrentTestMethod(testMethod);
+      //noinspection SynchronizationOnLocalVariableOrMethodParameter
+      synchronized (testNGContext) {
+         @SuppressWarnings("unchecked")
+         Set<TestContext> contexts = (Set<TestContext>) testNGContext.getAttribute(TEST_CONTEXTS);
+
+         if (contexts == null) {
+            contexts = Collections.newSetFromMap(new IdentityHashMap<TestContext, Boolean>());
+            testNGContext.setAttribute(TEST_CONTEXTS, contexts);
+         }
+
+         contexts.add(TestRun.context());
+      }
+   }
+
+   private static void skipTestIfNotAffectedByChanges(@Nonnull Class<?> testClass, @Nonnull Method testMethod) {
+      if (isNotAffectedByChanges(testClass, testMethod)) {
+         throw new SkipException("Not affected by changes");
       }
    }
 
@@ -192,7 +248,7 @@ public final class TestNGRunnerDecorator extends TestRunnerDecorator implements
          updateTestClassState(null, testClass);
 
          if (method.isBeforeMethodConfiguration()) {
-            if (shouldPrepareForNextTest) {
+            if (TestRun.shouldPrepareForNextTest()) {
                discardTestLevelMockedTypes();
                clearTestedObjectsCreatedDuringSetup();
             }
@@ -200,14 +256,17 @@ public final class TestNGRunnerDecorator extends TestRunnerDecorator implements
             Object testInstance = method.getInstance();
             updateTestClassState(testInstance, testClass);
 
-            if (shouldPrepareForNextTest) {
+            if (TestRun.shouldPrepareForNextTest()) {
                prepareForNextTest();
-               shouldPrepareForNextTest = false;
+               TestRun.setShouldPrepareForNextTest(false);
                createInstancesForTestedFields(testInstance, true);
             }
 
             TestRun.setRunningIndividualTest(testInstance);
          }
+         else if (method.isBeforeClassConfiguration()) {
+            switchToSharedClassContextIfAny();
+         }
          else if (method.isAfterClassConfiguration()) {
             TestRun.getExecutingTest().setRecordAndReplay(null);
             cleanUpMocksFromPreviousTest();
@@ -225,10 +284,33 @@ public final class TestNGRunnerDecorator extends TestRunnerDecorator implements
       }
    }
 
+   /**
+    * Makes the current thread execute a class-level setup method in the context shared by the threads executing tests of the class, so
+    * that mocks and fakes applied by it remain in effect for all tests of the class, and are discarded only after the last one.
+    */
+   private void switchToSharedClassContextIfAny() {
+      TestContext classContext = TestRun.getSharedClassContext();
+
+      if (classContext != null) {
+         contextOutsideClassSetup.set(TestRun.switchContext(classContext));
+      }
+   }
+
+   private void switchBackFromSharedClassContextIfAny() {
+      TestContext previousContext = contextOutsideClassSetup.get();
+
+      if (previousContext != null) {
+         TestRun.switchContext(previousContext);
+         contextOutsideClassSetup.remove();
+      }
+   }
+
    @Override
    public void afterInvocation(@Nonnull IInvokedMethod invokedMethod, @Nonnull ITestResult testResult) {
       if (!invokedMethod.isTestMethod()) {
+         switchBackFromSharedClassContextIfAny();
          afterConfigurationMethod(testResult);
+         releaseStateOfEndingTestClassAfterLastTearDownMethod(testResult);
          return;
       }
 
@@ -241,7 +323,7 @@ public final class TestNGRunnerDecorator extends TestRunnerDecorator implements
       }
 
       TestRun.enterNoMockingZone();
-      shouldPrepareForNextTest = true;
+      TestRun.setShouldPrepareForNextTest(true);
       savePoint.set(null);
 
       Throwable thrownByTest = testResult.getThrowable();
@@ -371,6 +453,100 @@ public final class TestNGRunnerDecorator extends TestRunnerDecorator implements
       return false;
    }
 
+   @Override public void onTestStart(ITestResult result) {}
+   @Override public void onTestSuccess(ITestResult result) {}
+   @Override public void onTestFailure(ITestResult result) {}
+   @Override public void onTestSkipped(ITestResult result) {}
+   @Override public void onTestFailedButWithinSuccessPercentage(ITestResult result) {}
+   @Override public void onStart(ITestContext testNGContext) {}
+
+   /**
+    * When tests run in parallel, the threads which executed the finished <tt>&lt;test></tt> may never execute another test class, so
+    * the mocks and fakes for their last test class are cleaned up here, instead of when switching to the next test class.
+    */
+   @Override
+   public void onFinish(@Nonnull ITestContext testNGContext) {
+      @SuppressWarnings("unchecked")
+      Set<TestContext> contexts = (Set<TestContext>) testNGContext.removeAttribute(TEST_CONTEXTS);
+
+      releaseStateOfEndedTestClasses(testNGContext);
+
+      if (contexts != null && TestRun.isRunningTestsInParallel()) {
+         TestRun.enterNoMockingZone();
+
+         try {
+            for (TestContext context : contexts) {
+               cleanUpMocksFromTestClassInContext(context);
+            }
+         }
+         finally {
+            TestRun.exitNoMockingZone();
+         }
+      }
+   }
+
+   @Override public void onBeforeClass(ITestClass testClass) {}
+
+   /**
+    * TestNG notifies the end of a test class <em>before</em> invoking its <tt>@AfterClass</tt> methods, in the same thread, so the
+    * release of the class-level state is deferred until they were invoked, if there are any.
+    */
+   @Override
+   public void onAfterClass(@Nonnull ITestClass testClass) {
+      Class<?> realClass = testClass.getRealClass();
+      TEST_CLASSES_ENDING.add(realClass);
+      int tearDownMethods = testClass.getAfterClassMethods().length;
+
+      if (tearDownMethods == 0) {
+         releaseStateOfTestClass(realClass);
+      }
+      else {
+         TEST_CLASS_ENDING.set(new EndingTestClass(realClass, tearDownMethods));
+      }
+   }
+
+   private static void releaseStateOfEndingTestClassAfterLastTearDownMethod(@Nonnull ITestResult testResult) {
+      EndingTestClass ending = TEST_CLASS_ENDING.get();
+      ITestNGMethod method = testResult.getMethod();
+
+      if (ending != null && method.isAfterClassConfiguration() && method.getRealClass() == ending.testClass) {
+         ending.tearDownMethodsPending--;
+
+         if (ending.tearDownMethodsPending <= 0) {
+            TEST_CLASS_ENDING.remove();
+            releaseStateOfTestClass(ending.testClass);
+         }
+      }
+   }
+
+   private static void releaseStateOfEndingTestClassUnlessTearingItDown(@Nonnull ITestNGMethod method, @Nonnull Class<?> testClass) {
+      EndingTestClass ending = TEST_CLASS_ENDING.get();
+
+      if (ending != null && (!method.isAfterClassConfiguration() || testClass != ending.testClass)) {
+         TEST_CLASS_ENDING.remove();
+         releaseStateOfTestClass(ending.testClass);
+      }
+   }
+
+   private static void releaseStateOfEndedTestClasses(@Nonnull ITestContext testNGContext) {
+      for (ITestNGMethod method : testNGContext.getAllTestMethods()) {
+         releaseStateOfTestClass(method.getRealClass());
+      }
+   }
+
+   private static void releaseStateOfTestClass(@Nonnull Class<?> testClass) {
+      if (TEST_CLASSES_ENDING.remove(testClass)) {
+         TestRun.enterNoMockingZone();
+
+         try {
+            releaseSharedClassContext(testClass);
+         }
+         finally {
+            TestRun.exitNoMockingZone();
+         }
+      }
+   }
+
    @Override
    public void onExecutionStart() {
       if (Startup.initializeIfPossible()) {
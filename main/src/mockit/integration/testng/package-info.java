@@ -4,7 +4,8 @@
  */
 
 /**
- * Provides integration with <em>TestNG</em> test runners, for version 6.2 or newer.
+ * Provides integration with <em>TestNG</em> test runners, for version 6.10 or newer, since the end of each test class is only reported to
+ * listeners (through <tt>IClassListener</tt>) in recent versions.
  * This integration provides the following benefits to test code:
  * <ol>
  * <li>
@@ -21,5 +22,12 @@
  * passed by the test runner when the test method is executed.
  * </li>
  * </ol>
+ * Tests can also be executed in parallel, with any of the "<tt>parallel</tt>" modes of TestNG, including parallel data providers.
+ * Each thread executing test methods keeps its own state for the current test, so that expectations, mock parameters, and tested
+ * objects don't leak between concurrent invocations.
+ * The class-level state of a test class (its mock fields, and the mocks and fakes applied from <tt>@BeforeClass</tt> methods) is
+ * shared by all threads executing its test methods, and discarded only when TestNG reports that the test class is finished.
+ * Test methods may re-mock or fake classes already mocked for their test class, but other tests which mock or fake the same
+ * class, or which use its real implementation, can't run at the same time; such conflicts cause an <tt>IllegalStateException</tt>.
  */
 package mockit.integration.testng;
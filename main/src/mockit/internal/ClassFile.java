@@ -5,8 +5,11 @@
 package mockit.internal;
 
 import java.io.*;
+import java.lang.ref.*;
+import java.net.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.jar.*;
 import javax.annotation.*;
 
 import mockit.asm.*;
@@ -14,26 +17,91 @@ import mockit.internal.state.*;
 
 public final class ClassFile
 {
-   private static final Map<String, ClassReader> CLASS_FILES = new ConcurrentHashMap<String, ClassReader>();
+   private static final int MAX_CACHED_READERS = 1000;
+   private static final ReaderCache CLASS_FILES = new ReaderCache(MAX_CACHED_READERS);
 
    private ClassFile() {}
 
-   public static final class NotFoundException extends RuntimeException {
-      private NotFoundException(@Nonnull String classNameOrDesc) {
-         super("Unable to find class file for " + classNameOrDesc.replace('/', '.'));
+   /**
+    * A bounded cache of class readers, holding each reader through a soft reference so that it can be discarded when heap memory runs
+    * short.
+    * <p/>
+    * When the cache gets full, cleared references are discarded first, followed by arbitrary entries other than the one just added,
+    * rather than the least recently used ones.
+    * This is deliberate: keeping entries in access order would need a lock taken by every lookup (since each one reorders the entries),
+    * making threads which modify classes concurrently wait on each other, while evicting a reader still in use only costs reading its
+    * classfile again.
+    * Hits and misses are counted in {@link Statistics}.
+    */
+   static final class ReaderCache {
+      @Nonnull private final ConcurrentMap<String, SoftReference<ClassReader>> readers;
+      @Nonnegative private final int maxReaders;
+
+      ReaderCache(@Nonnegative int maxReaders) {
+         readers = new ConcurrentHashMap<String, SoftReference<ClassReader>>(64);
+         this.maxReaders = maxReaders;
+      }
+
+      @Nullable
+      ClassReader getReader(@Nonnull String classDesc) {
+         SoftReference<ClassReader> readerRef = readers.get(classDesc);
+         ClassReader reader = readerRef == null ? null : readerRef.get();
+
+         if (reader == null) {
+            Statistics.increment(Statistics.Counter.ClassReaderCacheMisses);
+
+            if (readerRef != null) {
+               readers.remove(classDesc, readerRef);
+            }
+         }
+         else {
+            Statistics.increment(Statistics.Counter.ClassReaderCacheHits);
+         }
+
+         return reader;
+      }
+
+      void putReader(@Nonnull String classDesc, @Nonnull ClassReader reader) {
+         readers.put(classDesc, new SoftReference<ClassReader>(reader));
+
+         if (readers.size() > maxReaders) {
+            evictReaders(classDesc);
+         }
       }
+
+      private void evictReaders(@Nonnull String classDescToKeep) {
+         Iterator<SoftReference<ClassReader>> itr = readers.values().iterator();
+
+         while (itr.hasNext()) {
+            if (itr.next().get() == null) {
+               itr.remove();
+            }
+         }
+
+         // Evicts down to three quarters of the maximum, so that eviction doesn't happen again on every subsequent addition.
+         int excess = readers.size() - maxReaders * 3 / 4;
+
+         for (Iterator<String> keys = readers.keySet().iterator(); excess > 0 && keys.hasNext(); ) {
+            if (!classDescToKeep.equals(keys.next())) {
+               keys.remove();
+               excess--;
+            }
+         }
+      }
+
+      @Nonnegative int size() { return readers.size(); }
    }
 
-   private static void verifyClassFileFound(@Nullable InputStream classFile, @Nonnull String classNameOrDesc) {
-      if (classFile == null) {
-         throw new NotFoundException(classNameOrDesc);
+   public static final class NotFoundException extends RuntimeException {
+      private NotFoundException(@Nonnull String classNameOrDesc) {
+         super("Unable to find class file for " + classNameOrDesc.replace('/', '.'));
       }
    }
 
    @Nullable
    public static ClassReader createClassReader(@Nonnull ClassLoader cl, @Nonnull String internalClassName) {
       String classFileName = internalClassName + ".class";
-      InputStream classFile = cl.getResourceAsStream(classFileName);
+      URL classFile = cl.getResource(classFileName);
 
       if (classFile != null) { // ignore the class if the ".class" file wasn't located
          try {
@@ -49,41 +117,152 @@ public final class ClassFile
    @Nonnull
    private static byte[] readClass(@Nonnull InputStream is) throws IOException {
       try {
-         byte[] bytecode = new byte[is.available()];
-         int len = 0;
+         return readClass(is, is.available());
+      }
+      finally {
+         is.close();
+      }
+   }
+
+   /**
+    * Reads the class bytes from the given stream, which is expected to contain exactly <tt>expectedLength</tt> bytes; if it contains
+    * more, the buffer grows as needed.
+    */
+   @Nonnull
+   private static byte[] readClass(@Nonnull InputStream is, @Nonnegative int expectedLength) throws IOException {
+      byte[] bytecode = new byte[expectedLength > 0 ? expectedLength : 4096];
+      int len = 0;
+
+      while (true) {
+         int n = is.read(bytecode, len, bytecode.length - len);
+
+         if (n == -1) {
+            if (len < bytecode.length) {
+               byte[] truncatedCopy = new byte[len];
+               System.arraycopy(bytecode, 0, truncatedCopy, 0, len);
+               bytecode = truncatedCopy;
+            }
 
-         while (true) {
-            int n = is.read(bytecode, len, bytecode.length - len);
+            return bytecode;
+         }
 
-            if (n == -1) {
-               if (len < bytecode.length) {
-                  byte[] truncatedCopy = new byte[len];
-                  System.arraycopy(bytecode, 0, truncatedCopy, 0, len);
-                  bytecode = truncatedCopy;
-               }
+         len += n;
 
+         if (len == bytecode.length) {
+            int last = is.read();
+
+            if (last < 0) {
                return bytecode;
             }
 
-            len += n;
+            byte[] lengthenedCopy = new byte[bytecode.length * 2];
+            System.arraycopy(bytecode, 0, lengthenedCopy, 0, len);
+            //noinspection NumericCastThatLosesPrecision
+            lengthenedCopy[len++] = (byte) last;
+            bytecode = lengthenedCopy;
+         }
+      }
+   }
 
-            if (len == bytecode.length) {
-               int last = is.read();
+   /**
+    * Reads the class bytes from the given classpath location.
+    * For a class in an exploded directory or inside a jar file, the exact size of the classfile is known in advance, so the bytes are
+    * read in a single step into an array of that size.
+    */
+   @Nonnull
+   private static byte[] readClass(@Nonnull URL classFile) throws IOException {
+      String protocol = classFile.getProtocol();
 
-               if (last < 0) {
-                  return bytecode;
-               }
+      if ("file".equals(protocol)) {
+         byte[] bytecode = readClassFromDirectory(classFile);
 
-               byte[] lengthenedCopy = new byte[bytecode.length + 1000];
-               System.arraycopy(bytecode, 0, lengthenedCopy, 0, len);
-               //noinspection NumericCastThatLosesPrecision
-               lengthenedCopy[len++] = (byte) last;
-               bytecode = lengthenedCopy;
-            }
+         if (bytecode != null) {
+            return bytecode;
+         }
+      }
+      else if ("jar".equals(protocol)) {
+         URLConnection connection = classFile.openConnection();
+
+         if (connection instanceof JarURLConnection) {
+            return readClassFromJarFile((JarURLConnection) connection);
+         }
+      }
+
+      return readClass(classFile.openStream());
+   }
+
+   @Nullable
+   private static byte[] readClassFromDirectory(@Nonnull URL classFile) throws IOException {
+      File file;
+
+      try {
+         file = new File(classFile.toURI());
+      }
+      catch (URISyntaxException ignore) { return null; }
+      catch (IllegalArgumentException ignore) { return null; }
+
+      return readClass(file);
+   }
+
+   /**
+    * Reads the bytes of a "<tt>.class</tt>" file in the file system, in a single step into an array of the exact file size.
+    *
+    * @return the bytes read, or <tt>null</tt> if the file is missing, empty, or too large
+    */
+   @Nullable
+   public static byte[] readClass(@Nonnull File file) throws IOException {
+      long length = file.length();
+
+      if (length <= 0L || length > Integer.MAX_VALUE) {
+         return null;
+      }
+
+      DataInputStream input = new DataInputStream(new FileInputStream(file));
+
+      try {
+         //noinspection NumericCastThatLosesPrecision
+         byte[] bytecode = new byte[(int) length];
+         input.readFully(bytecode);
+         return bytecode;
+      }
+      finally {
+         input.close();
+      }
+   }
+
+   /**
+    * Reads the class bytes from a jar file entry.
+    * When URL connections use caches (the default), the jar file is shared through the cache and must be left open; otherwise, a new
+    * jar file gets opened for each connection, and is closed here.
+    */
+   @Nonnull
+   static byte[] readClassFromJarFile(@Nonnull JarURLConnection connection) throws IOException {
+      JarFile jarFile = connection.getJarFile();
+
+      try {
+         return readClass(jarFile, connection.getJarEntry());
+      }
+      finally {
+         if (!connection.getUseCaches()) {
+            jarFile.close();
          }
       }
+   }
+
+   /**
+    * Reads the bytes of a classfile in an open jar file, in a single step when the size of the entry is known.
+    */
+   @Nonnull
+   public static byte[] readClass(@Nonnull JarFile jarFile, @Nonnull JarEntry entry) throws IOException {
+      long size = entry.getSize();
+      InputStream input = jarFile.getInputStream(entry);
+
+      try {
+         //noinspection NumericCastThatLosesPrecision
+         return readClass(input, size > 0L && size <= Integer.MAX_VALUE ? (int) size : 0);
+      }
       finally {
-         is.close();
+         input.close();
       }
    }
 
@@ -96,7 +275,7 @@ public final class ClassFile
       }
 
       String classDesc = aClass.getName().replace('.', '/');
-      ClassReader reader = CLASS_FILES.get(classDesc);
+      ClassReader reader = CLASS_FILES.getReader(classDesc);
 
       if (reader == null) {
          reader = readFromFileSavingInCache(classDesc);
@@ -109,7 +288,7 @@ public final class ClassFile
    private static ClassReader readFromFileSavingInCache(@Nonnull String classDesc) {
       byte[] classfileBytes = readBytesFromClassFile(classDesc);
       ClassReader cr = new ClassReader(classfileBytes);
-      CLASS_FILES.put(classDesc, cr);
+      CLASS_FILES.putReader(classDesc, cr);
       return cr;
    }
 
@@ -173,7 +352,7 @@ public final class ClassFile
          }
       }
 
-      InputStream classFile = readClassFromClasspath(classDesc);
+      URL classFile = findClassInClasspath(classDesc);
 
       try {
          byte[] bytecode = readClass(classFile);
@@ -190,34 +369,66 @@ public final class ClassFile
       return readBytesFromClassFile(classDesc);
    }
 
-   @Nonnull @SuppressWarnings("IOResourceOpenedButNotSafelyClosed")
-   private static InputStream readClassFromClasspath(@Nonnull String classDesc) {
+   /**
+    * Reads the bytes of the "<tt>.class</tt>" file for the given class from the classpath, without loading the class or triggering
+    * the retransformation of an already loaded one.
+    *
+    * @return the bytes read, or <tt>null</tt> if the class file could not be found or read
+    */
+   @Nullable
+   public static byte[] readBytesFromClassFileIfFound(@Nonnull String classDesc) {
+      try {
+         URL classFile = findClassInClasspath(classDesc);
+         return readClass(classFile);
+      }
+      catch (NotFoundException ignore) { return null; }
+      catch (IOException ignore) { return null; }
+   }
+
+   /**
+    * Same as {@link #readBytesFromClassFileIfFound(String)}, but reading the "<tt>.class</tt>" file as a resource of the given loader.
+    */
+   @Nullable
+   public static byte[] readBytesFromClassFileIfFound(@Nonnull ClassLoader loader, @Nonnull String classDesc) {
+      URL classFile = loader.getResource(classDesc + ".class");
+
+      if (classFile == null) {
+         return null;
+      }
+
+      try { return readClass(classFile); } catch (IOException ignore) { return null; }
+   }
+
+   @Nonnull
+   private static URL findClassInClasspath(@Nonnull String classDesc) {
       String classFileName = classDesc + ".class";
       ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
-      InputStream inputStream = null;
+      URL classFile = null;
 
       if (contextClassLoader != null) {
-         inputStream = contextClassLoader.getResourceAsStream(classFileName);
+         classFile = contextClassLoader.getResource(classFileName);
       }
 
-      if (inputStream == null) {
+      if (classFile == null) {
          ClassLoader thisClassLoader = ClassFile.class.getClassLoader();
 
          if (thisClassLoader != contextClassLoader) {
-            inputStream = thisClassLoader.getResourceAsStream(classFileName);
+            classFile = thisClassLoader.getResource(classFileName);
 
-            if (inputStream == null) {
+            if (classFile == null) {
                Class<?> testClass = TestRun.getCurrentTestClass();
 
                if (testClass != null) {
-                  inputStream = testClass.getClassLoader().getResourceAsStream(classFileName);
+                  classFile = testClass.getClassLoader().getResource(classFileName);
                }
             }
          }
       }
 
-      verifyClassFileFound(inputStream, classDesc);
-      //noinspection ConstantConditions
-      return inputStream;
+      if (classFile == null) {
+         throw new NotFoundException(classDesc);
+      }
+
+      return classFile;
    }
 }
@@ -34,11 +34,11 @@ final class SuperConstructorCollector
       byte[] classfile = ClassFile.getClassFile(superClassDesc);
       ClassMetadataReader cmr = new ClassMetadataReader(classfile);
 
-      for (MethodInfo methodOrConstructor : cmr.getMethods()) {
-         int access = methodOrConstructor.accessFlags;
+      for (MethodInfo constructor : cmr.getMethods("<init>")) {
+         int access = constructor.accessFlags;
 
-         if (access != PRIVATE && (access != 0 || samePackage) && methodOrConstructor.isConstructor()) {
-            constructorDesc = methodOrConstructor.desc;
+         if (access != PRIVATE && (access != 0 || samePackage)) {
+            constructorDesc = constructor.desc;
             break;
          }
       }
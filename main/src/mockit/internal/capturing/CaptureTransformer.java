@@ -25,6 +25,7 @@ public final class CaptureTransformer<M> implements ClassFileTransformer
    @Nonnull private final Map<ClassIdentification, byte[]> transformedClasses;
    @Nonnull private final Map<String, Boolean> superTypesSearched;
    @Nullable private final M typeMetadata;
+   @Nonnull private final TestContext owner;
    private boolean inactive;
 
    CaptureTransformer(
@@ -38,8 +39,11 @@ public final class CaptureTransformer<M> implements ClassFileTransformer
          new HashMap<ClassIdentification, byte[]>(2) : Collections.<ClassIdentification, byte[]>emptyMap();
       superTypesSearched = new HashMap<String, Boolean>();
       this.typeMetadata = typeMetadata;
+      owner = TestRun.context();
    }
 
+   @Nonnull public TestContext getOwner() { return owner; }
+
    public void deactivate() {
       inactive = true;
 
@@ -64,8 +68,10 @@ public final class CaptureTransformer<M> implements ClassFileTransformer
          return null;
       }
 
+      long startTime = Statistics.ENABLED ? System.nanoTime() : 0L;
       SuperTypeCollector superTypeCollector = new SuperTypeCollector(loader);
       ClassMetadataReader cmr = new ClassMetadataReader(classfileBuffer);
+      byte[] modifiedClassfile = null;
 
       try {
          superTypeCollector.visit(cmr);
@@ -74,11 +80,12 @@ public final class CaptureTransformer<M> implements ClassFileTransformer
          if (superTypeCollector.classExtendsCapturedType) {
             String className = classDesc.replace('/', '.');
             ClassReader cr = new ClassReader(classfileBuffer);
-            return modifyAndRegisterClass(loader, className, cr);
+            modifiedClassfile = modifyAndRegisterClass(loader, className, cr);
          }
       }
 
-      return null;
+      Statistics.transformerCalled(Statistics.Counter.CaptureTransformerCalls, startTime);
+      return modifiedClassfile;
    }
 
    private final class SuperTypeCollector {
@@ -170,13 +177,13 @@ public final class CaptureTransformer<M> implements ClassFileTransformer
       byte[] originalBytecode = cr.getBytecode();
 
       if (transformedClasses == Collections.<ClassIdentification, byte[]>emptyMap()) {
-         TestRun.mockFixture().addTransformedClass(classId, originalBytecode);
+         TestRun.mockFixture().addTransformedClass(owner, classId, originalBytecode);
       }
       else {
          transformedClasses.put(classId, originalBytecode);
       }
 
-      TestRun.mockFixture().registerMockedClass(capturedType.baseType);
+      TestRun.mockFixture().registerMockedClass(owner, capturedType.baseType);
       return modifier.toByteArray();
    }
 
@@ -25,7 +25,6 @@ import static mockit.internal.util.Utilities.*;
 public final class RecordAndReplayExecution
 {
    public static final ReentrantLock RECORD_OR_REPLAY_LOCK = new ReentrantLock();
-   public static final ReentrantLock TEST_ONLY_PHASE_LOCK = new ReentrantLock();
 
    @Nullable private final DynamicPartialMocking dynamicPartialMocking;
    @Nonnull final PhasedExecutionState executionState;
@@ -58,8 +57,7 @@ public final class RecordAndReplayExecution
          dynamicPartialMocking = applyDynamicPartialMocking(classesOrInstancesToBePartiallyMocked);
          discoverMockedTypesAndInstancesForMatchingOnInstance();
 
-         //noinspection LockAcquiredButNotSafelyReleased
-         TEST_ONLY_PHASE_LOCK.lock();
+         executingTest.enterTestOnlyPhase();
       }
       catch (RuntimeException e) {
          executingTest.setRecordAndReplay(null);
@@ -128,9 +126,12 @@ public final class RecordAndReplayExecution
 
       ExecutionMode executionMode = ExecutionMode.values()[executionModeOrdinal];
 
+      ExecutingTest executingTest = TestRun.getExecutingTest();
+      int rollbacksBeforeCheck = SavePoint.getRollbackCount();
+
       if (
          RECORD_OR_REPLAY_LOCK.isHeldByCurrentThread() ||
-         TEST_ONLY_PHASE_LOCK.isLocked() && !TEST_ONLY_PHASE_LOCK.isHeldByCurrentThread() ||
+         executingTest.isInTestOnlyPhaseOfAnotherThread() ||
          !TestRun.mockFixture().isStillMocked(mock, classDesc)
       ) {
          // This occurs if called from a custom argument matching method, in a call to an overridden Object method (equals, hashCode,
@@ -138,7 +139,9 @@ public final class RecordAndReplayExecution
          return defaultReturnValue(mock, classDesc, mockDesc, genericSignature, executionMode, args);
       }
 
-      ExecutingTest executingTest = TestRun.getExecutingTest();
+      if (TestRun.isRunningTestsInParallel()) {
+         TestRun.mockFixture().checkNotMockedByAnotherTestContext(classDesc);
+      }
 
       if (executingTest.isShouldIgnoreMockingCallbacks()) {
          // This occurs when called from a reentrant delegate method, or during static initialization of a mocked class.
@@ -152,6 +155,12 @@ public final class RecordAndReplayExecution
       RECORD_OR_REPLAY_LOCK.lock();
 
       try {
+         if (SavePoint.getRollbackCount() != rollbacksBeforeCheck && !TestRun.mockFixture().isStillMocked(mock, classDesc)) {
+            // The test which mocked the class ended while this thread was waiting for the lock, which happens when the call comes from a
+            // thread created by that test; the call must not be taken as part of whatever test is executing now.
+            return defaultReturnValue(mock, classDesc, mockDesc, genericSignature, executionMode, args);
+         }
+
          boolean isConstructor = mock != null && mockDesc.startsWith("<init>");
          RecordAndReplayExecution instance = executingTest.getOrCreateRecordAndReplay();
 
@@ -165,6 +174,7 @@ public final class RecordAndReplayExecution
 
          Phase currentPhase = instance.getCurrentPhase();
          instance.failureState.clearErrorThrown();
+         countInvocationForPhase(currentPhase);
 
          boolean withRealImpl = executionMode.isWithRealImplementation(mock);
          Object result = currentPhase.handleInvocation(mock, mockAccess, classDesc, mockDesc, genericSignature, withRealImpl, args);
@@ -178,6 +188,15 @@ public final class RecordAndReplayExecution
       }
    }
 
+   private static void countInvocationForPhase(@Nonnull Phase currentPhase) {
+      if (Statistics.ENABLED) {
+         Statistics.increment(
+            currentPhase instanceof RecordPhase ? Statistics.Counter.MockedInvocationsRecorded :
+            currentPhase instanceof ReplayPhase ? Statistics.Counter.MockedInvocationsReplayed :
+               Statistics.Counter.MockedInvocationsVerified);
+      }
+   }
+
    @Nullable
    private static Object proceedIntoRealImplementationOrGetDefaultReturnType(
       @Nullable Object mock, int mockAccess, @Nonnull String mockDesc, @Nullable String genericSignature
@@ -188,7 +207,7 @@ public final class RecordAndReplayExecution
 
          if (isGeneratedImplementationClass(mockedClassName) || isAbstract(mockAccess) && isGeneratedSubclass(mockedClassName)) {
             if (genericSignature != null) {
-               GenericTypeReflection typeReflection = new GenericTypeReflection(mockedClass, null);
+               GenericTypeReflection typeReflection = GenericTypeReflection.forType(mockedClass, null);
                String typeDesc = typeReflection.resolveReturnType(genericSignature);
                return DefaultValues.computeForType(typeDesc);
             }
@@ -217,9 +236,7 @@ public final class RecordAndReplayExecution
          }
       }
 
-      String returnTypeDesc = DefaultValues.getReturnTypeDesc(nameAndDesc);
-
-      if (returnTypeDesc.charAt(0) == 'L') {
+      if (DefaultReturnValue.forMethod(nameAndDesc).referenceReturn) {
          ExpectedInvocation invocation = new ExpectedInvocation(mock, classDesc, nameAndDesc, genericSignature, args);
          Object cascadedInstance = invocation.getDefaultValueForReturnType();
 
@@ -334,9 +351,7 @@ public final class RecordAndReplayExecution
 
    @Nullable
    private Error endExecution() {
-      if (TEST_ONLY_PHASE_LOCK.isLocked()) {
-         TEST_ONLY_PHASE_LOCK.unlock();
-      }
+      TestRun.getExecutingTest().exitTestOnlyPhaseIfAny();
 
       ReplayPhase replay = switchFromRecordToReplayIfNotYet();
       Error error = replay.endExecution();
@@ -373,7 +388,7 @@ public final class RecordAndReplayExecution
    }
 
    public void endInvocations() {
-      TEST_ONLY_PHASE_LOCK.unlock();
+      TestRun.getExecutingTest().exitTestOnlyPhase();
 
       if (verificationPhase == null) {
          switchFromRecordToReplayIfNotYet();
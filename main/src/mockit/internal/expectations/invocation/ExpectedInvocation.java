@@ -82,10 +82,9 @@ public final class ExpectedInvocation
       String signature = arguments.genericSignature;
 
       if (signature != null) {
-         // TODO: cache it for use in return type conversion, cascading, etc.
          String classDesc = getClassDesc();
          Class<?> mockedClass = instance != null ? instance.getClass() : ClassLoad.loadByInternalName(classDesc);
-         GenericTypeReflection reflection = new GenericTypeReflection(mockedClass, null);
+         GenericTypeReflection reflection = GenericTypeReflection.forType(mockedClass, null);
          signature = reflection.resolveSignature(classDesc, signature);
 
          char firstTypeChar = signature.charAt(signature.indexOf(')') + 1);
@@ -101,6 +100,8 @@ public final class ExpectedInvocation
    // Matching based on instance or mocked type ///////////////////////////////////////////////////////////////////////
 
    public boolean isMatch(@Nullable Object mock, @Nonnull String invokedClassDesc, @Nonnull String invokedMethod) {
+      Statistics.increment(Statistics.Counter.ExpectationMatchingComparisons);
+
       return
          (invokedClassDesc.equals(getClassDesc()) || mock != null && TestRun.mockFixture().isCaptured(mock)) &&
          (isMatchingGenericMethod(mock, invokedMethod) || isMatchingMethod(invokedMethod));
@@ -114,7 +115,7 @@ public final class ExpectedInvocation
             Class<?> mockedClass = mock.getClass();
 
             if (mockedClass != instance.getClass()) {
-               GenericTypeReflection typeReflection = new GenericTypeReflection(mockedClass, null);
+               GenericTypeReflection typeReflection = GenericTypeReflection.forType(mockedClass, null);
                GenericSignature parsedSignature = typeReflection.parseSignature(genericSignature);
                return parsedSignature.satisfiesSignature(invokedMethod);
             }
@@ -369,18 +370,18 @@ public final class ExpectedInvocation
             return defaultReturnValue;
          }
 
-         String returnTypeDesc = DefaultValues.getReturnTypeDesc(arguments.methodNameAndDesc);
+         DefaultReturnValue methodDefault = DefaultReturnValue.forMethod(arguments.methodNameAndDesc);
 
-         if ("V".equals(returnTypeDesc)) {
+         if (methodDefault.voidReturn) {
             return null;
          }
 
-         defaultReturnValue = DefaultValues.computeForType(returnTypeDesc);
+         defaultReturnValue = methodDefault.computeNonCascaded();
 
          if (defaultReturnValue == null) {
             String mockedTypeDesc = getClassDesc();
             defaultReturnValue = MockedTypeCascade.getMock(
-               mockedTypeDesc, arguments.methodNameAndDesc, instance, returnTypeDesc, arguments.genericSignature);
+               mockedTypeDesc, arguments.methodNameAndDesc, instance, methodDefault.returnTypeDesc, arguments.genericSignature);
          }
       }
 
@@ -7,6 +7,7 @@ package mockit.internal.expectations.mocking;
 import java.lang.instrument.*;
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.*;
 import javax.annotation.*;
 import static java.lang.reflect.Modifier.*;
 
@@ -25,25 +26,32 @@ class BaseTypeRedefinition
 {
    private static final class MockedClass {
       @Nullable final InstanceFactory instanceFactory;
-      @Nonnull final ClassDefinition[] mockedClassDefinitions;
+      @Nonnull final List<ClassDefinition> mockedClassDefinitions;
 
-      MockedClass(@Nullable InstanceFactory instanceFactory, @Nonnull ClassDefinition[] classDefinitions) {
+      MockedClass(@Nullable InstanceFactory instanceFactory, @Nonnull List<ClassDefinition> classDefinitions) {
          this.instanceFactory = instanceFactory;
          mockedClassDefinitions = classDefinitions;
       }
 
-      void redefineClasses() {
-         TestRun.mockFixture().redefineClasses(mockedClassDefinitions);
+      void redefineClasses(@Nullable RedefinitionBatch batch) {
+         if (batch != null) {
+            batch.addPreviousDefinitions(mockedClassDefinitions);
+         }
+         else {
+            ClassDefinition[] classDefs = mockedClassDefinitions.toArray(new ClassDefinition[mockedClassDefinitions.size()]);
+            TestRun.mockFixture().redefineClasses(classDefs);
+         }
       }
    }
 
-   @Nonnull private static final Map<Integer, MockedClass> mockedClasses = new HashMap<Integer, MockedClass>();
-   @Nonnull private static final Map<Type, Class<?>> mockImplementations = new HashMap<Type, Class<?>>();
+   @Nonnull private static final Map<Integer, MockedClass> mockedClasses = new ConcurrentHashMap<Integer, MockedClass>();
+   @Nonnull private static final Map<Type, Class<?>> mockImplementations = new ConcurrentHashMap<Type, Class<?>>();
 
    Class<?> targetClass;
    @Nullable MockedType typeMetadata;
    @Nullable private InstanceFactory instanceFactory;
    @Nullable private List<ClassDefinition> mockedClassDefinitions;
+   @Nullable private RedefinitionBatch batch;
 
    BaseTypeRedefinition() {}
 
@@ -52,6 +60,11 @@ class BaseTypeRedefinition
       this.typeMetadata = typeMetadata;
    }
 
+   BaseTypeRedefinition(@Nonnull MockedType typeMetadata, @Nullable RedefinitionBatch batch) {
+      this(typeMetadata);
+      this.batch = batch;
+   }
+
    @Nullable
    final InstanceFactory redefineType(@Nonnull Type typeToMock) {
       if (targetClass == TypeVariable.class || targetClass.isInterface()) {
@@ -59,6 +72,11 @@ class BaseTypeRedefinition
       }
       else {
          if (typeMetadata == null || !typeMetadata.isClassInitializationToBeStubbedOut()) {
+            if (batch != null && ClassLoad.isPossiblyUninitialized(targetClass)) {
+               // The static initializer may use types mocked earlier in the batch, so those must be in effect before it executes.
+               batch.apply();
+            }
+
             TestRun.ensureThatClassIsInitialized(targetClass);
          }
 
@@ -182,17 +200,29 @@ class BaseTypeRedefinition
       ClassReader classReader = ClassFile.createReaderOrGetFromCache(realClass);
       MockedClassModifier modifier = createClassModifier(loader, classReader);
 
-      try {
-         redefineClass(realClass, classReader, modifier);
+      if (batch != null) {
+         if (MockedClassModifier.hasAllMethodsExcludedFromMocking(realClass)) {
+            // Same as the VisitInterruptedException below, but detected before the class gets visited, which only occurs when the
+            // batch is applied; element subclasses of enum types also get redefined at that time.
+            return false;
+         }
+
+         batch.addClassToModify(this, realClass, classReader, modifier, true);
       }
-      catch (VisitInterruptedException ignore) {
-         // As defined in MockedClassModifier, some critical JRE classes have all methods excluded from mocking by
-         // default. This exception occurs when they are visited.
-         // In this case, we simply stop class redefinition for the rest of the class hierarchy.
-         return false;
+      else {
+         try {
+            redefineClass(realClass, classReader, modifier);
+         }
+         catch (VisitInterruptedException ignore) {
+            // As defined in MockedClassModifier, some critical JRE classes have all methods excluded from mocking by
+            // default. This exception occurs when they are visited.
+            // In this case, we simply stop class redefinition for the rest of the class hierarchy.
+            return false;
+         }
+
+         redefineElementSubclassesOfEnumTypeIfAny(modifier.enumSubclasses);
       }
 
-      redefineElementSubclassesOfEnumTypeIfAny(modifier.enumSubclasses);
       redefinedImplementedInterfacesIfRunningOnJava8(realClass);
 
       Class<?> superClass = realClass.getSuperclass();
@@ -206,6 +236,11 @@ class BaseTypeRedefinition
    }
 
    private void redefineClass(@Nonnull Class<?> realClass, @Nonnull ClassReader classReader, @Nonnull MockedClassModifier modifier) {
+      if (batch != null) {
+         batch.addClassToModify(this, realClass, classReader, modifier, false);
+         return;
+      }
+
       classReader.accept(modifier);
 
       if (modifier.wasModified()) {
@@ -217,13 +252,16 @@ class BaseTypeRedefinition
    void applyClassRedefinition(@Nonnull Class<?> realClass, @Nonnull byte[] modifiedClass) {
       ClassDefinition classDefinition = new ClassDefinition(realClass, modifiedClass);
       TestRun.mockFixture().redefineClasses(classDefinition);
+      addMockedClassDefinition(classDefinition);
+   }
 
+   final void addMockedClassDefinition(@Nonnull ClassDefinition classDefinition) {
       if (mockedClassDefinitions != null) {
          mockedClassDefinitions.add(classDefinition);
       }
    }
 
-   private void redefineElementSubclassesOfEnumTypeIfAny(@Nullable List<String> enumSubclasses) {
+   final void redefineElementSubclassesOfEnumTypeIfAny(@Nullable List<String> enumSubclasses) {
       if (enumSubclasses != null) {
          for (String enumSubclassDesc : enumSubclasses) {
             Class<?> enumSubclass = ClassLoad.loadByInternalName(enumSubclassDesc);
@@ -272,7 +310,7 @@ class BaseTypeRedefinition
       MockedClass mockedClass = mockedClasses.get(mockedClassId);
 
       if (mockedClass != null) {
-         mockedClass.redefineClasses();
+         mockedClass.redefineClasses(batch);
          instanceFactory = mockedClass.instanceFactory;
          return null;
       }
@@ -283,8 +321,9 @@ class BaseTypeRedefinition
 
    private void storeRedefinedClassesInCache(@Nonnull Integer mockedClassId) {
       assert mockedClassDefinitions != null;
-      ClassDefinition[] classDefs = mockedClassDefinitions.toArray(new ClassDefinition[mockedClassDefinitions.size()]);
-      MockedClass mockedClass = new MockedClass(instanceFactory, classDefs);
+
+      // When redefining in a batch, the list of class definitions only gets filled in when the batch is applied.
+      MockedClass mockedClass = new MockedClass(instanceFactory, mockedClassDefinitions);
 
       mockedClasses.put(mockedClassId, mockedClass);
    }
@@ -114,9 +114,11 @@ public class CaptureOfNewInstances extends CaptureOfImplementations<MockedType>
    @Override
    protected final void redefineClass(@Nonnull Class<?> realClass, @Nonnull byte[] modifiedClassfile) {
       ClassDefinition newClassDefinition = new ClassDefinition(realClass, modifiedClassfile);
+      MockFixture mockFixture = TestRun.mockFixture();
+      mockFixture.claimClass(realClass);
+
       Startup.redefineMethods(newClassDefinition);
 
-      MockFixture mockFixture = TestRun.mockFixture();
       mockFixture.addRedefinedClass(newClassDefinition);
       mockFixture.registerMockedClass(realClass);
    }
@@ -13,7 +13,7 @@ final class FieldTypeRedefinition extends TypeRedefinition
 {
    private boolean usePartialMocking;
 
-   FieldTypeRedefinition(@Nonnull MockedType typeMetadata) { super(typeMetadata); }
+   FieldTypeRedefinition(@Nonnull MockedType typeMetadata, @Nullable RedefinitionBatch batch) { super(typeMetadata, batch); }
 
    boolean redefineTypeForTestedField() {
       usePartialMocking = true;
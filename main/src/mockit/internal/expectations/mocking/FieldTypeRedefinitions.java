@@ -31,6 +31,7 @@ public final class FieldTypeRedefinitions extends TypeRedefinitions
 
       try {
          redefineFieldTypes(testClass);
+         redefinitionBatch.apply();
       }
       finally {
          TestRun.exitNoMockingZone();
@@ -71,7 +72,7 @@ public final class FieldTypeRedefinitions extends TypeRedefinitions
    }
 
    private void redefineFieldType(@Nonnull MockedType mockedType, boolean partialMocking, boolean needsValueToSet) {
-      FieldTypeRedefinition typeRedefinition = new FieldTypeRedefinition(mockedType);
+      FieldTypeRedefinition typeRedefinition = new FieldTypeRedefinition(mockedType, redefinitionBatch);
       boolean redefined;
 
       if (needsValueToSet) {
@@ -172,6 +173,20 @@ public final class FieldTypeRedefinitions extends TypeRedefinitions
       }
    }
 
+   /**
+    * Registers the mock field types which can cascade in the current test context, for when these redefinitions were made from a
+    * different context, shared by the contexts executing the tests of the test class.
+    */
+   public void registerCascadingTypes() {
+      for (MockedType mockedType : mockInstanceFactories.keySet()) {
+         mockedType.registerCascadingAsNeeded();
+      }
+
+      for (MockedType mockedType : mockFieldsNotSet) {
+         mockedType.registerCascadingAsNeeded();
+      }
+   }
+
    /**
     * Returns true iff the mock instance concrete class is not mocked in some test, ie it's a class
     * which only appears in the code under test.
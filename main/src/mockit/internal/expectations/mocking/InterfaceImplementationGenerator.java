@@ -16,6 +16,7 @@ import mockit.internal.*;
 import mockit.internal.classGeneration.*;
 import mockit.internal.reflection.*;
 import mockit.internal.reflection.GenericTypeReflection.*;
+import mockit.internal.util.*;
 import static mockit.asm.Access.*;
 import static mockit.asm.Opcodes.*;
 
@@ -113,6 +114,7 @@ final class InterfaceImplementationGenerator extends BaseClassModifier
          className = isOverrideOfMethodFromSuperInterface(name, desc) ? interfaceName : methodOwner;
       }
 
+      DefaultReturnValue.registerMockedMethod(name + desc);
       generateDirectCallToHandler(className, access, name, desc, signature);
       generateReturnWithObjectAtTopOfTheStack(desc);
       mw.visitMaxStack(1);
@@ -4,6 +4,7 @@
  */
 package mockit.internal.expectations.mocking;
 
+import java.lang.reflect.*;
 import java.util.*;
 import javax.annotation.*;
 import static java.lang.reflect.Modifier.*;
@@ -37,6 +38,7 @@ final class MockedClassModifier extends BaseClassModifier
 
    MockedClassModifier(@Nullable ClassLoader classLoader, @Nonnull ClassReader classReader, @Nullable MockedType typeMetadata) {
       super(classReader);
+      cw.setClassLoader(classLoader);
       mockedType = typeMetadata;
       classFromNonBootstrapClassLoader = classLoader != null;
       setUseClassLoadingBridge(classLoader);
@@ -51,6 +53,19 @@ final class MockedClassModifier extends BaseClassModifier
       }
    }
 
+   /**
+    * Tells whether the given class is one of the critical JRE classes which have all methods excluded from mocking by default, for which
+    * a {@link VisitInterruptedException} gets thrown when visited.
+    */
+   static boolean hasAllMethodsExcludedFromMocking(@Nonnull Class<?> aClass) {
+      if (aClass.getSuperclass() == Proxy.class) {
+         return false;
+      }
+
+      String filters = filtersForClass(aClass.getName().replace('.', '/'));
+      return filters != null && filters.isEmpty();
+   }
+
    public void setClassNameForCapturedInstanceMethods(@Nonnull String internalClassName) {
       baseClassNameForCapturedInstanceMethods = internalClassName;
    }
@@ -157,6 +172,8 @@ final class MockedClassModifier extends BaseClassModifier
          if (baseClassNameForCapturedInstanceMethods != null) {
             internalClassName = baseClassNameForCapturedInstanceMethods;
          }
+
+         DefaultReturnValue.registerMockedMethod(name + desc);
       }
 
       if (useClassLoadingBridge) {
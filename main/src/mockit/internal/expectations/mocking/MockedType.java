@@ -78,7 +78,7 @@ public final class MockedType extends InjectionProvider
       return null;
    }
 
-   private void registerCascadingAsNeeded() {
+   void registerCascadingAsNeeded() {
       if (isMockableType()) {
          Type mockedType = declaredType;
 
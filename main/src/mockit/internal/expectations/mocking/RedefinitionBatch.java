@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.expectations.mocking;
+
+import java.lang.instrument.*;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.annotation.*;
+
+import mockit.asm.*;
+import mockit.internal.state.*;
+import mockit.internal.util.*;
+
+/**
+ * Collects the classes to be modified for all mocked types of a test class or test method, so that the modified classfiles get generated
+ * in parallel and then applied to the JVM with a single class redefinition.
+ */
+final class RedefinitionBatch
+{
+   private static final class ClassToModify implements Callable<byte[]> {
+      @Nonnull final BaseTypeRedefinition owner;
+      @Nonnull final Class<?> realClass;
+      @Nonnull private final ClassReader classReader;
+      @Nonnull final MockedClassModifier modifier;
+      final boolean withEnumSubclasses;
+      @Nonnull final List<ClassDefinition> definitions;
+      @Nullable private final ClassLoader contextClassLoader;
+
+      ClassToModify(
+         @Nonnull BaseTypeRedefinition owner, @Nonnull Class<?> realClass, @Nonnull ClassReader classReader,
+         @Nonnull MockedClassModifier modifier, boolean withEnumSubclasses
+      ) {
+         this.owner = owner;
+         this.realClass = realClass;
+         this.classReader = classReader;
+         this.modifier = modifier;
+         this.withEnumSubclasses = withEnumSubclasses;
+         definitions = new ArrayList<ClassDefinition>(1);
+         contextClassLoader = Thread.currentThread().getContextClassLoader();
+      }
+
+      @Nullable
+      byte[] generateModifiedClassfile() { return generateModifiedClassfile(classReader); }
+
+      @Nullable
+      private byte[] generateModifiedClassfile(@Nonnull ClassReader reader) {
+         reader.accept(modifier);
+         return modifier.wasModified() ? modifier.toByteArray() : null;
+      }
+
+      @Nullable @Override
+      public byte[] call() {
+         Thread currentThread = Thread.currentThread();
+         ClassLoader previousClassLoader = currentThread.getContextClassLoader();
+         currentThread.setContextClassLoader(contextClassLoader);
+         TestRun.enterNoMockingZone();
+
+         try {
+            // Class readers can be cached and shared, so each concurrent generation gets its own reader. The class writer inside the
+            // modifier only refers to the classfile bytes, which are the same for both readers.
+            ClassReader reader = new ClassReader(classReader.getBytecode());
+            return generateModifiedClassfile(reader);
+         }
+         finally {
+            TestRun.exitNoMockingZone();
+            currentThread.setContextClassLoader(previousClassLoader);
+         }
+      }
+   }
+
+   @Nonnull private final List<ClassToModify> classesToModify;
+   @Nonnull private final List<List<ClassDefinition>> definitionsInOrder;
+   @Nonnegative private int classesGenerated;
+   @Nonnegative private int definitionsApplied;
+   @Nonnegative private long generationTime;
+   @Nonnegative private long redefinitionTime;
+
+   RedefinitionBatch() {
+      classesToModify = new ArrayList<ClassToModify>();
+      definitionsInOrder = new ArrayList<List<ClassDefinition>>();
+   }
+
+   void addClassToModify(
+      @Nonnull BaseTypeRedefinition owner, @Nonnull Class<?> realClass, @Nonnull ClassReader classReader,
+      @Nonnull MockedClassModifier modifier, boolean withEnumSubclasses
+   ) {
+      ClassToModify classToModify = new ClassToModify(owner, realClass, classReader, modifier, withEnumSubclasses);
+      classesToModify.add(classToModify);
+      definitionsInOrder.add(classToModify.definitions);
+   }
+
+   void addPreviousDefinitions(@Nonnull List<ClassDefinition> classDefinitions) {
+      definitionsInOrder.add(classDefinitions);
+   }
+
+   /**
+    * Generates the modified classfiles for all classes added since the last time the batch was applied, and then redefines them all at
+    * once.
+    * When the same class was modified more than once, the last modification wins, as it would if each one was applied in sequence.
+    */
+   void apply() {
+      boolean timed = Statistics.ENABLED;
+      long startTime = timed ? System.nanoTime() : 0L;
+      generateModifiedClassfiles();
+      long endOfGeneration = timed ? System.nanoTime() : 0L;
+
+      ClassDefinition[] classDefs = getDefinitionsToApply();
+
+      if (classDefs.length > 0) {
+         TestRun.mockFixture().redefineClasses(classDefs);
+      }
+
+      if (timed) {
+         generationTime += endOfGeneration - startTime;
+         redefinitionTime += System.nanoTime() - endOfGeneration;
+      }
+   }
+
+   private void generateModifiedClassfiles() {
+      // Element subclasses of enum types are only found when the enum type itself is visited, so they are added to the list as
+      // generation proceeds, and get generated in subsequent rounds.
+      while (classesGenerated < classesToModify.size()) {
+         List<ClassToModify> round = new ArrayList<ClassToModify>(classesToModify.subList(classesGenerated, classesToModify.size()));
+         classesGenerated = classesToModify.size();
+
+         if (WorkerThreads.shouldRunSequentially(round.size())) {
+            generateSequentially(round);
+         }
+         else {
+            generateConcurrently(round);
+         }
+      }
+   }
+
+   private static void generateSequentially(@Nonnull List<ClassToModify> classes) {
+      for (ClassToModify classToModify : classes) {
+         byte[] modifiedClassfile = classToModify.generateModifiedClassfile();
+         addDefinitionForModifiedClass(classToModify, modifiedClassfile);
+      }
+   }
+
+   private static void generateConcurrently(@Nonnull List<ClassToModify> classes) {
+      List<byte[]> modifiedClassfiles = WorkerThreads.invokeAll(classes);
+
+      for (int i = 0, n = classes.size(); i < n; i++) {
+         addDefinitionForModifiedClass(classes.get(i), modifiedClassfiles.get(i));
+      }
+   }
+
+   private static void addDefinitionForModifiedClass(@Nonnull ClassToModify classToModify, @Nullable byte[] modifiedClassfile) {
+      if (modifiedClassfile != null) {
+         ClassDefinition classDefinition = new ClassDefinition(classToModify.realClass, modifiedClassfile);
+         classToModify.definitions.add(classDefinition);
+         classToModify.owner.addMockedClassDefinition(classDefinition);
+      }
+
+      if (classToModify.withEnumSubclasses) {
+         classToModify.owner.redefineElementSubclassesOfEnumTypeIfAny(classToModify.modifier.enumSubclasses);
+      }
+   }
+
+   @Nonnull
+   private ClassDefinition[] getDefinitionsToApply() {
+      Map<Class<?>, ClassDefinition> definitionsToApply = new LinkedHashMap<Class<?>, ClassDefinition>();
+
+      for (int n = definitionsInOrder.size(); definitionsApplied < n; definitionsApplied++) {
+         List<ClassDefinition> classDefinitions = definitionsInOrder.get(definitionsApplied);
+
+         for (ClassDefinition classDefinition : classDefinitions) {
+            Class<?> classToRedefine = classDefinition.getDefinitionClass();
+            definitionsToApply.remove(classToRedefine);
+            definitionsToApply.put(classToRedefine, classDefinition);
+         }
+      }
+
+      return definitionsToApply.values().toArray(new ClassDefinition[definitionsToApply.size()]);
+   }
+
+   /**
+    * Returns the total time spent generating modified classfiles for the batch, in nanoseconds, or zero if statistics are disabled.
+    */
+   @Nonnegative long getGenerationTime() { return generationTime; }
+
+   /**
+    * Returns the total time spent redefining the modified classes in the JVM, in nanoseconds, or zero if statistics are disabled.
+    */
+   @Nonnegative long getRedefinitionTime() { return redefinitionTime; }
+}
@@ -35,6 +35,7 @@ public final class SubclassGenerationModifier extends BaseSubclassGenerator
          generateEmptyImplementation(desc);
       }
       else {
+         DefaultReturnValue.registerMockedMethod(name + desc);
          generateDirectCallToHandler(className, access, name, desc, signature);
          generateReturnWithObjectAtTopOfTheStack(desc);
          mw.visitMaxStack(1);
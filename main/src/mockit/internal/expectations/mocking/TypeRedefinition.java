@@ -11,7 +11,7 @@ import mockit.internal.*;
 
 class TypeRedefinition extends BaseTypeRedefinition
 {
-   TypeRedefinition(@Nonnull MockedType typeMetadata) { super(typeMetadata); }
+   TypeRedefinition(@Nonnull MockedType typeMetadata, @Nullable RedefinitionBatch batch) { super(typeMetadata, batch); }
 
    @Nullable
    final InstanceFactory redefineType() {
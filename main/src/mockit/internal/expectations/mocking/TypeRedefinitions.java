@@ -14,8 +14,12 @@ public class TypeRedefinitions
 {
    @Nonnull private final List<Class<?>> targetClasses;
    @Nullable protected CaptureOfNewInstances captureOfNewInstances;
+   @Nonnull final RedefinitionBatch redefinitionBatch;
 
-   TypeRedefinitions() { targetClasses = new ArrayList<Class<?>>(2); }
+   TypeRedefinitions() {
+      targetClasses = new ArrayList<Class<?>>(2);
+      redefinitionBatch = new RedefinitionBatch();
+   }
 
    final void addTargetClass(@Nonnull MockedType mockedType) {
       Class<?> targetClass = mockedType.getClassType();
@@ -39,6 +43,16 @@ public class TypeRedefinitions
    @Nonnull public final List<Class<?>> getTargetClasses() { return targetClasses; }
    @Nullable public final CaptureOfNewInstances getCaptureOfNewInstances() { return captureOfNewInstances; }
 
+   /**
+    * Returns the time spent generating the modified classfiles for the mocked types, in nanoseconds.
+    */
+   @Nonnegative public final long getClassGenerationTime() { return redefinitionBatch.getGenerationTime(); }
+
+   /**
+    * Returns the time spent redefining the mocked classes in the JVM, in nanoseconds.
+    */
+   @Nonnegative public final long getClassRedefinitionTime() { return redefinitionBatch.getRedefinitionTime(); }
+
    static void registerMock(@Nonnull MockedType mockedType, @Nonnull Object mock) {
       TestRun.getExecutingTest().registerMock(mockedType, mock);
    }
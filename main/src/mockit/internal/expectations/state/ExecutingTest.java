@@ -6,11 +6,13 @@ package mockit.internal.expectations.state;
 
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.locks.*;
 import javax.annotation.*;
 
 import mockit.internal.*;
 import mockit.internal.expectations.*;
 import mockit.internal.expectations.mocking.*;
+import mockit.internal.state.*;
 import static mockit.internal.util.Utilities.*;
 
 public final class ExecutingTest
@@ -18,6 +20,12 @@ public final class ExecutingTest
    @Nullable private RecordAndReplayExecution currentRecordAndReplay;
    @Nullable private RecordAndReplayExecution recordAndReplayForLastTestMethod;
 
+   /**
+    * Held by the test thread while inside an expectation recording or verification block, so that mocked invocations from other
+    * threads of the same test get ignored.
+    */
+   @Nonnull private final ReentrantLock testOnlyPhaseLock;
+
    @Nonnull private final ThreadLocal<Boolean> shouldIgnoreMockingCallbacks;
    @Nonnull private final ThreadLocal<BaseInvocation> proceedingInvocation;
    private boolean proceeding;
@@ -30,6 +38,7 @@ public final class ExecutingTest
    @Nonnull private final CascadingTypes cascadingTypes;
 
    public ExecutingTest() {
+      testOnlyPhaseLock = new ReentrantLock();
       shouldIgnoreMockingCallbacks = new ThreadLocal<Boolean>() { @Override protected Boolean initialValue() { return false; } };
       proceedingInvocation = new ThreadLocal<BaseInvocation>();
       regularMocks = new ArrayList<Object>();
@@ -119,11 +128,28 @@ public final class ExecutingTest
       }
 
       //noinspection LockAcquiredButNotSafelyReleased
-      RecordAndReplayExecution.TEST_ONLY_PHASE_LOCK.lock();
+      testOnlyPhaseLock.lock();
 
       return currentRecordAndReplay;
    }
 
+   public void enterTestOnlyPhase() {
+      //noinspection LockAcquiredButNotSafelyReleased
+      testOnlyPhaseLock.lock();
+   }
+
+   public void exitTestOnlyPhase() { testOnlyPhaseLock.unlock(); }
+
+   public void exitTestOnlyPhaseIfAny() {
+      if (testOnlyPhaseLock.isLocked()) {
+         testOnlyPhaseLock.unlock();
+      }
+   }
+
+   public boolean isInTestOnlyPhaseOfAnotherThread() {
+      return testOnlyPhaseLock.isLocked() && !testOnlyPhaseLock.isHeldByCurrentThread();
+   }
+
    @Nullable public ParameterTypeRedefinitions getParameterRedefinitions() { return parameterTypeRedefinitions; }
 
    public void setParameterRedefinitions(@Nonnull ParameterTypeRedefinitions redefinitions) {
@@ -189,6 +215,8 @@ public final class ExecutingTest
       currentRecordAndReplay = null;
 
       if (parameterTypeRedefinitions != null) {
+         Statistics.mockedTypesRedefined(
+            parameterTypeRedefinitions.getClassGenerationTime(), parameterTypeRedefinitions.getClassRedefinitionTime());
          parameterTypeRedefinitions.cleanUp();
          parameterTypeRedefinitions = null;
       }
@@ -22,7 +22,6 @@ import static mockit.internal.util.Utilities.*;
 
 public final class MockedTypeCascade
 {
-   @Nonnull private static final CascadingTypes CASCADING_TYPES = TestRun.getExecutingTest().getCascadingTypes();
    private static final int PUBLIC_INTERFACE = PUBLIC + INTERFACE;
 
    final boolean fromMockField;
@@ -41,12 +40,18 @@ public final class MockedTypeCascade
       cascadingInstances = synchronizedList(new ArrayList<Object>());
    }
 
+   /**
+    * Returns the cascading types of the current test context, since tests running in parallel cascade independently.
+    */
+   @Nonnull
+   private static CascadingTypes getCascadingTypes() { return TestRun.getExecutingTest().getCascadingTypes(); }
+
    @Nullable
    public static Object getMock(
       @Nonnull String mockedTypeDesc, @Nonnull String mockedMethodNameAndDesc, @Nullable Object mockInstance,
       @Nonnull String returnTypeDesc, @Nonnull Class<?> returnType
    ) {
-      MockedTypeCascade cascade = CASCADING_TYPES.getCascade(mockedTypeDesc, mockInstance);
+      MockedTypeCascade cascade = getCascadingTypes().getCascade(mockedTypeDesc, mockInstance);
 
       if (cascade == null) {
          return null;
@@ -72,7 +77,7 @@ public final class MockedTypeCascade
          return null;
       }
 
-      MockedTypeCascade cascade = CASCADING_TYPES.getCascade(mockedTypeDesc, mockInstance);
+      MockedTypeCascade cascade = getCascadingTypes().getCascade(mockedTypeDesc, mockInstance);
 
       if (cascade == null) {
          return null;
@@ -164,7 +169,7 @@ public final class MockedTypeCascade
 
       if (!cascadedTypesAndMocks.containsKey(returnTypeInternalName)) {
          cascadedTypesAndMocks.put(returnTypeInternalName, returnClass);
-         nextLevel = CASCADING_TYPES.add(returnTypeInternalName, false, returnClass);
+         nextLevel = getCascadingTypes().add(returnTypeInternalName, false, returnClass);
       }
 
       return nextLevel.createNewCascadedInstanceOrUseNonCascadedOneIfAvailable(methodNameAndDesc, returnClass);
@@ -207,13 +212,13 @@ public final class MockedTypeCascade
             }
 
             cascadedTypesAndMocks.put(returnTypeInternalName, genericReturnType);
-            nextLevel = CASCADING_TYPES.add(returnTypeInternalName, false, genericReturnType);
+            nextLevel = getCascadingTypes().add(returnTypeInternalName, false, genericReturnType);
             returnType = genericReturnType;
             returnClass = resolvedReturnType;
          }
       }
       else {
-         nextLevel = CASCADING_TYPES.getCascade(returnType);
+         nextLevel = getCascadingTypes().getCascade(returnType);
          returnClass = getClassType(returnType);
       }
 
@@ -5,6 +5,7 @@
 package mockit.internal.expectations.transformation;
 
 import java.util.*;
+import java.util.concurrent.*;
 import javax.annotation.*;
 
 import mockit.asm.*;
@@ -12,7 +13,7 @@ import static mockit.asm.Opcodes.*;
 
 public final class ArgumentCapturing
 {
-   private static final Map<Integer, String> varIndexToTypeDesc = new HashMap<Integer, String>();
+   private static final Map<Integer, String> varIndexToTypeDesc = new ConcurrentHashMap<Integer, String>();
 
    @Nonnull private final InvocationBlockModifier modifier;
    @Nullable private List<Capture> captures;
@@ -53,7 +54,12 @@ public final class ArgumentCapturing
       }
    }
 
-   static void registerTypeToCaptureIntoListIfApplicable(@Nonnegative int varIndex, @Nonnull String signature) {
+   /**
+    * Registers the element type of a local variable of type <tt>List</tt>, into which arguments can be captured.
+    *
+    * @return whether the local variable was registered
+    */
+   static boolean registerTypeToCaptureIntoListIfApplicable(@Nonnegative int varIndex, @Nonnull String signature) {
       if (signature.startsWith("Ljava/util/List<")) {
          String typeDesc = signature.substring(16, signature.length() - 2);
          int p = typeDesc.indexOf('<');
@@ -64,7 +70,10 @@ public final class ArgumentCapturing
 
          ReferenceType type = ReferenceType.createFromTypeDescriptor(typeDesc);
          varIndexToTypeDesc.put(varIndex, type.getInternalName());
+         return true;
       }
+
+      return false;
    }
 
    void registerAssignmentToCaptureVariableIfApplicable(@Nonnegative int opcode, @Nonnegative int varIndex) {
@@ -9,13 +9,20 @@ import java.security.*;
 import javax.annotation.*;
 
 import mockit.asm.*;
+import mockit.internal.state.*;
 import mockit.internal.util.*;
 
 public final class ExpectationsTransformer implements ClassFileTransformer
 {
-   private static final String BASE_CLASSES =
-      "mockit/Expectations mockit/Verifications " +
-      "mockit/VerificationsInOrder mockit/FullVerifications mockit/FullVerificationsInOrder";
+   private static final String[] BASE_CLASSES = {
+      "mockit/Expectations", "mockit/Verifications",
+      "mockit/VerificationsInOrder", "mockit/FullVerifications", "mockit/FullVerificationsInOrder"
+   };
+
+   @Nullable private final InvocationBlockClassCache cache;
+
+   public ExpectationsTransformer() { this(InvocationBlockClassCache.createIfEnabled()); }
+   ExpectationsTransformer(@Nullable InvocationBlockClassCache cache) { this.cache = cache; }
 
    @Nullable @Override
    public byte[] transform(
@@ -26,14 +33,22 @@ public final class ExpectationsTransformer implements ClassFileTransformer
          boolean anonymousClass = ClassNaming.isAnonymousClass(className);
 
          if (anonymousClass && !isJMockitClass(className) && !className.startsWith("org/junit/")) {
-            ClassReader cr = new ClassReader(classfileBuffer);
-            String superClassName = cr.getSuperName();
+            long startTime = Statistics.ENABLED ? System.nanoTime() : 0L;
+            byte[] modifiedClassfile = null;
 
-            if (!BASE_CLASSES.contains(superClassName)) {
-               return null;
+            // Most anonymous classes don't even refer to an invocations base class, and are rejected here without being parsed; of the
+            // others, only the class header is read before knowing whether they extend one.
+            if (ClassMetadataReader.containsUtf8Constant(classfileBuffer, BASE_CLASSES)) {
+               String superClassName = new ClassMetadataReader(classfileBuffer).getSuperClass();
+
+               if (isInvocationsSubclass(superClassName)) {
+                  //noinspection ConstantConditions
+                  modifiedClassfile = modifyOrGetFromCache(loader, classfileBuffer, className, superClassName);
+               }
             }
 
-            return modifyInvocationsSubclass(cr, className);
+            Statistics.transformerCalled(Statistics.Counter.ExpectationsTransformerCalls, startTime);
+            return modifiedClassfile;
          }
       }
 
@@ -47,9 +62,65 @@ public final class ExpectationsTransformer implements ClassFileTransformer
           classDesc.startsWith("mockit/integration/"));
    }
 
+   private static boolean isInvocationsSubclass(@Nullable String superClassName) {
+      for (String baseClass : BASE_CLASSES) {
+         if (baseClass.equals(superClassName)) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   /**
+    * Modifies the given invocation block class, or gets it from the cache if there is one.
+    * A cached entry is used only if the common super classes its stack map frames depended on are still the same, in which case the
+    * list variables it registered for argument capturing are registered again, just like the modification would have done.
+    */
+   @Nullable
+   private byte[] modifyOrGetFromCache(
+      @Nullable ClassLoader loader, @Nonnull byte[] classfile, @Nonnull String classDesc, @Nonnull String superClassDesc
+   ) {
+      InvocationBlockClassCache cache = this.cache;
+
+      if (cache == null) {
+         return modifyInvocationsSubclass(loader, new ClassReader(classfile), classDesc, null);
+      }
+
+      String cacheKey = InvocationBlockClassCache.computeKey(classfile);
+      InvocationBlockClassCache.Entry entry = cache.getEntry(cacheKey);
+
+      if (entry != null) {
+         ClassLoad.addSuperClass(loader, classDesc, superClassDesc);
+
+         if (entry.isUpToDate(loader)) {
+            entry.registerListVariables();
+            return entry.modifiedClassfile;
+         }
+      }
+
+      entry = new InvocationBlockClassCache.Entry();
+      byte[] modifiedClassfile = modifyInvocationsSubclass(loader, new ClassReader(classfile), classDesc, entry);
+
+      if (modifiedClassfile != null) {
+         entry.modifiedClassfile = modifiedClassfile;
+         cache.addEntry(cacheKey, entry);
+      }
+
+      return modifiedClassfile;
+   }
+
    @Nullable
-   private static byte[] modifyInvocationsSubclass(@Nonnull ClassReader cr, @Nonnull final String classDesc) {
+   private static byte[] modifyInvocationsSubclass(
+      @Nullable ClassLoader loader, @Nonnull ClassReader cr, @Nonnull final String classDesc,
+      @Nullable final InvocationBlockClassCache.Entry cacheEntry
+   ) {
       ClassWriter cw = new ClassWriter(cr);
+      cw.setClassLoader(loader);
+
+      if (cacheEntry != null) {
+         cw.recordCommonSuperClassLookups(cacheEntry.commonSuperClassLookups);
+      }
 
       ClassVisitor modifier = new WrappingClassVisitor(cw) {
          @Override
@@ -63,7 +134,7 @@ public final class ExpectationsTransformer implements ClassFileTransformer
                return mw;
             }
 
-            return new InvocationBlockModifier(mw, classDesc);
+            return new InvocationBlockModifier(mw, classDesc, cacheEntry);
          }
       };
 
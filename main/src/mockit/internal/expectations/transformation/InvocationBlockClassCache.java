@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.expectations.transformation;
+
+import java.io.*;
+import java.security.*;
+import java.util.*;
+import javax.annotation.*;
+
+import mockit.asm.*;
+
+/**
+ * A persistent cache of the modified classfiles for <tt>Expectations</tt>/<tt>Verifications</tt> subclasses, shared by all JVMs
+ * running with the same "<tt>jmockit-cacheDir</tt>" system property, so that forked test JVMs don't repeat the same modifications.
+ * <p/>
+ * Each cached classfile is stored in a file named after the SHA-1 hash of the original classfile, in a sub-directory for the JMockit
+ * version which modified it.
+ * The cache is not used when the JMockit version is unknown, as when running from a class directory instead of the jar file.
+ * Besides the modified classfile, each {@link Entry} holds what its modification depended on, or caused, other than the original
+ * classfile itself.
+ */
+final class InvocationBlockClassCache
+{
+   /**
+    * A modified classfile, together with the generic signatures of local variables registered for capturing arguments into lists, which
+    * have to be registered again every time the cached classfile is used, and the common super classes obtained while computing its stack
+    * map frames, which have to be the same for the cached classfile to be used.
+    */
+   static final class Entry
+   {
+      @Nonnull final List<Integer> listVariableIndices;
+      @Nonnull final List<String> listVariableSignatures;
+      @Nonnull final List<String> commonSuperClassLookups;
+      @Nullable byte[] modifiedClassfile;
+
+      Entry() {
+         listVariableIndices = new ArrayList<Integer>();
+         listVariableSignatures = new ArrayList<String>();
+         commonSuperClassLookups = new ArrayList<String>();
+      }
+
+      void listVariableRegistered(@Nonnegative int varIndex, @Nonnull String signature) {
+         listVariableIndices.add(varIndex);
+         listVariableSignatures.add(signature);
+      }
+
+      /**
+       * Checks whether each pair of types merged when the stack map frames of the modified classfile were computed still has the same
+       * common super class, as seen from the given class loader.
+       */
+      boolean isUpToDate(@Nullable ClassLoader loader) {
+         List<String> lookups = commonSuperClassLookups;
+
+         for (int i = 0, n = lookups.size(); i < n; i += 3) {
+            String commonSuperClass = ClassWriter.getCommonSuperClass(loader, lookups.get(i), lookups.get(i + 1));
+
+            if (!commonSuperClass.equals(lookups.get(i + 2))) {
+               return false;
+            }
+         }
+
+         return true;
+      }
+
+      void registerListVariables() {
+         for (int i = 0, n = listVariableIndices.size(); i < n; i++) {
+            ArgumentCapturing.registerTypeToCaptureIntoListIfApplicable(listVariableIndices.get(i), listVariableSignatures.get(i));
+         }
+      }
+
+      void writeTo(@Nonnull DataOutputStream output) throws IOException {
+         int listVariableCount = listVariableIndices.size();
+         output.writeInt(listVariableCount);
+
+         for (int i = 0; i < listVariableCount; i++) {
+            output.writeInt(listVariableIndices.get(i));
+            output.writeUTF(listVariableSignatures.get(i));
+         }
+
+         output.writeInt(commonSuperClassLookups.size());
+
+         for (String type : commonSuperClassLookups) {
+            output.writeUTF(type);
+         }
+
+         //noinspection ConstantConditions
+         output.writeInt(modifiedClassfile.length);
+         output.write(modifiedClassfile);
+      }
+
+      void readFrom(@Nonnull DataInputStream input) throws IOException {
+         for (int i = input.readInt(); i > 0; i--) {
+            listVariableRegistered(input.readInt(), input.readUTF());
+         }
+
+         for (int i = input.readInt(); i > 0; i--) {
+            commonSuperClassLookups.add(input.readUTF());
+         }
+
+         byte[] classfile = new byte[input.readInt()];
+         input.readFully(classfile);
+         modifiedClassfile = classfile;
+      }
+   }
+
+   @Nonnull private final File cacheDir;
+
+   InvocationBlockClassCache(@Nonnull File cacheDir) { this.cacheDir = cacheDir; }
+
+   /**
+    * Creates the cache for the directory given in the "<tt>jmockit-cacheDir</tt>" system property, if set and if the JMockit version is
+    * known.
+    */
+   @Nullable
+   static InvocationBlockClassCache createIfEnabled() {
+      String cacheDir = System.getProperty("jmockit-cacheDir");
+
+      if (cacheDir == null || cacheDir.isEmpty()) {
+         return null;
+      }
+
+      Package thisPackage = InvocationBlockClassCache.class.getPackage();
+      String jmockitVersion = thisPackage == null ? null : thisPackage.getImplementationVersion();
+
+      if (jmockitVersion == null) {
+         return null;
+      }
+
+      File versionDir = new File(cacheDir, "jmockit-" + jmockitVersion);
+
+      //noinspection ResultOfMethodCallIgnored
+      versionDir.mkdirs();
+
+      return versionDir.isDirectory() ? new InvocationBlockClassCache(versionDir) : null;
+   }
+
+   @Nonnull
+   static String computeKey(@Nonnull byte[] originalClassfile) {
+      MessageDigest sha1;
+
+      try {
+         sha1 = MessageDigest.getInstance("SHA-1");
+      }
+      catch (NoSuchAlgorithmException e) {
+         throw new IllegalStateException(e);
+      }
+
+      byte[] hash = sha1.digest(originalClassfile);
+      StringBuilder key = new StringBuilder(2 * hash.length);
+
+      for (byte b : hash) {
+         key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+
+      return key.toString();
+   }
+
+   @Nonnull
+   private File getEntryFile(@Nonnull String key) { return new File(cacheDir, key + ".block"); }
+
+   @Nullable
+   Entry getEntry(@Nonnull String key) {
+      File entryFile = getEntryFile(key);
+
+      if (entryFile.isFile()) {
+         try {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(entryFile)));
+
+            try {
+               Entry entry = new Entry();
+               entry.readFrom(input);
+               return entry;
+            }
+            finally {
+               input.close();
+            }
+         }
+         catch (IOException ignore) {}
+      }
+
+      return null;
+   }
+
+   /**
+    * Adds an entry to the cache, replacing any previous one for the same key.
+    * The file is written under a temporary name and then renamed, so that JVMs reading the cache concurrently never see a partially
+    * written entry; failures are ignored, since the classfile can always be modified again.
+    */
+   void addEntry(@Nonnull String key, @Nonnull Entry entry) {
+      File entryFile = getEntryFile(key);
+
+      try {
+         File tempFile = File.createTempFile(key, ".tmp", cacheDir);
+         DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+
+         try {
+            entry.writeTo(output);
+         }
+         finally {
+            output.close();
+         }
+
+         //noinspection ResultOfMethodCallIgnored
+         entryFile.delete();
+
+         if (!tempFile.renameTo(entryFile)) {
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+         }
+      }
+      catch (IOException ignore) {}
+   }
+}
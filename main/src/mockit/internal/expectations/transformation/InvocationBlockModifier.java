@@ -17,6 +17,9 @@ public final class InvocationBlockModifier extends WrappingMethodVisitor
    // Input data:
    @Nonnull private final String blockOwner;
 
+   // Receives the local variables registered for capturing into lists, when the modified block is to be cached:
+   @Nullable private final InvocationBlockClassCache.Entry cacheEntry;
+
    // Keeps track of the current stack size (after each bytecode instruction) within the invocation block:
    @Nonnegative private int stackSize;
 
@@ -30,9 +33,12 @@ public final class InvocationBlockModifier extends WrappingMethodVisitor
 
    private int lastLoadedArrayIndex;
 
-   InvocationBlockModifier(@Nonnull MethodWriter mw, @Nonnull String blockOwner) {
+   InvocationBlockModifier(
+      @Nonnull MethodWriter mw, @Nonnull String blockOwner, @Nullable InvocationBlockClassCache.Entry cacheEntry
+   ) {
       super(mw);
       this.blockOwner = blockOwner;
+      this.cacheEntry = cacheEntry;
       argumentMatching = new ArgumentMatching(this);
       argumentCapturing = new ArgumentCapturing(this);
    }
@@ -293,8 +299,10 @@ public final class InvocationBlockModifier extends WrappingMethodVisitor
       @Nonnull String name, @Nonnull String desc, @Nullable String signature, @Nonnull Label start, @Nonnull Label end,
       @Nonnegative int index
    ) {
-      if (signature != null) {
-         ArgumentCapturing.registerTypeToCaptureIntoListIfApplicable(index, signature);
+      if (
+         signature != null && ArgumentCapturing.registerTypeToCaptureIntoListIfApplicable(index, signature) && cacheEntry != null
+      ) {
+         cacheEntry.listVariableRegistered(index, signature);
       }
 
       // In classes instrumented with EMMA some local variable information can be lost, so we discard it entirely to
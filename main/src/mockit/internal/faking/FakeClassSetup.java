@@ -79,6 +79,11 @@ public final class FakeClassSetup
 
    void applyClassModifications(@Nonnull Class<?> classToModify, @Nonnull byte[] modifiedClassFile) {
       ClassDefinition classDef = new ClassDefinition(classToModify, modifiedClassFile);
+
+      if (!forStartupFake) {
+         TestRun.mockFixture().claimClass(classToModify);
+      }
+
       Startup.redefineMethods(classDef);
 
       if (forStartupFake) {
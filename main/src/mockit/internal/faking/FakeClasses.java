@@ -7,9 +7,11 @@ package mockit.internal.faking;
 import java.lang.reflect.*;
 import java.util.*;
 import java.util.Map.*;
+import java.util.concurrent.*;
 import javax.annotation.*;
 
 import mockit.*;
+import mockit.internal.state.*;
 import mockit.internal.util.*;
 
 public final class FakeClasses
@@ -31,11 +33,13 @@ public final class FakeClasses
 
    @Nonnull private final Map<String, MockUp<?>> startupFakes;
    @Nonnull private final Map<Class<?>, MockUp<?>> fakeClassesToFakeInstances;
+   @Nonnull private final Map<Class<?>, TestContext> fakeClassesToTestContexts;
    @Nonnull public final FakeStates fakeStates;
 
    public FakeClasses() {
       startupFakes = new IdentityHashMap<String, MockUp<?>>(8);
-      fakeClassesToFakeInstances = new IdentityHashMap<Class<?>, MockUp<?>>();
+      fakeClassesToFakeInstances = new ConcurrentHashMap<Class<?>, MockUp<?>>();
+      fakeClassesToTestContexts = new ConcurrentHashMap<Class<?>, TestContext>();
       fakeStates = new FakeStates();
    }
 
@@ -46,6 +50,7 @@ public final class FakeClasses
    void addFake(@Nonnull MockUp<?> fake) {
       Class<?> fakeClass = fake.getClass();
       fakeClassesToFakeInstances.put(fakeClass, fake);
+      fakeClassesToTestContexts.put(fakeClass, TestRun.context());
    }
 
    @Nonnull
@@ -68,27 +73,21 @@ public final class FakeClasses
       return fakeInstance;
    }
 
-   private void discardFakeInstancesExceptPreviousOnes(@Nonnull Map<Class<?>, Boolean> previousFakeClasses) {
+   private void discardFakeInstancesExceptPreviousOnes(@Nonnull TestContext context, @Nonnull Map<Class<?>, Boolean> previousFakeClasses) {
+      List<Class<?>> fakeClassesToDiscard = new ArrayList<Class<?>>();
+
       for (Entry<Class<?>, MockUp<?>> fakeClassAndInstances : fakeClassesToFakeInstances.entrySet()) {
          Class<?> fakeClass = fakeClassAndInstances.getKey();
 
-         if (!previousFakeClasses.containsKey(fakeClass)) {
+         if (!previousFakeClasses.containsKey(fakeClass) && fakeClassesToTestContexts.get(fakeClass) == context) {
             MockUp<?> fakeInstance = fakeClassAndInstances.getValue();
             notifyOfTearDown(fakeInstance);
+            fakeClassesToDiscard.add(fakeClass);
          }
       }
 
-      fakeClassesToFakeInstances.keySet().retainAll(previousFakeClasses.keySet());
-   }
-
-   private void discardAllFakeInstances() {
-      if (!fakeClassesToFakeInstances.isEmpty()) {
-         for (MockUp<?> fakeInstance : fakeClassesToFakeInstances.values()) {
-            notifyOfTearDown(fakeInstance);
-         }
-
-         fakeClassesToFakeInstances.clear();
-      }
+      fakeClassesToFakeInstances.keySet().removeAll(fakeClassesToDiscard);
+      fakeClassesToTestContexts.keySet().removeAll(fakeClassesToDiscard);
    }
 
    public void discardStartupFakes() {
@@ -97,24 +96,28 @@ public final class FakeClasses
       }
    }
 
+   /**
+    * The fakes applied from a given test context at some point, so that the fakes applied later from the same context can be discarded.
+    */
    public final class SavePoint {
+      @Nonnull private final TestContext context;
       @Nonnull private final Map<Class<?>, Boolean> previousFakeClasses;
 
-      public SavePoint() {
+      public SavePoint(@Nonnull TestContext context) {
+         this.context = context;
          previousFakeClasses = new IdentityHashMap<Class<?>, Boolean>();
 
-         for (Entry<Class<?>, MockUp<?>> fakeClassAndInstance : fakeClassesToFakeInstances.entrySet()) {
-            Class<?> fakeClass = fakeClassAndInstance.getKey();
-            previousFakeClasses.put(fakeClass, false);
+         for (Entry<Class<?>, TestContext> fakeClassAndContext : fakeClassesToTestContexts.entrySet()) {
+            if (fakeClassAndContext.getValue() == context) {
+               Class<?> fakeClass = fakeClassAndContext.getKey();
+               previousFakeClasses.put(fakeClass, false);
+            }
          }
       }
 
       public void rollback() {
-         if (previousFakeClasses.isEmpty()) {
-            discardAllFakeInstances();
-         }
-         else {
-            discardFakeInstancesExceptPreviousOnes(previousFakeClasses);
+         if (!fakeClassesToFakeInstances.isEmpty()) {
+            discardFakeInstancesExceptPreviousOnes(context, previousFakeClasses);
          }
       }
    }
@@ -27,7 +27,7 @@ public final class FakeStates
 
    FakeStates() {
       startupFakesToFakeStates = new IdentityHashMap<Object, List<FakeState>>(2);
-      fakesToFakeStates = new IdentityHashMap<Object, List<FakeState>>(8);
+      fakesToFakeStates = Collections.synchronizedMap(new IdentityHashMap<Object, List<FakeState>>(8));
    }
 
    void addStartupFakeAndItsFakeStates(@Nonnull Object fake, @Nonnull List<FakeState> fakeStates) {
@@ -39,17 +39,19 @@ public final class FakeStates
    }
 
    public void removeClassState(@Nonnull Class<?> redefinedClass, @Nullable String internalNameForOneOrMoreFakeClasses) {
-      removeFakeStates(redefinedClass);
+      synchronized (fakesToFakeStates) {
+         removeFakeStates(redefinedClass);
 
-      if (internalNameForOneOrMoreFakeClasses != null) {
-         if (internalNameForOneOrMoreFakeClasses.indexOf(' ') < 0) {
-            removeFakeStates(internalNameForOneOrMoreFakeClasses);
-         }
-         else {
-            String[] fakeClassesInternalNames = SPACE.split(internalNameForOneOrMoreFakeClasses);
+         if (internalNameForOneOrMoreFakeClasses != null) {
+            if (internalNameForOneOrMoreFakeClasses.indexOf(' ') < 0) {
+               removeFakeStates(internalNameForOneOrMoreFakeClasses);
+            }
+            else {
+               String[] fakeClassesInternalNames = SPACE.split(internalNameForOneOrMoreFakeClasses);
 
-            for (String fakeClassInternalName : fakeClassesInternalNames) {
-               removeFakeStates(fakeClassInternalName);
+               for (String fakeClassInternalName : fakeClassesInternalNames) {
+                  removeFakeStates(fakeClassInternalName);
+               }
             }
          }
       }
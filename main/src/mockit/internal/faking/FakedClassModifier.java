@@ -56,6 +56,7 @@ final class FakedClassModifier extends BaseClassModifier
       this.fakeMethods = fakeMethods;
 
       ClassLoader classLoaderOfRealClass = realClass.getClassLoader();
+      cw.setClassLoader(classLoaderOfRealClass);
       useClassLoadingBridgeForUpdatingFakeState = ClassLoad.isClassLoaderWithNoDirectAccess(classLoaderOfRealClass);
       inferUseOfClassLoadingBridge(classLoaderOfRealClass, fake);
    }
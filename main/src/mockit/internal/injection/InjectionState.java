@@ -13,6 +13,7 @@ import javax.inject.*;
 import javax.servlet.*;
 
 import mockit.internal.expectations.mocking.*;
+import mockit.internal.injection.constructor.*;
 import mockit.internal.reflection.*;
 import mockit.internal.state.*;
 import static mockit.internal.injection.InjectionPoint.*;
@@ -31,6 +32,8 @@ public final class InjectionState
    @Nonnull private List<MockedType> injectables;
    @Nonnull private List<InjectionProvider> consumedInjectionProviders;
    @Nonnull public final LifecycleMethods lifecycleMethods;
+   @Nonnull public final ConstructorPlans constructorPlans;
+   @Nonnull private final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, List<Field>>> targetFieldsByTestedClass;
    @Nonnull final InterfaceResolution interfaceResolution;
    @Nullable private BeanExporter beanExporter;
    private Object currentTestClassInstance;
@@ -42,6 +45,8 @@ public final class InjectionState
       injectables = Collections.emptyList();
       consumedInjectionProviders = new ArrayList<InjectionProvider>();
       lifecycleMethods = new LifecycleMethods();
+      constructorPlans = new ConstructorPlans();
+      targetFieldsByTestedClass = new ConcurrentHashMap<Class<?>, ConcurrentMap<Class<?>, List<Field>>>();
       interfaceResolution = new InterfaceResolution();
    }
 
@@ -106,6 +111,48 @@ public final class InjectionState
 
    Object getCurrentTestClassInstance() { return currentTestClassInstance; }
 
+   /**
+    * Adds the declared type and name of each injectable, followed by those of each tested object, which together determine the
+    * constructor chosen for a tested class.
+    */
+   public void addTypesAndNamesOfAvailableValues(@Nonnull List<Object> typesAndNames) {
+      typesAndNames.add(injectables.size());
+
+      for (MockedType injectable : injectables) {
+         typesAndNames.add(injectable.getDeclaredType());
+         typesAndNames.add(injectable.getName());
+      }
+
+      for (InjectionPoint testedObjectIP : testedObjects.keySet()) {
+         typesAndNames.add(testedObjectIP.type);
+         typesAndNames.add(testedObjectIP.name);
+      }
+   }
+
+   /**
+    * Returns the target fields found for the given tested class in a previous test of the test class, if any.
+    */
+   @Nullable
+   public List<Field> getTargetFields(@Nonnull Class<?> declaredClass, @Nonnull Class<?> actualTestedClass) {
+      Map<Class<?>, List<Field>> targetFieldsByClass = targetFieldsByTestedClass.get(declaredClass);
+      return targetFieldsByClass == null ? null : targetFieldsByClass.get(actualTestedClass);
+   }
+
+   public void saveTargetFields(@Nonnull Class<?> declaredClass, @Nonnull Class<?> actualTestedClass, @Nonnull List<Field> targetFields) {
+      ConcurrentMap<Class<?>, List<Field>> targetFieldsByClass = targetFieldsByTestedClass.get(declaredClass);
+
+      if (targetFieldsByClass == null) {
+         targetFieldsByClass = new ConcurrentHashMap<Class<?>, List<Field>>(2);
+         ConcurrentMap<Class<?>, List<Field>> previousMap = targetFieldsByTestedClass.putIfAbsent(declaredClass, targetFieldsByClass);
+
+         if (previousMap != null) {
+            targetFieldsByClass = previousMap;
+         }
+      }
+
+      targetFieldsByClass.put(actualTestedClass, targetFields);
+   }
+
    public void setTypeOfInjectionPoint(@Nonnull Type typeOfInjectionPoint) { this.typeOfInjectionPoint = typeOfInjectionPoint; }
 
    public boolean isAssignableToInjectionPoint(@Nonnull Type injectableType, @Nonnull TestedClass testedClass) {
@@ -14,7 +14,7 @@ import mockit.internal.util.*;
 
 public final class TestedClass
 {
-   @Nonnull final Type declaredType;
+   @Nonnull public final Type declaredType;
    @Nonnull final Class<?> declaredClass;
    @Nonnull public final Class<?> targetClass;
    @Nonnull public final GenericTypeReflection reflection;
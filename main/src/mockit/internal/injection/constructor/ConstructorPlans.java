@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.injection.constructor;
+
+import java.util.*;
+import java.util.concurrent.*;
+import javax.annotation.*;
+
+import mockit.internal.injection.*;
+import mockit.internal.injection.constructor.ConstructorSearch.*;
+
+/**
+ * The candidate constructors of the classes instantiated for the tests of a test class, and the constructor chosen for each combination
+ * of tested class and available tested/injectable values, so that they are searched only once for all the tests.
+ * <p/>
+ * Since the constructors chosen are keyed by the types and names of the values available, a test with different injectable parameters
+ * or tested objects gets a new search instead of reusing a constructor chosen for other values.
+ * Held by the injection state of a test class, plans are discarded along with it.
+ */
+public final class ConstructorPlans
+{
+   @Nonnull private final ConcurrentMap<Class<?>, CandidateConstructors> candidatesByClass;
+   @Nonnull private final ConcurrentMap<List<Object>, CandidateConstructor> constructorsChosen;
+
+   public ConstructorPlans() {
+      candidatesByClass = new ConcurrentHashMap<Class<?>, CandidateConstructors>();
+      constructorsChosen = new ConcurrentHashMap<List<Object>, CandidateConstructor>();
+   }
+
+   @Nonnull
+   CandidateConstructors getCandidateConstructors(@Nonnull TestedClass testedClass) {
+      Class<?> targetClass = testedClass.targetClass;
+      CandidateConstructors candidates = candidatesByClass.get(targetClass);
+
+      if (candidates == null) {
+         candidates = new CandidateConstructors(testedClass);
+         CandidateConstructors previousCandidates = candidatesByClass.putIfAbsent(targetClass, candidates);
+
+         if (previousCandidates != null) {
+            candidates = previousCandidates;
+         }
+      }
+
+      return candidates;
+   }
+
+   @Nullable
+   CandidateConstructor getConstructorChosen(@Nonnull List<Object> testedClassWithAvailableValues) {
+      return constructorsChosen.get(testedClassWithAvailableValues);
+   }
+
+   void saveConstructorChosen(@Nonnull List<Object> testedClassWithAvailableValues, @Nonnull CandidateConstructor constructorChosen) {
+      constructorsChosen.put(testedClassWithAvailableValues, constructorChosen);
+   }
+}
@@ -20,9 +20,90 @@ public final class ConstructorSearch
 {
    private static final int CONSTRUCTOR_ACCESS = PUBLIC + PROTECTED + PRIVATE;
 
+   /**
+    * The parts of a constructor which are relevant for the search, as obtained through Reflection and parameter name extraction.
+    * They don't depend on the tested/injectable values available in a particular test, so they are obtained only once per class for the
+    * tests of a test class.
+    */
+   static final class CandidateConstructor {
+      @Nonnull final Constructor<?> constructor;
+      @Nonnull final Type[] parameterTypes;
+      @Nonnull final Annotation[][] parameterAnnotations;
+      @Nonnull final String[] parameterNames;
+      @Nonnull final String[] qualifiedNames;
+      final boolean varArgs;
+
+      CandidateConstructor(@Nonnull String testedClassDesc, @Nonnull Constructor<?> constructor) {
+         this.constructor = constructor;
+         parameterTypes = constructor.getGenericParameterTypes();
+         parameterAnnotations = constructor.getParameterAnnotations();
+         varArgs = constructor.isVarArgs();
+
+         String constructorDesc = "<init>" + JavaType.getConstructorDescriptor(constructor);
+         int n = parameterTypes.length;
+         parameterNames = new String[n];
+         qualifiedNames = new String[n];
+
+         for (int i = 0; i < n; i++) {
+            parameterNames[i] = ParameterNames.getName(testedClassDesc, constructorDesc, i);
+            qualifiedNames[i] = getQualifiedName(parameterAnnotations[i]);
+         }
+      }
+   }
+
+   static final class CandidateConstructors {
+      @Nullable final CandidateConstructor annotatedConstructor;
+      @Nonnull final CandidateConstructor[] mostAccessibleFirst;
+
+      CandidateConstructors(@Nonnull TestedClass testedClass) {
+         String testedClassDesc = ParameterNameExtractor.extractNames(testedClass.getDeclaredClass());
+         Constructor<?>[] constructors = testedClass.targetClass.getDeclaredConstructors();
+         annotatedConstructor = findFirstAnnotatedConstructor(testedClassDesc, constructors);
+
+         if (annotatedConstructor == null) {
+            sortConstructorsWithMostAccessibleFirst(constructors);
+            mostAccessibleFirst = new CandidateConstructor[constructors.length];
+
+            for (int i = 0; i < constructors.length; i++) {
+               mostAccessibleFirst[i] = new CandidateConstructor(testedClassDesc, constructors[i]);
+            }
+         }
+         else {
+            mostAccessibleFirst = new CandidateConstructor[0];
+         }
+      }
+
+      @Nullable
+      private static CandidateConstructor findFirstAnnotatedConstructor(
+         @Nonnull String testedClassDesc, @Nonnull Constructor<?>[] constructors
+      ) {
+         for (Constructor<?> c : constructors) {
+            if (kindOfInjectionPoint(c) != KindOfInjectionPoint.NotAnnotated) {
+               return new CandidateConstructor(testedClassDesc, c);
+            }
+         }
+
+         return null;
+      }
+
+      @Nonnull
+      CandidateConstructor getCandidate(@Nonnull Constructor<?> constructor) {
+         if (annotatedConstructor != null) {
+            return annotatedConstructor;
+         }
+
+         for (CandidateConstructor candidate : mostAccessibleFirst) {
+            if (candidate.constructor == constructor) {
+               return candidate;
+            }
+         }
+
+         throw new IllegalArgumentException("Not a candidate constructor: " + constructor);
+      }
+   }
+
    @Nonnull private final InjectionState injectionState;
    @Nonnull private final TestedClass testedClass;
-   @Nonnull private final String testedClassDesc;
    @Nonnull public List<InjectionProvider> parameterProviders;
    private final boolean withFullInjection;
    @Nullable private Constructor<?> constructor;
@@ -31,50 +112,85 @@ public final class ConstructorSearch
    public ConstructorSearch(@Nonnull InjectionState injectionState, @Nonnull TestedClass testedClass, boolean withFullInjection) {
       this.injectionState = injectionState;
       this.testedClass = testedClass;
-      Class<?> declaredClass = testedClass.getDeclaredClass();
-      testedClassDesc = ParameterNameExtractor.extractNames(declaredClass);
       parameterProviders = new ArrayList<InjectionProvider>();
       this.withFullInjection = withFullInjection;
    }
 
+   /**
+    * Finds the constructor to use with the tested and injectable values currently available.
+    * The constructor chosen for the same values in a previous test of the test class is used again if still satisfied, without
+    * searching through the other candidates.
+    */
    @Nullable
    public Constructor<?> findConstructorToUse() {
       constructor = null;
-      Class<?> declaredClass = testedClass.targetClass;
-      Constructor<?>[] constructors = declaredClass.getDeclaredConstructors();
+      ConstructorPlans plans = injectionState.constructorPlans;
+      CandidateConstructors candidates = plans.getCandidateConstructors(testedClass);
 
-      if (!findSingleAnnotatedConstructor(constructors)) {
-         findSatisfiedConstructorWithMostParameters(constructors);
+      if (searchResults != null) {
+         searchCandidateConstructors(candidates);
+         return constructor;
+      }
+
+      List<Object> availableValues = getTestedClassWithAvailableValues();
+      CandidateConstructor constructorChosen = plans.getConstructorChosen(availableValues);
+
+      if (constructorChosen != null) {
+         List<InjectionProvider> providersFound = findParameterProvidersForConstructor(constructorChosen);
+
+         if (providersFound != null) {
+            parameterProviders = providersFound;
+            constructor = constructorChosen.constructor;
+            return constructor;
+         }
+      }
+
+      searchCandidateConstructors(candidates);
+
+      if (constructor != null) {
+         plans.saveConstructorChosen(availableValues, candidates.getCandidate(constructor));
       }
 
       return constructor;
    }
 
-   private boolean findSingleAnnotatedConstructor(@Nonnull Constructor<?>[] constructors) {
-      for (Constructor<?> c : constructors) {
-         if (kindOfInjectionPoint(c) != KindOfInjectionPoint.NotAnnotated) {
-            List<InjectionProvider> providersFound = findParameterProvidersForConstructor(c);
+   @Nonnull
+   private List<Object> getTestedClassWithAvailableValues() {
+      List<Object> testedClassWithAvailableValues = new ArrayList<Object>();
+      testedClassWithAvailableValues.add(testedClass.targetClass);
+      testedClassWithAvailableValues.add(testedClass.declaredType);
+      testedClassWithAvailableValues.add(withFullInjection);
+      injectionState.addTypesAndNamesOfAvailableValues(testedClassWithAvailableValues);
+      return testedClassWithAvailableValues;
+   }
 
-            if (providersFound != null) {
-               parameterProviders = providersFound;
-               constructor = c;
-            }
+   private void searchCandidateConstructors(@Nonnull CandidateConstructors candidates) {
+      CandidateConstructor annotatedConstructor = candidates.annotatedConstructor;
 
-            return true;
-         }
+      if (annotatedConstructor != null) {
+         useAnnotatedConstructorIfSatisfied(annotatedConstructor);
+      }
+      else {
+         findSatisfiedConstructorWithMostParameters(candidates.mostAccessibleFirst);
       }
-
-      return false;
    }
 
-   private void findSatisfiedConstructorWithMostParameters(@Nonnull Constructor<?>[] constructors) {
-      sortConstructorsWithMostAccessibleFirst(constructors);
+   private void useAnnotatedConstructorIfSatisfied(@Nonnull CandidateConstructor annotatedConstructor) {
+      List<InjectionProvider> providersFound = findParameterProvidersForConstructor(annotatedConstructor);
+
+      if (providersFound != null) {
+         parameterProviders = providersFound;
+         constructor = annotatedConstructor.constructor;
+      }
+   }
 
+   private void findSatisfiedConstructorWithMostParameters(@Nonnull CandidateConstructor[] candidates) {
       Constructor<?> unresolvedConstructor = null;
       List<InjectionProvider> incompleteProviders = null;
 
-      for (Constructor<?> candidateConstructor : constructors) {
-         List<InjectionProvider> providersFound = findParameterProvidersForConstructor(candidateConstructor);
+      for (CandidateConstructor candidate : candidates) {
+         Constructor<?> candidateConstructor = candidate.constructor;
+         List<InjectionProvider> providersFound = findParameterProvidersForConstructor(candidate);
 
          if (providersFound != null) {
             if (withFullInjection && containsUnresolvedProvider(providersFound)) {
@@ -144,28 +260,26 @@ public final class ConstructorSearch
    private static int getModifiers(@Nonnull Constructor<?> c) { return CONSTRUCTOR_ACCESS & c.getModifiers(); }
 
    @Nullable
-   private List<InjectionProvider> findParameterProvidersForConstructor(@Nonnull Constructor<?> candidate) {
-      Type[] parameterTypes = candidate.getGenericParameterTypes();
-      Annotation[][] parameterAnnotations = candidate.getParameterAnnotations();
+   private List<InjectionProvider> findParameterProvidersForConstructor(@Nonnull CandidateConstructor candidate) {
+      Type[] parameterTypes = candidate.parameterTypes;
       int n = parameterTypes.length;
       List<InjectionProvider> providersFound = new ArrayList<InjectionProvider>(n);
-      boolean varArgs = candidate.isVarArgs();
+      boolean varArgs = candidate.varArgs;
 
       if (varArgs) {
          n--;
       }
 
-      printCandidateConstructorNameIfRequested(candidate);
-
-      String constructorDesc = "<init>" + JavaType.getConstructorDescriptor(candidate);
+      printCandidateConstructorNameIfRequested(candidate.constructor);
 
       for (int i = 0; i < n; i++) {
          Type parameterType = parameterTypes[i];
          injectionState.setTypeOfInjectionPoint(parameterType);
 
-         String parameterName = ParameterNames.getName(testedClassDesc, constructorDesc, i);
-         Annotation[] appliedAnnotations = parameterAnnotations[i];
-         InjectionProvider provider = findOrCreateInjectionProvider(parameterType, parameterName, appliedAnnotations);
+         String parameterName = candidate.parameterNames[i];
+         Annotation[] appliedAnnotations = candidate.parameterAnnotations[i];
+         InjectionProvider provider =
+            findOrCreateInjectionProvider(parameterType, parameterName, candidate.qualifiedNames[i], appliedAnnotations);
 
          if (provider == null || providersFound.contains(provider)) {
             printParameterOfCandidateConstructorIfRequested(parameterName, provider);
@@ -189,10 +303,9 @@ public final class ConstructorSearch
 
    @Nullable
    private InjectionProvider findOrCreateInjectionProvider(
-      @Nonnull Type parameterType, @Nullable String parameterName, @Nonnull Annotation[] parameterAnnotations
+      @Nonnull Type parameterType, @Nullable String parameterName, @Nullable String qualifiedName,
+      @Nonnull Annotation[] parameterAnnotations
    ) {
-      String qualifiedName = getQualifiedName(parameterAnnotations);
-
       if (parameterName == null && qualifiedName == null) {
          return null;
       }
@@ -10,6 +10,7 @@ import java.util.regex.*;
 import javax.annotation.*;
 import javax.persistence.*;
 import static java.lang.reflect.Modifier.*;
+import static java.util.Collections.*;
 import static java.util.regex.Pattern.*;
 
 import mockit.internal.injection.*;
@@ -27,8 +28,27 @@ public final class FieldInjection extends Injector
       super(injectionState, fullInjection);
    }
 
+   /**
+    * Finds the eligible target fields in the hierarchy of the given class, which only depend on the class and on the declared tested
+    * class, so they are searched only once and then reused in every test of the current test class.
+    */
    @Nonnull
-   public static List<Field> findAllTargetInstanceFieldsInTestedClassHierarchy(
+   public List<Field> findAllTargetInstanceFieldsInTestedClassHierarchy(
+      @Nonnull Class<?> actualTestedClass, @Nonnull TestedClass testedClass
+   ) {
+      Class<?> declaredClass = testedClass.getDeclaredClass();
+      List<Field> targetFields = injectionState.getTargetFields(declaredClass, actualTestedClass);
+
+      if (targetFields == null) {
+         targetFields = unmodifiableList(searchTargetInstanceFieldsInTestedClassHierarchy(actualTestedClass, testedClass));
+         injectionState.saveTargetFields(declaredClass, actualTestedClass, targetFields);
+      }
+
+      return targetFields;
+   }
+
+   @Nonnull
+   private static List<Field> searchTargetInstanceFieldsInTestedClassHierarchy(
       @Nonnull Class<?> actualTestedClass, @Nonnull TestedClass testedClass
    ) {
       List<Field> targetFields = new ArrayList<Field>();
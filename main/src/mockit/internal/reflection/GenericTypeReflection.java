@@ -7,25 +7,112 @@ package mockit.internal.reflection;
 import java.lang.reflect.*;
 import java.util.*;
 import java.util.Map.*;
+import java.util.concurrent.*;
 import javax.annotation.*;
 
+import mockit.internal.state.*;
+
 @SuppressWarnings({"ParameterHidesMemberVariable", "OverlyComplexClass"})
 public final class GenericTypeReflection
 {
+   private static final class OwnerAndGenericType {
+      @Nonnull private final Class<?> ownerClass;
+      @Nullable private final Type genericType;
+
+      OwnerAndGenericType(@Nonnull Class<?> ownerClass, @Nullable Type genericType) {
+         this.ownerClass = ownerClass;
+         this.genericType = genericType == ownerClass ? null : genericType;
+      }
+
+      @Override
+      public boolean equals(@Nullable Object other) {
+         if (this == other) return true;
+         if (!(other instanceof OwnerAndGenericType)) return false;
+
+         OwnerAndGenericType that = (OwnerAndGenericType) other;
+         return ownerClass == that.ownerClass && (genericType == null ? that.genericType == null : genericType.equals(that.genericType));
+      }
+
+      @Override
+      public int hashCode() { return 31 * ownerClass.hashCode() + (genericType == null ? 0 : genericType.hashCode()); }
+   }
+
+   /**
+    * The instances shared by the tests executing in a test context, one per owner class and generic type.
+    * Each context has its own, so that a test class finishing in one context doesn't discard the instances used by test classes still
+    * executing in parallel in other contexts.
+    */
+   public static final class SharedInstances {
+      @Nonnull private final ConcurrentMap<OwnerAndGenericType, GenericTypeReflection> instances;
+
+      public SharedInstances() { instances = new ConcurrentHashMap<OwnerAndGenericType, GenericTypeReflection>(); }
+
+      @Nonnull
+      GenericTypeReflection forType(@Nonnull Class<?> ownerClass, @Nullable Type genericType) {
+         OwnerAndGenericType key = new OwnerAndGenericType(ownerClass, genericType);
+         GenericTypeReflection typeReflection = instances.get(key);
+
+         if (typeReflection == null) {
+            typeReflection = new GenericTypeReflection(ownerClass, genericType, true, true);
+            GenericTypeReflection previousInstance = instances.putIfAbsent(key, typeReflection);
+
+            if (previousInstance != null) {
+               typeReflection = previousInstance;
+            }
+         }
+
+         return typeReflection;
+      }
+
+      public void clear() { instances.clear(); }
+   }
+
    @Nonnull private final Map<String, Type> typeParametersToTypeArguments;
    @Nonnull private final Map<String, String> typeParametersToTypeArgumentNames;
    @Nonnull private final Class<?> ownerType;
    private final boolean withSignatures;
+   private final boolean shared;
+   @Nonnull private final ConcurrentMap<String, String> resolvedReturnTypes;
+   @Nonnull private final ConcurrentMap<String, ConcurrentMap<String, String>> resolvedSignatures;
+   @Nonnull private final ConcurrentMap<String, GenericSignature> parsedSignatures;
+
+   /**
+    * Returns the instance for the given owner class and generic type shared by the tests of the current test context, creating it the
+    * first time.
+    * Unlike other instances, a shared one is never modified after creation: the type arguments of generic methods in signatures resolved
+    * through it are not recorded for later resolutions, so that the results don't depend on which signatures other tests resolved
+    * before.
+    * This lets signatures and return types resolved through it be memoized.
+    * Shared instances are only kept until the tests of the current test class are done, so that classes (and their class loaders) from
+    * earlier test classes aren't retained.
+    */
+   @Nonnull
+   public static GenericTypeReflection forType(@Nonnull Class<?> ownerClass, @Nullable Type genericType) {
+      return TestRun.getSharedGenericTypeReflections().forType(ownerClass, genericType);
+   }
+
+   /**
+    * Discards the instances shared by the tests of the current test context, once the tests of a test class are done.
+    */
+   public static void clearSharedInstances() { TestRun.getSharedGenericTypeReflections().clear(); }
 
    public GenericTypeReflection(@Nonnull Class<?> ownerClass, @Nullable Type genericType) {
       this(ownerClass, genericType, true);
    }
 
    public GenericTypeReflection(@Nonnull Class<?> ownerClass, @Nullable Type genericType, boolean withSignatures) {
+      this(ownerClass, genericType, withSignatures, false);
+   }
+
+   private GenericTypeReflection(@Nonnull Class<?> ownerClass, @Nullable Type genericType, boolean withSignatures, boolean shared) {
       typeParametersToTypeArguments = new HashMap<String, Type>(4);
       typeParametersToTypeArgumentNames = withSignatures ? new HashMap<String, String>(4) : Collections.<String, String>emptyMap();
       ownerType = ownerClass;
       this.withSignatures = withSignatures;
+      this.shared = shared;
+      resolvedReturnTypes = new ConcurrentHashMap<String, String>(4);
+      resolvedSignatures = new ConcurrentHashMap<String, ConcurrentMap<String, String>>(4);
+      parsedSignatures = new ConcurrentHashMap<String, GenericSignature>(4);
       discoverTypeMappings(ownerClass, genericType);
    }
 
@@ -222,13 +309,16 @@ public final class GenericTypeReflection
       typeParametersToTypeArguments.put(ownerTypeDesc + ':' + typeVarName, mappedTypeArg);
 
       if (mappedTypeArgName != null) {
-         addTypeMapping(ownerTypeDesc, typeVarName, mappedTypeArgName);
+         addTypeMapping(typeParametersToTypeArgumentNames, ownerTypeDesc, typeVarName, mappedTypeArgName);
       }
    }
 
-   private void addTypeMapping(@Nonnull String ownerTypeDesc, @Nonnull String typeVarName, @Nonnull String mappedTypeArgName) {
+   private static void addTypeMapping(
+      @Nonnull Map<String, String> typeArgumentNames, @Nonnull String ownerTypeDesc, @Nonnull String typeVarName,
+      @Nonnull String mappedTypeArgName
+   ) {
       String typeMappingKey = ownerTypeDesc + ":T" + typeVarName;
-      typeParametersToTypeArgumentNames.put(typeMappingKey, mappedTypeArgName);
+      typeArgumentNames.put(typeMappingKey, mappedTypeArgName);
    }
 
    public final class GenericSignature {
@@ -385,24 +475,79 @@ public final class GenericTypeReflection
 
    @Nonnull
    public GenericSignature parseSignature(@Nonnull String genericSignature) {
-      return new GenericSignature(genericSignature);
+      GenericSignature parsedSignature = parsedSignatures.get(genericSignature);
+
+      if (parsedSignature == null) {
+         parsedSignature = new GenericSignature(genericSignature);
+         parsedSignatures.put(genericSignature, parsedSignature);
+      }
+
+      return parsedSignature;
    }
 
+   /**
+    * Resolves the return type in the given method signature.
+    * Unless this is a {@linkplain #forType shared instance}, the type arguments of a generic method are also recorded, and then used in
+    * the resolution of later signatures and return types through the same instance.
+    */
    @Nonnull
    public String resolveSignature(@Nonnull String ownerTypeDesc, @Nonnull String genericSignature) {
-      addTypeArgumentsIfAvailable(ownerTypeDesc, genericSignature);
+      if (!shared) {
+         addMethodTypeArgumentsIfAvailable(typeParametersToTypeArgumentNames, ownerTypeDesc, genericSignature);
+         return resolveReturnTypeInSignature(typeParametersToTypeArgumentNames, ownerTypeDesc, genericSignature);
+      }
+
+      ConcurrentMap<String, String> resolvedSignaturesForOwner = getResolvedSignatures(ownerTypeDesc);
+      String resolvedSignature = resolvedSignaturesForOwner.get(genericSignature);
 
+      if (resolvedSignature == null) {
+         Map<String, String> typeArgumentNames = typeParametersToTypeArgumentNames;
+
+         if (genericSignature.charAt(0) == '<') {
+            typeArgumentNames = new HashMap<String, String>(typeArgumentNames);
+            addMethodTypeArgumentsIfAvailable(typeArgumentNames, ownerTypeDesc, genericSignature);
+         }
+
+         resolvedSignature = resolveReturnTypeInSignature(typeArgumentNames, ownerTypeDesc, genericSignature);
+         resolvedSignaturesForOwner.put(genericSignature, resolvedSignature);
+      }
+
+      return resolvedSignature;
+   }
+
+   @Nonnull
+   private static String resolveReturnTypeInSignature(
+      @Nonnull Map<String, String> typeArgumentNames, @Nonnull String ownerTypeDesc, @Nonnull String genericSignature
+   ) {
       int p = genericSignature.lastIndexOf(')') + 1;
       int q = genericSignature.length();
       String returnType = genericSignature.substring(p, q);
-      String resolvedReturnType = replaceTypeParametersWithActualTypes(ownerTypeDesc, returnType);
+      String resolvedReturnType = replaceTypeParametersWithActualTypes(typeArgumentNames, ownerTypeDesc, returnType);
 
       StringBuilder finalSignature = new StringBuilder(genericSignature);
       finalSignature.replace(p, q, resolvedReturnType);
       return finalSignature.toString();
    }
 
-   private void addTypeArgumentsIfAvailable(@Nonnull String ownerTypeDesc, @Nonnull String signature) {
+   @Nonnull
+   private ConcurrentMap<String, String> getResolvedSignatures(@Nonnull String ownerTypeDesc) {
+      ConcurrentMap<String, String> resolvedSignaturesForOwner = resolvedSignatures.get(ownerTypeDesc);
+
+      if (resolvedSignaturesForOwner == null) {
+         resolvedSignaturesForOwner = new ConcurrentHashMap<String, String>(4);
+         ConcurrentMap<String, String> previousSignatures = resolvedSignatures.putIfAbsent(ownerTypeDesc, resolvedSignaturesForOwner);
+
+         if (previousSignatures != null) {
+            resolvedSignaturesForOwner = previousSignatures;
+         }
+      }
+
+      return resolvedSignaturesForOwner;
+   }
+
+   private static void addMethodTypeArgumentsIfAvailable(
+      @Nonnull Map<String, String> typeArgumentNames, @Nonnull String ownerTypeDesc, @Nonnull String signature
+   ) {
       int firstParen = signature.indexOf('(');
       if (firstParen == 0) return;
 
@@ -431,14 +576,16 @@ public final class GenericTypeReflection
          }
 
          String typeArg = signature.substring(q, r);
-         addTypeMapping(ownerTypeDesc, typeVar, typeArg);
+         addTypeMapping(typeArgumentNames, ownerTypeDesc, typeVar, typeArg);
       }
    }
 
    @Nonnull
-   private String replaceTypeParametersWithActualTypes(@Nonnull String ownerTypeDesc, @Nonnull String typeDesc) {
-      if (typeDesc.charAt(0) == 'T' && !typeParametersToTypeArgumentNames.isEmpty()) {
-         return replaceTypeParameters(ownerTypeDesc, typeDesc);
+   private static String replaceTypeParametersWithActualTypes(
+      @Nonnull Map<String, String> typeArgumentNames, @Nonnull String ownerTypeDesc, @Nonnull String typeDesc
+   ) {
+      if (typeDesc.charAt(0) == 'T' && !typeArgumentNames.isEmpty()) {
+         return replaceTypeParameters(typeArgumentNames, ownerTypeDesc, typeDesc);
       }
 
       int p = typeDesc.indexOf('<');
@@ -449,7 +596,7 @@ public final class GenericTypeReflection
 
       String resolvedTypeDesc = typeDesc;
 
-      for (Entry<String, String> paramAndArg : typeParametersToTypeArgumentNames.entrySet()) {
+      for (Entry<String, String> paramAndArg : typeArgumentNames.entrySet()) {
          String typeMappingKey = paramAndArg.getKey();
          String typeParam = typeMappingKey.substring(typeMappingKey.indexOf(':') + 1) + ';';
          String typeArg = paramAndArg.getValue() + ';';
@@ -460,11 +607,13 @@ public final class GenericTypeReflection
    }
 
    @Nonnull
-   private String replaceTypeParameters(@Nonnull String ownerTypeDesc, @Nonnull String typeDesc) {
+   private static String replaceTypeParameters(
+      @Nonnull Map<String, String> typeArgumentNames, @Nonnull String ownerTypeDesc, @Nonnull String typeDesc
+   ) {
       String typeParameter = typeDesc.substring(0, typeDesc.length() - 1);
 
       while (true) {
-         @Nullable String typeArg = typeParametersToTypeArgumentNames.get(ownerTypeDesc + ':' + typeParameter);
+         @Nullable String typeArg = typeArgumentNames.get(ownerTypeDesc + ':' + typeParameter);
 
          if (typeArg == null) {
             return typeDesc;
@@ -507,8 +656,27 @@ public final class GenericTypeReflection
       return getOwnerClassDesc(ownerClass);
    }
 
+   /**
+    * Resolves the return type in the given method signature, memoizing the result if this is a {@linkplain #forType shared instance}.
+    */
    @Nonnull
    public String resolveReturnType(@Nonnull String genericSignature) {
+      if (!shared) {
+         return resolveReturnTypeFromSignature(genericSignature);
+      }
+
+      String resolvedReturnType = resolvedReturnTypes.get(genericSignature);
+
+      if (resolvedReturnType == null) {
+         resolvedReturnType = resolveReturnTypeFromSignature(genericSignature);
+         resolvedReturnTypes.put(genericSignature, resolvedReturnType);
+      }
+
+      return resolvedReturnType;
+   }
+
+   @Nonnull
+   private String resolveReturnTypeFromSignature(@Nonnull String genericSignature) {
       int p = genericSignature.lastIndexOf(')') + 1;
 
       if (typeParametersToTypeArgumentNames.isEmpty() && genericSignature.charAt(0) != '<') {
@@ -540,7 +708,8 @@ public final class GenericTypeReflection
    private String resolveReturnType(@Nonnull Class<?> ownerType, @Nonnull String genericReturnType) {
       do {
          String ownerTypeDesc = getOwnerClassDesc(ownerType);
-         String resolvedReturnType = replaceTypeParametersWithActualTypes(ownerTypeDesc, genericReturnType);
+         String resolvedReturnType =
+            replaceTypeParametersWithActualTypes(typeParametersToTypeArgumentNames, ownerTypeDesc, genericReturnType);
 
          if (!resolvedReturnType.equals(genericReturnType)) {
             return resolvedReturnType;
@@ -12,6 +12,7 @@ import mockit.coverage.*;
 import mockit.internal.*;
 import mockit.internal.expectations.transformation.*;
 import mockit.internal.state.*;
+import mockit.internal.state.TestRun;
 import mockit.internal.util.*;
 import static mockit.internal.startup.ClassLoadingBridgeFields.createSyntheticFieldsInJREClassToHoldClassLoadingBridges;
 
@@ -75,10 +76,15 @@ public final class Startup
     * <p/>
     * For additional details, see the {@link #premain(String, Instrumentation)} method.
     *
-    * @param agentArgs not used
+    * @param agentArgs "<tt>coverage</tt>" to activate code coverage, or "<tt>coverage-dump</tt>"/"<tt>coverage-dump-reset</tt>" to write a
+    *                  snapshot of the coverage data gathered so far, optionally resetting execution counts
     * @param inst      the instrumentation service provided by the JVM
     */
    public static void agentmain(@Nullable String agentArgs, @Nonnull Instrumentation inst) {
+      if (dumpCodeCoverageIfRequested(agentArgs)) {
+         return;
+      }
+
       if (!inst.isRedefineClassesSupported()) {
          throw new UnsupportedOperationException("This JRE must be started in debug mode, or with -javaagent:<proper path>/jmockit.jar");
       }
@@ -88,6 +94,24 @@ public final class Startup
       activateCodeCoverageIfRequested(agentArgs, inst);
    }
 
+   private static boolean dumpCodeCoverageIfRequested(@Nullable String agentArgs) {
+      boolean dumpRequested = "coverage-dump".equals(agentArgs);
+      boolean dumpWithResetRequested = "coverage-dump-reset".equals(agentArgs);
+
+      if (dumpRequested || dumpWithResetRequested) {
+         try {
+            CodeCoverage.dumpSnapshot(dumpWithResetRequested);
+         }
+         catch (Throwable t) {
+            writeCoverageFailure(t);
+         }
+
+         return true;
+      }
+
+      return false;
+   }
+
    private static boolean activateCodeCoverageIfRequested(@Nullable String agentArgs, @Nonnull Instrumentation inst) {
       if ("coverage".equals(agentArgs)) {
          try {
@@ -97,18 +121,22 @@ public final class Startup
             return true;
          }
          catch (Throwable t) {
-            try {
-               PrintWriter out = new PrintWriter("coverage-failure.txt");
-               t.printStackTrace(out);
-               out.close();
-            }
-            catch (FileNotFoundException ignore) {}
+            writeCoverageFailure(t);
          }
       }
 
       return false;
    }
 
+   private static void writeCoverageFailure(@Nonnull Throwable failure) {
+      try {
+         PrintWriter out = new PrintWriter("coverage-failure.txt");
+         failure.printStackTrace(out);
+         out.close();
+      }
+      catch (FileNotFoundException ignore) {}
+   }
+
    @Nonnull @SuppressWarnings("ConstantConditions")
    public static Instrumentation instrumentation() { return instrumentation; }
 
@@ -154,6 +182,9 @@ public final class Startup
    }
 
    public static void redefineMethods(@Nonnull ClassDefinition... classDefs) {
+      boolean timed = canTimeRedefinition(classDefs);
+      long startTime = timed ? System.nanoTime() : 0L;
+
       try {
          //noinspection ConstantConditions
          instrumentation.redefineClasses(classDefs);
@@ -175,6 +206,50 @@ public final class Startup
          // If the above didn't throw upon detecting a NoClassDefFoundError, then ignore the original error and
          // continue, in order to prevent secondary failures.
       }
+
+      Statistics.classesRedefined(classDefs.length, timed ? System.nanoTime() - startTime : 0L);
+   }
+
+   /**
+    * Whether the clock can be read around the redefinition of the given classes, which is not the case when <tt>java.lang.System</tt> is
+    * mocked or is one of the classes being redefined.
+    */
+   private static boolean canTimeRedefinition(@Nonnull ClassDefinition[] classDefs) {
+      if (!Statistics.ENABLED || TestRun.mockFixture().containsRedefinedClass(System.class)) {
+         return false;
+      }
+
+      for (ClassDefinition classDef : classDefs) {
+         if (classDef.getDefinitionClass() == System.class) {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   /**
+    * Redefines the given classes at once, if possible; since the JVM applies such a redefinition to all classes or to none, this is the
+    * case when every class can be redefined.
+    *
+    * @return <tt>false</tt> if no class was redefined, with the reason left for the caller to find out through separate redefinitions
+    */
+   public static boolean redefineMethodsIfPossible(@Nonnull ClassDefinition... classDefs) {
+      boolean timed = canTimeRedefinition(classDefs);
+      long startTime = timed ? System.nanoTime() : 0L;
+
+      try {
+         //noinspection ConstantConditions
+         instrumentation.redefineClasses(classDefs);
+      }
+      catch (ClassNotFoundException ignore) { return false; }
+      catch (UnmodifiableClassException ignore) { return false; }
+      catch (UnsupportedOperationException ignore) { return false; }
+      catch (LinkageError ignore) { return false; }
+      catch (InternalError ignore) { return false; }
+
+      Statistics.classesRedefined(classDefs.length, timed ? System.nanoTime() - startTime : 0L);
+      return true;
    }
 
    private static void detectMissingDependenciesIfAny(@Nonnull Class<?> mockedClass) {
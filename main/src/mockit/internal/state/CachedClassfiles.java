@@ -40,6 +40,8 @@ public final class CachedClassfiles implements ClassFileTransformer
       @Nullable ClassLoader loader, String classDesc, @Nullable Class<?> classBeingRedefinedOrRetransformed,
       @Nullable ProtectionDomain protectionDomain, @Nonnull byte[] classfileBuffer
    ) {
+      long startTime = Statistics.ENABLED ? System.nanoTime() : 0L;
+
       if (classDesc != null) { // can be null for Java 8 lambdas
          if (classBeingRedefinedOrRetransformed != null && classBeingRedefinedOrRetransformed == classBeingCached) {
             addClassfile(loader, classDesc, classfileBuffer);
@@ -47,6 +49,7 @@ public final class CachedClassfiles implements ClassFileTransformer
          }
       }
 
+      Statistics.transformerCalled(Statistics.Counter.CachedClassfilesTransformerCalls, startTime);
       return null;
    }
 
@@ -9,6 +9,7 @@ import java.lang.reflect.*;
 import java.util.*;
 import java.util.Map.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import javax.annotation.*;
 import static java.lang.reflect.Modifier.*;
 
@@ -22,19 +23,31 @@ import static mockit.internal.util.Utilities.*;
 
 /**
  * Holds data about redefined/transformed classes, with methods to add/remove and query such data.
+ * <p/>
+ * Each redefined or transformed class is owned by the {@linkplain TestContext test context} which modified it, until restored by a save
+ * point of that same context; a test running in parallel from a different context can't modify the class in the meantime.
  */
 public final class MockFixture
 {
+   @Nonnull private static final AtomicLong RESTORATIONS = new AtomicLong();
+   @Nonnull private static final AtomicLong CLASSES_RESTORED = new AtomicLong();
+   @Nonnull private static final AtomicLong RESTORATION_TIME = new AtomicLong();
+
    /**
     * Similar to {@link #redefinedClasses}, but for classes modified by a <tt>ClassFileTransformer</tt> such as the
     * <tt>CaptureTransformer</tt>, and containing the pre-transform bytecode instead of the modified one.
     *
-    * @see #addTransformedClass(ClassIdentification, byte[])
+    * @see #addTransformedClass(TestContext, ClassIdentification, byte[])
     * @see #getTransformedClasses()
-    * @see #restoreTransformedClasses(Set)
+    * @see #restoreClasses(TestContext, Set, Map)
     */
    @Nonnull private final Map<ClassIdentification, byte[]> transformedClasses;
 
+   /**
+    * The test context which caused the transformation of each class in {@link #transformedClasses}.
+    */
+   @Nonnull private final Map<ClassIdentification, TestContext> transformedClassOwners;
+
    /**
     * Real classes currently redefined in the running JVM and their current (modified) bytecodes.
     * <p/>
@@ -48,10 +61,26 @@ public final class MockFixture
     * @see #getRedefinedClasses()
     * @see #getRedefinedClassfile(Class)
     * @see #containsRedefinedClass(Class)
-    * @see #restoreRedefinedClasses(Map)
+    * @see #restoreClasses(TestContext, Set, Map)
     */
    @Nonnull private final Map<Class<?>, byte[]> redefinedClasses;
 
+   /**
+    * The test context which currently owns each class redefined through the Mocking or Faking APIs, including classes about to be
+    * redefined.
+    *
+    * @see #claimClass(Class)
+    */
+   @Nonnull private final Map<Class<?>, TestContext> classOwners;
+
+   /**
+    * The original bytecode of classes currently redefined, kept from the first redefinition of each class until it gets restored to its
+    * original definition, so that the classfile doesn't need to be read again at that time.
+    *
+    * @see #addRedefinedClass(ClassDefinition)
+    */
+   @Nonnull private final Map<Class<?>, byte[]> originalClassfiles;
+
    /**
     * Subset of all currently redefined classes which contain one or more native methods.
     * <p/>
@@ -74,27 +103,19 @@ public final class MockFixture
    @Nonnull private final Map<Class<?>, String> realClassesToFakeClasses;
 
    /**
-    * A list of classes that are currently mocked.
-    * Said classes are also added to {@link #mockedTypesAndInstances}.
+    * A list of classes that are currently mocked, from all test contexts.
+    * Said classes are also added to the {@linkplain TestContext#mockedClasses list for the context} which mocked them, and a class
+    * mocked from more than one context appears once for each one.
+    * Mocked types and their corresponding {@linkplain InstanceFactory mocked instance factories} are kept in each context.
     *
-    * @see #registerMockedClass(Class)
+    * @see #registerMockedClass(TestContext, Class)
     * @see #getMockedClasses()
     * @see #isStillMocked(Object, String)
     * @see #isInstanceOfMockedClass(Object)
-    * @see #removeMockedClasses(List)
+    * @see #removeMockedClasses(TestContext, List)
     */
    @Nonnull private final List<Class<?>> mockedClasses;
 
-   /**
-    * A map of mocked types to their corresponding {@linkplain InstanceFactory mocked instance factories}.
-    *
-    * @see #registerInstanceFactoryForMockedType(Class, InstanceFactory)
-    * @see #findInstanceFactory(Type)
-    * @see #isStillMocked(Object, String)
-    * @see #removeMockedClasses(List)
-    */
-   @Nonnull private final Map<Type, InstanceFactory> mockedTypesAndInstances;
-
    /**
     * A list of "capturing" class file transformers, used by both the mocking and faking APIs.
     *
@@ -102,48 +123,99 @@ public final class MockFixture
     * @see #findCaptureOfImplementations(Class)
     * @see #areCapturedClasses(Class, Class)
     * @see #isCaptured(Object)
-    * @see #getCaptureTransformerCount()
-    * @see #removeCaptureTransformers(int)
+    * @see #getCaptureTransformerCount(TestContext)
+    * @see #removeCaptureTransformers(TestContext, int)
     */
    @Nonnull private final List<CaptureTransformer<?>> captureTransformers;
 
    MockFixture() {
-      transformedClasses = new HashMap<ClassIdentification, byte[]>(2);
+      transformedClasses = new ConcurrentHashMap<ClassIdentification, byte[]>(2);
+      transformedClassOwners = new ConcurrentHashMap<ClassIdentification, TestContext>(2);
       redefinedClasses = new ConcurrentHashMap<Class<?>, byte[]>(8);
-      redefinedClassesWithNativeMethods = new HashSet<String>();
-      realClassesToFakeClasses = new IdentityHashMap<Class<?>, String>(8);
-      mockedClasses = new ArrayList<Class<?>>();
-      mockedTypesAndInstances = new IdentityHashMap<Type, InstanceFactory>();
-      captureTransformers = new ArrayList<CaptureTransformer<?>>();
+      classOwners = new ConcurrentHashMap<Class<?>, TestContext>(8);
+      originalClassfiles = new ConcurrentHashMap<Class<?>, byte[]>(8);
+      redefinedClassesWithNativeMethods = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+      realClassesToFakeClasses = Collections.synchronizedMap(new IdentityHashMap<Class<?>, String>(8));
+      mockedClasses = new CopyOnWriteArrayList<Class<?>>();
+      captureTransformers = new CopyOnWriteArrayList<CaptureTransformer<?>>();
    }
 
    // Methods to add/remove transformed/redefined classes /////////////////////////////////////////////////////////////
 
-   public void addTransformedClass(@Nonnull ClassIdentification classId, @Nonnull byte[] pretransformClassfile) {
+   public void addTransformedClass(
+      @Nonnull TestContext owner, @Nonnull ClassIdentification classId, @Nonnull byte[] pretransformClassfile
+   ) {
       transformedClasses.put(classId, pretransformClassfile);
+      transformedClassOwners.put(classId, owner);
    }
 
    // Methods used by both the Mocking and Faking APIs.
 
+   /**
+    * Makes the current test context the owner of a class about to be redefined, unless it already is.
+    *
+    * @throws IllegalStateException if the class is currently owned by a different test context, for a test running in parallel
+    */
+   public void claimClass(@Nonnull Class<?> classToRedefine) {
+      TestContext context = TestRun.context();
+      TestContext owner = classOwners.get(classToRedefine);
+
+      if (owner == null) {
+         owner = classOwners.putIfAbsent(classToRedefine, context);
+      }
+
+      if (owner != null && !isUsableFrom(owner, context)) {
+         throw new IllegalStateException(
+            "JMockit: " + classToRedefine.getName() + " is already mocked or faked by a test running concurrently in " +
+            owner.getDescription() + "; tests which mock or fake the same classes can't run in parallel");
+      }
+   }
+
+   /**
+    * Checks whether classes owned by a given context can be redefined or used from the current context, which is the case for the
+    * context itself and for contexts sharing it as the context of their test class.
+    */
+   private static boolean isUsableFrom(@Nonnull TestContext owner, @Nonnull TestContext context) {
+      return owner == context || owner == context.sharedClassContext;
+   }
+
    public void addRedefinedClass(@Nonnull ClassDefinition newClassDefinition) {
-      redefinedClasses.put(newClassDefinition.getDefinitionClass(), newClassDefinition.getDefinitionClassFile());
+      Class<?> redefinedClass = newClassDefinition.getDefinitionClass();
+      claimClass(redefinedClass);
+
+      byte[] previousDefinition = redefinedClasses.put(redefinedClass, newClassDefinition.getDefinitionClassFile());
+
+      if (previousDefinition == null && !originalClassfiles.containsKey(redefinedClass)) {
+         String classDesc = redefinedClass.getName().replace('.', '/');
+         byte[] originalClassfile = CachedClassfiles.getClassfile(redefinedClass.getClassLoader(), classDesc);
+
+         if (originalClassfile != null) {
+            originalClassfiles.put(redefinedClass, originalClassfile);
+         }
+      }
    }
 
    public void registerMockedClass(@Nonnull Class<?> mockedType) {
-      if (!isMockedClass(mockedType)) {
+      registerMockedClass(TestRun.context(), mockedType);
+   }
+
+   public void registerMockedClass(@Nonnull TestContext context, @Nonnull Class<?> mockedType) {
+      if (!isMockedClass(context, mockedType)) {
          if (Proxy.isProxyClass(mockedType)) {
             mockedType = mockedType.getInterfaces()[0];
          }
 
+         context.mockedClasses.add(mockedType);
          mockedClasses.add(mockedType);
       }
    }
 
-   private boolean isMockedClass(@Nonnull Class<?> targetClass) {
-      int n = mockedClasses.size();
+   private static boolean isMockedClass(@Nonnull TestContext context, @Nonnull Class<?> targetClass) {
+      List<Class<?>> contextMockedClasses = context.mockedClasses;
+      int n = contextMockedClasses.size();
 
       for (int i = 0; i < n; i++) {
-         Class<?> mockedClass = mockedClasses.get(i);
+         Class<?> mockedClass = contextMockedClasses.get(i);
 
          if (mockedClass == targetClass) {
             return true;
@@ -156,6 +228,10 @@ public final class MockFixture
    // Methods used by the Mocking API.
 
    public void redefineClasses(@Nonnull ClassDefinition... definitions) {
+      for (ClassDefinition def : definitions) {
+         claimClass(def.getDefinitionClass());
+      }
+
       Startup.redefineMethods(definitions);
 
       for (ClassDefinition def : definitions) {
@@ -189,7 +265,27 @@ public final class MockFixture
       }
 
       targetClass = instance.getClass();
-      return mockedTypesAndInstances.containsKey(targetClass) || isInstanceOfMockedClass(instance);
+      return TestRun.context().mockedTypesAndInstances.containsKey(targetClass) || isInstanceOfMockedClass(instance);
+   }
+
+   /**
+    * Checks that a mocked class invoked from the thread executing the tests of the current context isn't owned by a different context,
+    * which happens when the class was mocked by a test running in parallel.
+    *
+    * @throws IllegalStateException if the class is owned by a different test context
+    */
+   public void checkNotMockedByAnotherTestContext(@Nonnull String classDesc) {
+      if (!classOwners.isEmpty()) {
+         Class<?> mockedClass = ClassLoad.loadByInternalName(classDesc);
+         TestContext owner = classOwners.get(mockedClass);
+         TestContext context = TestRun.context();
+
+         if (owner != null && !isUsableFrom(owner, context) && TestRun.isTestThreadFor(context)) {
+            throw new IllegalStateException(
+               "JMockit: " + mockedClass.getName() + " is mocked by a test running concurrently in " + owner.getDescription() +
+               ", and can't be used by tests running in parallel with it");
+         }
+      }
    }
 
    public boolean isInstanceOfMockedClass(@Nonnull Object mockedInstance) {
@@ -198,12 +294,40 @@ public final class MockFixture
    }
 
    public void registerInstanceFactoryForMockedType(@Nonnull Class<?> mockedType, @Nonnull InstanceFactory mockedInstanceFactory) {
-      registerMockedClass(mockedType);
-      mockedTypesAndInstances.put(mockedType, mockedInstanceFactory);
+      TestContext context = TestRun.context();
+      registerMockedClass(context, mockedType);
+      context.mockedTypesAndInstances.put(mockedType, mockedInstanceFactory);
    }
 
    @Nullable
    public InstanceFactory findInstanceFactory(@Nonnull Type mockedType) {
+      TestContext context = TestRun.context();
+      InstanceFactory instanceFactory = findInstanceFactory(context, mockedType);
+
+      if (instanceFactory == null) {
+         TestContext classContext = context.sharedClassContext;
+
+         if (classContext != null) {
+            instanceFactory = findInstanceFactory(classContext, mockedType);
+         }
+      }
+
+      return instanceFactory;
+   }
+
+   @Nullable
+   private static InstanceFactory findInstanceFactory(@Nonnull TestContext context, @Nonnull Type mockedType) {
+      Map<Type, InstanceFactory> mockedTypesAndInstances = context.mockedTypesAndInstances;
+
+      synchronized (mockedTypesAndInstances) {
+         return findInstanceFactory(mockedTypesAndInstances, mockedType);
+      }
+   }
+
+   @Nullable
+   private static InstanceFactory findInstanceFactory(
+      @Nonnull Map<Type, InstanceFactory> mockedTypesAndInstances, @Nonnull Type mockedType
+   ) {
       InstanceFactory instanceFactory = mockedTypesAndInstances.get(mockedType);
 
       if (instanceFactory != null) {
@@ -252,22 +376,71 @@ public final class MockFixture
 
    // Methods used by test save-points ////////////////////////////////////////////////////////////////////////////////
 
-   void restoreTransformedClasses(@Nonnull Set<ClassIdentification> previousTransformedClasses) {
-      if (!transformedClasses.isEmpty()) {
-         Set<ClassIdentification> classesToRestore;
+   /**
+    * Restores all classes transformed or redefined by the given test context after the given previous state was obtained, through a
+    * single redefinition of those classes in the JVM.
+    * If that fails, the classes are restored one at a time instead, so that a class which can't be restored doesn't prevent the others
+    * from being so; a class is only removed from the transformed or redefined ones once actually restored.
+    */
+   void restoreClasses(
+      @Nonnull TestContext owner, @Nonnull Set<ClassIdentification> previousTransformedClasses,
+      @Nonnull Map<?, byte[]> previousRedefinedClasses
+   ) {
+      // The clock can't be used when java.lang.System is itself mocked and about to be restored.
+      boolean timed = !redefinedClasses.containsKey(System.class);
+
+      Map<Class<?>, byte[]> definitionsToRestore = new LinkedHashMap<Class<?>, byte[]>();
+      Map<Class<?>, ClassIdentification> transformedClassesToRestore =
+         collectTransformedClassesToRestore(owner, previousTransformedClasses, definitionsToRestore);
+      Map<Class<?>, byte[]> redefinedClassesToRestore =
+         collectRedefinedClassesToRestore(owner, previousRedefinedClasses, definitionsToRestore);
+
+      boolean restoredAtOnce = definitionsToRestore.isEmpty() || redefineClassesToRestore(definitionsToRestore, timed);
+      Set<Class<?>> classesToRestore = new LinkedHashSet<Class<?>>(definitionsToRestore.keySet());
+      classesToRestore.addAll(redefinedClassesToRestore.keySet());
 
-         if (previousTransformedClasses.isEmpty()) {
-            classesToRestore = transformedClasses.keySet();
-         }
-         else {
-            classesToRestore = getTransformedClasses();
-            classesToRestore.removeAll(previousTransformedClasses);
+      try {
+         for (Class<?> classToRestore : classesToRestore) {
+            byte[] definitionToRestore = definitionsToRestore.get(classToRestore);
+
+            if (!restoredAtOnce && definitionToRestore != null) {
+               Startup.redefineMethods(classToRestore, definitionToRestore);
+               RESTORATIONS.incrementAndGet();
+               CLASSES_RESTORED.incrementAndGet();
+               Statistics.increment(Statistics.Counter.SavePointRestorations);
+               Statistics.increment(Statistics.Counter.ClassesRestored);
+            }
+
+            completeRestoration(owner, classToRestore, transformedClassesToRestore, redefinedClassesToRestore);
          }
+      }
+      finally {
+         releaseClassesNoLongerRedefined(owner);
+      }
+   }
+
+   @Nonnull
+   private Map<Class<?>, ClassIdentification> collectTransformedClassesToRestore(
+      @Nonnull TestContext owner, @Nonnull Set<ClassIdentification> previousTransformedClasses,
+      @Nonnull Map<Class<?>, byte[]> definitionsToRestore
+   ) {
+      if (transformedClasses.isEmpty()) {
+         return Collections.emptyMap();
+      }
+
+      Map<Class<?>, ClassIdentification> classesToRestore = new HashMap<Class<?>, ClassIdentification>();
 
-         if (!classesToRestore.isEmpty()) {
-            restoreAndRemoveTransformedClasses(classesToRestore);
+      for (Entry<ClassIdentification, byte[]> classIdAndDefinition : transformedClasses.entrySet()) {
+         ClassIdentification transformedClassId = classIdAndDefinition.getKey();
+
+         if (!previousTransformedClasses.contains(transformedClassId) && transformedClassOwners.get(transformedClassId) == owner) {
+            Class<?> transformedClass = transformedClassId.getLoadedClass();
+            definitionsToRestore.put(transformedClass, classIdAndDefinition.getValue());
+            classesToRestore.put(transformedClass, transformedClassId);
          }
       }
+
+      return classesToRestore;
    }
 
    @Nonnull
@@ -281,56 +454,139 @@ public final class MockFixture
       return redefinedClasses.isEmpty() ? Collections.<Class<?>, byte[]>emptyMap() : new HashMap<Class<?>, byte[]>(redefinedClasses);
    }
 
-   private void restoreAndRemoveTransformedClasses(@Nonnull Set<ClassIdentification> classesToRestore) {
-      for (ClassIdentification transformedClassId : classesToRestore) {
-         byte[] definitionToRestore = transformedClasses.get(transformedClassId);
-         Startup.redefineMethods(transformedClassId, definitionToRestore);
-      }
-
-      transformedClasses.keySet().removeAll(classesToRestore);
-   }
-
-   void restoreRedefinedClasses(@Nonnull Map<?, byte[]> previousDefinitions) {
+   /**
+    * Finds the redefined classes to be restored, adding the definitions to restore them to the given map.
+    *
+    * @return each class to be restored, mapped to the previous definition it gets restored to, or to <tt>null</tt> if restored to its
+    * original definition
+    */
+   @Nonnull
+   private Map<Class<?>, byte[]> collectRedefinedClassesToRestore(
+      @Nonnull TestContext owner, @Nonnull Map<?, byte[]> previousDefinitions, @Nonnull Map<Class<?>, byte[]> definitionsToRestore
+   ) {
       if (redefinedClasses.isEmpty()) {
-         return;
+         return Collections.emptyMap();
       }
 
-      Iterator<Entry<Class<?>, byte[]>> itr = redefinedClasses.entrySet().iterator();
+      Map<Class<?>, byte[]> classesToRestore = new HashMap<Class<?>, byte[]>();
 
-      while (itr.hasNext()) {
-         Entry<Class<?>, byte[]> entry = itr.next();
-         Class<?> redefinedClass = entry.getKey();
-         byte[] currentDefinition = entry.getValue();
+      for (Entry<Class<?>, byte[]> classAndDefinition : redefinedClasses.entrySet()) {
+         Class<?> redefinedClass = classAndDefinition.getKey();
+         byte[] currentDefinition = classAndDefinition.getValue();
          byte[] previousDefinition = previousDefinitions.get(redefinedClass);
+         TestContext classOwner = classOwners.get(redefinedClass);
+
+         // A class owned by the shared class context can only be restored to its class-level definition, never to the original one.
+         if (classOwner != null && classOwner != owner && (classOwner != owner.sharedClassContext || previousDefinition == null)) {
+            continue;
+         }
 
          if (previousDefinition == null) {
-            restoreDefinition(redefinedClass);
-            itr.remove();
+            if (!isGeneratedImplementationClass(redefinedClass)) {
+               definitionsToRestore.put(redefinedClass, getOriginalClassfile(redefinedClass));
+            }
+
+            classesToRestore.put(redefinedClass, null);
          }
          else if (currentDefinition != previousDefinition) {
-            Startup.redefineMethods(redefinedClass, previousDefinition);
-            entry.setValue(previousDefinition);
+            definitionsToRestore.put(redefinedClass, previousDefinition);
+            classesToRestore.put(redefinedClass, previousDefinition);
          }
       }
+
+      return classesToRestore;
    }
 
-   private void restoreDefinition(@Nonnull Class<?> redefinedClass) {
-      if (!isGeneratedImplementationClass(redefinedClass)) {
-         byte[] previousDefinition = ClassFile.getClassFile(redefinedClass);
-         Startup.redefineMethods(redefinedClass, previousDefinition);
+   @Nonnull
+   private byte[] getOriginalClassfile(@Nonnull Class<?> redefinedClass) {
+      byte[] originalClassfile = originalClassfiles.get(redefinedClass);
+      return originalClassfile == null ? ClassFile.getClassFile(redefinedClass) : originalClassfile;
+   }
+
+   /**
+    * Redefines the given classes at once.
+    *
+    * @return whether all classes were restored, or none
+    */
+   private static boolean redefineClassesToRestore(@Nonnull Map<Class<?>, byte[]> definitionsToRestore, boolean timed) {
+      ClassDefinition[] classDefs = new ClassDefinition[definitionsToRestore.size()];
+      int i = 0;
+
+      for (Entry<Class<?>, byte[]> classAndDefinition : definitionsToRestore.entrySet()) {
+         classDefs[i++] = new ClassDefinition(classAndDefinition.getKey(), classAndDefinition.getValue());
       }
 
-      if (redefinedClassesWithNativeMethods.contains(redefinedClass.getName())) {
-         reregisterNativeMethodsForRestoredClass(redefinedClass);
+      long startTime = timed ? System.nanoTime() : 0L;
+
+      if (!Startup.redefineMethodsIfPossible(classDefs)) {
+         return false;
       }
 
-      removeMockedClass(redefinedClass);
-      discardStateForCorrespondingFakeClassIfAny(redefinedClass);
+      RESTORATIONS.incrementAndGet();
+      CLASSES_RESTORED.addAndGet(classDefs.length);
+      Statistics.increment(Statistics.Counter.SavePointRestorations);
+      Statistics.add(Statistics.Counter.ClassesRestored, classDefs.length);
+
+      if (timed) {
+         long elapsedTime = System.nanoTime() - startTime;
+         RESTORATION_TIME.addAndGet(elapsedTime);
+         Statistics.add(Statistics.Counter.ClassRestorationNanos, elapsedTime);
+      }
+
+      return true;
    }
 
-   private void removeMockedClass(@Nonnull Class<?> mockedClass) {
-      mockedTypesAndInstances.remove(mockedClass);
-      mockedClasses.remove(mockedClass);
+   /**
+    * Discards the information kept for a transformed or redefined class which has just been restored.
+    * A class restored to its original definition is no longer mocked, and its original classfile is no longer needed.
+    */
+   private void completeRestoration(
+      @Nonnull TestContext owner, @Nonnull Class<?> restoredClass,
+      @Nonnull Map<Class<?>, ClassIdentification> transformedClassesToRestore, @Nonnull Map<Class<?>, byte[]> redefinedClassesToRestore
+   ) {
+      ClassIdentification transformedClassId = transformedClassesToRestore.get(restoredClass);
+
+      if (transformedClassId != null) {
+         transformedClasses.remove(transformedClassId);
+         transformedClassOwners.remove(transformedClassId);
+      }
+
+      if (redefinedClassesToRestore.containsKey(restoredClass)) {
+         byte[] previousDefinition = redefinedClassesToRestore.get(restoredClass);
+
+         if (previousDefinition != null) {
+            redefinedClasses.put(restoredClass, previousDefinition);
+            return;
+         }
+
+         redefinedClasses.remove(restoredClass);
+         originalClassfiles.remove(restoredClass);
+
+         if (redefinedClassesWithNativeMethods.contains(restoredClass.getName())) {
+            reregisterNativeMethodsForRestoredClass(restoredClass);
+         }
+
+         removeMockedClass(owner, restoredClass);
+         discardStateForCorrespondingFakeClassIfAny(restoredClass);
+      }
+   }
+
+   private void releaseClassesNoLongerRedefined(@Nonnull TestContext owner) {
+      for (Entry<Class<?>, TestContext> classAndOwner : classOwners.entrySet()) {
+         Class<?> ownedClass = classAndOwner.getKey();
+
+         if (classAndOwner.getValue() == owner && !redefinedClasses.containsKey(ownedClass)) {
+            classOwners.remove(ownedClass, owner);
+         }
+      }
+   }
+
+   private void removeMockedClass(@Nonnull TestContext owner, @Nonnull Class<?> mockedClass) {
+      owner.mockedTypesAndInstances.remove(mockedClass);
+
+      if (owner.mockedClasses.remove(mockedClass)) {
+         mockedClasses.remove(mockedClass);
+      }
    }
 
    private void discardStateForCorrespondingFakeClassIfAny(@Nonnull Class<?> redefinedClass) {
@@ -338,20 +594,18 @@ public final class MockFixture
       TestRun.getFakeStates().removeClassState(redefinedClass, mockClassesInternalNames);
    }
 
-   void removeMockedClasses(@Nonnull List<Class<?>> previousMockedClasses) {
-      int currentMockedClassCount = mockedClasses.size();
+   void removeMockedClasses(@Nonnull TestContext owner, @Nonnull List<Class<?>> previousMockedClasses) {
+      List<Class<?>> contextMockedClasses = owner.mockedClasses;
 
-      if (currentMockedClassCount > 0) {
-         int previousMockedClassCount = previousMockedClasses.size();
-
-         if (previousMockedClassCount == 0) {
-            mockedClasses.clear();
-            mockedTypesAndInstances.clear();
-         }
-         else if (previousMockedClassCount < currentMockedClassCount) {
-            mockedClasses.retainAll(previousMockedClasses);
-            mockedTypesAndInstances.keySet().retainAll(previousMockedClasses);
+      if (previousMockedClasses.size() < contextMockedClasses.size()) {
+         for (Class<?> mockedClass : contextMockedClasses) {
+            if (!previousMockedClasses.contains(mockedClass)) {
+               contextMockedClasses.remove(mockedClass);
+               mockedClasses.remove(mockedClass);
+            }
          }
+
+         owner.mockedTypesAndInstances.keySet().retainAll(previousMockedClasses);
       }
    }
 
@@ -396,11 +650,49 @@ public final class MockFixture
       return redefinedClasses.containsKey(redefinedClass);
    }
 
+   /**
+    * Returns the classes currently mocked by the tests of the current context, including those mocked from its shared class context.
+    */
    @Nonnull
    public List<Class<?>> getMockedClasses() {
-      return mockedClasses.isEmpty() ? Collections.<Class<?>>emptyList() : new ArrayList<Class<?>>(mockedClasses);
+      TestContext context = TestRun.context();
+      TestContext classContext = context.sharedClassContext;
+
+      if (classContext == null || classContext.mockedClasses.isEmpty()) {
+         return getMockedClasses(context);
+      }
+
+      List<Class<?>> mockedClassesInContexts = new ArrayList<Class<?>>(classContext.mockedClasses);
+      mockedClassesInContexts.addAll(context.mockedClasses);
+      return mockedClassesInContexts;
+   }
+
+   @Nonnull
+   List<Class<?>> getMockedClasses(@Nonnull TestContext context) {
+      List<Class<?>> contextMockedClasses = context.mockedClasses;
+      return contextMockedClasses.isEmpty() ? Collections.<Class<?>>emptyList() : new ArrayList<Class<?>>(contextMockedClasses);
    }
 
+   /**
+    * Returns the number of times classes were restored to previous definitions by test save-points, each time through a single
+    * redefinition of all classes being restored.
+    */
+   @Nonnegative
+   public static long getRestorationCount() { return RESTORATIONS.get(); }
+
+   /**
+    * Returns the total number of classes restored to previous definitions by test save-points.
+    */
+   @Nonnegative
+   public static long getRestoredClassCount() { return CLASSES_RESTORED.get(); }
+
+   /**
+    * Returns the total time spent by the JVM in redefining classes restored by test save-points, in nanoseconds, excluding restorations
+    * of <tt>java.lang.System</tt> itself.
+    */
+   @Nonnegative
+   public static long getRestorationTimeNanos() { return RESTORATION_TIME.get(); }
+
    // Methods dealing with capture transformers ///////////////////////////////////////////////////////////////////////
 
    public void addCaptureTransformer(@Nonnull CaptureTransformer<?> transformer) {
@@ -409,16 +701,31 @@ public final class MockFixture
 
    // The following methods are used by test save-points to discard currently active capture transformers.
 
-   public int getCaptureTransformerCount() { return captureTransformers.size(); }
+   public int getCaptureTransformerCount(@Nonnull TestContext owner) {
+      int count = 0;
 
-   public void removeCaptureTransformers(int previousTransformerCount) {
-      int currentTransformerCount = captureTransformers.size();
+      for (CaptureTransformer<?> transformer : captureTransformers) {
+         if (transformer.getOwner() == owner) {
+            count++;
+         }
+      }
 
-      for (int i = currentTransformerCount - 1; i >= previousTransformerCount; i--) {
-         CaptureTransformer<?> transformer = captureTransformers.get(i);
-         transformer.deactivate();
-         Startup.instrumentation().removeTransformer(transformer);
-         captureTransformers.remove(i);
+      return count;
+   }
+
+   public void removeCaptureTransformers(@Nonnull TestContext owner, int previousTransformerCount) {
+      CaptureTransformer<?>[] transformers = captureTransformers.toArray(new CaptureTransformer<?>[0]);
+      int currentTransformerCount = getCaptureTransformerCount(owner);
+
+      for (int i = transformers.length - 1; i >= 0 && currentTransformerCount > previousTransformerCount; i--) {
+         CaptureTransformer<?> transformer = transformers[i];
+
+         if (transformer.getOwner() == owner) {
+            transformer.deactivate();
+            Startup.instrumentation().removeTransformer(transformer);
+            captureTransformers.remove(transformer);
+            currentTransformerCount--;
+         }
       }
    }
 
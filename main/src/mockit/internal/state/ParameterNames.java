@@ -5,13 +5,15 @@
 package mockit.internal.state;
 
 import java.util.*;
+import java.util.concurrent.*;
 import javax.annotation.*;
 
 import mockit.internal.util.*;
 
 public final class ParameterNames
 {
-   private static final Map<String, Map<String, String[]>> classesToMethodsToParameters = new HashMap<String, Map<String, String[]>>();
+   private static final ConcurrentMap<String, Map<String, String[]>> classesToMethodsToParameters =
+      new ConcurrentHashMap<String, Map<String, String[]>>();
 
    private ParameterNames() {}
 
@@ -23,8 +25,12 @@ public final class ParameterNames
       Map<String, String[]> methodsToParameters = classesToMethodsToParameters.get(classDesc);
 
       if (methodsToParameters == null) {
-         methodsToParameters = new HashMap<String, String[]>();
-         classesToMethodsToParameters.put(classDesc, methodsToParameters);
+         methodsToParameters = new ConcurrentHashMap<String, String[]>();
+         Map<String, String[]> registeredMethods = classesToMethodsToParameters.putIfAbsent(classDesc, methodsToParameters);
+
+         if (registeredMethods != null) {
+            methodsToParameters = registeredMethods;
+         }
       }
 
       String methodKey = memberName + memberDesc;
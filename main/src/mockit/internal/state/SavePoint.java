@@ -11,8 +11,19 @@ import mockit.internal.*;
 import mockit.internal.faking.*;
 import static mockit.internal.expectations.RecordAndReplayExecution.*;
 
+/**
+ * The state of mocked and faked classes for a test context at a given point, to which they can be later restored.
+ * Classes modified from other contexts, by tests running in parallel, are left untouched.
+ */
 public final class SavePoint
 {
+   /**
+    * The number of rollbacks so far, incremented while holding the record/replay lock, so that a mocked invocation which found its class
+    * still mocked before acquiring that lock can tell whether the class may have been restored in the meantime.
+    */
+   private static volatile int rollbacks;
+
+   @Nonnull private final TestContext context;
    @Nonnull private final Set<ClassIdentification> previousTransformedClasses;
    @Nonnull private final Map<Class<?>, byte[]> previousRedefinedClasses;
    private final int previousCaptureTransformerCount;
@@ -20,23 +31,27 @@ public final class SavePoint
    @Nonnull private final FakeClasses.SavePoint previousFakeClasses;
 
    public SavePoint() {
+      context = TestRun.context();
       MockFixture mockFixture = TestRun.mockFixture();
       previousTransformedClasses = mockFixture.getTransformedClasses();
       previousRedefinedClasses = mockFixture.getRedefinedClasses();
-      previousCaptureTransformerCount = mockFixture.getCaptureTransformerCount();
-      previousMockedClasses = mockFixture.getMockedClasses();
-      previousFakeClasses = TestRun.getFakeClasses().new SavePoint();
+      previousCaptureTransformerCount = mockFixture.getCaptureTransformerCount(context);
+      previousMockedClasses = mockFixture.getMockedClasses(context);
+      previousFakeClasses = TestRun.getFakeClasses().new SavePoint(context);
    }
 
+   public static int getRollbackCount() { return rollbacks; }
+
    public synchronized void rollback() {
       RECORD_OR_REPLAY_LOCK.lock();
 
       try {
+         //noinspection NonAtomicOperationOnVolatileField
+         rollbacks++;
          MockFixture mockFixture = TestRun.mockFixture();
-         mockFixture.removeCaptureTransformers(previousCaptureTransformerCount);
-         mockFixture.restoreTransformedClasses(previousTransformedClasses);
-         mockFixture.restoreRedefinedClasses(previousRedefinedClasses);
-         mockFixture.removeMockedClasses(previousMockedClasses);
+         mockFixture.removeCaptureTransformers(context, previousCaptureTransformerCount);
+         mockFixture.restoreClasses(context, previousTransformedClasses, previousRedefinedClasses);
+         mockFixture.removeMockedClasses(context, previousMockedClasses);
          previousFakeClasses.rollback();
       }
       finally {
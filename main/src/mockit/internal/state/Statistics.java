@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.state;
+
+import java.io.*;
+import java.util.*;
+import java.util.Map.*;
+import java.util.concurrent.atomic.*;
+import javax.annotation.*;
+
+/**
+ * Opt-in counters and timers for the overhead of JMockit itself, activated with the "<tt>jmockit-stats</tt>" system property.
+ * <p/>
+ * The counts are kept separately for each {@link TestContext}, so that tests executing in parallel don't get each other's counts, and
+ * attributed to the test class of the context in which they occur.
+ * They are written at JVM shutdown to a JSON file, with the totals for the whole test run followed by the counts for each test class.
+ * The file is "<tt>jmockit-stats.json</tt>" in the working directory when the property is "<tt>true</tt>", otherwise the property value
+ * itself is taken as the file path.
+ * <p/>
+ * When the property is not set, every method here returns immediately, and callers which measure time check {@link #ENABLED} before
+ * reading the clock.
+ */
+public final class Statistics
+{
+   /**
+    * The counted events.
+    * The "<tt>...TransformerCalls</tt>" counters only include calls for classes which got past the quick checks each transformer makes
+    * on its arguments, such as the class name, and the corresponding "<tt>...Nanos</tt>" counters hold the time spent in those calls.
+    */
+   public enum Counter
+   {
+      ClassRedefinitions, ClassesRedefined, ClassRedefinitionNanos,
+      MockedClassGenerationNanos, MockedClassRedefinitionNanos,
+      CoverageTransformerCalls, CoverageTransformerNanos,
+      CaptureTransformerCalls, CaptureTransformerNanos,
+      ExpectationsTransformerCalls, ExpectationsTransformerNanos,
+      CachedClassfilesTransformerCalls, CachedClassfilesTransformerNanos,
+      MockedInvocationsRecorded, MockedInvocationsReplayed, MockedInvocationsVerified,
+      ExpectationMatchingComparisons,
+      CoverageLineProbeHits, CoverageBranchProbeHits, CoveragePathNodeHits,
+      ClassReaderCacheHits, ClassReaderCacheMisses,
+      SavePointRestorations, ClassesRestored, ClassRestorationNanos;
+
+      @Nonnull
+      String getKey() {
+         String name = name();
+         return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+      }
+   }
+
+   private static final int COUNTER_COUNT = Counter.values().length;
+   private static final String NO_TEST_CLASS = "(outside test classes)";
+
+   @Nullable private static final String OUTPUT_FILE = getOutputFile();
+   public static final boolean ENABLED = OUTPUT_FILE != null;
+
+   @Nonnull private static final Map<String, long[]> TEST_CLASS_COUNTS = new LinkedHashMap<String, long[]>();
+
+   /**
+    * The contexts created so far, whose counts not yet attributed to a test class get so at shutdown.
+    */
+   @Nonnull private static final List<TestContext> CONTEXTS = new ArrayList<TestContext>();
+
+   static {
+      if (ENABLED) {
+         Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() { writeOutputFile(); }
+         });
+      }
+   }
+
+   private Statistics() {}
+
+   @Nullable
+   private static String getOutputFile() {
+      String property = System.getProperty("jmockit-stats");
+
+      if (property == null || property.isEmpty() || "false".equals(property)) {
+         return null;
+      }
+
+      return "true".equals(property) ? "jmockit-stats.json" : property;
+   }
+
+   /**
+    * Creates the counts for a new context, if statistics are enabled.
+    */
+   @Nullable
+   static AtomicLongArray contextCreated(@Nonnull TestContext context) {
+      if (!ENABLED) {
+         return null;
+      }
+
+      synchronized (Statistics.class) {
+         CONTEXTS.add(context);
+      }
+
+      return new AtomicLongArray(COUNTER_COUNT);
+   }
+
+   @SuppressWarnings("ConstantConditions")
+   @Nonnull
+   private static AtomicLongArray countsOfCurrentContext() { return TestRun.context().statisticsCounts; }
+
+   public static void increment(@Nonnull Counter counter) {
+      if (ENABLED) {
+         countsOfCurrentContext().incrementAndGet(counter.ordinal());
+      }
+   }
+
+   public static void add(@Nonnull Counter counter, long value) {
+      if (ENABLED) {
+         countsOfCurrentContext().addAndGet(counter.ordinal(), value);
+      }
+   }
+
+   /**
+    * Counts one call to a class file transformer, together with the time it took.
+    *
+    * @param callCounter the counter for calls to the transformer, immediately followed by the one for time spent in it
+    * @param startTime the value of <tt>System.nanoTime()</tt> when the transformer was called
+    */
+   public static void transformerCalled(@Nonnull Counter callCounter, long startTime) {
+      if (ENABLED) {
+         long elapsedTime = System.nanoTime() - startTime;
+         AtomicLongArray counts = countsOfCurrentContext();
+         int i = callCounter.ordinal();
+         counts.incrementAndGet(i);
+         counts.addAndGet(i + 1, elapsedTime);
+      }
+   }
+
+   /**
+    * Counts one redefinition of classes in the JVM.
+    *
+    * @param elapsedTime the time the redefinition took, or zero if it could not be measured
+    */
+   public static void classesRedefined(@Nonnegative int classCount, long elapsedTime) {
+      if (ENABLED) {
+         AtomicLongArray counts = countsOfCurrentContext();
+         counts.incrementAndGet(Counter.ClassRedefinitions.ordinal());
+         counts.addAndGet(Counter.ClassesRedefined.ordinal(), classCount);
+         counts.addAndGet(Counter.ClassRedefinitionNanos.ordinal(), elapsedTime);
+      }
+   }
+
+   /**
+    * Adds the time taken to mock the types of a test class or test method, as measured by its type redefinitions.
+    *
+    * @param generationTime the time spent generating the modified classfiles
+    * @param redefinitionTime the time spent redefining the modified classes, which is also included in
+    *                         {@link Counter#ClassRedefinitionNanos}
+    */
+   public static void mockedTypesRedefined(long generationTime, long redefinitionTime) {
+      if (ENABLED) {
+         AtomicLongArray counts = countsOfCurrentContext();
+         counts.addAndGet(Counter.MockedClassGenerationNanos.ordinal(), generationTime);
+         counts.addAndGet(Counter.MockedClassRedefinitionNanos.ordinal(), redefinitionTime);
+      }
+   }
+
+   /**
+    * Attributes the counts accumulated by the given context since the previous switch to the test class it was executing until now.
+    */
+   static void switchingFromTestClass(@Nonnull TestContext context) {
+      if (ENABLED) {
+         addCountsOfContext(context);
+      }
+   }
+
+   @SuppressWarnings("ConstantConditions")
+   private static synchronized void addCountsOfContext(@Nonnull TestContext context) {
+      AtomicLongArray counts = context.statisticsCounts;
+      long[] testClassCounts = getCountsForTestClass(context.currentTestClass);
+
+      for (int i = 0; i < COUNTER_COUNT; i++) {
+         testClassCounts[i] += counts.getAndSet(i, 0L);
+      }
+   }
+
+   @Nonnull
+   private static long[] getCountsForTestClass(@Nullable Class<?> testClass) {
+      String testClassName = testClass == null ? NO_TEST_CLASS : testClass.getName();
+      long[] testClassCounts = TEST_CLASS_COUNTS.get(testClassName);
+
+      if (testClassCounts == null) {
+         testClassCounts = new long[COUNTER_COUNT];
+         TEST_CLASS_COUNTS.put(testClassName, testClassCounts);
+      }
+
+      return testClassCounts;
+   }
+
+   @Nonnull
+   private static long[] sumCountsOfAllTestClasses() {
+      long[] totals = new long[COUNTER_COUNT];
+
+      for (long[] testClassCounts : TEST_CLASS_COUNTS.values()) {
+         for (int i = 0; i < COUNTER_COUNT; i++) {
+            totals[i] += testClassCounts[i];
+         }
+      }
+
+      return totals;
+   }
+
+   private static void addCountsOfAllContexts() {
+      for (TestContext context : CONTEXTS) {
+         addCountsOfContext(context);
+      }
+   }
+
+   private static synchronized void writeOutputFile() {
+      addCountsOfAllContexts();
+
+      //noinspection ConstantConditions
+      File outputFile = new File(OUTPUT_FILE);
+
+      try {
+         Writer output = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile), "UTF-8"));
+
+         try {
+            writeCounts(output);
+         }
+         finally {
+            output.close();
+         }
+
+         System.out.println("JMockit: Statistics written to " + outputFile.getCanonicalPath());
+      }
+      catch (IOException e) {
+         System.out.println("JMockit: Could not write statistics to " + outputFile + ": " + e);
+      }
+   }
+
+   private static void writeCounts(@Nonnull Writer output) throws IOException {
+      output.write("{\n  \"totals\": ");
+      writeCountsObject(output, sumCountsOfAllTestClasses(), "  ");
+      output.write(",\n  \"testClasses\": {");
+
+      String separator = "\n";
+
+      for (Entry<String, long[]> testClassAndCounts : TEST_CLASS_COUNTS.entrySet()) {
+         output.write(separator);
+         output.write("    \"");
+         output.write(testClassAndCounts.getKey());
+         output.write("\": ");
+         writeCountsObject(output, testClassAndCounts.getValue(), "    ");
+         separator = ",\n";
+      }
+
+      output.write("\n  }\n}\n");
+   }
+
+   private static void writeCountsObject(@Nonnull Writer output, @Nonnull long[] counts, @Nonnull String indentation)
+      throws IOException
+   {
+      Counter[] counters = Counter.values();
+      output.write('{');
+
+      for (int i = 0; i < counts.length; i++) {
+         String key = counters[i].getKey();
+         output.write(i == 0 ? "\n" : ",\n");
+         output.write(indentation);
+         output.write("  \"");
+         output.write(key);
+         output.write("\": ");
+         output.write(String.valueOf(counts[i]));
+      }
+
+      output.write('\n');
+      output.write(indentation);
+      output.write('}');
+   }
+}
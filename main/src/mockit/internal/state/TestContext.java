@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.state;
+
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import javax.annotation.*;
+
+import mockit.internal.expectations.state.*;
+import mockit.internal.injection.*;
+import mockit.internal.expectations.mocking.*;
+import mockit.internal.reflection.*;
+
+/**
+ * The state of the tests executed by a given thread: the current test class and test instance, the mock fields and tested fields of the
+ * test class, the state of the executing test, and the save points to which mocked and faked classes get restored after each test and
+ * test class.
+ * <p/>
+ * When tests run one at a time, there is a single context, which is also used by any other thread calling mocked or faked methods.
+ * When tests run in parallel, each additional thread executing tests gets a context of its own, which is then inherited by the threads
+ * it creates.
+ * <p/>
+ * Test runners which execute the tests of a same test class in parallel, such as TestNG, can also have the class-level state of each test
+ * class (its class save point and the redefinitions of its mock fields) kept in a context shared by the threads executing its tests,
+ * which is discarded once the test runner reports that the test class is finished.
+ *
+ * @see TestRun#registerTestThread()
+ * @see TestRun#registerTestThreadSharingTestClassState()
+ */
+public final class TestContext
+{
+   /**
+    * The thread executing the tests, or <tt>null</tt> for the default context, whose owning thread can change.
+    */
+   @Nullable final Thread testThread;
+
+   /**
+    * Whether this context holds the class-level state of a test class, shared by the contexts executing its tests.
+    */
+   final boolean shared;
+
+   @Nullable Class<?> currentTestClass;
+   @Nullable Object currentTestInstance;
+   @Nullable FieldTypeRedefinitions fieldTypeRedefinitions;
+   @Nullable TestedClassInstantiations testedClassInstantiations;
+   @Nonnull final ExecutingTest executingTest;
+
+   @Nullable SavePoint savePointForTestClass;
+   @Nullable SavePoint savePointForTest;
+   volatile boolean shouldPrepareForNextTest;
+
+   /**
+    * Whether the class-level state of each test class executed in this context goes into a context shared with other threads executing
+    * tests of the same class.
+    */
+   boolean sharingTestClassState;
+
+   /**
+    * The shared context for the current test class, if any; mock fields and classes redefined from it can also be used and re-mocked
+    * from this context.
+    */
+   @Nullable TestContext sharedClassContext;
+
+   /**
+    * The classes mocked by the tests in this context, each one also present in {@link MockFixture#mockedClasses}.
+    */
+   @Nonnull final List<Class<?>> mockedClasses;
+
+   /**
+    * The mocked types and their instance factories, for the tests in this context.
+    */
+   @Nonnull final Map<Type, InstanceFactory> mockedTypesAndInstances;
+
+   /**
+    * The {@link Statistics} counts accumulated by this context and not yet attributed to its current test class, or <tt>null</tt> when
+    * statistics are not enabled.
+    */
+   @Nullable final AtomicLongArray statisticsCounts;
+
+   /**
+    * The generic type reflections shared by the tests in this context, until the current test class is done.
+    */
+   @Nonnull final GenericTypeReflection.SharedInstances genericTypeReflections;
+
+   TestContext(@Nullable Thread testThread, @Nullable Class<?> sharedTestClass) {
+      this.testThread = testThread;
+      shared = sharedTestClass != null;
+      currentTestClass = sharedTestClass;
+      executingTest = new ExecutingTest();
+      shouldPrepareForNextTest = true;
+      mockedClasses = new CopyOnWriteArrayList<Class<?>>();
+      mockedTypesAndInstances = Collections.synchronizedMap(new IdentityHashMap<Type, InstanceFactory>());
+      statisticsCounts = Statistics.contextCreated(this);
+      genericTypeReflections = new GenericTypeReflection.SharedInstances();
+   }
+
+   @Nonnull
+   String getDescription() {
+      if (shared) {
+         //noinspection ConstantConditions
+         return "threads executing tests of " + currentTestClass.getName();
+      }
+
+      Thread thread = testThread == null ? TestRun.getDefaultContextThread() : testThread;
+      String threadName = thread == null ? "main" : thread.getName();
+      String testClassName = currentTestClass == null ? "" : " for test class " + currentTestClass.getName();
+      return "thread \"" + threadName + '"' + testClassName;
+   }
+}
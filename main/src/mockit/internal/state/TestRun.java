@@ -4,6 +4,8 @@
  */
 package mockit.internal.state;
 
+import java.util.*;
+import java.util.concurrent.*;
 import javax.annotation.*;
 
 import mockit.internal.expectations.*;
@@ -11,16 +13,28 @@ import mockit.internal.expectations.state.*;
 import mockit.internal.injection.*;
 import mockit.internal.expectations.mocking.*;
 import mockit.internal.faking.*;
+import mockit.internal.reflection.*;
 import mockit.internal.util.*;
 
 /**
  * A singleton which stores several data structures which in turn hold global state for individual test methods, test
  * classes, and for the test run as a whole.
+ * <p/>
+ * The state for individual test methods and test classes is kept in a {@link TestContext}.
+ * Tests executed by a single thread, and any other threads, use the default context; each additional thread that executes tests while
+ * the thread owning the default context is still alive gets a context of its own, which the threads it creates inherit.
+ * Optionally, the class-level state of a test class can be kept in a context shared by all threads executing its tests, until the test
+ * runner reports the test class as finished.
  */
 public final class TestRun
 {
    private static final TestRun INSTANCE = new TestRun();
-   private TestRun() {}
+
+   private TestRun() {
+      defaultContext = new TestContext(null, null);
+      parallelContexts = new CopyOnWriteArrayList<TestContext>();
+      sharedClassContexts = new HashMap<Class<?>, TestContext>();
+   }
 
    // Fields with global state ////////////////////////////////////////////////////////////////////////////////////////
 
@@ -29,50 +43,87 @@ public final class TestRun
       @Override public void set(Integer valueToAdd) { super.set(get() + valueToAdd); }
    };
 
+   /**
+    * The context of the current thread, when it isn't the default one.
+    */
+   private static final ThreadLocal<TestContext> threadContext = new InheritableThreadLocal<TestContext>();
+
    // Used only by the Coverage tool:
    private int testId;
 
-   @Nullable private Class<?> currentTestClass;
-   @Nullable private Object currentTestInstance;
-   @Nullable private FieldTypeRedefinitions fieldTypeRedefinitions;
-   @Nullable private TestedClassInstantiations testedClassInstantiations;
+   @Nonnull private final TestContext defaultContext;
+   @Nullable private volatile Thread defaultContextThread;
+   @Nonnull private final List<TestContext> parallelContexts;
+   @Nonnull private final Map<Class<?>, TestContext> sharedClassContexts;
 
    @Nonnull private final MockFixture mockFixture = new MockFixture();
-
-   @Nonnull private final ExecutingTest executingTest = new ExecutingTest();
    @Nonnull private final FakeClasses fakeClasses = new FakeClasses();
 
    // Static "getters" for global state ///////////////////////////////////////////////////////////////////////////////
 
    public static boolean isInsideNoMockingZone() { return noMockingCount.get() > 0; }
 
-   @Nullable public static Class<?> getCurrentTestClass() { return INSTANCE.currentTestClass; }
+   @Nonnull
+   public static TestContext context() {
+      TestContext context = threadContext.get();
+      return context == null ? INSTANCE.defaultContext : context;
+   }
+
+   @Nullable static Thread getDefaultContextThread() { return INSTANCE.defaultContextThread; }
+
+   /**
+    * Returns the contexts created for threads executing tests in parallel with the thread owning the default context, if any.
+    */
+   @Nonnull public static List<TestContext> getParallelContexts() { return INSTANCE.parallelContexts; }
 
-   @Nullable public static Object getCurrentTestInstance() { return INSTANCE.currentTestInstance; }
+   public static boolean isRunningTestsInParallel() { return !INSTANCE.parallelContexts.isEmpty(); }
+
+   static boolean isTestThreadFor(@Nonnull TestContext context) {
+      if (context.shared) {
+         return false;
+      }
+
+      Thread currentThread = Thread.currentThread();
+      Thread testThread = context.testThread == null ? INSTANCE.defaultContextThread : context.testThread;
+      return testThread == currentThread;
+   }
+
+   @Nullable public static Class<?> getCurrentTestClass() { return context().currentTestClass; }
+
+   @Nullable public static Object getCurrentTestInstance() { return context().currentTestInstance; }
 
    public static int getTestId() { return INSTANCE.testId; }
 
    @Nullable
-   public static FieldTypeRedefinitions getFieldTypeRedefinitions() { return INSTANCE.fieldTypeRedefinitions; }
+   public static FieldTypeRedefinitions getFieldTypeRedefinitions() { return context().fieldTypeRedefinitions; }
 
    @Nullable
-   public static TestedClassInstantiations getTestedClassInstantiations() { return INSTANCE.testedClassInstantiations; }
+   public static TestedClassInstantiations getTestedClassInstantiations() { return context().testedClassInstantiations; }
+
+   @Nullable public static TestContext getSharedClassContext() { return context().sharedClassContext; }
+
+   @Nonnull
+   public static GenericTypeReflection.SharedInstances getSharedGenericTypeReflections() { return context().genericTypeReflections; }
+
+   @Nullable public static SavePoint getSavePointForTestClass() { return context().savePointForTestClass; }
+   @Nullable public static SavePoint getSavePointForTest() { return context().savePointForTest; }
+   public static boolean shouldPrepareForNextTest() { return context().shouldPrepareForNextTest; }
 
    @Nonnull public static MockFixture mockFixture() { return INSTANCE.mockFixture; }
 
-   @Nonnull public static ExecutingTest getExecutingTest() { return INSTANCE.executingTest; }
+   @Nonnull public static ExecutingTest getExecutingTest() { return context().executingTest; }
 
    @Nullable
-   public static RecordAndReplayExecution getRecordAndReplayForRunningTest() { return INSTANCE.executingTest.getCurrentRecordAndReplay(); }
+   public static RecordAndReplayExecution getRecordAndReplayForRunningTest() { return getExecutingTest().getCurrentRecordAndReplay(); }
 
    @Nonnull
    public static RecordAndReplayExecution getOrCreateRecordAndReplayForRunningTest() {
-      return INSTANCE.executingTest.getOrCreateRecordAndReplay();
+      return getExecutingTest().getOrCreateRecordAndReplay();
    }
 
    @Nonnull
    public static RecordAndReplayExecution getRecordAndReplayForVerifications() {
-      return INSTANCE.executingTest.getRecordAndReplayForVerifications();
+      return getExecutingTest().getRecordAndReplayForVerifications();
    }
 
    @Nonnull public static FakeClasses getFakeClasses() { return INSTANCE.fakeClasses; }
@@ -80,11 +131,156 @@ public final class TestRun
 
    // Static "mutators" for global state //////////////////////////////////////////////////////////////////////////////
 
-   public static void setCurrentTestClass(@Nullable Class<?> testClass) { INSTANCE.currentTestClass = testClass; }
+   /**
+    * Makes sure the current thread, which is about to execute a test or the class-level setup of a test class, has a context which no
+    * other thread is using to execute tests.
+    * The default context is taken when no thread owns it, or its owner has terminated; otherwise, a new context is created for the
+    * current thread, unless it already has one of its own.
+    */
+   public static void registerTestThread() {
+      Thread currentThread = Thread.currentThread();
+      TestContext context = threadContext.get();
+
+      if (context != null && context.testThread == currentThread || INSTANCE.defaultContextThread == currentThread) {
+         return;
+      }
+
+      synchronized (INSTANCE) {
+         Thread defaultThread = INSTANCE.defaultContextThread;
+
+         if (context == null && (defaultThread == null || !defaultThread.isAlive())) {
+            INSTANCE.defaultContextThread = currentThread;
+            return;
+         }
+
+         TestContext newContext = new TestContext(currentThread, null);
+         INSTANCE.parallelContexts.add(newContext);
+         threadContext.set(newContext);
+      }
+   }
+
+   /**
+    * Same as {@link #registerTestThread()}, but also makes the current thread keep the class-level state of each test class it executes
+    * in a context shared with any other threads executing tests of the same class at the same time.
+    */
+   public static void registerTestThreadSharingTestClassState() {
+      registerTestThread();
+      context().sharingTestClassState = true;
+   }
+
+   /**
+    * Makes the given context the one for the current thread, so that its test state can be cleaned up, or so that class-level setup
+    * code can execute in a shared class context.
+    *
+    * @param context the context to switch to, or <tt>null</tt> to switch back to the default context
+    * @return the context previously used by the current thread
+    */
+   @Nonnull
+   public static TestContext switchContext(@Nullable TestContext context) {
+      TestContext previousContext = context();
+
+      if (context == null || context == INSTANCE.defaultContext) {
+         threadContext.remove();
+      }
+      else {
+         threadContext.set(context);
+      }
+
+      return previousContext;
+   }
+
+   /**
+    * Discards the contexts of threads no longer alive, after their test state was cleaned up.
+    */
+   public static void discardContextsOfTerminatedThreads() {
+      for (TestContext context : INSTANCE.parallelContexts) {
+         Thread testThread = context.testThread;
+
+         if (testThread != null && !testThread.isAlive()) {
+            INSTANCE.parallelContexts.remove(context);
+         }
+      }
+   }
+
+   /**
+    * Makes the current context use the shared context for the given test class, creating it along with its class save point if it
+    * doesn't exist yet, or was already released.
+    *
+    * @return <tt>false</tt> if the current context doesn't share class-level state, in which case nothing is done
+    */
+   public static boolean joinSharedClassContext(@Nonnull Class<?> testClass) {
+      TestContext context = context();
+
+      if (!context.sharingTestClassState) {
+         return false;
+      }
+
+      synchronized (INSTANCE) {
+         TestContext classContext = INSTANCE.sharedClassContexts.get(testClass);
+
+         if (classContext == null) {
+            classContext = new TestContext(null, testClass);
+            switchContext(classContext);
+
+            try {
+               classContext.savePointForTestClass = new SavePoint();
+            }
+            finally {
+               switchContext(context);
+            }
+
+            INSTANCE.sharedClassContexts.put(testClass, classContext);
+         }
+
+         context.sharedClassContext = classContext;
+      }
+
+      return true;
+   }
+
+   /**
+    * Makes the current context stop using its shared class context, if any, which remains in place for other contexts until released.
+    */
+   public static void leaveSharedClassContext() { context().sharedClassContext = null; }
+
+   /**
+    * Discards the shared context of the given test class, once all of its tests and class-level setup and tear down methods are done.
+    * Contexts still referring to it stop doing so when they leave it.
+    *
+    * @return the discarded context, so that the caller can clean it up; <tt>null</tt> if there is no shared context for the class
+    */
+   @Nullable
+   public static TestContext releaseSharedClassContext(@Nonnull Class<?> testClass) {
+      synchronized (INSTANCE) {
+         return INSTANCE.sharedClassContexts.remove(testClass);
+      }
+   }
+
+   /**
+    * Discards the shared contexts of all test classes, for those whose release was never requested.
+    */
+   @Nonnull
+   public static List<TestContext> releaseAllSharedClassContexts() {
+      synchronized (INSTANCE) {
+         List<TestContext> classContexts = new ArrayList<TestContext>(INSTANCE.sharedClassContexts.values());
+         INSTANCE.sharedClassContexts.clear();
+         return classContexts;
+      }
+   }
+
+   public static void setCurrentTestClass(@Nullable Class<?> testClass) {
+      TestContext context = context();
+      Statistics.switchingFromTestClass(context);
+      context.currentTestClass = testClass;
+   }
+
+   public static void setSavePointForTestClass(@Nullable SavePoint savePoint) { context().savePointForTestClass = savePoint; }
+   public static void setSavePointForTest(@Nullable SavePoint savePoint) { context().savePointForTest = savePoint; }
+   public static void setShouldPrepareForNextTest(boolean flag) { context().shouldPrepareForNextTest = flag; }
 
    public static void prepareForNextTest() {
       INSTANCE.testId++;
-      INSTANCE.executingTest.setRecordAndReplay(null);
+      getExecutingTest().setRecordAndReplay(null);
    }
 
    public static void enterNoMockingZone() { noMockingCount.set(1); }
@@ -92,23 +288,23 @@ public final class TestRun
    public static void clearNoMockingZone() { noMockingCount.remove(); }
 
    public static void clearCurrentTestInstance() {
-      INSTANCE.currentTestInstance = null;
+      context().currentTestInstance = null;
    }
 
    public static void setRunningIndividualTest(@Nonnull Object testInstance) {
-      INSTANCE.currentTestInstance = testInstance;
+      context().currentTestInstance = testInstance;
    }
 
    public static void setFieldTypeRedefinitions(@Nullable FieldTypeRedefinitions redefinitions) {
-      INSTANCE.fieldTypeRedefinitions = redefinitions;
+      context().fieldTypeRedefinitions = redefinitions;
    }
 
    public static void setTestedClassInstantiations(@Nullable TestedClassInstantiations testedClassInstantiations) {
-      INSTANCE.testedClassInstantiations = testedClassInstantiations;
+      context().testedClassInstantiations = testedClassInstantiations;
    }
 
    public static void finishCurrentTestExecution() {
-      INSTANCE.executingTest.finishExecution();
+      getExecutingTest().finishExecution();
    }
 
    // Methods to be called only from generated bytecode or from the ClassLoadingBridge ////////////////////////////////
@@ -132,7 +328,8 @@ public final class TestRun
    // Other methods ///////////////////////////////////////////////////////////////////////////////////////////////////
 
    public static void ensureThatClassIsInitialized(@Nonnull Class<?> aClass) {
-      boolean previousFlag = INSTANCE.executingTest.setShouldIgnoreMockingCallbacks(true);
+      ExecutingTest executingTest = getExecutingTest();
+      boolean previousFlag = executingTest.setShouldIgnoreMockingCallbacks(true);
 
       try {
          Class.forName(aClass.getName(), true, aClass.getClassLoader());
@@ -143,7 +340,7 @@ public final class TestRun
          e.printStackTrace();
       }
       finally {
-         INSTANCE.executingTest.setShouldIgnoreMockingCallbacks(previousFlag);
+         executingTest.setShouldIgnoreMockingCallbacks(previousFlag);
       }
    }
 }
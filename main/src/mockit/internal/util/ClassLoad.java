@@ -4,10 +4,13 @@
  */
 package mockit.internal.util;
 
+import java.lang.reflect.*;
 import java.util.*;
 import java.util.concurrent.*;
 import javax.annotation.*;
 
+import mockit.asm.*;
+import mockit.internal.*;
 import mockit.internal.state.*;
 
 public final class ClassLoad
@@ -17,6 +20,27 @@ public final class ClassLoad
    private static final ClassLoader THIS_CL = ClassLoad.class.getClassLoader();
    private static final Map<String, Class<?>> LOADED_CLASSES = new ConcurrentHashMap<String, Class<?>>();
    private static final Map<String, String> SUPER_CLASSES = new ConcurrentHashMap<String, String>();
+   private static final Map<ClassLoader, Map<String, String>> SUPER_CLASSES_BY_LOADER = new WeakHashMap<ClassLoader, Map<String, String>>();
+   @Nullable private static final Object UNSAFE;
+   @Nullable private static volatile Method shouldBeInitialized;
+
+   static {
+      Object unsafe = null;
+      Method unsafeMethod = null;
+
+      try {
+         Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+         Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+         theUnsafe.setAccessible(true);
+         unsafe = theUnsafe.get(null);
+         unsafeMethod = unsafeClass.getMethod("shouldBeInitialized", Class.class);
+      }
+      catch (Exception ignore) {} // not available in older or non-HotSpot JREs
+      catch (LinkageError ignore) {}
+
+      UNSAFE = unsafe;
+      shouldBeInitialized = unsafeMethod;
+   }
 
    private ClassLoad() {}
 
@@ -130,46 +154,133 @@ public final class ClassLoad
       catch (Throwable ignore) { return null; }
    }
 
-   public static void addSuperClass(@Nonnull String classInternalName, @Nonnull String superClassInternalName) {
-      SUPER_CLASSES.put(classInternalName.intern(), superClassInternalName.intern());
+   /**
+    * Registers the super class of a class being generated or modified, as seen from the given class loader.
+    *
+    * @param loader the loader of the class, or <tt>null</tt> for the bootstrap loader or when not known
+    */
+   public static void addSuperClass(
+      @Nullable ClassLoader loader, @Nonnull String classInternalName, @Nonnull String superClassInternalName
+   ) {
+      getSuperClasses(loader).put(classInternalName.intern(), superClassInternalName.intern());
    }
 
+   /**
+    * Gets the super classes already known for classes visible from the given loader, kept apart from those of other loaders since
+    * different loaders can have same-named classes with different super classes.
+    * A <tt>null</tt> loader stands for the bootstrap loader, or for a class loader which is not known; classes are then searched in
+    * the class loaders JMockit normally uses.
+    */
    @Nonnull
-   public static String getSuperClass(@Nonnull String classInternalName) {
+   private static Map<String, String> getSuperClasses(@Nullable ClassLoader loader) {
+      if (loader == null) {
+         return SUPER_CLASSES;
+      }
+
+      synchronized (SUPER_CLASSES_BY_LOADER) {
+         Map<String, String> superClasses = SUPER_CLASSES_BY_LOADER.get(loader);
+
+         if (superClasses == null) {
+            superClasses = new ConcurrentHashMap<String, String>();
+            SUPER_CLASSES_BY_LOADER.put(loader, superClasses);
+         }
+
+         return superClasses;
+      }
+   }
+
+   @Nonnull
+   public static String getSuperClass(@Nullable ClassLoader loader, @Nonnull String classInternalName) {
+      Map<String, String> superClasses = getSuperClasses(loader);
       String classDesc = classInternalName.intern();
-      String superName = SUPER_CLASSES.get(classDesc);
+      String superName = superClasses.get(classDesc);
 
       if (superName == null) {
-         Class<?> theClass = loadByInternalName(classDesc);
-         Class<?> superClass = theClass.getSuperclass();
+         superName = loader == null ? findSuperClass(classDesc) : findSuperClass(loader, classDesc);
 
-         if (superClass != null) {
-            superName = superClass.getName().replace('.', '/').intern();
-            SUPER_CLASSES.put(classDesc, superName);
+         if (superName != null) {
+            superName = superName.intern();
+            superClasses.put(classDesc, superName);
          }
       }
 
       return superName == null ? OBJECT : superName;
    }
 
+   /**
+    * Finds the super class of the given class, preferably from its classfile (either as cached for an already loaded class, or as read
+    * from the classpath), so that the class doesn't get loaded only to have its super class known.
+    * The class is only loaded if its classfile can't be found.
+    */
+   @Nullable
+   private static String findSuperClass(@Nonnull String classDesc) {
+      Class<?> loadedClass = LOADED_CLASSES.get(classDesc.replace('/', '.'));
+
+      if (loadedClass == null) {
+         byte[] classfile = CachedClassfiles.getClassfile((ClassLoader) null, classDesc);
+
+         if (classfile == null) {
+            classfile = ClassFile.readBytesFromClassFileIfFound(classDesc);
+         }
+
+         if (classfile != null) {
+            return new ClassMetadataReader(classfile).getSuperClass();
+         }
+
+         loadedClass = loadByInternalName(classDesc);
+      }
+
+      return getSuperClassName(loadedClass);
+   }
+
+   @Nullable
+   private static String getSuperClassName(@Nonnull Class<?> aClass) {
+      Class<?> superClass = aClass.getSuperclass();
+      return superClass == null ? null : superClass.getName().replace('.', '/');
+   }
+
+   /**
+    * Same as {@link #findSuperClass(String)}, but only considering the classfile cached for, or readable from, the given loader.
+    * If neither is available, the class is loaded from the loader, or else searched as for an unknown loader.
+    */
    @Nullable
-   public static String whichIsSuperClass(@Nonnull String internalClassName1, @Nonnull String internalClassName2) {
-      String class1 = actualSuperClass(internalClassName1, internalClassName2);
+   private static String findSuperClass(@Nonnull ClassLoader loader, @Nonnull String classDesc) {
+      byte[] classfile = CachedClassfiles.getClassfile(loader, classDesc);
+
+      if (classfile == null) {
+         classfile = ClassFile.readBytesFromClassFileIfFound(loader, classDesc);
+      }
+
+      if (classfile != null) {
+         return new ClassMetadataReader(classfile).getSuperClass();
+      }
+
+      Class<?> loadedClass = loadClass(loader, classDesc.replace('/', '.'));
+      return loadedClass == null ? findSuperClass(classDesc) : getSuperClassName(loadedClass);
+   }
+
+   @Nullable
+   public static String whichIsSuperClass(
+      @Nullable ClassLoader loader, @Nonnull String internalClassName1, @Nonnull String internalClassName2
+   ) {
+      String class1 = actualSuperClass(loader, internalClassName1, internalClassName2);
 
       if (class1 != null) {
          return class1;
       }
 
-      String class2 = actualSuperClass(internalClassName2, internalClassName1);
+      String class2 = actualSuperClass(loader, internalClassName2, internalClassName1);
       return class2;
    }
 
    @Nullable
-   private static String actualSuperClass(@Nonnull String candidateSuperClass, @Nonnull String candidateSubclass) {
+   private static String actualSuperClass(
+      @Nullable ClassLoader loader, @Nonnull String candidateSuperClass, @Nonnull String candidateSubclass
+   ) {
       String subclass = candidateSubclass;
 
       while (true) {
-         String superClass = getSuperClass(subclass);
+         String superClass = getSuperClass(loader, subclass);
 
          if (superClass.equals(OBJECT)) {
             return null;
@@ -183,6 +294,26 @@ public final class ClassLoad
       }
    }
 
+   /**
+    * Tells whether the given class may not have been initialized yet, in which case its static initializer has yet to execute.
+    * Always returns <tt>true</tt> when running on a JRE where this can't be determined.
+    */
+   public static boolean isPossiblyUninitialized(@Nonnull Class<?> aClass) {
+      Method unsafeMethod = shouldBeInitialized;
+
+      if (unsafeMethod != null) {
+         try {
+            return Boolean.TRUE.equals(unsafeMethod.invoke(UNSAFE, aClass));
+         }
+         catch (Exception ignore) {
+            // The method exists but can't be used in this JRE, so it won't be tried again.
+            shouldBeInitialized = null;
+         }
+      }
+
+      return true;
+   }
+
    public static boolean isClassLoaderWithNoDirectAccess(@Nullable ClassLoader classLoader) {
       return classLoader == null || classLoader != THIS_CL && classLoader.getParent() != THIS_CL;
    }
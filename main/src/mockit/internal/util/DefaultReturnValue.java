@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.util;
+
+import java.util.concurrent.*;
+import javax.annotation.*;
+
+/**
+ * The default return value of a mocked method, as worked out from its descriptor once, when the method gets instrumented for mocking.
+ * Unrecorded invocations then obtain it with a single lookup on the method name and descriptor, instead of extracting the return type
+ * from the descriptor and looking it up again on each invocation.
+ * <p/>
+ * An entry depends only on the method descriptor, never on a mocked instance or test, so entries are kept for the whole test run.
+ * Values that depend on the instance or test (cascaded mocks), or whose creation loads a class (empty arrays of element types not
+ * predefined), are still produced at invocation time, which is indicated by a <tt>null</tt> {@link #constantValue}.
+ */
+public final class DefaultReturnValue
+{
+   private static final ConcurrentMap<String, DefaultReturnValue> METHOD_TO_DEFAULT_RETURN_VALUE =
+      new ConcurrentHashMap<String, DefaultReturnValue>();
+
+   @Nonnull public final String returnTypeDesc;
+   public final boolean voidReturn;
+   public final boolean referenceReturn;
+   @Nullable public final Object constantValue;
+
+   private DefaultReturnValue(@Nonnull String methodNameAndDesc) {
+      returnTypeDesc = DefaultValues.getReturnTypeDesc(methodNameAndDesc);
+      char typeCode = returnTypeDesc.charAt(0);
+      voidReturn = typeCode == 'V';
+      referenceReturn = typeCode == 'L';
+      constantValue = voidReturn ? null : DefaultValues.getPredefinedValue(returnTypeDesc);
+   }
+
+   /**
+    * Only to be called while instrumenting a method for mocking, which doesn't load any class.
+    */
+   public static void registerMockedMethod(@Nonnull String methodNameAndDesc) {
+      if (!METHOD_TO_DEFAULT_RETURN_VALUE.containsKey(methodNameAndDesc)) {
+         METHOD_TO_DEFAULT_RETURN_VALUE.putIfAbsent(methodNameAndDesc, new DefaultReturnValue(methodNameAndDesc));
+      }
+   }
+
+   @Nonnull
+   public static DefaultReturnValue forMethod(@Nonnull String methodNameAndDesc) {
+      DefaultReturnValue defaultReturnValue = METHOD_TO_DEFAULT_RETURN_VALUE.get(methodNameAndDesc);
+
+      if (defaultReturnValue == null) {
+         // Methods not instrumented through the mocking modifiers (faked ones, for example) get registered on first use.
+         defaultReturnValue = new DefaultReturnValue(methodNameAndDesc);
+         DefaultReturnValue existing = METHOD_TO_DEFAULT_RETURN_VALUE.putIfAbsent(methodNameAndDesc, defaultReturnValue);
+
+         if (existing != null) {
+            defaultReturnValue = existing;
+         }
+      }
+
+      return defaultReturnValue;
+   }
+
+   /**
+    * Returns the default value when it doesn't involve cascading, creating an empty array if the return type is one not predefined.
+    */
+   @Nullable
+   public Object computeNonCascaded() {
+      Object value = constantValue;
+
+      if (value == null && !voidReturn && !referenceReturn) {
+         value = DefaultValues.computeForArrayType(returnTypeDesc);
+      }
+
+      return value;
+   }
+}
@@ -125,8 +125,15 @@ public final class DefaultValues
 
    @Nullable
    public static Object computeForReturnType(@Nonnull String methodNameAndDesc) {
-      String typeDesc = getReturnTypeDesc(methodNameAndDesc);
-      return computeForType(typeDesc);
+      return DefaultReturnValue.forMethod(methodNameAndDesc).computeNonCascaded();
+   }
+
+   /**
+    * Returns the default value for the given type if it's one of the predefined ones, which requires no class loading.
+    */
+   @Nullable
+   static Object getPredefinedValue(@Nonnull String typeDesc) {
+      return typeDesc.charAt(0) == '[' ? ELEM_TYPE_TO_ONE_D_ARRAY.get(typeDesc) : TYPE_DESC_TO_VALUE_MAP.get(typeDesc);
    }
 
    @Nullable
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.util;
+
+import java.util.*;
+import java.util.concurrent.*;
+import javax.annotation.*;
+
+import mockit.internal.state.*;
+
+/**
+ * A single pool of daemon threads, shared by everything in JMockit and in the coverage tool which splits work into independent tasks, such
+ * as the generation of modified classfiles for mocked types or the search for source files.
+ * <p/>
+ * The pool has at most one thread per available processor, created on demand; idle threads terminate after a short while, and the pool
+ * itself is shut down at the end of the test run, to be created again if needed afterwards.
+ * <p/>
+ * Tasks always execute in the default test context, not in the one a worker thread inherited from the test thread which happened to
+ * create it, since the same worker goes on to execute tasks submitted from other test threads.
+ */
+public final class WorkerThreads
+{
+   private static final int MAX_THREADS = Runtime.getRuntime().availableProcessors();
+   private static final long IDLE_SECONDS = 2L;
+
+   @Nullable private static ThreadPoolExecutor executor;
+
+   private static final class WorkerThread extends Thread {
+      WorkerThread(@Nonnull Runnable task) {
+         super(task, "JMockit worker");
+         setDaemon(true);
+      }
+   }
+
+   private WorkerThreads() {}
+
+   @Nonnegative public static int getParallelism() { return MAX_THREADS; }
+
+   /**
+    * Whether tasks should be executed by the calling thread itself, which is the case when there is at most one task or one processor,
+    * and for tasks submitted from a worker thread, since those could otherwise wait forever for a thread from the bounded pool.
+    */
+   public static boolean shouldRunSequentially(@Nonnegative int taskCount) {
+      return taskCount <= 1 || MAX_THREADS == 1 || Thread.currentThread() instanceof WorkerThread;
+   }
+
+   @Nonnull
+   private static synchronized ExecutorService getExecutor() {
+      if (executor == null) {
+         ThreadPoolExecutor pool = new ThreadPoolExecutor(
+            MAX_THREADS, MAX_THREADS, IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactory() {
+               @Override
+               public Thread newThread(@Nonnull Runnable task) { return new WorkerThread(task); }
+            }
+         ) {
+            @Override
+            protected void beforeExecute(@Nonnull Thread workerThread, @Nonnull Runnable task) { TestRun.switchContext(null); }
+         };
+         pool.allowCoreThreadTimeOut(true);
+         executor = pool;
+      }
+
+      return executor;
+   }
+
+   /**
+    * Executes the given tasks, in worker threads unless {@linkplain #shouldRunSequentially(int) they should run sequentially}, and
+    * returns their results in task order.
+    *
+    * @throws RuntimeException or {@link Error} as thrown by the first failed task; a checked exception thrown by a task is wrapped in an
+    * <tt>IllegalStateException</tt>
+    */
+   @Nonnull
+   public static <T> List<T> invokeAll(@Nonnull List<? extends Callable<T>> tasks) {
+      List<T> results = new ArrayList<T>(tasks.size());
+
+      if (shouldRunSequentially(tasks.size())) {
+         for (Callable<T> task : tasks) {
+            try { results.add(task.call()); }
+            catch (RuntimeException e) { throw e; }
+            catch (Exception e) { throw new IllegalStateException(e); }
+         }
+
+         return results;
+      }
+
+      List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+      ExecutorService workers = getExecutor();
+
+      for (Callable<T> task : tasks) {
+         futures.add(workers.submit(task));
+      }
+
+      for (Future<T> future : futures) {
+         results.add(getResult(future));
+      }
+
+      return results;
+   }
+
+   @Nullable
+   private static <T> T getResult(@Nonnull Future<T> future) {
+      try {
+         return future.get();
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new IllegalStateException(e);
+      }
+      catch (ExecutionException e) {
+         Throwable cause = e.getCause();
+
+         if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+         }
+
+         if (cause instanceof Error) {
+            throw (Error) cause;
+         }
+
+         throw new IllegalStateException(cause);
+      }
+   }
+
+   /**
+    * Shuts down the pool at the end of a test run, letting tasks already submitted complete.
+    */
+   public static synchronized void shutdown() {
+      if (executor != null) {
+         executor.shutdown();
+         executor = null;
+      }
+   }
+}
@@ -152,6 +152,29 @@ public final class ExpectationsWithValuesToReturnTest
       assertArrayEquals(new String[0][0], mock.getString2Array());
    }
 
+   public interface Dependency {
+      int getValue();
+      List<?> getListItems();
+      int[][] getInt2Array();
+      Runnable getTask();
+   }
+
+   @Test
+   public void returnsDefaultValuesFromUnrecordedMethodsWithSameDescriptorInDifferentMockedTypes(
+      @Mocked Collaborator mock, @Mocked Dependency dependency
+   ) {
+      assertEquals(0, mock.getValue());
+      assertEquals(0, dependency.getValue());
+      assertTrue(mock.getListItems().isEmpty());
+      assertTrue(dependency.getListItems().isEmpty());
+      assertArrayEquals(new int[0][0], mock.getInt2Array());
+      assertArrayEquals(new int[0][0], dependency.getInt2Array());
+
+      Runnable cascadedTask = dependency.getTask();
+      assertNotNull(cascadedTask);
+      assertSame(cascadedTask, dependency.getTask());
+   }
+
    @Test
    public void returnsMultipleValuesInSequenceUsingVarargs() {
       final Collaborator collaborator = new Collaborator();
@@ -2,6 +2,7 @@ package mockit;
 
 import java.awt.*;
 import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
 
 import javax.swing.*;
 
@@ -9,6 +10,8 @@ import org.junit.*;
 import org.junit.runners.*;
 import static org.junit.Assert.*;
 
+import mockit.internal.expectations.*;
+
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
 public final class MultiThreadedExpectationsTest
 {
@@ -100,6 +103,47 @@ public final class MultiThreadedExpectationsTest
       new FullVerifications() {};
    }
 
+   static Thread threadCreatedByFinishedTest;
+
+   /**
+    * Holds the record/replay lock until the next test starts, so that the call from the created thread, which finds its class still
+    * mocked, only proceeds after this test ended.
+    */
+   @Test
+   public void lateInvocationFromThreadCreatedByFinishedTest_part1(@Mocked final Dependency dep) throws Throwable {
+      ReentrantLock lock = RecordAndReplayExecution.RECORD_OR_REPLAY_LOCK;
+      lock.lock();
+
+      try {
+         threadCreatedByFinishedTest = new Thread() {
+            @Override public void run() { dep.doSomething(); }
+         };
+         threadCreatedByFinishedTest.start();
+
+         while (!lock.hasQueuedThread(threadCreatedByFinishedTest)) {
+            assertTrue(threadCreatedByFinishedTest.isAlive());
+            Thread.sleep(1);
+         }
+      }
+      catch (Throwable t) {
+         lock.unlock();
+         throw t;
+      }
+   }
+
+   @Test
+   public void lateInvocationFromThreadCreatedByFinishedTest_part2() throws Exception {
+      ReentrantLock lock = RecordAndReplayExecution.RECORD_OR_REPLAY_LOCK;
+
+      if (lock.isHeldByCurrentThread()) {
+         lock.unlock();
+      }
+
+      threadCreatedByFinishedTest.join();
+
+      new FullVerifications() {};
+   }
+
    public interface APublicInterface { boolean doSomething(); }
 
    @Test
@@ -95,6 +95,14 @@ public final class MultipleMockedTypesTest
       new FullVerifications() {{ mock2.getValue(); times = 0; }};
    }
 
+   @Test
+   public void mockSeveralSubtypesOfTheSameBaseType(@Mocked SubDependencyThatInherits mock2, @Mocked SubDependencyThatOverrides mock3) {
+      assertEquals(0, mock1.getValue());
+      assertEquals(0, mock2.getValue());
+      assertEquals(0, mock2.getDifferentValue());
+      assertEquals(0, mock3.getValue());
+   }
+
    @Test
    public void invocationOnBaseTypeWithCapturingOfSubtypeThatInheritsTheInvokedMethod(@Capturing final SecondDependency mock2) {
       new Expectations() {{
@@ -0,0 +1,135 @@
+package mockit;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+import org.junit.experimental.*;
+import org.junit.runner.*;
+import org.junit.runner.notification.*;
+import static org.junit.Assert.*;
+
+public final class ParallelTestClassesTest
+{
+   public static class FirstCollaborator { public int value() { return 1; } }
+   public static class SecondCollaborator { public int value() { return 2; } }
+   public static class SharedCollaborator { public int value() { return 3; } }
+
+   static final long TIMEOUT_SECONDS = 10;
+   static final CyclicBarrier bothTestsMocking = new CyclicBarrier(2);
+   static final CountDownLatch firstTestMocking = new CountDownLatch(1);
+   static final CountDownLatch secondTestDone = new CountDownLatch(1);
+
+   public static final class TestMockingFirstCollaborator {
+      @Mocked FirstCollaborator mock;
+
+      @Test
+      public void mockWhileOtherTestClassMocksAnotherType() throws Exception {
+         new Expectations() {{ mock.value(); result = 10; }};
+
+         bothTestsMocking.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+         assertEquals(10, mock.value());
+      }
+   }
+
+   public static final class TestMockingSecondCollaborator {
+      @Mocked SecondCollaborator mock;
+
+      @Test
+      public void mockWhileOtherTestClassMocksAnotherType() throws Exception {
+         new Expectations() {{ mock.value(); result = 20; }};
+
+         bothTestsMocking.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+         assertEquals(20, mock.value());
+      }
+   }
+
+   public static final class FirstTestMockingSharedCollaborator {
+      @Mocked SharedCollaborator mock;
+
+      @Test
+      public void mockWhileOtherTestClassTriesToMockSameType() throws Exception {
+         firstTestMocking.countDown();
+         assertTrue(secondTestDone.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+         new Expectations() {{ mock.value(); result = 30; }};
+         assertEquals(30, mock.value());
+      }
+   }
+
+   public static final class SecondTestMockingSharedCollaborator {
+      @Before
+      public void waitForFirstTestToMockSharedCollaborator() throws Exception {
+         assertTrue(firstTestMocking.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      }
+
+      @After
+      public void letFirstTestProceed() { secondTestDone.countDown(); }
+
+      @Test
+      public void mockWhileOtherTestClassTriesToMockSameType(@Mocked SharedCollaborator mock) {
+         fail("Should not get here");
+      }
+   }
+
+   /**
+    * Runs two test classes in parallel, in a separate JVM so that its test run starts and finishes independently of the current one.
+    */
+   public static final class TestClassesRunningInParallel {
+      public static void main(String[] args) throws Exception {
+         Class<?>[] testClasses = {Class.forName(args[0]), Class.forName(args[1])};
+         Result result = new JUnitCore().run(new ParallelComputer(true, false), testClasses);
+
+         for (Failure failure : result.getFailures()) {
+            System.out.println("Failed " + failure.getTestHeader() + ": " + failure.getException());
+         }
+
+         System.out.println("Tests run: " + result.getRunCount());
+      }
+   }
+
+   static String runInParallelInSeparateJVM(Class<?> testClass1, Class<?> testClass2) throws Exception {
+      String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+      Process jvm = new ProcessBuilder(
+         java, "-cp", System.getProperty("java.class.path"), TestClassesRunningInParallel.class.getName(),
+         testClass1.getName(), testClass2.getName()
+      ).redirectErrorStream(true).start();
+
+      BufferedReader output = new BufferedReader(new InputStreamReader(jvm.getInputStream(), "UTF-8"));
+      StringBuilder lines = new StringBuilder();
+
+      try {
+         for (String line; (line = output.readLine()) != null; ) {
+            lines.append(line).append('\n');
+         }
+      }
+      finally {
+         output.close();
+      }
+
+      assertEquals(lines.toString(), 0, jvm.waitFor());
+      return lines.toString();
+   }
+
+   @Test
+   public void runTestClassesMockingDifferentTypesInParallel() throws Exception {
+      String output = runInParallelInSeparateJVM(TestMockingFirstCollaborator.class, TestMockingSecondCollaborator.class);
+
+      assertTrue(output, output.contains("Tests run: 2\n"));
+      assertFalse(output, output.contains("Failed "));
+   }
+
+   @Test
+   public void failTestClassMockingTypeAlreadyMockedByTestClassRunningInParallel() throws Exception {
+      String output = runInParallelInSeparateJVM(FirstTestMockingSharedCollaborator.class, SecondTestMockingSharedCollaborator.class);
+
+      assertTrue(output, output.contains("Tests run: 2\n"));
+      assertFalse(output, output.contains("(" + FirstTestMockingSharedCollaborator.class.getName() + ")"));
+      assertTrue(output, output.contains(
+         "Failed mockWhileOtherTestClassTriesToMockSameType(" + SecondTestMockingSharedCollaborator.class.getName() + "): " +
+         "java.lang.IllegalStateException: JMockit: " + SharedCollaborator.class.getName() + " is already mocked or faked by a test " +
+         "running concurrently"));
+   }
+}
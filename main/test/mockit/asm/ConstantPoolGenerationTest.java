@@ -0,0 +1,89 @@
+package mockit.asm;
+
+import java.io.*;
+import java.net.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+import static org.junit.Assert.*;
+
+import mockit.internal.util.*;
+
+public final class ConstantPoolGenerationTest
+{
+   @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+   private ClassLoader loaderWithListSubclass;
+   private ClassLoader loaderWithMapSubclass;
+
+   @Before
+   public void createLoadersWithSameNamedClassesHavingDifferentSuperClasses() throws IOException {
+      loaderWithListSubclass = createLoaderWithClass("sameName/Sub", "java/util/AbstractList");
+      loaderWithMapSubclass = createLoaderWithClass("sameName/Sub", "java/util/AbstractMap");
+   }
+
+   private ClassLoader createLoaderWithClass(String classDesc, String superClassDesc) throws IOException {
+      File classesDir = tempFolder.newFolder();
+      File classFile = new File(classesDir, classDesc + ".class");
+      assertTrue(classFile.getParentFile().mkdirs());
+
+      DataOutputStream out = new DataOutputStream(new FileOutputStream(classFile));
+
+      try {
+         writeEmptyClass(out, classDesc, superClassDesc);
+      }
+      finally {
+         out.close();
+      }
+
+      return new URLClassLoader(new URL[] {classesDir.toURI().toURL()}, null);
+   }
+
+   private static void writeEmptyClass(DataOutputStream out, String classDesc, String superClassDesc) throws IOException {
+      out.writeInt(0xCAFEBABE);
+      out.writeShort(0);
+      out.writeShort(ClassVersion.V1_6);
+
+      out.writeShort(5);
+      out.writeByte(7); out.writeShort(2);
+      out.writeByte(1); out.writeUTF(classDesc);
+      out.writeByte(7); out.writeShort(4);
+      out.writeByte(1); out.writeUTF(superClassDesc);
+
+      out.writeShort(Access.PUBLIC | Access.SUPER);
+      out.writeShort(1);
+      out.writeShort(3);
+      out.writeShort(0); // interfaces
+      out.writeShort(0); // fields
+      out.writeShort(0); // methods
+      out.writeShort(0); // attributes
+   }
+
+   @Test
+   public void getSuperClassesOfSameNamedClassesFromDifferentClassLoaders() {
+      assertEquals("java/util/AbstractList", ClassLoad.getSuperClass(loaderWithListSubclass, "sameName/Sub"));
+      assertEquals("java/util/AbstractMap", ClassLoad.getSuperClass(loaderWithMapSubclass, "sameName/Sub"));
+      assertEquals("java/util/AbstractList", ClassLoad.getSuperClass(loaderWithListSubclass, "sameName/Sub"));
+   }
+
+   @Test
+   public void findWhichIsSuperClassOfSameNamedClassInEachClassLoader() {
+      String collection = "java/util/AbstractCollection";
+
+      assertEquals(collection, ClassLoad.whichIsSuperClass(loaderWithListSubclass, collection, "sameName/Sub"));
+      assertNull(ClassLoad.whichIsSuperClass(loaderWithMapSubclass, collection, "sameName/Sub"));
+   }
+
+   @Test
+   public void cacheCommonSuperClassesOfSameNamedTypesSeparatelyForEachClassLoader() {
+      ConstantPoolGeneration cpForListSubclass = new ConstantPoolGeneration();
+      cpForListSubclass.classLoader = loaderWithListSubclass;
+      ConstantPoolGeneration cpForMapSubclass = new ConstantPoolGeneration();
+      cpForMapSubclass.classLoader = loaderWithMapSubclass;
+
+      assertEquals("java/util/AbstractList", cpForListSubclass.getCommonSuperClass("sameName/Sub", "java/util/ArrayList"));
+      assertEquals("java/lang/Object", cpForMapSubclass.getCommonSuperClass("sameName/Sub", "java/util/ArrayList"));
+      assertEquals("java/util/AbstractMap", cpForMapSubclass.getCommonSuperClass("java/util/HashMap", "sameName/Sub"));
+      assertEquals("java/util/AbstractList", cpForListSubclass.getCommonSuperClass("java/util/ArrayList", "sameName/Sub"));
+   }
+}
@@ -0,0 +1,243 @@
+package mockit.asm;
+
+import java.lang.reflect.*;
+import java.util.*;
+import javax.annotation.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import mockit.internal.*;
+import mockit.internal.reflection.*;
+import static mockit.asm.Opcodes.*;
+
+public final class MethodWriterTest
+{
+   private static final int LONG_LOOP_INCREMENTS = 10000;
+
+   static final class GeneratedClassLoader extends ClassLoader {
+      GeneratedClassLoader() { super(MethodWriterTest.class.getClassLoader()); }
+      Class<?> defineClass(@Nonnull byte[] classfile) { return defineClass(null, classfile, 0, classfile.length); }
+   }
+
+   static byte[] generateOriginalClass() {
+      ClassWriter cw = new ClassWriter(ClassFile.readBytesFromClassFile("java/lang/Object"));
+      cw.visit(ClassVersion.V1_8, Access.PUBLIC | Access.SUPER, "generated/Sample", null, "java/lang/Object", null);
+      generateSumMethod(cw);
+      generateDivideMethod(cw);
+      generateLongLoopMethod(cw);
+      cw.visitEnd();
+      return cw.toByteArray();
+   }
+
+   // static int sum(int n) { int s = 0; for (int i = 0; i < n; i++) s += i; return s; }
+   private static void generateSumMethod(@Nonnull ClassWriter cw) {
+      MethodWriter mw = cw.visitMethod(Access.PUBLIC | Access.STATIC, "sum", "(I)I", null, null);
+      Label loopStart = new Label();
+      Label loopEnd = new Label();
+      mw.visitInsn(ICONST_0);
+      mw.visitVarInsn(ISTORE, 1);
+      mw.visitInsn(ICONST_0);
+      mw.visitVarInsn(ISTORE, 2);
+      mw.visitLabel(loopStart);
+      mw.visitVarInsn(ILOAD, 2);
+      mw.visitVarInsn(ILOAD, 0);
+      mw.visitJumpInsn(IF_ICMPGE, loopEnd);
+      mw.visitVarInsn(ILOAD, 1);
+      mw.visitVarInsn(ILOAD, 2);
+      mw.visitInsn(IADD);
+      mw.visitVarInsn(ISTORE, 1);
+      mw.visitIincInsn(2, 1);
+      mw.visitJumpInsn(GOTO, loopStart);
+      mw.visitLabel(loopEnd);
+      mw.visitVarInsn(ILOAD, 1);
+      mw.visitInsn(IRETURN);
+      mw.visitMaxStack(0);
+   }
+
+   // static int divide(int a, int b) { try { return a / b; } catch (ArithmeticException e) { return -1; } }
+   private static void generateDivideMethod(@Nonnull ClassWriter cw) {
+      MethodWriter mw = cw.visitMethod(Access.PUBLIC | Access.STATIC, "divide", "(II)I", null, null);
+      Label tryStart = new Label();
+      Label tryEnd = new Label();
+      Label handler = new Label();
+      mw.visitTryCatchBlock(tryStart, tryEnd, handler, "java/lang/ArithmeticException");
+      mw.visitLabel(tryStart);
+      mw.visitVarInsn(ILOAD, 0);
+      mw.visitVarInsn(ILOAD, 1);
+      mw.visitInsn(IDIV);
+      mw.visitLabel(tryEnd);
+      mw.visitInsn(IRETURN);
+      mw.visitLabel(handler);
+      mw.visitInsn(POP);
+      mw.visitInsn(ICONST_M1);
+      mw.visitInsn(IRETURN);
+      mw.visitMaxStack(0);
+   }
+
+   // A loop whose body is so long that the backward jump no longer fits in a signed short if code is inserted before each instruction.
+   private static void generateLongLoopMethod(@Nonnull ClassWriter cw) {
+      MethodWriter mw = cw.visitMethod(Access.PUBLIC | Access.STATIC, "longLoop", "(I)I", null, null);
+      Label loopStart = new Label();
+      mw.visitInsn(ICONST_0);
+      mw.visitVarInsn(ISTORE, 1);
+      mw.visitLabel(loopStart);
+
+      for (int i = 0; i < LONG_LOOP_INCREMENTS; i++) {
+         mw.visitIincInsn(1, 1);
+      }
+
+      mw.visitIincInsn(0, -1);
+      mw.visitVarInsn(ILOAD, 0);
+      mw.visitJumpInsn(IFGT, loopStart);
+      mw.visitVarInsn(ILOAD, 1);
+      mw.visitInsn(IRETURN);
+      mw.visitMaxStack(0);
+   }
+
+   /**
+    * A modification which inserts code before each <tt>IINC</tt> instruction, and optionally a second handler for the first exception
+    * handler.
+    */
+   static class Modification extends WrappingClassVisitor {
+      @Nullable private final String typeForInsertedHandler;
+
+      Modification(@Nonnull ClassReader cr, @Nullable String typeForInsertedHandler) {
+         super(new ClassWriter(cr));
+         this.typeForInsertedHandler = typeForInsertedHandler;
+      }
+
+      @Override
+      public MethodVisitor visitMethod(
+         int access, @Nonnull String name, @Nonnull String desc, @Nullable String signature, @Nullable String[] exceptions
+      ) {
+         final boolean insertingCode = insertsCodeInto(name);
+
+         return new WrappingMethodVisitor(cw.visitMethod(access, name, desc, signature, exceptions)) {
+            @Override
+            public void visitIincInsn(@Nonnegative int varIndex, int increment) {
+               if (insertingCode) {
+                  insertCodeBeforeIINC(mw);
+               }
+
+               mw.visitIincInsn(varIndex, increment);
+            }
+
+            @Override
+            public void visitTryCatchBlock(@Nonnull Label start, @Nonnull Label end, @Nonnull Label handler, @Nullable String type) {
+               mw.visitTryCatchBlock(start, end, handler, type);
+
+               if (typeForInsertedHandler != null) {
+                  mw.visitTryCatchBlock(start, end, handler, typeForInsertedHandler);
+               }
+            }
+         };
+      }
+
+      boolean insertsCodeInto(@Nonnull String methodName) { return !"longLoop".equals(methodName); }
+
+      void insertCodeBeforeIINC(@Nonnull MethodWriter mw) {
+         mw.visitIntInsn(BIPUSH, 7);
+         mw.visitInsn(DUP);
+         mw.visitInsn(POP2);
+      }
+   }
+
+   static final class ModificationStoringLocalVariable extends Modification {
+      ModificationStoringLocalVariable(@Nonnull ClassReader cr) { super(cr, null); }
+
+      @Override
+      void insertCodeBeforeIINC(@Nonnull MethodWriter mw) {
+         mw.visitVarInsn(ILOAD, 1);
+         mw.visitVarInsn(ISTORE, 1);
+      }
+   }
+
+   static final class ModificationWithNoInsertedCode extends Modification {
+      ModificationWithNoInsertedCode(@Nonnull ClassReader cr, @Nonnull String typeForInsertedHandler) {
+         super(cr, typeForInsertedHandler);
+      }
+
+      @Override
+      void insertCodeBeforeIINC(@Nonnull MethodWriter mw) {}
+   }
+
+   static final class ModificationWithLongInsertedCode extends Modification {
+      ModificationWithLongInsertedCode(@Nonnull ClassReader cr) { super(cr, null); }
+
+      @Override
+      boolean insertsCodeInto(@Nonnull String methodName) { return true; }
+
+      @Override
+      void insertCodeBeforeIINC(@Nonnull MethodWriter mw) {
+         mw.visitInsn(NOP);
+      }
+   }
+
+   ClassWriter cw;
+
+   @Nonnull
+   Class<?> modifyAndLoad(@Nonnull WrappingClassVisitor modification, @Nonnull ClassReader cr) {
+      cw = FieldReflection.getField(WrappingClassVisitor.class, "cw", modification);
+      cr.accept(modification);
+      return new GeneratedClassLoader().defineClass(modification.toByteArray());
+   }
+
+   boolean reusedOriginalFrames(@Nonnegative int methodIndex) {
+      List<MethodWriter> methods = FieldReflection.getField(ClassWriter.class, "methods", cw);
+      return FieldReflection.getField(MethodWriter.class, "originalStackMap", methods.get(methodIndex)) != null;
+   }
+
+   static int invoke(@Nonnull Class<?> aClass, @Nonnull String methodName, @Nonnull Object... args) throws Exception {
+      Class<?>[] parameterTypes = new Class<?>[args.length];
+      Arrays.fill(parameterTypes, int.class);
+      Method method = aClass.getMethod(methodName, parameterTypes);
+      return (Integer) method.invoke(null, args);
+   }
+
+   @Test
+   public void reuseOriginalFramesWhenOnlyStraightLineCodeIsInserted() throws Exception {
+      ClassReader cr = new ClassReader(generateOriginalClass());
+
+      Class<?> modifiedClass = modifyAndLoad(new Modification(cr, null), cr);
+
+      assertTrue(reusedOriginalFrames(0));
+      assertTrue(reusedOriginalFrames(1));
+      assertEquals(6, invoke(modifiedClass, "sum", 4));
+      assertEquals(2, invoke(modifiedClass, "divide", 6, 3));
+      assertEquals(-1, invoke(modifiedClass, "divide", 6, 0));
+   }
+
+   @Test
+   public void computeFramesWhenInsertedCodeStoresLocalVariable() throws Exception {
+      ClassReader cr = new ClassReader(generateOriginalClass());
+
+      Class<?> modifiedClass = modifyAndLoad(new ModificationStoringLocalVariable(cr), cr);
+
+      assertFalse(reusedOriginalFrames(0));
+      assertTrue(reusedOriginalFrames(1));
+      assertEquals(6, invoke(modifiedClass, "sum", 4));
+   }
+
+   @Test
+   public void computeFramesWhenBackwardJumpIsExpandedIntoGOTO_W() throws Exception {
+      ClassReader cr = new ClassReader(generateOriginalClass());
+
+      Class<?> modifiedClass = modifyAndLoad(new ModificationWithLongInsertedCode(cr), cr);
+
+      assertTrue(reusedOriginalFrames(0));
+      assertFalse(reusedOriginalFrames(2));
+      assertEquals(2 * LONG_LOOP_INCREMENTS, invoke(modifiedClass, "longLoop", 2));
+   }
+
+   @Test
+   public void computeFramesWhenExceptionHandlerIsInserted() throws Exception {
+      ClassReader cr = new ClassReader(generateOriginalClass());
+
+      Class<?> modifiedClass = modifyAndLoad(new ModificationWithNoInsertedCode(cr, "java/lang/IllegalStateException"), cr);
+
+      assertTrue(reusedOriginalFrames(0));
+      assertFalse(reusedOriginalFrames(1));
+      assertEquals(-1, invoke(modifiedClass, "divide", 6, 0));
+   }
+}
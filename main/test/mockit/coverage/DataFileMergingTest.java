@@ -0,0 +1,89 @@
+package mockit.coverage;
+
+import java.io.*;
+import java.util.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+import static org.junit.Assert.*;
+
+import mockit.coverage.data.*;
+
+public final class DataFileMergingTest
+{
+   @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+   void writeShard(String sourceFile, boolean finalData) throws IOException {
+      CoverageData data = new CoverageData();
+      data.getOrAddFile(sourceFile, null);
+      new AccretionFile(tempFolder.getRoot().getPath(), data).generateShard(finalData);
+   }
+
+   List<String> dataFileNames() {
+      String[] fileNames = tempFolder.getRoot().list();
+      Arrays.sort(fileNames);
+      return Arrays.asList(fileNames);
+   }
+
+   Set<String> sourceFilesInMergedData() throws IOException {
+      CoverageData mergedData = DataFileMerging.mergeDataFilesInDirectory(tempFolder.getRoot());
+      assertNotNull(mergedData);
+      return mergedData.getRawFileToFileData().keySet();
+   }
+
+   @Test
+   public void compactFinalShardsIntoBaseDataFileAndDeleteThem() throws Exception {
+      writeShard("otherTests/TestedClass.java", true);
+      writeShard("otherTests/JUnit4Test.java", true);
+      writeShard("otherTests/SubclassTest.java", false);
+      assertEquals(3, dataFileNames().size());
+
+      DataFileMerging.compactDataFilesInDirectory(tempFolder.getRoot());
+
+      List<String> fileNames = dataFileNames();
+      assertEquals(2, fileNames.size());
+      assertTrue(fileNames.contains("coverage.ser"));
+      assertTrue(fileNames.get(0).endsWith(".live.ser"));
+      assertEquals(
+         new HashSet<String>(Arrays.asList("otherTests/TestedClass.java", "otherTests/JUnit4Test.java", "otherTests/SubclassTest.java")),
+         sourceFilesInMergedData());
+   }
+
+   @Test
+   public void compactNewFinalShardsIntoExistingBaseDataFile() throws Exception {
+      writeShard("otherTests/TestedClass.java", true);
+      DataFileMerging.compactDataFilesInDirectory(tempFolder.getRoot());
+      writeShard("otherTests/JUnit4Test.java", true);
+
+      DataFileMerging.compactDataFilesInDirectory(tempFolder.getRoot());
+
+      assertEquals(Collections.singletonList("coverage.ser"), dataFileNames());
+      assertEquals(
+         new HashSet<String>(Arrays.asList("otherTests/TestedClass.java", "otherTests/JUnit4Test.java")), sourceFilesInMergedData());
+   }
+
+   @Test
+   public void rewriteLiveShardUntilItsDataIsFinal() throws Exception {
+      writeShard("otherTests/TestedClass.java", false);
+      writeShard("otherTests/TestedClass.java", false);
+      assertEquals(1, dataFileNames().size());
+
+      writeShard("otherTests/TestedClass.java", true);
+
+      List<String> fileNames = dataFileNames();
+      assertEquals(1, fileNames.size());
+      assertFalse(fileNames.get(0).endsWith(".live.ser"));
+   }
+
+   @Test
+   public void skipCompactionWhileAnotherJVMIsCompactingTheSameDirectory() throws Exception {
+      writeShard("otherTests/TestedClass.java", true);
+      File lockFile = tempFolder.newFile("coverage.ser.lock");
+
+      DataFileMerging.compactDataFilesInDirectory(tempFolder.getRoot());
+
+      assertTrue(lockFile.exists());
+      assertFalse(new File(tempFolder.getRoot(), "coverage.ser").exists());
+      assertEquals(Collections.singleton("otherTests/TestedClass.java"), sourceFilesInMergedData());
+   }
+}
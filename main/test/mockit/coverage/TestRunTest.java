@@ -0,0 +1,78 @@
+package mockit.coverage;
+
+import java.util.concurrent.atomic.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import mockit.coverage.data.*;
+import mockit.coverage.lines.*;
+
+public final class TestRunTest
+{
+   static final int LINES = 50;
+
+   @Test
+   public void takeSnapshotsWithResetWhileOtherThreadExecutesLinesAndRegistersCallPoints() throws Exception {
+      final AtomicInteger executionsOfEachLine = new AtomicInteger();
+      long executionsInSnapshots = 0;
+
+      CoverageData coverageData = CoverageData.instance();
+      boolean withCallPoints = coverageData.isWithCallPoints();
+      final FileCoverageData fileData = coverageData.getOrAddFile("mockit/coverage/SnapshotExample.java", "class");
+      PerFileLineCoverage lineData = fileData.lineCoverageInfo;
+
+      for (int line = 1; line <= LINES; line++) {
+         lineData.addLine(line);
+      }
+
+      coverageData.setWithCallPoints(true);
+      final AtomicBoolean done = new AtomicBoolean();
+      final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+      Thread executingThread = new Thread() {
+         @Override
+         public void run() {
+            try {
+               while (!done.get()) {
+                  for (int line = 1; line <= LINES; line++) {
+                     TestRun.lineExecuted(fileData.index, line);
+                  }
+
+                  executionsOfEachLine.incrementAndGet();
+               }
+            }
+            catch (Throwable t) { failure.set(t); }
+         }
+      };
+
+      try {
+         executingThread.start();
+
+         for (int i = 0; i < 200; i++) {
+            CoverageData snapshot = TestRun.takeSnapshotOfCoverageData(true);
+            FileCoverageData fileDataInSnapshot = snapshot.getFileData("mockit/coverage/SnapshotExample.java");
+
+            assertNotSame(fileData, fileDataInSnapshot);
+            assertEquals(LINES, fileDataInSnapshot.lineCoverageInfo.getExecutableLineCount());
+            executionsInSnapshots += getExecutionCount(fileDataInSnapshot, 1);
+         }
+      }
+      finally {
+         done.set(true);
+         executingThread.join();
+         coverageData.setWithCallPoints(withCallPoints);
+      }
+
+      assertNull(failure.get());
+
+      FileCoverageData lastSnapshot = TestRun.takeSnapshotOfCoverageData(true).getFileData("mockit/coverage/SnapshotExample.java");
+      executionsInSnapshots += getExecutionCount(lastSnapshot, 1);
+      assertEquals(executionsOfEachLine.get(), executionsInSnapshots);
+   }
+
+   private static int getExecutionCount(FileCoverageData fileData, int line) {
+      int executionCount = fileData.lineCoverageInfo.getExecutionCount(line);
+      return executionCount < 0 ? 0 : executionCount;
+   }
+}
@@ -0,0 +1,103 @@
+package mockit.coverage.data;
+
+import java.io.*;
+import java.util.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public final class CoverageDataTest
+{
+   @Test
+   public void readPreInstrumentedDataWrittenToFile() throws Exception {
+      File dataFile = File.createTempFile("coverage", ".ser");
+
+      try {
+         CoverageData data = new CoverageData();
+         data.getOrAddFile("pkg/Service.java", null);
+         data.writePreInstrumentedDataToFile(dataFile, Arrays.asList("pkg.Service", "pkg.Service$Inner"));
+         Set<String> classNames = new HashSet<String>();
+
+         CoverageData dataRead = CoverageData.readPreInstrumentedData(new FileInputStream(dataFile), classNames);
+
+         assertNotNull(dataRead);
+         assertTrue(dataRead.getRawFileToFileData().containsKey("pkg/Service.java"));
+         assertEquals(new HashSet<String>(Arrays.asList("pkg.Service", "pkg.Service$Inner")), classNames);
+      }
+      finally {
+         //noinspection ResultOfMethodCallIgnored
+         dataFile.delete();
+      }
+   }
+
+   @Test
+   public void reportUnreadablePreInstrumentedDataInsteadOfFailing() {
+      Set<String> classNames = new HashSet<String>();
+      InputStream corruptData = new ByteArrayInputStream(new byte[] {1, 2, 3, 4});
+
+      assertNull(CoverageData.readPreInstrumentedData(corruptData, classNames));
+      assertTrue(classNames.isEmpty());
+   }
+
+   @Test
+   public void reportPreInstrumentedDataOfUnexpectedTypeInsteadOfFailing() throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      ObjectOutputStream output = new ObjectOutputStream(bytes);
+      output.writeObject("not coverage data");
+      output.close();
+
+      assertNull(CoverageData.readPreInstrumentedData(new ByteArrayInputStream(bytes.toByteArray()), new HashSet<String>()));
+   }
+
+   @Test
+   public void rejectDataFileWrittenByIncompatibleVersionWithClearMessage() throws IOException {
+      CoverageData data = new CoverageData();
+      data.getOrAddFile("pkg/Service.java", null);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      ObjectOutputStream output = new ObjectOutputStream(bytes);
+      output.writeObject(data);
+      output.close();
+      File dataFile = File.createTempFile("coverage", ".ser");
+
+      try {
+         writeWithSerialVersionUIDChanged(bytes.toByteArray(), "mockit.coverage.lines.PerFileLineCoverage", dataFile);
+         CoverageData.readDataFromFile(dataFile);
+         fail();
+      }
+      catch (RuntimeException e) {
+         assertTrue(e.getMessage().contains("written by an incompatible version of JMockit"));
+         assertTrue(e.getCause() instanceof InvalidClassException);
+      }
+      finally {
+         //noinspection ResultOfMethodCallIgnored
+         dataFile.delete();
+      }
+   }
+
+   static void writeWithSerialVersionUIDChanged(byte[] serializedData, String className, File dataFile) throws IOException {
+      byte[] classNameBytes = className.getBytes("UTF-8");
+      int p = indexOf(serializedData, classNameBytes) + classNameBytes.length;
+      serializedData[p] ^= 1; // the class descriptor has the serialVersionUID right after the class name
+
+      OutputStream output = new FileOutputStream(dataFile);
+      try { output.write(serializedData); } finally { output.close(); }
+   }
+
+   static int indexOf(byte[] data, byte[] bytesToFind) {
+      for (int i = 0, n = data.length - bytesToFind.length; i <= n; i++) {
+         int j = 0;
+         while (j < bytesToFind.length && data[i + j] == bytesToFind[j]) j++;
+         if (j == bytesToFind.length) return i;
+      }
+
+      throw new IllegalArgumentException("Not found: " + new String(bytesToFind));
+   }
+
+   @Test
+   public void createSingleInstanceLazily() {
+      CoverageData instance = CoverageData.instance();
+
+      assertSame(instance, CoverageData.instance());
+      assertFalse(CoverageData.isPreInstrumented("pkg.NotInstrumented"));
+   }
+}
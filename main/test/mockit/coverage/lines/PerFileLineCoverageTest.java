@@ -0,0 +1,84 @@
+package mockit.coverage.lines;
+
+import java.io.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import mockit.asm.*;
+import mockit.coverage.*;
+
+public final class PerFileLineCoverageTest
+{
+   static Label labelAtLine(int line) {
+      Label label = new Label();
+      label.line = line;
+      return label;
+   }
+
+   static void addBranchingPoints(PerFileLineCoverage coverage, int firstLine, int lines) {
+      for (int line = firstLine; line < firstLine + lines; line++) {
+         coverage.addLine(line);
+         coverage.addBranchingPoint(line, labelAtLine(line), labelAtLine(line + 1));
+      }
+
+      coverage.resolveBranchLines();
+   }
+
+   @Test
+   public void keepBranchExecutionCountsWhenBranchTablesGrow() {
+      PerFileLineCoverage coverage = new PerFileLineCoverage();
+      addBranchingPoints(coverage, 1, 3);
+      coverage.registerExecution(2, null);
+      coverage.registerExecution(2, 1, null);
+      coverage.registerExecution(2, 1, null);
+
+      addBranchingPoints(coverage, 10, 40);
+
+      assertEquals(1, coverage.getExecutionCount(2));
+      assertEquals(2, coverage.getLineData(2).getBranchData(1).getExecutionCount());
+      assertEquals(11, coverage.getLineData(10).getBranchData(1).getLine());
+   }
+
+   @Test
+   public void growBranchTablesOnlyWhileNoProbeIsRegisteringAnExecution() throws Exception {
+      final PerFileLineCoverage coverage = new PerFileLineCoverage();
+      addBranchingPoints(coverage, 1, 8);
+      Thread instrumentingThread = new Thread() {
+         @Override public void run() { addBranchingPoints(coverage, 20, 8); }
+      };
+
+      synchronized (TestRun.getProbesLock()) {
+         instrumentingThread.start();
+         instrumentingThread.join(200);
+
+         assertTrue("Branch tables grown while a probe was executing", instrumentingThread.isAlive());
+         coverage.registerExecution(3, 0, null);
+      }
+
+      instrumentingThread.join();
+      assertEquals(1, coverage.getLineData(3).getBranchData(0).getExecutionCount());
+      assertTrue(coverage.hasValidBranch(27, 1));
+   }
+
+   @Test
+   public void serializeAndDeserializeLinesAndBranchesWithExecutionCounts() throws Exception {
+      PerFileLineCoverage coverage = new PerFileLineCoverage();
+      addBranchingPoints(coverage, 5, 10);
+      coverage.registerExecution(7, null);
+      coverage.registerExecution(7, 0, null);
+
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      ObjectOutputStream output = new ObjectOutputStream(bytes);
+      output.writeObject(coverage);
+      output.close();
+      ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+      PerFileLineCoverage copy = (PerFileLineCoverage) input.readObject();
+
+      assertEquals(coverage.getExecutableLineCount(), copy.getExecutableLineCount());
+      assertEquals(1, copy.getExecutionCount(7));
+      assertEquals(1, copy.getLineData(7).getBranchData(0).getExecutionCount());
+      assertEquals(8, copy.getLineData(7).getBranchData(1).getLine());
+      assertEquals(coverage.getTotalItems(), copy.getTotalItems());
+   }
+}
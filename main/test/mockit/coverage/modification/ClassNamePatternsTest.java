@@ -0,0 +1,38 @@
+package mockit.coverage.modification;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public final class ClassNamePatternsTest
+{
+   @Test
+   public void specifyNoClasses() {
+      assertNull(ClassNamePatterns.create(""));
+      assertNull(ClassNamePatterns.create(",,"));
+   }
+
+   @Test
+   public void matchExactNamesAndPrefixes() {
+      ClassNamePatterns patterns = ClassNamePatterns.create("org.example.Service,org.example.util.*");
+
+      assertNotNull(patterns);
+      assertTrue(patterns.matches("org.example.Service"));
+      assertFalse(patterns.matches("org.example.Service2"));
+      assertFalse(patterns.matches("org.example.Serv"));
+      assertTrue(patterns.matches("org.example.util.Strings"));
+      assertTrue(patterns.matches("org.example.util.io.Files"));
+      assertFalse(patterns.matches("org.example.Other"));
+   }
+
+   @Test
+   public void matchOtherSpecificationsAsRegularExpressions() {
+      ClassNamePatterns patterns = ClassNamePatterns.create("org.*.Service?,com\\.example\\..+Dao,org.example.*");
+
+      assertNotNull(patterns);
+      assertTrue(patterns.matches("org.other.Service1"));
+      assertFalse(patterns.matches("org.other.Service"));
+      assertTrue(patterns.matches("com.example.UserDao"));
+      assertFalse(patterns.matches("com.example.User"));
+      assertTrue(patterns.matches("org.example.Anything"));
+   }
+}
@@ -0,0 +1,97 @@
+package mockit.coverage.modification;
+
+import java.lang.ref.*;
+import java.net.*;
+import java.security.*;
+import java.security.cert.Certificate;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public final class ClassSelectionTest
+{
+   static ProtectionDomain newDomain(String location) throws MalformedURLException {
+      CodeSource codeSource = new CodeSource(new URL(location), (Certificate[]) null);
+      return new ProtectionDomain(codeSource, null, ClassSelection.class.getClassLoader(), null);
+   }
+
+   @Test
+   public void decideSelectionOfDomainOnlyOnce() throws Exception {
+      ClassSelection selection = new ClassSelection();
+      ProtectionDomain domain = newDomain("file:/app/classes/");
+
+      boolean selected = selection.isSelected("org.example.Service", domain);
+
+      assertEquals(selected, selection.isSelected("org.example.Service", domain));
+      assertEquals(selected, selection.isSelected("org.example.Service", newDomain("file:/app/classes/")));
+      assertEquals(2, selection.getDomainCount());
+   }
+
+   @Test
+   public void doNotSelectClassesFromDomainWithoutCodeSource() {
+      ClassSelection selection = new ClassSelection();
+      ProtectionDomain domain = new ProtectionDomain(null, null, ClassSelection.class.getClassLoader(), null);
+
+      assertFalse(selection.isSelected("org.example.Service", domain));
+      assertFalse(selection.isSelected("org.example.Other", domain));
+      assertEquals(1, selection.getDomainCount());
+   }
+
+   @Test
+   public void selectClassesFromSameDomainsInConcurrentThreads() throws Exception {
+      final ClassSelection selection = new ClassSelection();
+      final ProtectionDomain[] domains = {newDomain("file:/app/classes/"), newDomain("file:/lib/library.jar"), newDomain("file:/other/")};
+      final boolean[] expected = new boolean[domains.length];
+
+      for (int i = 0; i < domains.length; i++) {
+         expected[i] = new ClassSelection().isSelected("org.example.Service", domains[i]);
+      }
+
+      ExecutorService threads = Executors.newFixedThreadPool(4);
+
+      try {
+         List<Callable<Boolean>> checks = new ArrayList<Callable<Boolean>>();
+
+         for (int i = 0; i < 200; i++) {
+            final int d = i % domains.length;
+
+            checks.add(new Callable<Boolean>() {
+               @Override
+               public Boolean call() { return selection.isSelected("org.example.Service", domains[d]) == expected[d]; }
+            });
+         }
+
+         for (Future<Boolean> sameResult : threads.invokeAll(checks)) {
+            assertTrue(sameResult.get());
+         }
+      }
+      finally {
+         threads.shutdown();
+      }
+
+      assertEquals(domains.length, selection.getDomainCount());
+   }
+
+   @Test
+   public void discardSelectionOfDomainNoLongerReferenced() throws Exception {
+      ClassSelection selection = new ClassSelection();
+      ProtectionDomain domain = newDomain("file:/app/classes/");
+      selection.isSelected("org.example.Service", domain);
+      WeakReference<ProtectionDomain> domainRef = new WeakReference<ProtectionDomain>(domain);
+
+      //noinspection UnusedAssignment
+      domain = null;
+
+      for (int i = 0; i < 50 && domainRef.get() != null; i++) {
+         System.gc();
+         Thread.sleep(10);
+      }
+
+      assertNull("Domain kept reachable by the class selection", domainRef.get());
+
+      selection.isSelected("org.example.Service", newDomain("file:/other/"));
+      assertEquals(1, selection.getDomainCount());
+   }
+}
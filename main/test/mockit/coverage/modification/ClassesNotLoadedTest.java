@@ -0,0 +1,53 @@
+package mockit.coverage.modification;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public final class ClassesNotLoadedTest
+{
+   @Test
+   public void combineResultsOfTasksRunConcurrentlyInTaskOrder() {
+      List<Callable<List<String>>> tasks = new ArrayList<Callable<List<String>>>();
+
+      for (int i = 0; i < 30; i++) {
+         final String packageName = "pkg" + i;
+         tasks.add(new Callable<List<String>>() {
+            @Override
+            public List<String> call() { return Arrays.asList(packageName + ".A", packageName + ".B"); }
+         });
+      }
+
+      List<String> results = ClassesNotLoaded.runConcurrently(tasks);
+
+      assertEquals(60, results.size());
+
+      for (int i = 0; i < 30; i++) {
+         assertEquals("pkg" + i + ".A", results.get(2 * i));
+         assertEquals("pkg" + i + ".B", results.get(2 * i + 1));
+      }
+   }
+
+   @Test
+   public void reportFailureOfTaskRunConcurrently() {
+      List<Callable<List<String>>> tasks = new ArrayList<Callable<List<String>>>();
+
+      for (int i = 0; i < 3; i++) {
+         tasks.add(new Callable<List<String>>() {
+            @Override
+            public List<String> call() throws Exception { throw new IOException("unreadable classfile"); }
+         });
+      }
+
+      try {
+         ClassesNotLoaded.runConcurrently(tasks);
+         fail();
+      }
+      catch (IllegalStateException e) {
+         assertEquals("unreadable classfile", e.getCause().getMessage());
+      }
+   }
+}
@@ -0,0 +1,106 @@
+package mockit.coverage.modification;
+
+import java.io.*;
+import java.util.*;
+import java.util.jar.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+import static org.junit.Assert.*;
+
+import mockit.coverage.data.*;
+import mockit.internal.*;
+import otherTests.*;
+
+public final class OfflineInstrumentationTest
+{
+   static final String CLASS_FILE_PATH = "otherTests/TestedClass.class";
+
+   @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+   byte[] originalClassfile;
+
+   @Before
+   public void readOriginalClassfile() {
+      originalClassfile = ClassFile.getClassFile(TestedClass.class);
+   }
+
+   void writeFile(File file, byte[] contents) throws IOException {
+      //noinspection ResultOfMethodCallIgnored
+      file.getParentFile().mkdirs();
+      OutputStream output = new FileOutputStream(file);
+
+      try { output.write(contents); } finally { output.close(); }
+   }
+
+   @Test
+   public void instrumentClassesFromClassDirectory() throws Exception {
+      File classDir = new File(tempFolder.getRoot(), "classes");
+      writeFile(new File(classDir, CLASS_FILE_PATH), originalClassfile);
+      writeFile(new File(classDir, "otherTests/SomeTest.class"), originalClassfile);
+      File outputDir = new File(tempFolder.getRoot(), "instrumented");
+
+      OfflineInstrumentation.instrumentClasses(outputDir.getPath(), classDir.getPath());
+
+      assertInstrumentedClassWritten(outputDir);
+      assertFalse(new File(outputDir, "otherTests/SomeTest.class").exists());
+   }
+
+   void assertInstrumentedClassWritten(File outputDir) throws Exception {
+      File instrumentedClassFile = new File(outputDir, CLASS_FILE_PATH);
+      byte[] instrumentedClassfile = ClassFile.readClass(instrumentedClassFile);
+
+      assertNotNull(instrumentedClassfile);
+      assertFalse(Arrays.equals(originalClassfile, instrumentedClassfile));
+      assertEquals(Collections.singletonList(TestedClass.class.getName()), readInstrumentedClassNames(outputDir));
+   }
+
+   static List<?> readInstrumentedClassNames(File outputDir) throws Exception {
+      File dataFile = new File(outputDir, CoverageData.PRE_INSTRUMENTED_DATA_FILE);
+      ObjectInputStream input = new ObjectInputStream(new FileInputStream(dataFile));
+
+      try {
+         assertTrue(input.readObject() instanceof CoverageData);
+         return (List<?>) input.readObject();
+      }
+      finally {
+         input.close();
+      }
+   }
+
+   @Test
+   public void instrumentClassesFromJarFile() throws Exception {
+      File jarFile = new File(tempFolder.getRoot(), "classes.jar");
+      JarOutputStream jar = new JarOutputStream(new FileOutputStream(jarFile));
+
+      try {
+         jar.putNextEntry(new JarEntry(CLASS_FILE_PATH));
+         jar.write(originalClassfile);
+         jar.closeEntry();
+      }
+      finally {
+         jar.close();
+      }
+
+      File outputDir = new File(tempFolder.getRoot(), "instrumented");
+      System.setProperty("coverage-classes", "otherTests.*"); // classes in jars are only selected when specified
+
+      try {
+         OfflineInstrumentation.instrumentClasses(outputDir.getPath(), jarFile.getPath());
+      }
+      finally {
+         System.clearProperty("coverage-classes");
+      }
+
+      assertInstrumentedClassWritten(outputDir);
+   }
+
+   @Test
+   public void writeNoDataFileWhenNoClassesAreSelected() throws Exception {
+      File classDir = tempFolder.newFolder("classes");
+      File outputDir = new File(tempFolder.getRoot(), "instrumented");
+
+      OfflineInstrumentation.instrumentClasses(outputDir.getPath(), classDir.getPath());
+
+      assertFalse(new File(outputDir, CoverageData.PRE_INSTRUMENTED_DATA_FILE).exists());
+   }
+}
@@ -0,0 +1,84 @@
+package mockit.coverage.reporting.sourceFiles;
+
+import java.io.*;
+import java.util.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+import static org.junit.Assert.*;
+
+public final class SourceFileIndexTest
+{
+   @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+   File createSourceFile(String path) throws IOException {
+      File sourceFile = new File(tempFolder.getRoot(), path);
+      //noinspection ResultOfMethodCallIgnored
+      sourceFile.getParentFile().mkdirs();
+      assertTrue(sourceFile.createNewFile());
+      return sourceFile;
+   }
+
+   @Test
+   public void findSourceFilesFromManySubdirectoriesSearchedConcurrently() throws IOException {
+      List<File> expectedFiles = new ArrayList<File>();
+
+      for (int i = 0; i < 20; i++) {
+         expectedFiles.add(createSourceFile("src/pkg" + i + "/sub/Class" + i + ".java"));
+      }
+
+      File topLevelFile = createSourceFile("src/TopLevel.java");
+      List<File> sourceDirs = new ArrayList<File>();
+      sourceDirs.add(new File(tempFolder.getRoot(), "src"));
+      SourceFileIndex index = SourceFileIndex.forSourceDirectories(sourceDirs);
+
+      for (int i = 0; i < 20; i++) {
+         assertEquals(expectedFiles.get(i), index.findSourceFile("pkg" + i + "/sub/Class" + i + ".java"));
+      }
+
+      assertEquals(topLevelFile, index.findSourceFile("TopLevel.java"));
+      assertNull(index.findSourceFile("pkg0/sub/Missing.java"));
+   }
+
+   @Test
+   public void preferFileFromEarlierSourceDirectoryAndAddNestedSourceRoot() throws IOException {
+      File fileInFirstDir = createSourceFile("first/module/src/org/example/Example.java");
+      createSourceFile("second/org/example/Example.java");
+      List<File> sourceDirs = new ArrayList<File>();
+      sourceDirs.add(new File(tempFolder.getRoot(), "first"));
+      sourceDirs.add(new File(tempFolder.getRoot(), "second"));
+      SourceFileIndex index = SourceFileIndex.forSourceDirectories(sourceDirs);
+
+      File sourceFile = index.findSourceFile("org/example/Example.java");
+
+      assertEquals(fileInFirstDir, sourceFile);
+      assertEquals(new File(tempFolder.getRoot(), "first/module/src/"), sourceDirs.get(0));
+   }
+
+   @Test
+   public void preferFileUnderShallowerSourceRootInSameSourceDirectory() throws IOException {
+      createSourceFile("src/a/module/org/example/Example.java");
+      File fileUnderShallowerRoot = createSourceFile("src/z/org/example/Example.java");
+      List<File> sourceDirs = new ArrayList<File>();
+      sourceDirs.add(new File(tempFolder.getRoot(), "src"));
+      SourceFileIndex index = SourceFileIndex.forSourceDirectories(sourceDirs);
+
+      File sourceFile = index.findSourceFile("org/example/Example.java");
+
+      assertEquals(fileUnderShallowerRoot, sourceFile);
+      assertEquals(new File(tempFolder.getRoot(), "src/z"), sourceDirs.get(0));
+   }
+
+   @Test
+   public void findSourceFileOnlyUnderRootsNotInsideDirectoryNamedAfterItsTopLevelPackage() throws IOException {
+      File sourceFile = createSourceFile("src/org/example/org/nested/Nested.java");
+      List<File> sourceDirs = new ArrayList<File>();
+      sourceDirs.add(new File(tempFolder.getRoot(), "src"));
+      SourceFileIndex index = SourceFileIndex.forSourceDirectories(sourceDirs);
+
+      assertEquals(sourceFile, index.findSourceFile("org/example/org/nested/Nested.java"));
+      assertEquals(sourceFile, index.findSourceFile("example/org/nested/Nested.java"));
+      assertEquals(sourceFile, index.findSourceFile("nested/Nested.java"));
+      assertNull(index.findSourceFile("org/nested/Nested.java"));
+   }
+}
@@ -0,0 +1,92 @@
+package mockit.coverage.testImpact;
+
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import mockit.coverage.data.*;
+import mockit.coverage.testImpact.TestImpactMatrix.*;
+
+public final class TestImpactRecorderTest
+{
+   public void firstTest() {}
+   public void secondTest() {}
+
+   final TestImpactRecorder recorder = new TestImpactRecorder();
+   final CyclicBarrier bothTestsAtSamePoint = new CyclicBarrier(2);
+
+   Thread executeTestConcurrently(final String testName, final int fileIndex, final int line) throws Exception {
+      final Method testMethod = TestImpactRecorderTest.class.getMethod(testName);
+
+      Thread testThread = new Thread() {
+         @Override
+         public void run() {
+            try {
+               recorder.setCurrentTestMethod(testMethod);
+               bothTestsAtSamePoint.await();
+
+               recorder.recordLineCoveredByTestIfApplicable(fileIndex, line);
+               recorder.recordBranchCoveredByTestIfApplicable(fileIndex, line, 1);
+               bothTestsAtSamePoint.await();
+
+               recorder.setCurrentTestMethod(null);
+               bothTestsAtSamePoint.await();
+               recorder.recordLineCoveredByTestIfApplicable(fileIndex, line + 100);
+            }
+            catch (InterruptedException ignore) {}
+            catch (BrokenBarrierException ignore) {}
+         }
+      };
+      testThread.start();
+      return testThread;
+   }
+
+   @Test
+   public void recordItemsCoveredByTestsExecutingConcurrentlyIntoEachSeparateTest() throws Exception {
+      CoverageData coverageData = new CoverageData();
+      coverageData.getOrAddFile("pkg/First.java", "class");
+      coverageData.getOrAddFile("pkg/Second.java", "class");
+
+      Thread firstTest = executeTestConcurrently("firstTest", 0, 5);
+      Thread secondTest = executeTestConcurrently("secondTest", 1, 7);
+      firstTest.join();
+      secondTest.join();
+
+      TestImpactMatrix matrix = recorder.buildMatrix(coverageData);
+      String firstTestName = TestImpactRecorderTest.class.getName() + "#firstTest";
+      String secondTestName = TestImpactRecorderTest.class.getName() + "#secondTest";
+      Map<String, CoveredItems> coveredByFirstTest = matrix.getCoveredItems(firstTestName);
+      Map<String, CoveredItems> coveredBySecondTest = matrix.getCoveredItems(secondTestName);
+
+      assertEquals(new HashSet<String>(Arrays.asList(firstTestName, secondTestName)), matrix.getTests());
+      assertEquals(Collections.singleton("pkg/First.java"), coveredByFirstTest.keySet());
+      assertEquals(Collections.singleton("pkg/Second.java"), coveredBySecondTest.keySet());
+      assertArrayEquals(new int[] {5}, coveredByFirstTest.get("pkg/First.java").getLines());
+      assertTrue(coveredByFirstTest.get("pkg/First.java").coversBranch(5, 1));
+      assertArrayEquals(new int[] {7}, coveredBySecondTest.get("pkg/Second.java").getLines());
+      assertTrue(coveredBySecondTest.get("pkg/Second.java").coversBranch(7, 1));
+   }
+
+   @Test
+   public void recordItemsCoveredInThreadStartedByTestIntoThatTest() throws Exception {
+      CoverageData coverageData = new CoverageData();
+      coverageData.getOrAddFile("pkg/First.java", "class");
+      recorder.setCurrentTestMethod(TestImpactRecorderTest.class.getMethod("firstTest"));
+
+      Thread threadStartedByTest = new Thread() {
+         @Override
+         public void run() { recorder.recordLineCoveredByTestIfApplicable(0, 12); }
+      };
+      threadStartedByTest.start();
+      threadStartedByTest.join();
+      recorder.setCurrentTestMethod(null);
+      recorder.recordLineCoveredByTestIfApplicable(0, 13);
+
+      Map<String, CoveredItems> coveredItems =
+         recorder.buildMatrix(coverageData).getCoveredItems(TestImpactRecorderTest.class.getName() + "#firstTest");
+      assertArrayEquals(new int[] {12}, coveredItems.get("pkg/First.java").getLines());
+   }
+}
@@ -0,0 +1,90 @@
+package mockit.coverage.testImpact;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.util.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import mockit.coverage.testImpact.TestImpactMatrix.*;
+
+public final class TestImpactSelectionTest
+{
+   public void testCoveringLine15() {}
+   public void testCoveringLine40() {}
+   public void testNotInMatrix() {}
+
+   TestImpactSelection selection;
+   final ByteArrayOutputStream output = new ByteArrayOutputStream();
+   PrintStream originalOutput;
+
+   @Before
+   public void createSelectionFromMatrixAndCaptureOutput() {
+      TestImpactMatrix matrix = new TestImpactMatrix();
+      addTestCoveringLine(matrix, "testCoveringLine15", 15);
+      addTestCoveringLine(matrix, "testCoveringLine40", 40);
+      selection = new TestImpactSelection(matrix, Long.MAX_VALUE);
+
+      originalOutput = System.out;
+      System.setOut(new PrintStream(output, true));
+   }
+
+   static void addTestCoveringLine(TestImpactMatrix matrix, String testMethodName, int line) {
+      CoveredItems coveredItems = new CoveredItems();
+      coveredItems.addLine(line);
+      String testName = TestImpactSelectionTest.class.getName() + '#' + testMethodName;
+      matrix.addTest(testName, Collections.singletonMap("pkg/Foo.java", coveredItems));
+   }
+
+   @After
+   public void restoreOutput() { System.setOut(originalOutput); }
+
+   boolean shouldRun(String testMethodName) throws NoSuchMethodException {
+      Method testMethod = TestImpactSelectionTest.class.getMethod(testMethodName);
+      return selection.shouldRun(TestImpactSelectionTest.class, testMethod);
+   }
+
+   @Test
+   public void selectOnlyTestsCoveringChangedLines() throws Exception {
+      selection.addChanges(new String[] {"pkg/Foo.java:10-20;25"});
+
+      assertTrue(shouldRun("testCoveringLine15"));
+      assertFalse(shouldRun("testCoveringLine40"));
+      assertTrue(shouldRun("testNotInMatrix"));
+      assertEquals("", output.toString());
+   }
+
+   @Test
+   public void skipInvalidLineRangesWithWarning() throws Exception {
+      selection.addChanges(new String[] {"pkg/Foo.java:abc;12-x;30-20;0;-;38-42"});
+
+      assertFalse(shouldRun("testCoveringLine15"));
+      assertTrue(shouldRun("testCoveringLine40"));
+
+      String warnings = output.toString();
+      assertTrue(warnings.contains("Ignoring invalid line range \"abc\" in changes to pkg/Foo.java"));
+      assertTrue(warnings.contains("\"12-x\""));
+      assertTrue(warnings.contains("\"30-20\""));
+      assertTrue(warnings.contains("\"0\""));
+      assertTrue(warnings.contains("\"-\""));
+      assertFalse(warnings.contains("38-42"));
+   }
+
+   @Test
+   public void considerWholeFileChangedWhenNoLineRangeIsValid() throws Exception {
+      selection.addChanges(new String[] {"pkg/Foo.java:1x;y"});
+
+      assertTrue(shouldRun("testCoveringLine15"));
+      assertTrue(shouldRun("testCoveringLine40"));
+      assertTrue(output.toString().contains("\"1x\""));
+   }
+
+   @Test
+   public void runAllTestsWhenNoSelectionIsInEffect() throws Exception {
+      assertNull(TestImpactSelection.INSTANCE);
+      assertTrue(TestImpactSelection.shouldRunTest(TestImpactSelectionTest.class, null));
+      assertTrue(TestImpactSelection.shouldRunTest(
+         TestImpactSelectionTest.class, TestImpactSelectionTest.class.getMethod("testCoveringLine40")));
+   }
+}
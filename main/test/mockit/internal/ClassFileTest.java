@@ -0,0 +1,104 @@
+package mockit.internal;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.jar.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import mockit.asm.*;
+
+public final class ClassFileTest
+{
+   @Test
+   public void evictReadersFromCacheWhenFull() {
+      ClassFile.ReaderCache cache = new ClassFile.ReaderCache(8);
+      ClassReader reader = new ClassReader(ClassFile.getClassFile(ClassFileTest.class));
+
+      for (int i = 0; i < 20; i++) {
+         String classDesc = "pkg/Class" + i;
+         cache.putReader(classDesc, reader);
+
+         assertTrue(cache.size() <= 8);
+         assertSame(reader, cache.getReader(classDesc));
+      }
+
+      assertSame(reader, cache.getReader("pkg/Class19"));
+      assertNull(cache.getReader("not/Cached"));
+   }
+
+   @Test
+   public void getSameCachedReaderFromConcurrentThreads() throws Exception {
+      final Class<?> aClass = ClassFileTest.class;
+      byte[] expectedBytes = ClassFile.getClassFile(aClass);
+      ExecutorService threads = Executors.newFixedThreadPool(4);
+
+      try {
+         List<Callable<byte[]>> reads = new ArrayList<Callable<byte[]>>();
+
+         for (int i = 0; i < 40; i++) {
+            reads.add(new Callable<byte[]>() {
+               @Override
+               public byte[] call() { return ClassFile.createReaderOrGetFromCache(aClass).getBytecode(); }
+            });
+         }
+
+         for (Future<byte[]> bytes : threads.invokeAll(reads)) {
+            assertArrayEquals(expectedBytes, bytes.get());
+         }
+      }
+      finally {
+         threads.shutdown();
+      }
+   }
+
+   static final class JarConnection extends JarURLConnection {
+      final JarFile jarFile;
+
+      JarConnection(URL url, boolean useCaches) throws IOException, URISyntaxException {
+         super(url);
+         jarFile = new JarFile(new File(getJarFileURL().toURI()));
+         setUseCaches(useCaches);
+      }
+
+      @Override public JarFile getJarFile() { return jarFile; }
+      @Override public void connect() {}
+   }
+
+   @Test
+   public void readClassFromJarFileWithoutUsingCachesAndCloseTheJarFile() throws Exception {
+      URL classFile = Test.class.getResource("Test.class");
+      JarConnection connection = new JarConnection(classFile, false);
+
+      byte[] classfile = ClassFile.readClassFromJarFile(connection);
+
+      assertEquals(0xCAFEBABE, new DataInputStream(new ByteArrayInputStream(classfile)).readInt());
+      assertJarFileClosed(connection.jarFile);
+   }
+
+   static void assertJarFileClosed(JarFile jarFile) {
+      try {
+         jarFile.size();
+         fail("Jar file left open");
+      }
+      catch (IllegalStateException ignore) {}
+   }
+
+   @Test
+   public void readClassFromJarFileSharedThroughURLConnectionCacheLeavingItOpen() throws Exception {
+      URL classFile = Test.class.getResource("Test.class");
+      JarConnection connection = new JarConnection(classFile, true);
+
+      try {
+         ClassFile.readClassFromJarFile(connection);
+
+         assertTrue(connection.jarFile.size() > 0);
+      }
+      finally {
+         connection.jarFile.close();
+      }
+   }
+}
@@ -0,0 +1,100 @@
+package mockit.internal.expectations.transformation;
+
+import java.io.*;
+import java.security.*;
+import java.util.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+import static org.junit.Assert.*;
+
+import mockit.*;
+import mockit.asm.*;
+import mockit.internal.*;
+import mockit.internal.reflection.*;
+
+public final class ExpectationsTransformerTest
+{
+   @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+   private File cacheDir;
+   private String blockClassDesc;
+   private byte[] blockClassfile;
+   private ClassLoader loader;
+   private ProtectionDomain protectionDomain;
+   private Map<Integer, String> typesToCaptureIntoLists;
+
+   @Before
+   public void findVerificationBlockCapturingIntoListOfIntegers() {
+      cacheDir = tempFolder.getRoot();
+
+      // The block in WithCaptureTest#captureArgumentsIntoAListOfASubtypeOfTheCapturedParameterType.
+      for (int i = 1; blockClassfile == null; i++) {
+         String classDesc = "mockit/WithCaptureTest$" + i;
+         byte[] classfile = ClassFile.readBytesFromClassFile(classDesc);
+
+         if (ClassMetadataReader.containsUtf8Constant(classfile, "onlyIntegers")) {
+            blockClassDesc = classDesc;
+            blockClassfile = classfile;
+         }
+      }
+
+      loader = WithCaptureTest.class.getClassLoader();
+      protectionDomain = WithCaptureTest.class.getProtectionDomain();
+      typesToCaptureIntoLists = FieldReflection.getField(ArgumentCapturing.class, "varIndexToTypeDesc", null);
+      typesToCaptureIntoLists.clear();
+   }
+
+   @After
+   public void clearTypesToCaptureIntoLists() { typesToCaptureIntoLists.clear(); }
+
+   byte[] transformInNewJVM() {
+      ExpectationsTransformer transformer = new ExpectationsTransformer(new InvocationBlockClassCache(cacheDir));
+      return transformer.transform(loader, blockClassDesc, null, protectionDomain, blockClassfile);
+   }
+
+   @Test
+   public void registerListVariablesForArgumentCapturingAgainWhenUsingCachedClassfile() {
+      byte[] modifiedClassfile = transformInNewJVM();
+
+      assertNotNull(modifiedClassfile);
+      assertEquals(Collections.singletonList("java/lang/Integer"), new ArrayList<String>(typesToCaptureIntoLists.values()));
+      typesToCaptureIntoLists.clear();
+
+      InvocationBlockClassCache.Entry entry =
+         new InvocationBlockClassCache(cacheDir).getEntry(InvocationBlockClassCache.computeKey(blockClassfile));
+      assertNotNull(entry);
+      assertArrayEquals(modifiedClassfile, entry.modifiedClassfile);
+
+      byte[] cachedClassfile = transformInNewJVM();
+
+      assertArrayEquals(modifiedClassfile, cachedClassfile);
+      assertEquals(Collections.singletonList("java/lang/Integer"), new ArrayList<String>(typesToCaptureIntoLists.values()));
+   }
+
+   @Test
+   public void useCachedClassfileOnlyWhileCommonSuperClassesRemainTheSame() {
+      String key = InvocationBlockClassCache.computeKey(blockClassfile);
+      InvocationBlockClassCache cache = new InvocationBlockClassCache(cacheDir);
+      byte[] fakeClassfile = {1, 2, 3};
+
+      cache.addEntry(key, newEntry(fakeClassfile, "java/util/AbstractList"));
+      assertArrayEquals(fakeClassfile, transformInNewJVM());
+
+      cache.addEntry(key, newEntry(fakeClassfile, "java/lang/Object"));
+      byte[] modifiedClassfile = transformInNewJVM();
+
+      assertNotNull(modifiedClassfile);
+      assertFalse(Arrays.equals(fakeClassfile, modifiedClassfile));
+      //noinspection ConstantConditions
+      assertArrayEquals(modifiedClassfile, cache.getEntry(key).modifiedClassfile);
+   }
+
+   static InvocationBlockClassCache.Entry newEntry(byte[] modifiedClassfile, String commonSuperClassOfArrayListAndLinkedList) {
+      InvocationBlockClassCache.Entry entry = new InvocationBlockClassCache.Entry();
+      entry.commonSuperClassLookups.addAll(
+         Arrays.asList("java/util/ArrayList", "java/util/LinkedList", commonSuperClassOfArrayListAndLinkedList));
+      entry.modifiedClassfile = modifiedClassfile;
+      return entry;
+   }
+}
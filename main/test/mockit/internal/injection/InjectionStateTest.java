@@ -0,0 +1,126 @@
+package mockit.internal.injection;
+
+import java.lang.reflect.*;
+import java.util.*;
+import javax.annotation.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import mockit.*;
+import mockit.internal.expectations.mocking.*;
+import mockit.internal.injection.constructor.*;
+import mockit.internal.injection.field.*;
+import mockit.internal.state.*;
+
+public final class InjectionStateTest
+{
+   public static final class Dependency {}
+
+   public static final class TestedWithConstructors {
+      Dependency dependency;
+      Runnable action;
+      boolean initialized;
+
+      public TestedWithConstructors() {}
+      public TestedWithConstructors(String name) {}
+
+      @PostConstruct
+      void initialize() { initialized = true; }
+   }
+
+   static final class Injectables {
+      @Injectable("test") String name;
+      @Injectable("other") String text;
+   }
+
+   static List<MockedType> injectables(String... fieldNames) throws NoSuchFieldException {
+      List<MockedType> injectables = new ArrayList<MockedType>();
+
+      for (String fieldName : fieldNames) {
+         injectables.add(new MockedType(Injectables.class.getDeclaredField(fieldName)));
+      }
+
+      return injectables;
+   }
+
+   static Constructor<?> findConstructorToUse(InjectionState injectionState) {
+      TestedClass testedClass = new TestedClass(TestedWithConstructors.class, TestedWithConstructors.class);
+      return new ConstructorSearch(injectionState, testedClass, false).findConstructorToUse();
+   }
+
+   @Test
+   public void findConstructorToUseAgainAfterInjectablesChange() throws Exception {
+      Constructor<?> noArgsConstructor = TestedWithConstructors.class.getDeclaredConstructor();
+      Constructor<?> constructorWithName = TestedWithConstructors.class.getDeclaredConstructor(String.class);
+      InjectionState injectionState = new InjectionState();
+
+      Constructor<?> constructor1 = findConstructorToUse(injectionState);
+      injectionState.setInjectables(injectables("name"));
+      Constructor<?> constructor2 = findConstructorToUse(injectionState);
+      Constructor<?> constructor3 = findConstructorToUse(injectionState);
+      injectionState.setInjectables(injectables("text"));
+      Constructor<?> constructor4 = findConstructorToUse(injectionState);
+      injectionState.setInjectables(Collections.<MockedType>emptyList());
+      Constructor<?> constructor5 = findConstructorToUse(injectionState);
+
+      assertEquals(noArgsConstructor, constructor1);
+      assertEquals(constructorWithName, constructor2);
+      assertEquals(constructorWithName, constructor3);
+      assertEquals(constructorWithName, constructor4);
+      assertEquals(noArgsConstructor, constructor5);
+   }
+
+   @Test
+   public void keepConstructorsChosenForEachTestClassSeparately() throws Exception {
+      Constructor<?> noArgsConstructor = TestedWithConstructors.class.getDeclaredConstructor();
+      Constructor<?> constructorWithName = TestedWithConstructors.class.getDeclaredConstructor(String.class);
+      InjectionState stateForTestClassWithInjectable = new InjectionState();
+      stateForTestClassWithInjectable.setInjectables(injectables("name"));
+      InjectionState stateForTestClassWithoutInjectables = new InjectionState();
+
+      Constructor<?> constructor1 = findConstructorToUse(stateForTestClassWithInjectable);
+      Constructor<?> constructor2 = findConstructorToUse(stateForTestClassWithoutInjectables);
+      Constructor<?> constructor3 = findConstructorToUse(stateForTestClassWithInjectable);
+
+      assertEquals(constructorWithName, constructor1);
+      assertEquals(noArgsConstructor, constructor2);
+      assertEquals(constructorWithName, constructor3);
+   }
+
+   @Test
+   public void findTargetFieldsOnlyOnceForEachTestClass() {
+      Class<?> targetClass = TestedWithConstructors.class;
+      InjectionState injectionState = new InjectionState();
+      FieldInjection fieldInjection = new FieldInjection(injectionState, null);
+      List<Field> targetFields1 =
+         fieldInjection.findAllTargetInstanceFieldsInTestedClassHierarchy(targetClass, new TestedClass(targetClass, targetClass));
+      List<Field> targetFields2 = new FieldInjection(injectionState, null)
+         .findAllTargetInstanceFieldsInTestedClassHierarchy(targetClass, new TestedClass(targetClass, targetClass));
+      List<Field> targetFieldsForAnotherTestClass = new FieldInjection(new InjectionState(), null)
+         .findAllTargetInstanceFieldsInTestedClassHierarchy(targetClass, new TestedClass(targetClass, targetClass));
+
+      assertFalse(targetFields1.isEmpty());
+      assertSame(targetFields1, targetFields2);
+      assertNotSame(targetFields1, targetFieldsForAnotherTestClass);
+      assertEquals(targetFields1, targetFieldsForAnotherTestClass);
+   }
+
+   @Test
+   public void executeLifecycleMethodFoundForTestedClass() {
+      LifecycleMethods lifecycleMethods = new InjectionState().lifecycleMethods;
+      lifecycleMethods.findLifecycleMethods(TestedWithConstructors.class);
+      lifecycleMethods.findLifecycleMethods(TestedWithConstructors.class);
+      TestedWithConstructors tested = new TestedWithConstructors();
+      TestRun.enterNoMockingZone();
+
+      try {
+         lifecycleMethods.executeInitializationMethodsIfAny(TestedWithConstructors.class, tested);
+      }
+      finally {
+         TestRun.exitNoMockingZone();
+      }
+
+      assertTrue(tested.initialized);
+   }
+}
@@ -0,0 +1,78 @@
+package mockit.internal.reflection;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public final class GenericTypeReflectionTest
+{
+   public interface Base<T> { T first(); }
+   public interface Other<T> { T second(); }
+   public static class Impl implements Base<String>, Other<Integer> {
+      @Override public String first() { return null; }
+      @Override public Integer second() { return null; }
+   }
+   public static class AnotherImpl implements Base<Long> {
+      @Override public Long first() { return null; }
+   }
+
+   static final String BASE_DESC = Base.class.getName().replace('.', '/');
+   static final String OTHER_DESC = Other.class.getName().replace('.', '/');
+
+   @After
+   public void clearSharedInstances() { GenericTypeReflection.clearSharedInstances(); }
+
+   @Test
+   public void getSameSharedInstanceForSameOwnerTypeAndDifferentOnesForOtherOwnerTypes() {
+      GenericTypeReflection reflection1 = GenericTypeReflection.forType(Impl.class, null);
+      GenericTypeReflection reflection2 = GenericTypeReflection.forType(Impl.class, null);
+      GenericTypeReflection reflection3 = GenericTypeReflection.forType(AnotherImpl.class, null);
+
+      assertSame(reflection1, reflection2);
+      assertNotSame(reflection1, reflection3);
+      assertEquals("()Ljava/lang/String;", reflection1.resolveSignature(BASE_DESC, "()TT;"));
+      assertEquals("()Ljava/lang/Long;", reflection3.resolveSignature(BASE_DESC, "()TT;"));
+   }
+
+   @Test
+   public void createNewSharedInstanceAfterClearingThePreviousOnes() {
+      GenericTypeReflection reflection = GenericTypeReflection.forType(Impl.class, null);
+
+      GenericTypeReflection.clearSharedInstances();
+
+      assertNotSame(reflection, GenericTypeReflection.forType(Impl.class, null));
+   }
+
+   @Test
+   public void resolveSameGenericSignatureFromDifferentOwnerTypes() {
+      GenericTypeReflection reflection = GenericTypeReflection.forType(Impl.class, null);
+
+      for (int i = 0; i < 2; i++) {
+         assertEquals("()Ljava/lang/String;", reflection.resolveSignature(BASE_DESC, "()TT;"));
+         assertEquals("()Ljava/lang/Integer;", reflection.resolveSignature(OTHER_DESC, "()TT;"));
+      }
+   }
+
+   @Test
+   public void memoizeResolvedSignatures() {
+      GenericTypeReflection reflection = GenericTypeReflection.forType(Impl.class, null);
+
+      String resolved1 = reflection.resolveSignature(OTHER_DESC, "()TT;");
+      String resolved2 = reflection.resolveSignature(OTHER_DESC, "()TT;");
+
+      assertSame(resolved1, resolved2);
+   }
+
+   @Test
+   public void recordTypeArgumentsOfGenericMethodForLaterResolutionsOnlyWhenNotShared() {
+      GenericTypeReflection reflection = new GenericTypeReflection(Impl.class, null);
+      GenericTypeReflection sharedReflection = GenericTypeReflection.forType(Impl.class, null);
+      String genericMethodSignature = "<T:Ljava/lang/Number;>()TT;";
+
+      assertEquals("<T:Ljava/lang/Number;>()Ljava/lang/Number;", reflection.resolveSignature(BASE_DESC, genericMethodSignature));
+      assertEquals("<T:Ljava/lang/Number;>()Ljava/lang/Number;", sharedReflection.resolveSignature(BASE_DESC, genericMethodSignature));
+      assertEquals("Ljava/lang/Number;", reflection.resolveReturnType("()TT;"));
+      assertEquals("()Ljava/lang/Number;", reflection.resolveSignature(BASE_DESC, "()TT;"));
+      assertEquals("Ljava/lang/String;", sharedReflection.resolveReturnType("()TT;"));
+      assertEquals("()Ljava/lang/String;", sharedReflection.resolveSignature(BASE_DESC, "()TT;"));
+   }
+}
@@ -0,0 +1,58 @@
+package mockit.internal.state;
+
+import java.util.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import mockit.*;
+import mockit.internal.reflection.*;
+
+public final class MockFixtureTest
+{
+   public static final class First { public int value() { return 1; } }
+   public static final class Second { public int value() { return 2; } }
+   public static final class Third { public int value() { return 3; } }
+
+   @Test
+   public void restoreSeveralFakedClassesThroughSingleRedefinition() {
+      MockFixture mockFixture = TestRun.mockFixture();
+      SavePoint savePoint = new SavePoint();
+
+      new MockUp<First>() { @Mock int value() { return 10; } };
+      new MockUp<Second>() { @Mock int value() { return 20; } };
+      new MockUp<Third>() { @Mock int value() { return 30; } };
+      assertEquals(60, new First().value() + new Second().value() + new Third().value());
+
+      long restorations = MockFixture.getRestorationCount();
+      long classesRestored = MockFixture.getRestoredClassCount();
+
+      savePoint.rollback();
+
+      assertEquals(6, new First().value() + new Second().value() + new Third().value());
+      assertEquals(restorations + 1, MockFixture.getRestorationCount());
+      assertEquals(classesRestored + 3, MockFixture.getRestoredClassCount());
+
+      Map<Class<?>, byte[]> originalClassfiles = FieldReflection.getField(MockFixture.class, "originalClassfiles", mockFixture);
+
+      for (Class<?> restoredClass : new Class<?>[] {First.class, Second.class, Third.class}) {
+         assertFalse(mockFixture.containsRedefinedClass(restoredClass));
+         assertFalse(originalClassfiles.containsKey(restoredClass));
+      }
+   }
+
+   @Test
+   public void restoreMockedClassesToPreviousAndOriginalDefinitionsAtOnce(@Mocked First first) {
+      SavePoint savePoint = new SavePoint();
+      new MockUp<First>() { @Mock int value() { return 10; } };
+      new MockUp<Second>() { @Mock int value() { return 20; } };
+      assertEquals(30, new First().value() + new Second().value());
+
+      savePoint.rollback();
+
+      assertEquals(0, new First().value());
+      assertEquals(2, new Second().value());
+      assertTrue(TestRun.mockFixture().containsRedefinedClass(First.class));
+      assertFalse(TestRun.mockFixture().containsRedefinedClass(Second.class));
+   }
+}
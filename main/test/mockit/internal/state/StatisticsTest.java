@@ -0,0 +1,147 @@
+package mockit.internal.state;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+import org.junit.runner.*;
+import static org.junit.Assert.*;
+
+import mockit.*;
+import mockit.internal.startup.*;
+import static mockit.internal.state.Statistics.Counter.*;
+
+public final class StatisticsTest
+{
+   @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+   public static final class FirstTestClass {}
+   public static final class SecondTestClass {}
+   public static final class TestClassMockingSystem {}
+   public static final class Faked { public int value() { return 1; } }
+
+   public static final class TestClassWithMockedTypes {
+      @Mocked Faked mockedInAllTests;
+
+      @Test
+      public void useMockedTypes(@Mocked Runnable mockedInThisTest) {
+         assertEquals(0, mockedInAllTests.value());
+         mockedInThisTest.run();
+      }
+   }
+
+   /**
+    * Executed in a separate JVM with statistics enabled, since they can only be enabled at startup.
+    */
+   public static final class CountingInParallel {
+      public static void main(String[] args) throws Exception {
+         Startup.initializeIfPossible();
+
+         final CyclicBarrier barrier = new CyclicBarrier(2);
+         Thread first = startTestThread(barrier, FirstTestClass.class, 3);
+         Thread second = startTestThread(barrier, SecondTestClass.class, 5);
+         first.join();
+         second.join();
+
+         TestRun.setCurrentTestClass(TestClassMockingSystem.class);
+         redefineClassesWhileSystemIsFaked();
+         TestRun.setCurrentTestClass(null);
+
+         Result result = JUnitCore.runClasses(TestClassWithMockedTypes.class);
+         assertTrue(result.getFailures().toString(), result.wasSuccessful());
+      }
+
+      private static Thread startTestThread(final CyclicBarrier barrier, final Class<?> testClass, final int comparisons) {
+         Thread testThread = new Thread() {
+            @Override
+            public void run() {
+               TestRun.registerTestThread();
+               TestRun.setCurrentTestClass(testClass);
+
+               try {
+                  barrier.await();
+
+                  for (int i = 0; i < comparisons; i++) {
+                     Statistics.increment(ExpectationMatchingComparisons);
+                  }
+
+                  barrier.await();
+               }
+               catch (InterruptedException e) { throw new RuntimeException(e); }
+               catch (BrokenBarrierException e) { throw new RuntimeException(e); }
+
+               TestRun.setCurrentTestClass(null);
+            }
+         };
+         testThread.start();
+         return testThread;
+      }
+
+      private static void redefineClassesWhileSystemIsFaked() {
+         SavePoint savePoint = new SavePoint();
+
+         new MockUp<System>() { @Mock String lineSeparator() { return "\r\n"; } };
+         new MockUp<Faked>() { @Mock int value() { return 2; } };
+
+         savePoint.rollback();
+      }
+   }
+
+   @Test
+   public void attributeCountsToTheTestClassOfEachThreadAndNeverTimeRedefinitionsWhileSystemIsMocked() throws Exception {
+      File outputFile = new File(tempFolder.getRoot(), "stats.json");
+
+      runCountingInParallelInSeparateJVM(outputFile);
+
+      String stats = readFile(outputFile);
+      assertEquals(3, getCount(stats, FirstTestClass.class, ExpectationMatchingComparisons));
+      assertEquals(5, getCount(stats, SecondTestClass.class, ExpectationMatchingComparisons));
+      assertTrue(getCount(stats, TestClassMockingSystem.class, ClassRedefinitions) >= 3);
+      assertEquals(1, getCount(stats, TestClassMockingSystem.class, SavePointRestorations));
+      assertEquals(0, getCount(stats, TestClassMockingSystem.class, ClassRedefinitionNanos));
+      assertTrue(getCount(stats, TestClassWithMockedTypes.class, MockedClassGenerationNanos) > 0);
+      assertTrue(getCount(stats, TestClassWithMockedTypes.class, MockedClassRedefinitionNanos) > 0);
+   }
+
+   private static void runCountingInParallelInSeparateJVM(File outputFile) throws Exception {
+      String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+      Process jvm = new ProcessBuilder(
+         java, "-Djmockit-stats=" + outputFile.getPath(), "-cp", System.getProperty("java.class.path"),
+         CountingInParallel.class.getName()
+      ).redirectErrorStream(true).start();
+
+      String output = readStream(jvm.getInputStream());
+      assertEquals(output, 0, jvm.waitFor());
+   }
+
+   private static String readFile(File file) throws IOException { return readStream(new FileInputStream(file)); }
+
+   private static String readStream(InputStream input) throws IOException {
+      Reader reader = new InputStreamReader(input, "UTF-8");
+      StringBuilder text = new StringBuilder();
+      char[] buffer = new char[1024];
+
+      try {
+         for (int n; (n = reader.read(buffer)) > 0; ) {
+            text.append(buffer, 0, n);
+         }
+      }
+      finally {
+         reader.close();
+      }
+
+      return text.toString();
+   }
+
+   private static long getCount(String stats, Class<?> testClass, Statistics.Counter counter) {
+      Matcher testClassCounts = Pattern.compile('"' + Pattern.quote(testClass.getName()) + "\": \\{([^}]*)}").matcher(stats);
+      assertTrue(stats, testClassCounts.find());
+
+      Matcher count = Pattern.compile('"' + counter.getKey() + "\": (-?\\d+)").matcher(testClassCounts.group(1));
+      assertTrue(count.find());
+      return Long.parseLong(count.group(1));
+   }
+}
@@ -0,0 +1,191 @@
+package mockit.internal.util;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import mockit.internal.state.*;
+
+public final class WorkerThreadsTest
+{
+   static List<Callable<Thread>> tasksReturningTheirThreads(int taskCount) {
+      List<Callable<Thread>> tasks = new ArrayList<Callable<Thread>>(taskCount);
+
+      for (int i = 0; i < taskCount; i++) {
+         tasks.add(new Callable<Thread>() {
+            @Override
+            public Thread call() { return Thread.currentThread(); }
+         });
+      }
+
+      return tasks;
+   }
+
+   @Test
+   public void returnResultsInTaskOrder() {
+      List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+
+      for (int i = 0; i < 50; i++) {
+         final int taskIndex = i;
+         tasks.add(new Callable<Integer>() {
+            @Override
+            public Integer call() throws InterruptedException {
+               Thread.sleep(taskIndex % 3);
+               return taskIndex;
+            }
+         });
+      }
+
+      List<Integer> results = WorkerThreads.invokeAll(tasks);
+
+      assertEquals(50, results.size());
+
+      for (int i = 0; i < 50; i++) {
+         assertEquals(i, results.get(i).intValue());
+      }
+   }
+
+   @Test
+   public void runTasksInBoundedPoolOfDaemonThreads() {
+      assumeTrue(WorkerThreads.getParallelism() > 1);
+
+      Set<Thread> threadsUsed = new HashSet<Thread>(WorkerThreads.invokeAll(tasksReturningTheirThreads(100)));
+
+      assertFalse(threadsUsed.contains(Thread.currentThread()));
+      assertTrue(threadsUsed.size() <= WorkerThreads.getParallelism());
+
+      for (Thread thread : threadsUsed) {
+         assertTrue(thread.isDaemon());
+         assertEquals("JMockit worker", thread.getName());
+      }
+   }
+
+   @Test
+   public void runSingleTaskInCallingThread() {
+      List<Thread> threadsUsed = WorkerThreads.invokeAll(tasksReturningTheirThreads(1));
+
+      assertSame(Thread.currentThread(), threadsUsed.get(0));
+   }
+
+   @Test
+   public void runTasksSubmittedFromWorkerThreadInThatSameThread() {
+      List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+
+      for (int i = 0; i < 2 * WorkerThreads.getParallelism(); i++) {
+         tasks.add(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+               Thread workerThread = Thread.currentThread();
+
+               for (Thread thread : WorkerThreads.invokeAll(tasksReturningTheirThreads(3))) {
+                  if (thread != workerThread) {
+                     return false;
+                  }
+               }
+
+               return true;
+            }
+         });
+      }
+
+      for (Boolean ranInSameThread : WorkerThreads.invokeAll(tasks)) {
+         assertTrue(ranInSameThread);
+      }
+   }
+
+   @Test
+   public void propagateExceptionThrownByTask() {
+      List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+      final IllegalArgumentException failure = new IllegalArgumentException("failed");
+
+      for (int i = 0; i < 4; i++) {
+         final boolean failing = i == 2;
+         tasks.add(new Callable<Object>() {
+            @Override
+            public Object call() {
+               if (failing) throw failure;
+               return null;
+            }
+         });
+      }
+
+      try {
+         WorkerThreads.invokeAll(tasks);
+         fail();
+      }
+      catch (IllegalArgumentException e) {
+         assertSame(failure, e);
+      }
+   }
+
+   @Test
+   public void wrapCheckedExceptionThrownByTask() {
+      List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+
+      for (int i = 0; i < 4; i++) {
+         tasks.add(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception { throw new Exception("checked"); }
+         });
+      }
+
+      try {
+         WorkerThreads.invokeAll(tasks);
+         fail();
+      }
+      catch (IllegalStateException e) {
+         assertEquals("checked", e.getCause().getMessage());
+      }
+   }
+
+   @Test
+   public void runTasksInDefaultContextEvenWhenWorkerThreadsAreCreatedFromAParallelTestThread() throws Exception {
+      assumeTrue(WorkerThreads.getParallelism() > 1);
+
+      final List<Callable<TestContext>> tasks = new ArrayList<Callable<TestContext>>();
+
+      for (int i = 0; i < 2 * WorkerThreads.getParallelism(); i++) {
+         tasks.add(new Callable<TestContext>() {
+            @Override
+            public TestContext call() { return TestRun.context(); }
+         });
+      }
+
+      final TestContext defaultContext = TestRun.context();
+      final List<TestContext> contextsSeenByTasks = new ArrayList<TestContext>();
+      final TestContext[] parallelContext = new TestContext[1];
+
+      Thread parallelTestThread = new Thread() {
+         @Override
+         public void run() {
+            TestRun.registerTestThread();
+            parallelContext[0] = TestRun.context();
+            WorkerThreads.shutdown();
+            contextsSeenByTasks.addAll(WorkerThreads.invokeAll(tasks));
+         }
+      };
+      parallelTestThread.start();
+      parallelTestThread.join();
+      TestRun.discardContextsOfTerminatedThreads();
+
+      assertNotSame(defaultContext, parallelContext[0]);
+      assertEquals(tasks.size(), contextsSeenByTasks.size());
+
+      for (TestContext contextSeen : contextsSeenByTasks) {
+         assertSame(defaultContext, contextSeen);
+      }
+   }
+
+   @Test
+   public void createNewPoolOnDemandAfterShutdown() {
+      WorkerThreads.invokeAll(tasksReturningTheirThreads(10));
+      WorkerThreads.shutdown();
+
+      List<Thread> threadsUsed = WorkerThreads.invokeAll(tasksReturningTheirThreads(10));
+
+      assertEquals(10, threadsUsed.size());
+   }
+}
@@ -0,0 +1,110 @@
+package otherTests.testng;
+
+import java.io.*;
+
+import static org.testng.Assert.*;
+import org.testng.annotations.*;
+
+import mockit.*;
+
+public final class ParallelMethodsWithClassLevelFakesTest
+{
+   public static class FirstCollaborator { public int value() { return 1; } }
+   public static class SecondCollaborator { public int value() { return 2; } }
+
+   static void pause() {
+      try { Thread.sleep(2); } catch (InterruptedException ignore) {}
+   }
+
+   public static final class TestsWithFirstFake {
+      @BeforeClass
+      public void applyFakeForAllTestsOfClass() {
+         new MockUp<FirstCollaborator>() { @Mock int value() { return 10; } };
+      }
+
+      @Test(invocationCount = 20)
+      public void useFakeFromClassSetup() {
+         pause();
+         assertEquals(new FirstCollaborator().value(), 10);
+      }
+
+      @Test(invocationCount = 20)
+      public void useFakeFromClassSetupAgain() {
+         pause();
+         assertEquals(new FirstCollaborator().value(), 10);
+      }
+
+      @Test(invocationCount = 20, dependsOnMethods = "useFakeFromClassSetup")
+      public void useFakeFromClassSetupAfterTestsOfOtherClass() {
+         pause();
+         assertEquals(new FirstCollaborator().value(), 10);
+      }
+
+      @AfterClass
+      public void checkFakeStillApplied() {
+         assertEquals(new FirstCollaborator().value(), 10);
+      }
+   }
+
+   public static final class TestsWithSecondFake {
+      @BeforeClass
+      public void applyFakeForAllTestsOfClass() {
+         new MockUp<SecondCollaborator>() { @Mock int value() { return 20; } };
+      }
+
+      @Test(invocationCount = 20)
+      public void useFakeFromClassSetup() {
+         pause();
+         assertEquals(new SecondCollaborator().value(), 20);
+      }
+
+      @Test(invocationCount = 20)
+      public void useFakeFromClassSetupAgain() {
+         pause();
+         assertEquals(new SecondCollaborator().value(), 20);
+      }
+
+      @Test(invocationCount = 20, dependsOnMethods = "useFakeFromClassSetup")
+      public void useFakeFromClassSetupAfterTestsOfOtherClass() {
+         pause();
+         assertEquals(new SecondCollaborator().value(), 20);
+      }
+
+      @AfterClass
+      public void checkFakeStillApplied() {
+         assertEquals(new SecondCollaborator().value(), 20);
+      }
+   }
+
+   /**
+    * Runs a suite with <tt>parallel="methods"</tt> in a separate JVM, so that its execution starts and finishes independently of the
+    * current one.
+    */
+   @Test
+   public void keepFakesFromClassSetupUntilTestNGFinishesEachTestClass() throws Exception {
+      File outputDir = File.createTempFile("testng", "");
+      assertTrue(outputDir.delete());
+
+      String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+      Process jvm = new ProcessBuilder(
+         java, "-cp", System.getProperty("java.class.path"), "org.testng.TestNG",
+         "-parallel", "methods", "-threadcount", "2", "-d", outputDir.getPath(),
+         "-testclass", TestsWithFirstFake.class.getName() + ',' + TestsWithSecondFake.class.getName()
+      ).redirectErrorStream(true).start();
+
+      BufferedReader output = new BufferedReader(new InputStreamReader(jvm.getInputStream(), "UTF-8"));
+      StringBuilder lines = new StringBuilder();
+
+      try {
+         for (String line; (line = output.readLine()) != null; ) {
+            lines.append(line).append('\n');
+         }
+      }
+      finally {
+         output.close();
+      }
+
+      assertEquals(jvm.waitFor(), 0, lines.toString());
+      assertTrue(lines.toString().contains("Total tests run: 120, Failures: 0, Skips: 0"), lines.toString());
+   }
+}